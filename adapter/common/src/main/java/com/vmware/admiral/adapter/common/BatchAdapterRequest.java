@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.common;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
+import com.vmware.xenon.common.ServiceErrorResponse;
+
+/**
+ * Adapter request applying the same operation to a number of resources. The adapter calls back
+ * once, when the operation has completed for all of them, with a {@link BatchAdapterResponse}.
+ */
+public class BatchAdapterRequest extends AdapterRequest {
+
+    /** The references of the resources to which the operation will be applied */
+    public List<URI> resourceReferences;
+
+    /**
+     * Whether the adapter with the given reference accepts batch requests. Only the docker adapter
+     * does, the rest of the adapters expect a request per resource.
+     */
+    public static boolean isSupportedBy(URI adapterReference) {
+        return adapterReference != null
+                && ManagementUriParts.ADAPTER_DOCKER.equals(adapterReference.getPath());
+    }
+
+    @Override
+    public void validate() {
+        StringBuilder sb = new StringBuilder();
+        if (resourceReferences == null || resourceReferences.isEmpty()) {
+            sb.append("'resourceReferences' is required.");
+        }
+        if (serviceTaskCallback == null || serviceTaskCallback.serviceSelfLink == null
+                || serviceTaskCallback.serviceSelfLink.isEmpty()) {
+            sb.append(" 'service callback reference' is required.");
+        }
+        if (operationTypeId == null || operationTypeId.isEmpty()) {
+            sb.append(" 'operationTypeId' is required.");
+        }
+        if (sb.length() > 0) {
+            throw new IllegalArgumentException(sb.toString());
+        }
+    }
+
+    /**
+     * Callback of a batch adapter request, failed if the operation has failed for any of the
+     * resources, with the results per resource.
+     */
+    public static class BatchAdapterResponse extends ServiceTaskCallbackResponse {
+
+        /** Links of the resources for which the operation has completed */
+        public List<String> completedResourceLinks;
+
+        /** Failures of the resources for which the operation has failed, by resource link */
+        public Map<String, ServiceErrorResponse> failedResourceLinks;
+
+        public BatchAdapterResponse() {
+            // GSON serialization constructor
+        }
+    }
+}
@@ -48,6 +48,15 @@ public enum ContainerOperationType {
         return operationsById.get(id);
     }
 
+    /**
+     * Whether the operation can be requested for a number of containers with a single
+     * {@link BatchAdapterRequest}.
+     */
+    public boolean isBatchSupported() {
+        return this == START || this == STOP || this == DELETE || this == INSPECT
+                || this == STATS;
+    }
+
     public static String extractDisplayName(String id) {
         return id.substring(id.lastIndexOf(".") + 1);
     }
@@ -88,6 +88,8 @@ public interface DockerAdapterCommandExecutor {
     String DOCKER_EXEC_DETACH_PROP_NAME = "Detach";
     String DOCKER_EXEC_ID_PROP_NAME = "Id";
     String DOCKER_EXEC_OUTPUT = "__output";
+    // Timeout in seconds of an attached exec, defaults to the timeout of the docker requests.
+    String DOCKER_EXEC_TIMEOUT_SECONDS_PROP_NAME = "execTimeoutSeconds";
 
     // CHECKSTYLE:OFF
     interface DOCKER_CONTAINER_HOST_CONFIG {
@@ -161,6 +163,7 @@ public interface DockerAdapterCommandExecutor {
     String DOCKER_IMAGE_TAG_PROP_NAME = "tag";
     String DOCKER_IMAGE_NAME_PROP_NAME = "imageName";
     String DOCKER_IMAGE_DATA_PROP_NAME = "imageData";
+    String DOCKER_IMAGE_FILE_PROP_NAME = "imageFile";
     String DOCKER_IMAGE_REGISTRY_AUTH = "X-Registry-Auth";
 
     String DOCKER_VOLUME_NAME_PROP_NAME = "Name";
@@ -59,8 +59,10 @@ import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExec
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_EXEC_ATTACH_STDERR_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_EXEC_ATTACH_STDOUT_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_EXEC_COMMAND_PROP_NAME;
-import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_DATA_PROP_NAME;
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_EXEC_TIMEOUT_SECONDS_PROP_NAME;
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_FILE_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_FROM_PROP_NAME;
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_REGISTRY_AUTH;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.SINCE;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.STD_ERR;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.STD_OUT;
@@ -68,16 +70,22 @@ import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExec
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.TIMESTAMPS;
 
 import java.io.File;
-import java.io.IOException;
 import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -85,6 +93,8 @@ import java.util.stream.Collectors;
 import org.apache.http.HttpStatus;
 
 import com.vmware.admiral.adapter.common.AdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest.BatchAdapterResponse;
 import com.vmware.admiral.adapter.common.ContainerOperationType;
 import com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_CONTAINER_NETWORKING_CONNECT_CONFIG;
 import com.vmware.admiral.adapter.docker.util.CommandUtil;
@@ -96,7 +106,8 @@ import com.vmware.admiral.common.task.RetriableTaskBuilder;
 import com.vmware.admiral.common.util.AssertUtil;
 import com.vmware.admiral.common.util.ConfigurationUtil;
 import com.vmware.admiral.common.util.DockerImage;
-import com.vmware.admiral.common.util.ServiceUtils;
+import com.vmware.admiral.common.util.QueryUtil;
+import com.vmware.admiral.common.util.ServiceDocumentQuery;
 import com.vmware.admiral.compute.ContainerHostUtil;
 import com.vmware.admiral.compute.container.ContainerDescriptionService.ContainerDescription;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
@@ -113,26 +124,25 @@ import com.vmware.admiral.compute.container.volume.VolumeBinding;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationFactoryService;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationState;
 import com.vmware.admiral.service.common.LogService;
+import com.vmware.admiral.service.common.LogService.LogSecond;
+import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
 import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
 import com.vmware.xenon.common.DeferredResult;
-import com.vmware.xenon.common.FileUtils;
 import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Service;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceErrorResponse;
 import com.vmware.xenon.common.TaskState.TaskStage;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
 
 /**
  * Service for fulfilling ContainerInstanceRequest backed by a docker server
  */
 public class DockerAdapterService extends AbstractDockerAdapterService {
 
-    /**
-     * prefix used for temp files used to store downloaded images
-     */
-    private static final String DOWNLOAD_TEMPFILE_PREFIX = "admiral";
-
     private static final String FILE_SCHEME = "file";
 
     /**
@@ -213,7 +223,16 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
 
     public static final String RETRIED_AFTER_FAILURE = "failedAfterRetry";
 
+    /**
+     * Maximum number of the containers of a batch request processed at the same time on a host.
+     */
+    public static final String BATCH_CONCURRENCY_PER_HOST_PROPERTY =
+            "dcp.management.docker.adapter.batch.concurrency.per.host";
+    private static final int BATCH_CONCURRENCY_PER_HOST = Integer.getInteger(
+            BATCH_CONCURRENCY_PER_HOST_PROPERTY, 8);
+
     private SystemImageRetrievalManager imageRetrievalManager;
+    private ImageArtifactCache imageArtifactCache;
 
     /**
      * Properties in an inspect response that we want to filter out
@@ -247,6 +266,47 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
          * state after inspecting a container.
          */
         public boolean requestFailed;
+        /** Whether the image was pulled from a registry, or its pull skipped as recent. */
+        public boolean imagePulled;
+        /** Whether the create of the container failed as its image was not found. */
+        public boolean imageNotFound;
+        /** Whether the image was pulled again after it was not found. */
+        public boolean imageRepulled;
+    }
+
+    /**
+     * The request for a single container of a batch request, which reports its outcome to the
+     * batch instead of calling back.
+     */
+    private static class BatchItemRequest extends ContainerInstanceRequest {
+        private final transient Consumer<Throwable> completion;
+        private final transient AtomicBoolean completed = new AtomicBoolean();
+
+        private BatchItemRequest(BatchAdapterRequest batchRequest, URI resourceReference,
+                Consumer<Throwable> completion) {
+            this.operationTypeId = batchRequest.operationTypeId;
+            this.resourceReference = resourceReference;
+            this.serviceTaskCallback = batchRequest.serviceTaskCallback;
+            this.customProperties = batchRequest.customProperties == null ? null
+                    : new HashMap<>(batchRequest.customProperties);
+            this.completion = completion;
+        }
+
+        private void complete(Throwable e) {
+            if (completed.compareAndSet(false, true)) {
+                completion.accept(e);
+            }
+        }
+    }
+
+    private static class BatchContext {
+        private BatchAdapterRequest request;
+        private AtomicInteger remaining;
+        private final Set<String> finishedResourceLinks = ConcurrentHashMap.newKeySet();
+        private final List<String> completedResourceLinks = Collections
+                .synchronizedList(new ArrayList<>());
+        private final Map<String, ServiceErrorResponse> failedResourceLinks =
+                new ConcurrentHashMap<>();
     }
 
     public static class AuthConfig {
@@ -260,11 +320,18 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
     @Override
     public void handleStart(Operation startPost) {
         imageRetrievalManager = new SystemImageRetrievalManager(getHost());
+        imageArtifactCache = ImageArtifactCache.getInstance();
         super.handleStart(startPost);
     }
 
     @Override
     public void handlePatch(Operation op) {
+        BatchAdapterRequest batchRequest = op.getBody(BatchAdapterRequest.class);
+        if (batchRequest.resourceReferences != null) {
+            handleBatchRequest(op, batchRequest);
+            return;
+        }
+
         RequestContext context = new RequestContext();
         context.request = op.getBody(ContainerInstanceRequest.class);
         context.request.validate();// validate the request
@@ -285,6 +352,159 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
         processContainerRequest(context);
     }
 
+    /*
+     * process a batch request - fetch all ContainerStates with a single query and process them
+     * grouped by host, with a single credentials lookup per host
+     */
+    private void handleBatchRequest(Operation op, BatchAdapterRequest batchRequest) {
+        batchRequest.validate();
+        ContainerOperationType operationType = ContainerOperationType.instanceById(
+                batchRequest.operationTypeId);
+        if (operationType == null || !operationType.isBatchSupported()) {
+            throw new IllegalArgumentException("Not supported batch operationTypeId: "
+                    + batchRequest.operationTypeId);
+        }
+        op.complete();
+
+        logInfo("Processing batch operation request %s for %d resources %s", operationType,
+                batchRequest.resourceReferences.size(), batchRequest.getRequestTrackingLog());
+
+        Map<String, URI> referencesByLink = new HashMap<>();
+        for (URI reference : batchRequest.resourceReferences) {
+            referencesByLink.put(reference.getPath(), reference);
+        }
+
+        BatchContext batch = new BatchContext();
+        batch.request = batchRequest;
+        batch.remaining = new AtomicInteger(referencesByLink.size());
+
+        QueryTask queryTask = QueryUtil.buildQuery(ContainerState.class, true);
+        QueryUtil.addExpandOption(queryTask);
+        QueryUtil.addListValueClause(queryTask, ServiceDocument.FIELD_NAME_SELF_LINK,
+                referencesByLink.keySet());
+
+        Map<String, List<ContainerState>> containersByHost = new HashMap<>();
+        new ServiceDocumentQuery<>(getHost(), ContainerState.class).query(queryTask, (r) -> {
+            if (r.hasException()) {
+                completeBatch(batch, r.getException());
+            } else if (r.hasResult()) {
+                ContainerState containerState = r.getResult();
+                referencesByLink.remove(containerState.documentSelfLink);
+                if (containerState.parentLink == null) {
+                    completeBatchItem(batch, containerState.documentSelfLink,
+                            new IllegalArgumentException("parentLink missing for container "
+                                    + containerState.documentSelfLink));
+                    return;
+                }
+                containersByHost.computeIfAbsent(containerState.parentLink,
+                        (k) -> new ArrayList<>()).add(containerState);
+            } else {
+                referencesByLink.keySet().forEach((link) -> completeBatchItem(batch, link,
+                        new IllegalArgumentException("Container not found: " + link)));
+                containersByHost.forEach((hostLink, containers) -> processBatchHost(batch,
+                        hostLink, containers));
+            }
+        });
+    }
+
+    /*
+     * process the containers of a batch request on a host - fetch the host and its credentials
+     * once, then process the containers with at most BATCH_CONCURRENCY_PER_HOST at a time
+     */
+    private void processBatchHost(BatchContext batch, String hostLink,
+            List<ContainerState> containers) {
+        BatchItemRequest hostRequest = new BatchItemRequest(batch.request,
+                UriUtils.buildUri(getHost(), hostLink), (e) -> containers.forEach(
+                        (containerState) -> completeBatchItem(batch,
+                                containerState.documentSelfLink, e)));
+
+        getContainerHost(hostRequest, null, UriUtils.buildUri(getHost(), hostLink),
+                (computeState, commandInput) -> {
+                    DockerAdapterCommandExecutor executor = getCommandExecutor();
+                    Iterator<ContainerState> pending = containers.iterator();
+                    int window = Math.min(BATCH_CONCURRENCY_PER_HOST, containers.size());
+                    for (int i = 0; i < window; i++) {
+                        processNextBatchItem(batch, pending, computeState, commandInput,
+                                executor);
+                    }
+                });
+    }
+
+    private void processNextBatchItem(BatchContext batch, Iterator<ContainerState> pending,
+            ComputeState computeState, CommandInput commandInput,
+            DockerAdapterCommandExecutor executor) {
+        ContainerState containerState;
+        synchronized (pending) {
+            if (!pending.hasNext()) {
+                return;
+            }
+            containerState = pending.next();
+        }
+
+        Consumer<Throwable> completion = (e) -> {
+            completeBatchItem(batch, containerState.documentSelfLink, e);
+            processNextBatchItem(batch, pending, computeState, commandInput, executor);
+        };
+
+        RequestContext context = new RequestContext();
+        context.request = new BatchItemRequest(batch.request,
+                UriUtils.buildUri(getHost(), containerState.documentSelfLink), completion);
+        context.containerState = containerState;
+        context.computeState = computeState;
+        context.commandInput = new CommandInput(commandInput);
+        context.executor = executor;
+        handleExceptions(context.request, null, () -> processOperation(context));
+    }
+
+    private void completeBatchItem(BatchContext batch, String containerLink, Throwable e) {
+        if (!batch.finishedResourceLinks.add(containerLink)) {
+            return;
+        }
+        if (e == null) {
+            batch.completedResourceLinks.add(containerLink);
+        } else {
+            batch.failedResourceLinks.put(containerLink, Utils.toServiceErrorResponse(e));
+        }
+        if (batch.remaining.decrementAndGet() == 0) {
+            completeBatch(batch, null);
+        }
+    }
+
+    private void completeBatch(BatchContext batch, Throwable e) {
+        ServiceTaskCallbackResponse result;
+        if (e != null) {
+            result = batch.request.serviceTaskCallback.getFailedResponse(e);
+        } else if (!batch.failedResourceLinks.isEmpty()) {
+            logWarning("Batch operation %s failed for %d of %d resources %s",
+                    batch.request.operationTypeId, batch.failedResourceLinks.size(),
+                    batch.request.resourceReferences.size(),
+                    batch.request.getRequestTrackingLog());
+            result = batch.request.serviceTaskCallback.getFailedResponse(
+                    batch.failedResourceLinks.values().iterator().next());
+        } else {
+            result = batch.request.serviceTaskCallback.getFinishedResponse();
+        }
+
+        BatchAdapterResponse response = new BatchAdapterResponse();
+        response.copy(result);
+        response.completedResourceLinks = new ArrayList<>(batch.completedResourceLinks);
+        response.failedResourceLinks = new HashMap<>(batch.failedResourceLinks);
+        super.patchTaskStage(batch.request, TaskStage.FINISHED, null, response);
+    }
+
+    @Override
+    protected void patchTaskStage(AdapterRequest request, TaskStage taskStage, Throwable exception,
+            ServiceTaskCallbackResponse callbackResponse) {
+        if (request instanceof BatchItemRequest) {
+            if (exception == null && TaskStage.FINISHED != taskStage) {
+                exception = new IllegalStateException("Adapter Exception.");
+            }
+            ((BatchItemRequest) request).complete(exception);
+            return;
+        }
+        super.patchTaskStage(request, taskStage, exception, callbackResponse);
+    }
+
     /*
      * start processing the request - first fetch the ContainerState
      */
@@ -382,8 +602,36 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
     }
 
     private void processFetchContainerLog(RequestContext context) {
+        if (!isWholeLogFetch(context.request)) {
+            fetchContainerLog(context, false, null);
+            return;
+        }
+
+        // the whole log is fetched incrementally, after the last line of the kept logs
+        String logLink = UriUtils.buildUriPath(LogService.FACTORY_LINK,
+                Service.getId(context.containerState.documentSelfLink));
+        sendRequest(Operation
+                .createGet(UriUtils.buildUri(getHost(), logLink,
+                        LogService.TAIL_QUERY_PARAM + "=0"))
+                .setContextId(context.request.getRequestId())
+                .setCompletion((o, e) -> {
+                    // no logs are kept, e.g. after a restart, so the whole log is fetched again
+                    String since = e != null ? null
+                            : o.getBody(LogService.LogServiceState.class).lastLogTimestamp;
+                    handleExceptions(context.request, context.operation,
+                            () -> fetchContainerLog(context, true, since));
+                }));
+    }
+
+    private void fetchContainerLog(RequestContext context, boolean incremental, String since) {
         CommandInput fetchLogCommandInput = constructFetchLogCommandInput(context.request,
                 context.commandInput, context.containerState);
+        if (incremental) {
+            fetchLogCommandInput.withProperty(TIMESTAMPS, true);
+            if (since != null) {
+                fetchLogCommandInput.withProperty(SINCE, Instant.parse(since).getEpochSecond());
+            }
+        }
 
         context.executor.fetchContainerLog(fetchLogCommandInput, (op, ex) -> {
             if (ex != null) {
@@ -409,14 +657,26 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                         }
                     }
 
-                    if (log == null) {
+                    String lastLogTimestamp = null;
+                    List<LogSecond> logSeconds = null;
+                    if (incremental && (log != null || since != null)) {
+                        TimestampedLogFilter filtered = TimestampedLogFilter.filter(
+                                log != null ? log : new byte[0], since);
+                        log = filtered.getLog();
+                        logSeconds = filtered.getLogSeconds();
+                        lastLogTimestamp = filtered.getLastLogTimestamp() != null
+                                ? filtered.getLastLogTimestamp() : since;
+                    }
+
+                    if (log == null || (log.length == 0 && lastLogTimestamp == null)) {
                         log = "--".getBytes();
                         // log a warning
                         String containerId = Service.getId(context.containerState.documentSelfLink);
                         logWarning("Found empty logs for container %s", containerId);
                     }
 
-                    processContainerLogResponse(context, log);
+                    processContainerLogResponse(context, log, logSeconds, since,
+                            lastLogTimestamp);
                 });
             }
         });
@@ -459,17 +719,35 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
         return fetchLogCommandInput;
     }
 
-    private void processContainerLogResponse(RequestContext context, byte[] log) {
+    private void processContainerLogResponse(RequestContext context, byte[] log,
+            List<LogSecond> logSeconds, String sinceLogTimestamp, String lastLogTimestamp) {
         LogService.LogServiceState logServiceState = new LogService.LogServiceState();
         logServiceState.documentSelfLink = Service.getId(context.containerState.documentSelfLink);
 
         // 256 bytes spare for service document data
         int maxDocumentSize = LogService.MAX_LOG_SIZE - 256;
         if (log.length > maxDocumentSize) {
-            log = Arrays.copyOfRange(log, log.length - maxDocumentSize, log.length);
+            int dropped = log.length - maxDocumentSize;
+            log = Arrays.copyOfRange(log, dropped, log.length);
+            if (logSeconds != null) {
+                List<LogSecond> keptSeconds = new ArrayList<>();
+                for (LogSecond logSecond : logSeconds) {
+                    // the second of the first kept line may start in the dropped part
+                    if (logSecond.offset <= dropped) {
+                        keptSeconds.clear();
+                    }
+                    keptSeconds.add(new LogSecond(Math.max(0, logSecond.offset - dropped),
+                            logSecond.second));
+                }
+                logSeconds = keptSeconds;
+            }
         }
 
         logServiceState.logs = log;
+        logServiceState.logSeconds = logSeconds;
+        // appended to the kept logs if they end at sinceLogTimestamp
+        logServiceState.lastLogTimestamp = lastLogTimestamp;
+        logServiceState.sinceLogTimestamp = sinceLogTimestamp;
         logServiceState.tenantLinks = context.containerState.tenantLinks;
 
         sendRequest(Operation.createPost(this, LogService.FACTORY_LINK)
@@ -488,6 +766,18 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                 }));
     }
 
+    private boolean isWholeLogFetch(AdapterRequest request) {
+        if (request.customProperties == null) {
+            return true;
+        }
+        String since = request.customProperties.get(SINCE);
+        String tail = request.customProperties.get(TAIL);
+        return (since == null || since.isEmpty()) && (tail == null || tail.isEmpty())
+                && !Boolean.parseBoolean(request.customProperties.get(TIMESTAMPS))
+                && Boolean.parseBoolean(request.customProperties.getOrDefault(STD_ERR, "true"))
+                && Boolean.parseBoolean(request.customProperties.getOrDefault(STD_OUT, "true"));
+    }
+
     private void processCreateImage(RequestContext context) {
         sendRequest(Operation.createGet(this, context.containerState.descriptionLink)
                 .setContextId(context.request.getRequestId())
@@ -525,14 +815,14 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                 .equals(context.containerDescription.image)) {
             String ref = SystemContainerDescriptions.AGENT_IMAGE_REFERENCE;
 
-            imageRetrievalManager.retrieveAgentImage(ref, context.request, (imageData) -> {
-                processLoadImageData(context, imageData, ref, imageCompletionAction);
+            imageRetrievalManager.retrieveAgentImage(ref, context.request, (imageFile) -> {
+                processLoadImageFile(context, imageFile, ref, imageCompletionAction);
             });
         } else if (shouldTryCreateFromLocalImage(context.containerDescription)) {
             if (getBundledImage(context.containerDescription) != null) {
                 String ref = getBundledImage(context.containerDescription);
-                imageRetrievalManager.retrieveAgentImage(ref, context.request, (imageData) -> {
-                    processLoadImageData(context, imageData, ref, imageCompletionAction);
+                imageRetrievalManager.retrieveAgentImage(ref, context.request, (imageFile) -> {
+                    processLoadImageFile(context, imageFile, ref, imageCompletionAction);
                 });
             } else {
                 // try to create the container from a local image first. Only if the image is not
@@ -557,91 +847,64 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
             // fetch the image first, then execute a image load command
             logInfo("Downloading image from: %s %s", imageReference,
                     context.request.getRequestTrackingLog());
-            try {
-                if (FILE_SCHEME.equals(imageReference.getScheme())) {
-                    // for file scheme use the file and do not delete it (it is not a temp copy)
-                    processDownloadedImage(context, new File(imageReference),
-                            imageCompletionAction, false);
-                } else {
-                    // for not file scheme, download it to a temp file
-                    File tempFile = File.createTempFile(DOWNLOAD_TEMPFILE_PREFIX, null);
-                    tempFile.deleteOnExit();
-
-                    Operation fetchOp = Operation.createGet(imageReference);
-
-                    fetchOp.setExpiration(ServiceUtils.getExpirationTimeFromNowInMicros(
-                            getHost().getOperationTimeoutMicros()))
-                            .setReferer(UriUtils.buildUri(getHost().getPublicUri(), SELF_LINK))
-                            .setContextId(context.request.getRequestId())
-                            .setCompletion((o, ex) -> {
-                                if (ex != null) {
-                                    if (!tempFile.delete()) {
-                                        this.logWarning("Failed to delete temp file: %s %s",
-                                                tempFile, context.request.getRequestTrackingLog());
-                                    }
-                                    fail(context.request, ex);
-                                } else {
-                                    logInfo("Finished download of %d bytes from %s to %s %s",
-                                            tempFile.length(), o.getUri(),
-                                            tempFile.getAbsolutePath(),
-                                            context.request.getRequestTrackingLog());
-
-                                    processDownloadedImage(context, tempFile,
-                                            imageCompletionAction, true);
-                                }
-                            });
-
-                    // TODO ssl trust / credentials for the image server
-                    FileUtils.getFile(getHost().getClient(), fetchOp, tempFile);
-                }
+            if (FILE_SCHEME.equals(imageReference.getScheme())) {
+                // for file scheme use the file as it is (it is not a cached copy)
+                processDownloadedImage(context, new File(imageReference),
+                        imageCompletionAction, () -> {
+                        });
+            } else {
+                // for not file scheme, use the cached copy, downloading it if needed
+                // TODO ssl trust / credentials for the image server
+                imageArtifactCache.acquire(getHost(), imageReference, (imageFile, ex) -> {
+                    if (ex != null) {
+                        fail(context.request, new RuntimeException(
+                                "Failure downloading image from: " + imageReference
+                                        + context.request.getRequestTrackingLog(), ex));
+                        return;
+                    }
+                    logInfo("Using cached image of %d bytes from %s %s", imageFile.length(),
+                            imageReference, context.request.getRequestTrackingLog());
 
-            } catch (IOException x) {
-                throw new RuntimeException("Failure downloading image from: " + imageReference
-                        + context.request.getRequestTrackingLog(), x);
+                    processDownloadedImage(context, imageFile, imageCompletionAction,
+                            () -> imageArtifactCache.release(imageFile));
+                });
             }
         }
     }
 
     /**
-     * read the temp file containing the downloaded image from the file system and proceed with
-     * imageCompletionAction
+     * load the downloaded image from the file system to the docker host and proceed with
+     * imageCompletionAction. The image is streamed from the file, releaseAction is called once
+     * the image is loaded or the load has failed.
      *
      * @param context
-     * @param tempFile
+     * @param imageFile
      * @param imageCompletionAction
+     * @param releaseAction
      */
-    private void processDownloadedImage(RequestContext context, File tempFile,
-            Runnable imageCompletionAction, boolean isTempFile) {
-
-        Operation fileReadOp = Operation.createPatch(null)
-                .setContextId(context.request.getRequestId())
-                .setCompletion((o, ex) -> {
-                    if (ex != null) {
-                        fail(context.request, ex);
-                        return;
-                    }
-
-                    byte[] imageData = o.getBody(byte[].class);
-                    if (isTempFile && !tempFile.delete()) {
-                        this.logWarning("Failed to delete temp file: %s %s", tempFile,
-                                context.request.getRequestTrackingLog());
-                    }
-
-                    processLoadImageData(context, imageData,
-                            context.containerDescription.imageReference.toString(),
-                            imageCompletionAction);
-                });
-
-        FileUtils.readFileAndComplete(fileReadOp, tempFile);
+    private void processDownloadedImage(RequestContext context, File imageFile,
+            Runnable imageCompletionAction, Runnable releaseAction) {
+        processLoadImageFile(context, imageFile,
+                context.containerDescription.imageReference.toString(), () -> {
+                    releaseAction.run();
+                    imageCompletionAction.run();
+                }, releaseAction);
     }
 
-    private void processLoadImageData(RequestContext context, byte[] imageData, String fileName,
+    private void processLoadImageFile(RequestContext context, File imageFile, String fileName,
             Runnable imageCompletionAction) {
+        processLoadImageFile(context, imageFile, fileName, imageCompletionAction, () -> {
+        });
+    }
+
+    private void processLoadImageFile(RequestContext context, File imageFile, String fileName,
+            Runnable imageCompletionAction, Runnable failureAction) {
         // TODO consider merging this functionality with DockerHostAdapterImageService.doLoadImage
-        if (imageData == null || imageData.length == 0) {
+        if (imageFile == null || imageFile.length() == 0) {
             String errMsg = String.format("No content loaded for file: %s %s",
                     fileName, context.request.getRequestTrackingLog());
             this.logSevere(errMsg);
+            failureAction.run();
             fail(context.request, new LocalizableValidationException(errMsg,
                     "adapter.load.image.empty", fileName, context.request.getRequestTrackingLog()));
             return;
@@ -649,14 +912,14 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
 
         logInfo("Loaded content for file: %s %s. Now sending to host...", fileName,
                 context.request.getRequestTrackingLog());
-        doLoadImage(context, imageData, fileName, imageCompletionAction);
+        doLoadImage(context, imageFile, fileName, imageCompletionAction, failureAction);
     }
 
-    private void doLoadImage(RequestContext context, byte[] imageData, String fileName,
-            Runnable imageCompletionAction) {
+    private void doLoadImage(RequestContext context, File imageFile, String fileName,
+            Runnable imageCompletionAction, Runnable failureAction) {
 
         CommandInput loadImageCommandInput = new CommandInput(context.commandInput)
-                .withProperty(DOCKER_IMAGE_DATA_PROP_NAME, imageData);
+                .withProperty(DOCKER_IMAGE_FILE_PROP_NAME, imageFile);
 
         ensurePullRetriesPropertyExists((retryCountProperty) -> {
             new RetriableTaskBuilder<Void>(
@@ -672,6 +935,7 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                                 if (ex != null) {
                                     Throwable failureCause = ex instanceof CompletionException
                                             ? ex.getCause() : ex;
+                                    failureAction.run();
                                     fail(context.request, failureCause);
                                     return;
                                 }
@@ -719,32 +983,38 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
         ensurePullRetriesPropertyExists((retryCountProperty) -> {
             String fullImageName = DockerImage.fromImageName(context.containerDescription.image)
                     .toString();
-            new RetriableTaskBuilder<Void>(
-                    String.format("pull-image-%s", fullImageName))
-                            .withMaximumRetries(retryCountProperty)
-                            .withRetryDelays(PULL_IMAGE_RETRY_AFTER_SECONDS)
-                            .withRetryDelaysTimeUnit(TimeUnit.SECONDS)
-                            .withServiceHost(getHost())
-                            .withTaskFunction(
-                                    preparePullImageFunction(context, createImageCommandInput))
-                            .execute()
-                            .whenComplete((ignore, ex) -> {
-                                if (ex != null) {
-                                    Throwable failureCause = ex instanceof CompletionException
-                                            ? ex.getCause() : ex;
-                                    fail(context.request, failureCause);
-                                    return;
-                                }
+            String registryAuth = (String) createImageCommandInput.getProperties()
+                    .get(DOCKER_IMAGE_REGISTRY_AUTH);
+            // concurrent pulls of the image on the host are merged into one
+            DockerImagePullCoordinator.getInstance().pull(
+                    context.computeState.documentSelfLink, fullImageName, registryAuth,
+                    () -> new RetriableTaskBuilder<String>(
+                            String.format("pull-image-%s", fullImageName))
+                                    .withMaximumRetries(retryCountProperty)
+                                    .withRetryDelays(PULL_IMAGE_RETRY_AFTER_SECONDS)
+                                    .withRetryDelaysTimeUnit(TimeUnit.SECONDS)
+                                    .withServiceHost(getHost())
+                                    .withTaskFunction(preparePullImageFunction(context,
+                                            createImageCommandInput))
+                                    .execute())
+                    .whenComplete((ignore, ex) -> {
+                        if (ex != null) {
+                            Throwable failureCause = ex instanceof CompletionException
+                                    ? ex.getCause() : ex;
+                            fail(context.request, failureCause);
+                            return;
+                        }
 
-                                imageCompletionAction.run();
-                            });
+                        context.imagePulled = true;
+                        imageCompletionAction.run();
+                    });
         });
     }
 
-    private Function<RetriableTask<Void>, DeferredResult<Void>> preparePullImageFunction(
+    private Function<RetriableTask<String>, DeferredResult<String>> preparePullImageFunction(
             RequestContext context, CommandInput createImageCommandInput) {
         return (task) -> {
-            DeferredResult<Void> result = new DeferredResult<>();
+            DeferredResult<String> result = new DeferredResult<>();
 
             String fullImageName = DockerImage.fromImageName(context.containerDescription.image)
                     .toString();
@@ -752,9 +1022,8 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
 
             context.executor.createImage(createImageCommandInput, (o, ex) -> {
                 if (ex == null) {
-                    // Nothing to do, success completion will be
-                    // handled on the retriable task completion
-                    result.complete(null);
+                    // the response holds the digest of the pulled image
+                    result.complete(o.getBody(String.class));
                     return;
                 }
 
@@ -928,6 +1197,22 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                                                 DOCKER_CONTAINER_CREATE_USE_LOCAL_IMAGE_WITH_PRIORITY,
                                                 "false");
                                         processContainerDescription(context);
+                                    } else if (context.imagePulled && context.imageNotFound
+                                            && !context.imageRepulled) {
+                                        // the pull may have been skipped as recent while the
+                                        // image was removed from the host meanwhile
+                                        String fullImageName = DockerImage.fromImageName(
+                                                context.containerDescription.image).toString();
+                                        logInfo("Image %s not found on %s, pulling it again",
+                                                fullImageName,
+                                                context.computeState.documentSelfLink);
+                                        DockerImagePullCoordinator.getInstance().forget(
+                                                context.computeState.documentSelfLink,
+                                                fullImageName);
+                                        context.imageRepulled = true;
+                                        context.imagePulled = false;
+                                        context.imageNotFound = false;
+                                        processContainerDescription(context);
                                     } else {
                                         Throwable failureCause = ex instanceof CompletionException
                                                 ? ex.getCause() : ex;
@@ -966,6 +1251,10 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                     return;
                 }
 
+                if (o.getStatusCode() == Operation.STATUS_CODE_NOT_FOUND) {
+                    context.imageNotFound = true;
+                }
+
                 if (isRetriableFailure(o.getStatusCode())
                         && !shouldTryCreateFromLocalImage(context.containerDescription)) {
                     // if local image was currently preferred, another task
@@ -1323,6 +1612,13 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                     context.request.customProperties.get(DOCKER_EXEC_ATTACH_STDOUT_PROP_NAME));
         }
 
+        String timeoutSeconds = context.request.customProperties
+                .get(ShellContainerExecutorService.TIMEOUT_SECONDS_KEY);
+        if (timeoutSeconds != null) {
+            execCommandInput.withProperty(DOCKER_EXEC_TIMEOUT_SECONDS_PROP_NAME,
+                    Long.valueOf(timeoutSeconds));
+        }
+
         logFine("Executing command in container: %s %s", context.containerState.documentSelfLink,
                 context.request.getRequestTrackingLog());
 
@@ -1361,9 +1657,13 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
         boolean allowVchStatsCollection = Boolean
                 .valueOf(ConfigurationUtil.getProperty(ALLOW_VCH_STATS_COLLECTION_PROP_NAME));
         if (ContainerHostUtil.isVicHost(context.computeState) && !allowVchStatsCollection) {
-            context.operation.fail(new LocalizableValidationException(
+            Exception e = new LocalizableValidationException(
                     "Container stats are not supported by VCH hosts.",
-                    "request.container.stats.not.supported"));
+                    "request.container.stats.not.supported");
+            if (context.operation != null) {
+                context.operation.fail(e);
+            }
+            fail(context.request, e);
             return;
         }
 
@@ -1379,7 +1679,9 @@ public class DockerAdapterService extends AbstractDockerAdapterService {
                         "Exception while fetching stats for container [%s] of host [%s]",
                         context.containerState.documentSelfLink,
                         context.computeState.documentSelfLink);
-                context.operation.fail(ex);
+                if (context.operation != null) {
+                    context.operation.fail(ex);
+                }
                 fail(context.request, o, ex);
             } else {
                 handleExceptions(context.request, context.operation, () -> {
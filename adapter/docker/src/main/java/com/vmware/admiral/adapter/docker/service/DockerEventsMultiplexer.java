@@ -0,0 +1,573 @@
+/*
+ * Copyright (c) 2020 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterStreamCommandExecutor.EVENT_TYPE_CONTAINER;
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterStreamCommandExecutor.EVENT_TYPE_CONTAINER_DIE;
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterStreamCommandExecutor.EVENT_TYPE_CONTAINER_START;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import com.vmware.admiral.adapter.docker.util.DockerEventsStreamDecoder;
+import com.vmware.admiral.common.util.QueryUtil;
+import com.vmware.admiral.common.util.ServiceDocumentQuery;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState;
+import com.vmware.photon.controller.model.resources.ComputeService;
+import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
+import com.vmware.xenon.common.DeferredResult;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.OperationContext;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
+
+/**
+ * Streams the docker <code>/events</code> of all subscribed hosts over a small, shared pool of
+ * non-blocking I/O threads. Container events are coalesced per container for a short period
+ * before the corresponding {@link ContainerState}s are patched, so a burst of start/die events
+ * for the same container results in a single update.
+ */
+class DockerEventsMultiplexer {
+
+    private static final Logger logger = Logger.getLogger(DockerEventsMultiplexer.class.getName());
+
+    private static final int EVENTS_THREAD_COUNT = Integer.getInteger(
+            "com.vmware.admiral.adapter.events.thread.count", 2);
+    private static final long EVENTS_COALESCE_PERIOD_MILLIS = Long.getLong(
+            "com.vmware.admiral.adapter.events.coalesce.period.millis", 500);
+    private static final int EVENTS_CONNECT_TIMEOUT_MILLIS = Integer.getInteger(
+            "com.vmware.admiral.adapter.events.connect.timeout.millis", 20000);
+    private static final long EVENTS_STATS_RETENTION_MICROS = TimeUnit.MILLISECONDS.toMicros(
+            Long.getLong("com.vmware.admiral.adapter.events.stats.retention.millis",
+                    TimeUnit.MINUTES.toMillis(10)));
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Event stream metrics of a single docker host.
+     */
+    public static class HostEventsStats {
+        /** Number of events received from the host. */
+        public final AtomicLong eventCount = new AtomicLong();
+        /** Number of container events merged into an already pending update. */
+        public final AtomicLong coalescedEventCount = new AtomicLong();
+        /** Number of times the events stream of the host was opened again. */
+        public final AtomicLong reconnectCount = new AtomicLong();
+        /** Time between the last event was emitted by the host and received. */
+        public final AtomicLong lagMicros = new AtomicLong();
+        /** Local time when the last event was received. */
+        public final AtomicLong lastEventTimeMicros = new AtomicLong();
+        /** Local time when the events stream was lost, 0 while it is open. */
+        public final AtomicLong closedTimeMicros = new AtomicLong();
+    }
+
+    private class HostEventsStream {
+        final String hostKey;
+        final URI uri;
+        final Operation op;
+        final ComputeState computeState;
+        final boolean simulatedIOException;
+        HostEventsStats stats;
+        final DockerEventsStreamDecoder decoder = new DockerEventsStreamDecoder();
+        final AtomicBoolean closed = new AtomicBoolean();
+        volatile boolean unsubscribed;
+        volatile Channel channel;
+
+        // guarded by this; the flush stays scheduled until its updates are patched, so
+        // flushes of the same host never overlap
+        Map<String, ContainerState> pendingByContainerId = new HashMap<>();
+        boolean isFlushScheduled;
+
+        HostEventsStream(String hostKey, URI uri, Operation op, ComputeState computeState,
+                boolean simulatedIOException) {
+            this.hostKey = hostKey;
+            this.uri = uri;
+            this.op = op;
+            this.computeState = computeState;
+            this.simulatedIOException = simulatedIOException;
+        }
+    }
+
+    private final ServiceHost host;
+    private final Map<String, HostEventsStream> streams = new ConcurrentHashMap<>();
+    private final Map<String, HostEventsStats> statsByHost = new ConcurrentHashMap<>();
+    private volatile EventLoopGroup group;
+
+    DockerEventsMultiplexer(ServiceHost host) {
+        this.host = host;
+    }
+
+    boolean isSubscribed(String hostKey) {
+        return streams.containsKey(hostKey);
+    }
+
+    /**
+     * Returns the events stream metrics, keyed by host. The metrics of a host are kept while the
+     * stream of the host is reconnected and dropped when the host was not subscribed for a while.
+     */
+    Map<String, HostEventsStats> getStats() {
+        pruneStats(Utils.getSystemNowMicrosUtc());
+        return Collections.unmodifiableMap(statsByHost);
+    }
+
+    void pruneStats(long nowMicros) {
+        for (String hostKey : statsByHost.keySet()) {
+            statsByHost.computeIfPresent(hostKey, (k, stats) -> {
+                long closedTimeMicros = stats.closedTimeMicros.get();
+                boolean expired = closedTimeMicros > 0
+                        && closedTimeMicros + EVENTS_STATS_RETENTION_MICROS < nowMicros;
+                return expired && !streams.containsKey(hostKey) ? null : stats;
+            });
+        }
+    }
+
+    /**
+     * Opens the events stream to the given docker host unless one is already open.
+     *
+     * @param hostKey unique key of the docker host, e.g. its authority
+     * @param uri the <code>/events</code> URI, including the query parameters
+     * @param sslContext the SSL context for secured hosts, <code>null</code> otherwise
+     * @param op operation whose context is used for the updates triggered by the events
+     * @param computeState the docker host
+     * @return whether a new stream was opened
+     */
+    boolean subscribe(String hostKey, URI uri, SSLContext sslContext, Operation op,
+            ComputeState computeState, boolean simulatedIOException) {
+        HostEventsStream stream = new HostEventsStream(hostKey, uri, op, computeState,
+                simulatedIOException);
+        if (streams.putIfAbsent(hostKey, stream) != null) {
+            logger.info("Connection is already opened: " + hostKey);
+            return false;
+        }
+
+        stream.stats = statsByHost.compute(hostKey, (k, stats) -> {
+            if (stats == null) {
+                return new HostEventsStats();
+            }
+            stats.reconnectCount.incrementAndGet();
+            stats.closedTimeMicros.set(0);
+            return stats;
+        });
+
+        int port = uri.getPort() != -1 ? uri.getPort()
+                : (sslContext != null ? 443 : 80);
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(getGroup())
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, EVENTS_CONNECT_TIMEOUT_MILLIS)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ChannelPipeline pipeline = ch.pipeline();
+                        if (sslContext != null) {
+                            SSLEngine engine = sslContext.createSSLEngine(uri.getHost(), port);
+                            engine.setUseClientMode(true);
+                            pipeline.addLast(new SslHandler(engine));
+                        }
+                        pipeline.addLast(new HttpClientCodec());
+                        pipeline.addLast(new EventsHandler(stream));
+                    }
+                });
+
+        bootstrap.connect(uri.getHost(), port).addListener((ChannelFutureListener) f -> {
+            if (!f.isSuccess()) {
+                onStreamFailure(stream, f.cause());
+                return;
+            }
+
+            Channel channel = f.channel();
+            stream.channel = channel;
+            if (stream.unsubscribed) {
+                channel.close();
+                return;
+            }
+
+            String path = uri.getRawQuery() == null ? uri.getRawPath()
+                    : uri.getRawPath() + "?" + uri.getRawQuery();
+            HttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1,
+                    HttpMethod.GET, path);
+            request.headers().set(HttpHeaderNames.HOST, uri.getHost() + ":" + port);
+            request.headers().set(HttpHeaderNames.ACCEPT, HttpHeaderValues.APPLICATION_JSON);
+            request.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            channel.writeAndFlush(request);
+        });
+
+        logger.info("Subscribed for events: " + uri);
+        return true;
+    }
+
+    /**
+     * Closes the events stream to the given docker host.
+     *
+     * @return whether there was an open stream
+     */
+    boolean unsubscribe(String hostKey) {
+        HostEventsStream stream = streams.remove(hostKey);
+        if (stream == null) {
+            return false;
+        }
+        stream.unsubscribed = true;
+        statsByHost.remove(hostKey);
+        closeChannel(stream);
+        return true;
+    }
+
+    void stop() {
+        for (String hostKey : new ArrayList<>(streams.keySet())) {
+            unsubscribe(hostKey);
+        }
+        EventLoopGroup g = this.group;
+        if (g != null) {
+            g.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+            this.group = null;
+        }
+    }
+
+    private EventLoopGroup getGroup() {
+        if (group == null) {
+            synchronized (this) {
+                if (group == null) {
+                    group = new NioEventLoopGroup(EVENTS_THREAD_COUNT,
+                            new DefaultThreadFactory("EventsReader", true));
+                }
+            }
+        }
+        return group;
+    }
+
+    private void closeChannel(HostEventsStream stream) {
+        Channel channel = stream.channel;
+        if (channel != null) {
+            logger.info(String.format("Closing connection to host [%s]", stream.hostKey));
+            channel.close();
+        }
+    }
+
+    private class EventsHandler extends SimpleChannelInboundHandler<HttpObject> {
+        private final HostEventsStream stream;
+
+        EventsHandler(HostEventsStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception {
+            if (msg instanceof HttpResponse) {
+                HttpResponseStatus status = ((HttpResponse) msg).status();
+                if (!HttpResponseStatus.OK.equals(status)) {
+                    throw new IOException("Unexpected events response status: " + status);
+                }
+                if (stream.simulatedIOException) {
+                    throw new IOException("Simulated IOException from an IT test.");
+                }
+            }
+
+            if (msg instanceof HttpContent) {
+                ByteBuf content = ((HttpContent) msg).content();
+                if (content.isReadable()) {
+                    byte[] bytes = new byte[content.readableBytes()];
+                    content.readBytes(bytes);
+                    for (String json : stream.decoder.decode(bytes)) {
+                        handleEvent(stream, json);
+                    }
+                }
+            }
+
+            if (msg instanceof LastHttpContent) {
+                logger.info(String.format("Events stream of [%s] was closed by the host",
+                        stream.hostKey));
+                onStreamClosed(stream);
+                ctx.close();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            onStreamFailure(stream, cause);
+            ctx.close();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            onStreamFailure(stream, new IOException("Connection closed"));
+            super.channelInactive(ctx);
+        }
+    }
+
+    private void handleEvent(HostEventsStream stream, String json) {
+        Events event;
+        try {
+            event = mapper.readValue(json, Events.class);
+        } catch (IOException e) {
+            logger.warning(String.format("Failed to parse event from [%s]: %s", stream.hostKey,
+                    e.getMessage()));
+            return;
+        }
+
+        long nowMicros = Utils.getSystemNowMicrosUtc();
+        stream.stats.eventCount.incrementAndGet();
+        stream.stats.lastEventTimeMicros.set(nowMicros);
+        if (event.getTimeNano() != null) {
+            stream.stats.lagMicros.set(Math.max(0,
+                    nowMicros - TimeUnit.NANOSECONDS.toMicros(event.getTimeNano())));
+        }
+
+        if (!EVENT_TYPE_CONTAINER.equals(event.getType()) || event.getId() == null) {
+            return;
+        }
+
+        ContainerState cs = new ContainerState();
+        if (EVENT_TYPE_CONTAINER_DIE.equals(event.getAction())) {
+            cs.powerState = ContainerState.PowerState.STOPPED;
+        } else if (EVENT_TYPE_CONTAINER_START.equals(event.getAction())) {
+            cs.powerState = ContainerState.PowerState.RUNNING;
+            if (event.getTimeNano() != null) {
+                cs.started = TimeUnit.NANOSECONDS.toMillis(event.getTimeNano());
+            }
+        } else {
+            return;
+        }
+        logger.fine(json);
+
+        boolean schedule = false;
+        synchronized (stream) {
+            // the last event for a container wins
+            if (stream.pendingByContainerId.put(event.getId(), cs) != null) {
+                stream.stats.coalescedEventCount.incrementAndGet();
+            }
+            if (!stream.isFlushScheduled) {
+                stream.isFlushScheduled = true;
+                schedule = true;
+            }
+        }
+
+        if (schedule) {
+            host.schedule(() -> flushPendingUpdates(stream), EVENTS_COALESCE_PERIOD_MILLIS,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushPendingUpdates(HostEventsStream stream) {
+        Map<String, ContainerState> pending;
+        synchronized (stream) {
+            pending = stream.pendingByContainerId;
+            if (pending.isEmpty()) {
+                stream.isFlushScheduled = false;
+                return;
+            }
+            stream.pendingByContainerId = new HashMap<>();
+        }
+
+        QueryTask queryTask = QueryUtil.buildQuery(ContainerState.class, true);
+        QueryUtil.addListValueClause(queryTask, ContainerState.FIELD_NAME_ID, pending.keySet());
+        QueryUtil.addExpandOption(queryTask);
+
+        List<DeferredResult<Operation>> patches = new ArrayList<>();
+        boolean started = runInContext(stream, () -> new ServiceDocumentQuery<>(host,
+                ContainerState.class).query(queryTask, (r) -> {
+                    if (r.hasException()) {
+                        logger.warning(String.format(
+                                "Failed to query container states of [%s] with ids %s: %s",
+                                stream.hostKey, pending.keySet(), r.getException().getMessage()));
+                        onFlushCompleted(stream, patches);
+                    } else if (r.hasResult()) {
+                        ContainerState cs = pending.get(r.getResult().id);
+                        if (cs != null) {
+                            cs.documentSelfLink = r.getDocumentSelfLink();
+                            patches.add(patchContainerState(cs));
+                        }
+                    } else {
+                        onFlushCompleted(stream, patches);
+                    }
+                }));
+        if (!started) {
+            onFlushCompleted(stream, patches);
+        }
+    }
+
+    private void onFlushCompleted(HostEventsStream stream,
+            List<DeferredResult<Operation>> patches) {
+        DeferredResult.allOf(patches).whenComplete((ignore, e) -> {
+            boolean schedule;
+            synchronized (stream) {
+                // events received during the flush are patched by the next one
+                schedule = !stream.pendingByContainerId.isEmpty();
+                stream.isFlushScheduled = schedule;
+            }
+            if (schedule) {
+                host.schedule(() -> flushPendingUpdates(stream), EVENTS_COALESCE_PERIOD_MILLIS,
+                        TimeUnit.MILLISECONDS);
+            }
+        });
+    }
+
+    private void onStreamClosed(HostEventsStream stream) {
+        if (stream.closed.compareAndSet(false, true)) {
+            stream.stats.closedTimeMicros.set(Utils.getSystemNowMicrosUtc());
+            streams.remove(stream.hostKey, stream);
+        }
+    }
+
+    private void onStreamFailure(HostEventsStream stream, Throwable cause) {
+        if (!stream.closed.compareAndSet(false, true)) {
+            return;
+        }
+        stream.stats.closedTimeMicros.set(Utils.getSystemNowMicrosUtc());
+        streams.remove(stream.hostKey, stream);
+        if (stream.unsubscribed) {
+            logger.fine(String.format("Events stream of [%s] closed", stream.hostKey));
+            return;
+        }
+
+        logger.info(String.format("IOException when listening [%s]. Error: [%s]",
+                stream.hostKey, cause.getMessage()));
+
+        ComputeState state = new ComputeState();
+        state.powerState = ComputeService.PowerState.UNKNOWN;
+
+        runInContext(stream, () -> patchComputeState(stream.computeState.documentSelfLink, state)
+                .thenCompose((ignore) -> {
+                    // changing the power state of containers to UNKNOWN
+                    return queryExistingContainerStates(stream.computeState.documentSelfLink);
+                }));
+    }
+
+    private boolean runInContext(HostEventsStream stream, Runnable runnable) {
+        OperationContext originalContext = OperationContext.getOperationContext();
+        try {
+            // set system user context
+            OperationContext.setFrom(stream.op);
+            runnable.run();
+            return true;
+        } catch (Throwable t) {
+            logger.warning(Utils.toString(t));
+            return false;
+        } finally {
+            OperationContext.restoreOperationContext(originalContext);
+        }
+    }
+
+    private DeferredResult<Operation> patchComputeState(String documentSelfLink,
+            ComputeState computeState) {
+        Operation op = Operation.createPatch(UriUtils.buildUri(host, documentSelfLink))
+                .setBody(computeState)
+                .setReferer(host.getUri())
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        logger.warning(String.format("Failed to patch compute state: [%s]",
+                                Utils.toString(e)));
+                        return;
+                    }
+
+                    logger.info(String.format("Successfully patched compute state [%s]",
+                            documentSelfLink));
+                });
+
+        return host.sendWithDeferredResult(op);
+    }
+
+    private DeferredResult<Void> queryExistingContainerStates(String containerHostLink) {
+        QueryTask queryTask = QueryUtil.buildPropertyQuery(ContainerState.class,
+                ContainerState.FIELD_NAME_PARENT_LINK, containerHostLink);
+
+        DeferredResult<Void> df = new DeferredResult<>();
+        List<String> existingContainerStateLinks = new ArrayList<>();
+
+        new ServiceDocumentQuery<>(host, ContainerState.class).query(queryTask, (r) -> {
+            if (r.hasException()) {
+                logger.warning(String.format("Failed to query resource container state [%s]",
+                        r.getDocumentSelfLink()));
+
+                df.fail(r.getException());
+            } else if (r.hasResult()) {
+                existingContainerStateLinks.add(r.getDocumentSelfLink());
+            } else {
+                List<DeferredResult<Operation>> dfs = new ArrayList<>();
+
+                for (String csSelfLink : existingContainerStateLinks) {
+                    ContainerState cs = new ContainerState();
+                    cs.documentSelfLink = csSelfLink;
+                    cs.powerState = ContainerState.PowerState.UNKNOWN;
+
+                    dfs.add(patchContainerState(cs));
+                }
+
+                DeferredResult.allOf(dfs).whenComplete((o, e) -> df.complete(null));
+            }
+        });
+
+        return df;
+    }
+
+    private DeferredResult<Operation> patchContainerState(ContainerState cs) {
+        Operation operation = Operation.createPatch(host,
+                UriUtils.buildUriPath(cs.documentSelfLink))
+                .setBody(cs)
+                .setReferer(host.getUri())
+                .setCompletion((o, ex) -> {
+                    if (ex != null) {
+                        logger.warning(String.format(
+                                "Error patching container state [%s]. Error: [%s]",
+                                cs.documentSelfLink, ex.getMessage()));
+                    }
+                });
+
+        return host.sendWithDeferredResult(operation);
+    }
+}
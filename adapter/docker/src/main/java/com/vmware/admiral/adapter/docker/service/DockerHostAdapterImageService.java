@@ -18,16 +18,20 @@ import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExec
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_BUILD_IMAGE_INSPECT_NAME_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_BUILD_IMAGE_NOCACHE_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_BUILD_IMAGE_TAG_PROP_NAME;
-import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_DATA_PROP_NAME;
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_FILE_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_FROM_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_NAME_PROP_NAME;
+import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_REGISTRY_AUTH;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_REPOSITORY_PROP_NAME;
 import static com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor.DOCKER_IMAGE_TAG_PROP_NAME;
 import static com.vmware.admiral.compute.ContainerHostService.SSL_TRUST_ALIAS_PROP_NAME;
 import static com.vmware.admiral.compute.ContainerHostService.SSL_TRUST_CERT_PROP_NAME;
 
+import java.io.File;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
 
 import com.google.gson.JsonElement;
 
@@ -36,9 +40,11 @@ import com.vmware.admiral.adapter.common.ImageOperationType;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
 import com.vmware.photon.controller.model.resources.ComputeService;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.TaskState;
+import com.vmware.xenon.common.UriUtils;
 
 public class DockerHostAdapterImageService extends AbstractDockerAdapterService {
 
@@ -114,22 +120,36 @@ public class DockerHostAdapterImageService extends AbstractDockerAdapterService
 
         logInfo("Pulling image: %s %s", fullImageName, ctx.request.getRequestTrackingLog());
 
-        Operation.CompletionHandler imageCompletionHandler = (o, ex) -> {
-            if (ex != null) {
-                logWarning("Failure while pulling image [%s] on host [%s]",
-                        fullImageName,
-                        computeState.documentSelfLink);
-                fail(ctx.request, o, ex);
-            } else {
-                handleExceptions(ctx.request, null, () -> {
-                    logInfo("Image pulled: %s on remote machine: %s", fullImageName,
-                            computeState.documentSelfLink);
-                    patchTaskStage(ctx.request, TaskState.TaskStage.FINISHED, null);
+        String registryAuth = (String) ctx.commandInput.getProperties()
+                .get(DOCKER_IMAGE_REGISTRY_AUTH);
+        // merged with the pulls of the same image on the host, e.g. the pre-pull of a placement
+        DockerImagePullCoordinator.getInstance().pull(computeState.documentSelfLink,
+                fullImageName, registryAuth, () -> {
+                    DeferredResult<String> result = new DeferredResult<>();
+                    getCommandExecutor().createImage(ctx.commandInput, (o, ex) -> {
+                        if (ex != null) {
+                            result.fail(DockerAdapterUtils
+                                    .runtimeExceptionFromFailedDockerOperation(o, ex));
+                        } else {
+                            result.complete(o.getBody(String.class));
+                        }
+                    });
+                    return result;
+                }).whenComplete((ignore, ex) -> {
+                    if (ex != null) {
+                        logWarning("Failure while pulling image [%s] on host [%s]",
+                                fullImageName,
+                                computeState.documentSelfLink);
+                        fail(ctx.request, ex instanceof CompletionException
+                                ? ex.getCause() : ex);
+                    } else {
+                        handleExceptions(ctx.request, null, () -> {
+                            logInfo("Image pulled: %s on remote machine: %s", fullImageName,
+                                    computeState.documentSelfLink);
+                            patchTaskStage(ctx.request, TaskState.TaskStage.FINISHED, null);
+                        });
+                    }
                 });
-            }
-        };
-
-        getCommandExecutor().createImage(ctx.commandInput, imageCompletionHandler);
     }
 
     private void doTagImage(BaseRequestContext ctx, ComputeService.ComputeState computeState) {
@@ -188,17 +208,38 @@ public class DockerHostAdapterImageService extends AbstractDockerAdapterService
             }
         };
 
+        if (isDownloadableImageReference(ref)) {
+            // images from http(s) URLs are shared through the image cache
+            ImageArtifactCache imageArtifactCache = ImageArtifactCache.getInstance();
+            imageArtifactCache.acquire(getHost(), URI.create(ref), (imageFile, ex) -> {
+                if (ex != null) {
+                    imageCompletionHandler.handle(null, ex);
+                    return;
+                }
+                processLoadedImageFile(ctx, imageFile, ref, (o, e) -> {
+                    imageArtifactCache.release(imageFile);
+                    imageCompletionHandler.handle(o, e);
+                });
+            });
+            return;
+        }
+
         imageRetrievalManager.retrieveAgentImage(
                 ref,
                 ctx.request,
-                (imageData) -> {
-                    processLoadedImageData(ctx, imageData, ref, imageCompletionHandler);
+                (imageFile) -> {
+                    processLoadedImageFile(ctx, imageFile, ref, imageCompletionHandler);
                 });
     }
 
-    private void processLoadedImageData(BaseRequestContext ctx, byte[] imageData, String fileName,
+    private static boolean isDownloadableImageReference(String ref) {
+        return ref != null && (ref.startsWith(UriUtils.HTTP_SCHEME + "://")
+                || ref.startsWith(UriUtils.HTTPS_SCHEME + "://"));
+    }
+
+    private void processLoadedImageFile(BaseRequestContext ctx, File imageFile, String fileName,
             Operation.CompletionHandler imageCompletionHandler) {
-        if (imageData == null || imageData.length == 0) {
+        if (imageFile == null || imageFile.length() == 0) {
             String errMsg = String.format("No content loaded for file: %s ", fileName);
             this.logSevere(errMsg);
             imageCompletionHandler.handle(null, new LocalizableValidationException(errMsg,
@@ -209,7 +250,7 @@ public class DockerHostAdapterImageService extends AbstractDockerAdapterService
         logInfo("Loaded content for file: %s . Now sending to host...", fileName);
 
         CommandInput loadCommandInput = new CommandInput(ctx.commandInput)
-                .withProperty(DOCKER_IMAGE_DATA_PROP_NAME, imageData);
+                .withProperty(DOCKER_IMAGE_FILE_PROP_NAME, imageFile);
         getCommandExecutor().loadImage(loadCommandInput, imageCompletionHandler);
     }
 
@@ -284,6 +325,8 @@ public class DockerHostAdapterImageService extends AbstractDockerAdapterService
                     } else {
                         logInfo("Image deleted %s on remote machine: %s ", imageName,
                                 computeState.documentSelfLink);
+                        DockerImagePullCoordinator.getInstance()
+                                .forget(computeState.documentSelfLink);
                     }
 
                 });
@@ -27,11 +27,14 @@ import static com.vmware.admiral.compute.ContainerHostService.SSL_TRUST_CERT_PRO
 
 import java.net.URI;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import com.vmware.admiral.adapter.common.ContainerHostOperationType;
+import com.vmware.admiral.adapter.docker.service.DockerEventsMultiplexer.HostEventsStats;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.common.util.ConversionUtil;
 import com.vmware.admiral.common.util.PropertyUtils;
@@ -49,6 +52,7 @@ import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
 import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Operation.CompletionHandler;
+import com.vmware.xenon.common.ServiceStats;
 import com.vmware.xenon.common.TaskState.TaskStage;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
@@ -74,6 +78,84 @@ public class DockerHostAdapterService extends AbstractDockerAdapterService {
     private static final String VCH_CPU_LIMIT = " VCH CPU limit";
     private static final String VCH_CPU_USAGE = " VCH CPU usage";
 
+    // per host stats of the events streams
+    public static final String STAT_NAME_EVENTS_COUNT_FORMAT = "eventsCount-%s";
+    public static final String STAT_NAME_EVENTS_COALESCED_COUNT_FORMAT = "eventsCoalescedCount-%s";
+    public static final String STAT_NAME_EVENTS_RECONNECT_COUNT_FORMAT = "eventsReconnectCount-%s";
+    public static final String STAT_NAME_EVENTS_LAG_MICROS_FORMAT = "eventsLagMicros-%s";
+
+    // hosts whose events stream stats are published, accessed by the maintenance only
+    private final Set<String> eventsStatsHosts = new HashSet<>();
+
+    public DockerHostAdapterService() {
+        super();
+        super.toggleOption(ServiceOption.INSTRUMENTATION, true);
+    }
+
+    @Override
+    public void handlePeriodicMaintenance(Operation post) {
+        DockerAdapterCommandExecutor executor = getCommandExecutor();
+        if (executor instanceof RemoteApiDockerAdapterCommandExecutorImpl) {
+            Map<String, HostEventsStats> eventsStats =
+                    ((RemoteApiDockerAdapterCommandExecutorImpl) executor).getEventsStats();
+            for (Map.Entry<String, HostEventsStats> e : eventsStats.entrySet()) {
+                HostEventsStats stats = e.getValue();
+                setStat(String.format(STAT_NAME_EVENTS_COUNT_FORMAT, e.getKey()),
+                        stats.eventCount.get());
+                setStat(String.format(STAT_NAME_EVENTS_COALESCED_COUNT_FORMAT, e.getKey()),
+                        stats.coalescedEventCount.get());
+                setStat(String.format(STAT_NAME_EVENTS_RECONNECT_COUNT_FORMAT, e.getKey()),
+                        stats.reconnectCount.get());
+                setStat(String.format(STAT_NAME_EVENTS_LAG_MICROS_FORMAT, e.getKey()),
+                        stats.lagMicros.get());
+            }
+
+            Set<String> removedHosts = new HashSet<>(eventsStatsHosts);
+            removedHosts.removeAll(eventsStats.keySet());
+            eventsStatsHosts.removeAll(removedHosts);
+            eventsStatsHosts.addAll(eventsStats.keySet());
+            if (!removedHosts.isEmpty()) {
+                removeEventsStats(removedHosts);
+            }
+        }
+
+        super.handlePeriodicMaintenance(post);
+    }
+
+    /**
+     * Removes the events stream stats of hosts which are no longer subscribed. Single stats cannot
+     * be removed, so all stats of the service are replaced with the ones still in use.
+     */
+    private void removeEventsStats(Set<String> hostKeys) {
+        Set<String> statNames = new HashSet<>();
+        for (String hostKey : hostKeys) {
+            statNames.add(String.format(STAT_NAME_EVENTS_COUNT_FORMAT, hostKey));
+            statNames.add(String.format(STAT_NAME_EVENTS_COALESCED_COUNT_FORMAT, hostKey));
+            statNames.add(String.format(STAT_NAME_EVENTS_RECONNECT_COUNT_FORMAT, hostKey));
+            statNames.add(String.format(STAT_NAME_EVENTS_LAG_MICROS_FORMAT, hostKey));
+        }
+
+        URI statsUri = UriUtils.buildStatsUri(getUri());
+        sendRequest(Operation.createGet(statsUri).setCompletion((o, e) -> {
+            if (e != null) {
+                logWarning("Failed to get stats: %s", Utils.toString(e));
+                return;
+            }
+            ServiceStats stats = o.getBody(ServiceStats.class);
+            if (!stats.entries.keySet().removeAll(statNames) || stats.entries.isEmpty()) {
+                return;
+            }
+            sendRequest(Operation.createPut(statsUri)
+                    .setBody(stats)
+                    .setCompletion((op, ex) -> {
+                        if (ex != null) {
+                            logWarning("Failed to remove events stats of %s: %s", hostKeys,
+                                    Utils.toString(ex));
+                        }
+                    }));
+        }));
+    }
+
     @Override
     public void handlePatch(Operation op) {
         ContainerHostRequest request = op.getBody(ContainerHostRequest.class);
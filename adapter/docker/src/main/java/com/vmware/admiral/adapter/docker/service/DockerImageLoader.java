@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.CompletionHandler;
+import com.vmware.xenon.common.OperationContext;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Streams image tarballs from the file system to the <code>/images/load</code> endpoint of docker
+ * hosts, so the image is never held in memory, no matter how large it is or how many hosts load
+ * it at once. The uploads run on a dedicated thread pool and the number of concurrent uploads of
+ * the same image is bounded, the other uploads of the image wait in a queue.
+ */
+class DockerImageLoader {
+
+    private static final Logger logger = Logger.getLogger(DockerImageLoader.class.getName());
+
+    public static final String THREAD_COUNT_PROPERTY =
+            "com.vmware.admiral.adapter.image.load.thread.count";
+    public static final String CONCURRENCY_PER_IMAGE_PROPERTY =
+            "com.vmware.admiral.adapter.image.load.concurrency.per.image";
+    private static final int THREAD_COUNT = Integer.getInteger(THREAD_COUNT_PROPERTY, 8);
+    private static final int CONCURRENCY_PER_IMAGE = Integer.getInteger(
+            CONCURRENCY_PER_IMAGE_PROPERTY, 4);
+    private static final int CONNECT_TIMEOUT_MILLIS = Integer.getInteger(
+            "com.vmware.admiral.adapter.image.load.connect.timeout.millis", 20000);
+
+    private static final String MEDIA_TYPE_APPLICATION_X_TAR = "application/x-tar";
+
+    private static final Pattern ERROR_PATTERN = Pattern.compile("\"error\":\"(.*?)\"");
+
+    /**
+     * Opens the connection to a docker host, with the SSL settings of the host.
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        HttpURLConnection open(URI uri) throws Exception;
+    }
+
+    private static class LoadTask {
+        final URI uri;
+        final File file;
+        final ConnectionFactory connectionFactory;
+        final CompletionHandler completionHandler;
+        final OperationContext operationContext = OperationContext.getOperationContext();
+
+        LoadTask(URI uri, File file, ConnectionFactory connectionFactory,
+                CompletionHandler completionHandler) {
+            this.uri = uri;
+            this.file = file;
+            this.connectionFactory = connectionFactory;
+            this.completionHandler = completionHandler;
+        }
+    }
+
+    private final int concurrencyPerImage;
+    private final int readTimeoutMillis;
+    private volatile ExecutorService executor;
+
+    // guarded by this
+    private final Map<String, Deque<LoadTask>> pendingByImage = new HashMap<>();
+    private final Map<String, Integer> runningByImage = new HashMap<>();
+
+    DockerImageLoader(int readTimeoutMillis) {
+        this(CONCURRENCY_PER_IMAGE, readTimeoutMillis);
+    }
+
+    DockerImageLoader(int concurrencyPerImage, int readTimeoutMillis) {
+        this.concurrencyPerImage = Math.max(1, concurrencyPerImage);
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Uploads the given image tarball to the given <code>/images/load</code> URI. The completion
+     * handler is called with the operation context of the caller, the operation passed to it
+     * holds the status code and the response of the docker host.
+     */
+    void load(URI uri, File file, ConnectionFactory connectionFactory,
+            CompletionHandler completionHandler) {
+        LoadTask task = new LoadTask(uri, file, connectionFactory, completionHandler);
+        String imageKey = file.getAbsolutePath();
+        synchronized (this) {
+            int running = runningByImage.getOrDefault(imageKey, 0);
+            if (running >= concurrencyPerImage) {
+                pendingByImage.computeIfAbsent(imageKey, k -> new ArrayDeque<>()).add(task);
+                return;
+            }
+            runningByImage.put(imageKey, running + 1);
+        }
+        submit(imageKey, task);
+    }
+
+    void stop() {
+        ExecutorService executor = this.executor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submit(String imageKey, LoadTask task) {
+        getExecutor().execute(() -> {
+            try {
+                upload(task);
+            } finally {
+                LoadTask next;
+                synchronized (this) {
+                    Deque<LoadTask> pending = pendingByImage.get(imageKey);
+                    next = pending != null ? pending.poll() : null;
+                    if (pending != null && pending.isEmpty()) {
+                        pendingByImage.remove(imageKey);
+                    }
+                    if (next == null) {
+                        int running = runningByImage.get(imageKey) - 1;
+                        if (running > 0) {
+                            runningByImage.put(imageKey, running);
+                        } else {
+                            runningByImage.remove(imageKey);
+                        }
+                    }
+                }
+                if (next != null) {
+                    submit(imageKey, next);
+                }
+            }
+        });
+    }
+
+    private void upload(LoadTask task) {
+        Operation op = Operation.createPost(task.uri);
+        HttpURLConnection connection = null;
+        try {
+            long size = task.file.length();
+            connection = task.connectionFactory.open(task.uri);
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", MEDIA_TYPE_APPLICATION_X_TAR);
+            // without a streaming mode the connection buffers the whole body in memory
+            connection.setFixedLengthStreamingMode(size);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(readTimeoutMillis);
+
+            try (FileChannel fileChannel = FileChannel.open(task.file.toPath(),
+                    StandardOpenOption.READ);
+                    OutputStream out = connection.getOutputStream()) {
+                WritableByteChannel outChannel = Channels.newChannel(out);
+                long position = 0;
+                while (position < size) {
+                    position += fileChannel.transferTo(position, size - position, outChannel);
+                }
+            }
+
+            int statusCode = connection.getResponseCode();
+            op.setStatusCode(statusCode);
+            String response = readResponse(connection, statusCode);
+            op.setBodyNoCloning(response);
+
+            if (statusCode >= Operation.STATUS_CODE_FAILURE_THRESHOLD) {
+                complete(task, op, new IllegalStateException(String.format(
+                        "Loading image failed with status code %d", statusCode)));
+                return;
+            }
+            // the response is a stream of json messages, an error may come after the status
+            Matcher matcher = ERROR_PATTERN.matcher(response);
+            if (matcher.find()) {
+                op.setStatusCode(Operation.STATUS_CODE_SERVER_FAILURE_THRESHOLD);
+                complete(task, op, new IllegalStateException(matcher.group(1)));
+                return;
+            }
+            complete(task, op, null);
+        } catch (Throwable e) {
+            if (op.getStatusCode() < Operation.STATUS_CODE_FAILURE_THRESHOLD) {
+                op.setStatusCode(Operation.STATUS_CODE_UNAVAILABLE);
+            }
+            complete(task, op, e);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static String readResponse(HttpURLConnection connection, int statusCode)
+            throws IOException {
+        try (InputStream in = statusCode >= Operation.STATUS_CODE_FAILURE_THRESHOLD
+                ? connection.getErrorStream() : connection.getInputStream()) {
+            return in == null ? "" : IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void complete(LoadTask task, Operation op, Throwable e) {
+        OperationContext originalContext = OperationContext.getOperationContext();
+        try {
+            OperationContext.restoreOperationContext(task.operationContext);
+            task.completionHandler.handle(op, e);
+        } catch (Throwable t) {
+            logger.warning(Utils.toString(t));
+        } finally {
+            OperationContext.restoreOperationContext(originalContext);
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (this) {
+                if (executor == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    ThreadFactory threadFactory = r -> {
+                        Thread thread = new Thread(r,
+                                "docker-image-load-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    };
+                    executor = Executors.newFixedThreadPool(THREAD_COUNT, threadFactory);
+                }
+            }
+        }
+        return executor;
+    }
+}
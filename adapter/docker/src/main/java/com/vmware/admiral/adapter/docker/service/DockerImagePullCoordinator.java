@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.vmware.xenon.common.DeferredResult;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Coordinates the image pulls on the docker hosts. Concurrent pulls of the same image on the same
+ * host, e.g. for the replicas of a composite placed on the host, are merged into one. Images
+ * pulled recently on a host are remembered together with their digest, so a pull of the same
+ * image on the host is skipped for a while. A pull joining a pull in progress which fails, e.g.
+ * a pre-pull made without retries, falls back to its own pull function.
+ * <p>
+ * Pulls are keyed by the host, the image and the registry credentials, so an image pulled with
+ * the credentials of one tenant is never used to skip the pull of another.
+ */
+class DockerImagePullCoordinator {
+
+    private static final Logger logger = Logger
+            .getLogger(DockerImagePullCoordinator.class.getName());
+
+    public static final String PULLED_IMAGE_TTL_MICROS_PROPERTY =
+            "com.vmware.admiral.adapter.image.pull.ttl.micros";
+    public static final String MAX_PULLED_IMAGES_PROPERTY =
+            "com.vmware.admiral.adapter.image.pull.max.remembered";
+    private static final long PULLED_IMAGE_TTL_MICROS = Long.getLong(
+            PULLED_IMAGE_TTL_MICROS_PROPERTY, TimeUnit.MINUTES.toMicros(5));
+    private static final int MAX_PULLED_IMAGES = Integer.getInteger(
+            MAX_PULLED_IMAGES_PROPERTY, 10000);
+
+    private static final Pattern DIGEST_PATTERN = Pattern.compile("Digest: (sha256:[0-9a-f]+)");
+
+    private static final DockerImagePullCoordinator INSTANCE = new DockerImagePullCoordinator(
+            PULLED_IMAGE_TTL_MICROS, MAX_PULLED_IMAGES);
+
+    private static class PulledImage {
+        final String digest;
+        final long pulledMicros;
+
+        PulledImage(String digest, long pulledMicros) {
+            this.digest = digest;
+            this.pulledMicros = pulledMicros;
+        }
+    }
+
+    private final long pulledImageTtlMicros;
+    private final int maxPulledImages;
+    private final Map<String, DeferredResult<Void>> pullsInProgress = new ConcurrentHashMap<>();
+    private final Map<String, PulledImage> pulledImages = new ConcurrentHashMap<>();
+
+    DockerImagePullCoordinator(long pulledImageTtlMicros, int maxPulledImages) {
+        this.pulledImageTtlMicros = pulledImageTtlMicros;
+        this.maxPulledImages = maxPulledImages;
+    }
+
+    static DockerImagePullCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Pulls the given image on the given host with the given pull function, unless the image was
+     * pulled recently or is being pulled at the moment. The pull function returns the response of
+     * the docker host, which is used to find the digest of the pulled image.
+     *
+     * @param hostLink link of the docker host
+     * @param imageName full name of the image, including the tag
+     * @param registryAuth the <code>X-Registry-Auth</code> of the pull, if any
+     * @param pullFunction pulls the image and returns the response of the docker host
+     */
+    DeferredResult<Void> pull(String hostLink, String imageName, String registryAuth,
+            Supplier<DeferredResult<String>> pullFunction) {
+        return pull(buildKey(hostLink, imageName, registryAuth), hostLink, imageName, pullFunction,
+                true);
+    }
+
+    private DeferredResult<Void> pull(String key, String hostLink, String imageName,
+            Supplier<DeferredResult<String>> pullFunction, boolean pullOnJoinedFailure) {
+        PulledImage pulledImage = pulledImages.get(key);
+        if (pulledImage != null) {
+            if (pulledImage.pulledMicros + pulledImageTtlMicros > Utils.getSystemNowMicrosUtc()) {
+                logger.fine(String.format("Image %s (%s) was pulled recently on %s, skipping",
+                        imageName, pulledImage.digest, hostLink));
+                return DeferredResult.completed(null);
+            }
+            pulledImages.remove(key, pulledImage);
+        }
+
+        DeferredResult<Void> pull = new DeferredResult<>();
+        DeferredResult<Void> pullInProgress = pullsInProgress.putIfAbsent(key, pull);
+        if (pullInProgress != null) {
+            logger.fine(String.format("Image %s is being pulled on %s, waiting for it",
+                    imageName, hostLink));
+            if (!pullOnJoinedFailure) {
+                return pullInProgress.thenApply((ignore) -> null);
+            }
+            return pullInProgress.handle((ignore, ex) -> ex).thenCompose((ex) -> {
+                if (ex == null) {
+                    return DeferredResult.completed(null);
+                }
+                logger.fine(String.format("Pull of image %s on %s failed, pulling it again",
+                        imageName, hostLink));
+                return pull(key, hostLink, imageName, pullFunction, false);
+            });
+        }
+
+        DeferredResult<String> result;
+        try {
+            result = pullFunction.get();
+        } catch (Throwable e) {
+            result = DeferredResult.failed(e);
+        }
+        result.whenComplete((response, ex) -> {
+            if (ex == null) {
+                rememberPulledImage(key, findDigest(response));
+            }
+            pullsInProgress.remove(key, pull);
+            if (ex != null) {
+                pull.fail(ex);
+            } else {
+                pull.complete(null);
+            }
+        });
+        return pull.thenApply((ignore) -> null);
+    }
+
+    /**
+     * Forgets the images pulled on the given host, e.g. when an image was removed from it.
+     */
+    void forget(String hostLink) {
+        String prefix = hostLink + " ";
+        pulledImages.keySet().removeIf((key) -> key.startsWith(prefix));
+    }
+
+    /**
+     * Forgets the given image pulled on the given host with any credentials, e.g. when it was not
+     * found on the host although it was pulled recently.
+     */
+    void forget(String hostLink, String imageName) {
+        String prefix = hostLink + " " + imageName + " ";
+        pulledImages.keySet().removeIf((key) -> key.startsWith(prefix));
+    }
+
+    private void rememberPulledImage(String key, String digest) {
+        if (pulledImageTtlMicros <= 0) {
+            return;
+        }
+        long now = Utils.getSystemNowMicrosUtc();
+        if (pulledImages.size() >= maxPulledImages) {
+            pulledImages.values().removeIf((p) -> p.pulledMicros + pulledImageTtlMicros <= now);
+            if (pulledImages.size() >= maxPulledImages) {
+                return;
+            }
+        }
+        pulledImages.put(key, new PulledImage(digest, now));
+    }
+
+    static String findDigest(String response) {
+        if (response == null) {
+            return null;
+        }
+        Matcher matcher = DIGEST_PATTERN.matcher(response);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String buildKey(String hostLink, String imageName, String registryAuth) {
+        return hostLink + " " + imageName + " " + hashCredentials(registryAuth);
+    }
+
+    private static String hashCredentials(String credentials) {
+        if (credentials == null) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(credentials.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
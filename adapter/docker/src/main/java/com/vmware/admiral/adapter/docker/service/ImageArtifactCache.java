@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vmware.admiral.common.util.ServiceUtils;
+import com.vmware.xenon.common.FileUtils;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.OperationContext;
+import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * On-disk cache of the image tarballs downloaded from the <code>imageReference</code> of container
+ * descriptions. The tarballs are stored by the SHA-256 digest of their content, so URLs serving
+ * the same content share a file, and the least recently used tarballs are evicted once their
+ * total size exceeds the configured maximum. Concurrent requests for the same URL share a single
+ * download. A cached tarball is used as it is for a short period after it was downloaded or
+ * validated, after that it is revalidated with its <code>ETag</code> and
+ * <code>Last-Modified</code>.
+ * <p>
+ * The files handed out by {@link #acquire(ServiceHost, URI, BiConsumer)} are not evicted until
+ * they are given back with {@link #release(File)}.
+ */
+public class ImageArtifactCache {
+
+    private static final Logger logger = Logger.getLogger(ImageArtifactCache.class.getName());
+
+    public static final String CACHE_DIR_PROPERTY = "com.vmware.admiral.adapter.image.cache.dir";
+    public static final String MAX_SIZE_BYTES_PROPERTY =
+            "com.vmware.admiral.adapter.image.cache.max.size.bytes";
+    public static final String FRESHNESS_MICROS_PROPERTY =
+            "com.vmware.admiral.adapter.image.cache.freshness.micros";
+    private static final long MAX_SIZE_BYTES = Long.getLong(MAX_SIZE_BYTES_PROPERTY,
+            10L * 1024 * 1024 * 1024);
+    private static final long FRESHNESS_MICROS = Long.getLong(FRESHNESS_MICROS_PROPERTY,
+            TimeUnit.MINUTES.toMicros(1));
+
+    private static final String ETAG_HEADER = "etag";
+    private static final String LAST_MODIFIED_HEADER = "last-modified";
+    private static final String IF_NONE_MATCH_HEADER = "if-none-match";
+    private static final String IF_MODIFIED_SINCE_HEADER = "if-modified-since";
+
+    private static final String ARTIFACT_SUFFIX = ".tar";
+    private static final String DOWNLOAD_PREFIX = "download";
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+
+    private static volatile ImageArtifactCache INSTANCE;
+
+    private static class Artifact {
+        final String digest;
+        final File file;
+        final long size;
+        int leases;
+
+        Artifact(String digest, File file, long size) {
+            this.digest = digest;
+            this.file = file;
+            this.size = size;
+        }
+    }
+
+    private static class UrlEntry {
+        Artifact artifact;
+        String etag;
+        String lastModified;
+        long validatedMicros;
+    }
+
+    private static class Waiter {
+        final BiConsumer<File, Throwable> callback;
+        final OperationContext operationContext = OperationContext.getOperationContext();
+
+        Waiter(BiConsumer<File, Throwable> callback) {
+            this.callback = callback;
+        }
+    }
+
+    private final File cacheDir;
+    private final long maxSizeBytes;
+    private final long freshnessMicros;
+
+    // guarded by this
+    private final Map<String, UrlEntry> entriesByUrl = new HashMap<>();
+    // in access order, the least recently used artifact first
+    private final LinkedHashMap<String, Artifact> artifactsByDigest =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, List<Waiter>> waitersByUrl = new HashMap<>();
+    private long totalSizeBytes;
+
+    ImageArtifactCache(File cacheDir, long maxSizeBytes, long freshnessMicros) {
+        this.cacheDir = cacheDir;
+        this.maxSizeBytes = maxSizeBytes;
+        this.freshnessMicros = freshnessMicros;
+    }
+
+    public static ImageArtifactCache getInstance() {
+        if (INSTANCE != null) {
+            return INSTANCE;
+        }
+        synchronized (ImageArtifactCache.class) {
+            if (INSTANCE == null) {
+                INSTANCE = new ImageArtifactCache(createCacheDir(), MAX_SIZE_BYTES,
+                        FRESHNESS_MICROS);
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached tarball of the given URL to the callback, downloading or revalidating it
+     * first when needed. The callback is called with the operation context of the caller, and the
+     * caller must {@link #release(File)} the file once it is done with it.
+     */
+    public void acquire(ServiceHost host, URI uri, BiConsumer<File, Throwable> callback) {
+        String url = uri.toString();
+        UrlEntry entry;
+        File cachedFile = null;
+        synchronized (this) {
+            entry = entriesByUrl.get(url);
+            File file = entry != null && isFresh(entry) ? lease(entry.artifact) : null;
+            if (file == null) {
+                List<Waiter> waiters = waitersByUrl.computeIfAbsent(url,
+                        k -> new ArrayList<>());
+                waiters.add(new Waiter(callback));
+                if (waiters.size() > 1) {
+                    // the download or revalidation is already in progress
+                    return;
+                }
+            } else {
+                cachedFile = file;
+            }
+        }
+
+        if (cachedFile != null) {
+            callback.accept(cachedFile, null);
+            return;
+        }
+        revalidate(host, uri, entry);
+    }
+
+    /**
+     * Gives back a file handed out by {@link #acquire(ServiceHost, URI, BiConsumer)}, so it can
+     * be evicted.
+     */
+    public void release(File file) {
+        synchronized (this) {
+            Artifact artifact = artifactsByDigest.get(getDigest(file));
+            if (artifact != null && artifact.leases > 0) {
+                artifact.leases--;
+            }
+            evict();
+        }
+    }
+
+    private boolean isFresh(UrlEntry entry) {
+        return entry.validatedMicros + freshnessMicros > Utils.getSystemNowMicrosUtc();
+    }
+
+    /**
+     * Probes the URL for the first byte of the content, conditionally when the validators of the
+     * cached tarball are known, and downloads the tarball unless it was not modified. A server
+     * ignoring the conditional headers is detected by the validators of the probe response.
+     */
+    private void revalidate(ServiceHost host, URI uri, UrlEntry entry) {
+        Operation probe = Operation.createGet(uri)
+                .addRequestHeader(Operation.RANGE_HEADER, "bytes=0-0")
+                .setExpiration(ServiceUtils.getExpirationTimeFromNowInMicros(
+                        host.getOperationTimeoutMicros()))
+                .setReferer(UriUtils.buildUri(host.getPublicUri(), DockerAdapterService.SELF_LINK));
+        if (entry != null && entry.etag != null) {
+            probe.addRequestHeader(IF_NONE_MATCH_HEADER, entry.etag);
+        }
+        if (entry != null && entry.lastModified != null) {
+            probe.addRequestHeader(IF_MODIFIED_SINCE_HEADER, entry.lastModified);
+        }
+
+        probe.setCompletion((o, ex) -> {
+            if (ex != null) {
+                completeWaiters(uri, null, ex);
+                return;
+            }
+
+            String etag = o.getResponseHeader(ETAG_HEADER);
+            String lastModified = o.getResponseHeader(LAST_MODIFIED_HEADER);
+            boolean notModified = o.getStatusCode() == Operation.STATUS_CODE_NOT_MODIFIED;
+            Artifact artifact = null;
+            synchronized (this) {
+                UrlEntry current = entriesByUrl.get(uri.toString());
+                if (current != null
+                        && (notModified || isUnchanged(current, etag, lastModified))) {
+                    current.validatedMicros = Utils.getSystemNowMicrosUtc();
+                    artifact = current.artifact;
+                }
+            }
+            if (artifact != null) {
+                completeWaiters(uri, artifact, null);
+                return;
+            }
+
+            download(host, uri, etag, lastModified);
+        });
+        host.sendRequest(probe);
+    }
+
+    /**
+     * Whether the validators of a full or partial response match the ones of the cached tarball.
+     * Weak entity tags do not guarantee the same bytes, so they are not compared.
+     */
+    private static boolean isUnchanged(UrlEntry entry, String etag, String lastModified) {
+        if (entry.etag != null || etag != null) {
+            return etag != null && etag.equals(entry.etag) && !etag.startsWith("W/");
+        }
+        return lastModified != null && lastModified.equals(entry.lastModified);
+    }
+
+    private void download(ServiceHost host, URI uri, String etag, String lastModified) {
+        File tempFile;
+        try {
+            tempFile = File.createTempFile(DOWNLOAD_PREFIX, null, cacheDir);
+            tempFile.deleteOnExit();
+        } catch (IOException e) {
+            completeWaiters(uri, null, e);
+            return;
+        }
+
+        Operation fetchOp = Operation.createGet(uri)
+                .setExpiration(ServiceUtils.getExpirationTimeFromNowInMicros(
+                        host.getOperationTimeoutMicros()))
+                .setReferer(UriUtils.buildUri(host.getPublicUri(), DockerAdapterService.SELF_LINK))
+                .setCompletion((o, ex) -> {
+                    if (ex != null) {
+                        deleteFile(tempFile);
+                        completeWaiters(uri, null, ex);
+                        return;
+                    }
+                    logger.info(String.format("Finished download of %d bytes from %s",
+                            tempFile.length(), uri));
+                    // computing the digest reads the whole file, keep it off the I/O threads
+                    host.run(() -> store(uri, tempFile, etag, lastModified));
+                });
+
+        try {
+            FileUtils.getFile(host.getClient(), fetchOp, tempFile);
+        } catch (IOException e) {
+            deleteFile(tempFile);
+            completeWaiters(uri, null, e);
+        }
+    }
+
+    private void store(URI uri, File downloadedFile, String etag, String lastModified) {
+        String digest;
+        try {
+            digest = computeDigest(downloadedFile);
+        } catch (Exception e) {
+            deleteFile(downloadedFile);
+            completeWaiters(uri, null, e);
+            return;
+        }
+
+        Artifact artifact;
+        IOException moveFailure = null;
+        synchronized (this) {
+            artifact = artifactsByDigest.get(digest);
+            if (artifact != null && artifact.file.isFile()) {
+                // the same content is already cached, possibly from another URL
+                deleteFile(downloadedFile);
+            } else {
+                File file = new File(cacheDir, digest + ARTIFACT_SUFFIX);
+                try {
+                    Files.move(downloadedFile.toPath(), file.toPath(),
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    deleteFile(downloadedFile);
+                    artifact = null;
+                    moveFailure = e;
+                }
+                if (moveFailure == null) {
+                    file.deleteOnExit();
+                    if (artifact != null) {
+                        totalSizeBytes -= artifact.size;
+                    }
+                    artifact = new Artifact(digest, file, file.length());
+                    artifactsByDigest.put(digest, artifact);
+                    totalSizeBytes += artifact.size;
+                }
+            }
+
+            if (moveFailure == null) {
+                UrlEntry entry = new UrlEntry();
+                entry.artifact = artifact;
+                entry.etag = etag;
+                entry.lastModified = lastModified;
+                entry.validatedMicros = Utils.getSystemNowMicrosUtc();
+                entriesByUrl.put(uri.toString(), entry);
+            }
+        }
+
+        if (moveFailure != null) {
+            completeWaiters(uri, null, moveFailure);
+            return;
+        }
+        completeWaiters(uri, artifact, null);
+        synchronized (this) {
+            evict();
+        }
+    }
+
+    private void completeWaiters(URI uri, Artifact artifact, Throwable failure) {
+        List<Waiter> waiters;
+        List<File> files = new ArrayList<>();
+        synchronized (this) {
+            waiters = waitersByUrl.remove(uri.toString());
+            if (waiters == null) {
+                return;
+            }
+            for (int i = 0; i < waiters.size(); i++) {
+                files.add(failure == null ? lease(artifact) : null);
+            }
+        }
+
+        for (int i = 0; i < waiters.size(); i++) {
+            Waiter waiter = waiters.get(i);
+            File file = files.get(i);
+            Throwable e = failure;
+            if (e == null && file == null) {
+                e = new IOException("Cached image of " + uri + " is not available");
+            }
+
+            OperationContext originalContext = OperationContext.getOperationContext();
+            try {
+                OperationContext.restoreOperationContext(waiter.operationContext);
+                waiter.callback.accept(file, e);
+            } catch (Throwable t) {
+                logger.warning(Utils.toString(t));
+            } finally {
+                OperationContext.restoreOperationContext(originalContext);
+            }
+        }
+    }
+
+    // must be called while holding the lock on this
+    private File lease(Artifact artifact) {
+        if (artifact == null || artifactsByDigest.get(artifact.digest) != artifact
+                || !artifact.file.isFile()) {
+            return null;
+        }
+        artifact.leases++;
+        return artifact.file;
+    }
+
+    // must be called while holding the lock on this
+    private void evict() {
+        Iterator<Artifact> it = artifactsByDigest.values().iterator();
+        while (totalSizeBytes > maxSizeBytes && it.hasNext()) {
+            Artifact artifact = it.next();
+            if (artifact.leases > 0) {
+                continue;
+            }
+            it.remove();
+            totalSizeBytes -= artifact.size;
+            entriesByUrl.values().removeIf((e) -> e.artifact == artifact);
+            deleteFile(artifact.file);
+            logger.info(String.format("Evicted cached image %s of %d bytes", artifact.digest,
+                    artifact.size));
+        }
+    }
+
+    private static String getDigest(File file) {
+        String name = file.getName();
+        return name.endsWith(ARTIFACT_SUFFIX)
+                ? name.substring(0, name.length() - ARTIFACT_SUFFIX.length()) : name;
+    }
+
+    private static String computeDigest(File file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[DIGEST_BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            logger.warning("Failed to delete file: " + file);
+        }
+    }
+
+    private static File createCacheDir() {
+        try {
+            Path baseDir = Paths.get(System.getProperty(CACHE_DIR_PROPERTY,
+                    System.getProperty("java.io.tmpdir")));
+            Files.createDirectories(baseDir);
+            File cacheDir = Files.createTempDirectory(baseDir, "admiral-image-cache").toFile();
+            // registered first, so it is deleted after the files in it
+            cacheDir.deleteOnExit();
+            return cacheDir;
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to create the image cache directory", e);
+            throw new IllegalStateException(e);
+        }
+    }
+}
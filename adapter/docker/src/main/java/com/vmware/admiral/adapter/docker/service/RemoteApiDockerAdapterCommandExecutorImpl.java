@@ -14,11 +14,9 @@ package com.vmware.admiral.adapter.docker.service;
 import static com.vmware.admiral.compute.ContainerHostService.SSL_TRUST_ALIAS_PROP_NAME;
 import static com.vmware.admiral.compute.ContainerHostService.SSL_TRUST_CERT_PROP_NAME;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
@@ -29,13 +27,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -46,34 +38,27 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509ExtendedKeyManager;
 import javax.net.ssl.X509TrustManager;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.yaml.snakeyaml.util.UriEncoder;
 
+import com.vmware.admiral.adapter.docker.service.DockerEventsMultiplexer.HostEventsStats;
 import com.vmware.admiral.adapter.docker.util.DockerStreamUtil;
 import com.vmware.admiral.common.util.AssertUtil;
 import com.vmware.admiral.common.util.ConfigurationUtil;
 import com.vmware.admiral.common.util.DelegatingX509KeyManager;
-import com.vmware.admiral.common.util.QueryUtil;
 import com.vmware.admiral.common.util.ServerX509TrustManager;
 import com.vmware.admiral.common.util.ServiceClientFactory;
-import com.vmware.admiral.common.util.ServiceDocumentQuery;
 import com.vmware.admiral.common.util.ServiceUtils;
-import com.vmware.admiral.compute.container.ContainerService.ContainerState;
-import com.vmware.photon.controller.model.resources.ComputeService;
 import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
 import com.vmware.photon.controller.model.security.util.CertificateUtil;
 import com.vmware.photon.controller.model.security.util.EncryptionUtils;
-import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Operation.CompletionHandler;
-import com.vmware.xenon.common.OperationContext;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.ServiceClient;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.services.common.AuthCredentialsService.AuthCredentialsServiceState;
-import com.vmware.xenon.services.common.QueryTask;
 
 /**
  * Docker command executor implementation based on DCP and the docker remote API
@@ -88,13 +73,6 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
             "com.vmware.admiral.adapter.ssltrust.delegate.retries", 5);
     private static final long SSL_TRUST_RETRIES_WAIT = Long.getLong(
             "com.vmware.admiral.adapter.ssltrust.delegate.retries.wait.millis", 500);
-    private static final int URL_CONNECTION_READ_TIMEOUT = Integer.getInteger(
-            "com.vmware.admiral.adapter.url.connection.read.timeout", 20000);
-    private static final String THREAD_POOL_QUEUE_SIZE_PROP_NAME = "com.vmware.admiral.adapter.thread.pool.queue.size";
-    private static final int THREAD_POOL_QUEUE_SIZE = Integer.getInteger(
-            THREAD_POOL_QUEUE_SIZE_PROP_NAME, 1000);
-    private static final int THREAD_POOL_KEEPALIVE_SECONDS = Integer.getInteger(
-            "com.vmware.admiral.adapter.thread.pool.keepalive.seconds", 30);
 
     public static final String MEDIA_TYPE_APPLICATION_TAR = "application/tar";
 
@@ -102,26 +80,16 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
 
     private static final Pattern ERROR_PATTERN = Pattern.compile("\"error\":\"(.*)\"");
 
-    private static final AtomicInteger threadCount = new AtomicInteger(0);
-    private static final ThreadFactory threadFactory =
-            (r) -> new Thread(r, "EventsReader-" + threadCount.incrementAndGet());
-
-    private static ExecutorService executor = new ThreadPoolExecutor(
-            THREAD_POOL_QUEUE_SIZE,
-            THREAD_POOL_QUEUE_SIZE,
-            THREAD_POOL_KEEPALIVE_SECONDS,
-            TimeUnit.SECONDS, new LinkedBlockingQueue<>(THREAD_POOL_QUEUE_SIZE),
-            threadFactory,
-            new ThreadPoolExecutor.AbortPolicy());
-
     private final ServiceHost host;
     private final ServiceClient serviceClient;
     // Used for commands like exec start
     private final ServiceClient attachServiceClient;
     // Used for commands like load image from tar
     private final ServiceClient largeDataClient;
-    // Used for storing the runnning threads which handles opened connections to hosts
-    private volatile Map<String, Thread> runningThreads = new HashMap<>();
+    // Used for streaming image tarballs from files
+    private final DockerImageLoader imageLoader;
+    // Used for streaming the events of all subscribed hosts
+    private final DockerEventsMultiplexer eventsMultiplexer;
 
     private final DelegatingX509KeyManager keyManager = new DelegatingX509KeyManager();
     private ServerX509TrustManager trustManager;
@@ -149,6 +117,9 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
                 keyManager);
         this.largeDataClient = ServiceClientFactory.createServiceClient(
                 trustManager, keyManager, DOCKER_REQUEST_PAYLOAD_SIZE_LIMIT);
+        this.imageLoader = new DockerImageLoader(
+                (int) TimeUnit.SECONDS.toMillis(DOCKER_IMAGE_REQUEST_TIMEOUT_SECONDS));
+        this.eventsMultiplexer = new DockerEventsMultiplexer(host);
 
         if (trustManager instanceof ServerX509TrustManager) {
             this.trustManager = (ServerX509TrustManager) trustManager;
@@ -181,6 +152,8 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
         if (largeDataClient != null) {
             largeDataClient.stop();
         }
+        imageLoader.stop();
+        eventsMultiplexer.stop();
 
         INSTANCE = null;
     }
@@ -273,10 +246,19 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
     @Override
     public void loadImage(CommandInput input, CompletionHandler completionHandler) {
         createOrUpdateTargetSsl(input);
-        Object imageData = input.getProperties().get(DOCKER_IMAGE_DATA_PROP_NAME);
         URI uri = UriUtils.extendUri(input.getDockerUri(), "/images/load");
         logger.info("Loading image: " + uri);
 
+        Object imageFile = input.getProperties().get(DOCKER_IMAGE_FILE_PROP_NAME);
+        if (imageFile instanceof File) {
+            // stream the tarball from the file instead of holding it in memory
+            imageLoader.load(uri, (File) imageFile,
+                    (u) -> (HttpURLConnection) openConnection(input, u.toURL()),
+                    completionHandler);
+            return;
+        }
+
+        Object imageData = input.getProperties().get(DOCKER_IMAGE_DATA_PROP_NAME);
         sendPost(uri, imageData, ClientMode.LARGE_DATA, completionHandler);
     }
 
@@ -536,7 +518,7 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
         URI baseUri = UriUtils.extendUri(input.getDockerUri(), "/events");
         logger.info("Subscribing for events: " + baseUri);
 
-        if (runningThreads.get(baseUri.getAuthority()) != null) {
+        if (eventsMultiplexer.isSubscribed(baseUri.getAuthority())) {
             logger.info("Connection is already opened: " + baseUri.getAuthority());
             return;
         }
@@ -564,14 +546,16 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
         URI baseUri = UriUtils.extendUri(input.getDockerUri(), "/events");
         logger.info("Unsubscribing for events: " + baseUri);
 
-        Thread runningThread = runningThreads.get(input.getDockerUri().getAuthority());
-
-        if (runningThread == null) {
+        if (!eventsMultiplexer.unsubscribe(input.getDockerUri().getAuthority())) {
             logger.info("Connection already closed!");
-            return;
         }
+    }
 
-        runningThread.interrupt();
+    /**
+     * Returns the events stream metrics, keyed by docker host authority.
+     */
+    public Map<String, HostEventsStats> getEventsStats() {
+        return eventsMultiplexer.getStats();
     }
 
     // network operations
@@ -730,30 +714,7 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
     @Override
     public URLConnection openConnection(CommandInput input, URL url) throws NoSuchAlgorithmException, KeyManagementException, IOException {
         if (isSecure(URI.create(url.toString()))) {
-
-            String clientKey = null;
-            String clientCert = null;
-
-            if (input != null && input.getCredentials() != null) {
-                clientKey = EncryptionUtils.decrypt(input.getCredentials().privateKey);
-                clientCert = input.getCredentials().publicKey;
-            }
-
-            // TODO use an LRU cache to limit the number of stored
-            // KeyManagers while minimizing time wasted repeatedly
-            // recreating them
-            KeyManager[] keytManagers = null;
-            if (clientKey != null && !clientKey.isEmpty()) {
-                X509ExtendedKeyManager delegateKeyManager;
-                delegateKeyManager = (X509ExtendedKeyManager) CertificateUtil
-                        .getKeyManagers("default", clientKey, clientCert)[0];
-                keytManagers = new KeyManager[]{delegateKeyManager};
-            }
-
-            TrustManager[] trustManagers = new TrustManager[]{ServerX509TrustManager.init(null)};
-
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(keytManagers, trustManagers, new SecureRandom());
+            SSLContext sslContext = createSslContext(input);
 
             HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
             conn.setHostnameVerifier((s, sslSession) -> true);
@@ -775,6 +736,35 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
         return conn;
     }
 
+    private SSLContext createSslContext(CommandInput input)
+            throws NoSuchAlgorithmException, KeyManagementException {
+        String clientKey = null;
+        String clientCert = null;
+
+        if (input != null && input.getCredentials() != null) {
+            clientKey = EncryptionUtils.decrypt(input.getCredentials().privateKey);
+            clientCert = input.getCredentials().publicKey;
+        }
+
+        // TODO use an LRU cache to limit the number of stored
+        // KeyManagers while minimizing time wasted repeatedly
+        // recreating them
+        KeyManager[] keytManagers = null;
+        if (clientKey != null && !clientKey.isEmpty()) {
+            X509ExtendedKeyManager delegateKeyManager;
+            delegateKeyManager = (X509ExtendedKeyManager) CertificateUtil
+                    .getKeyManagers("default", clientKey, clientCert)[0];
+            keytManagers = new KeyManager[]{delegateKeyManager};
+        }
+
+        TrustManager[] trustManagers = new TrustManager[]{ServerX509TrustManager.init(null)};
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keytManagers, trustManagers, new SecureRandom());
+
+        return sslContext;
+    }
+
     /**
      * Common settings on all outgoing requests to the docker server
      */
@@ -809,6 +799,8 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
                 DOCKER_EXEC_ATTACH_STDERR_PROP_NAME);
         String attachStdOut = (String) input.getProperties().remove(
                 DOCKER_EXEC_ATTACH_STDOUT_PROP_NAME);
+        Long timeoutSeconds = (Long) input.getProperties().remove(
+                DOCKER_EXEC_TIMEOUT_SECONDS_PROP_NAME);
 
         Map<String, Object> create = new HashMap<>();
         create.put(DOCKER_EXEC_ATTACH_STDIN_PROP_NAME, false);
@@ -827,19 +819,20 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
                 @SuppressWarnings("unchecked")
                 Map<String, String> result = o.getBody(Map.class);
                 String execId = result.get(DOCKER_EXEC_ID_PROP_NAME);
-                startExec(input.getDockerUri(), execId, completionHandler);
+                startExec(input.getDockerUri(), execId, timeoutSeconds, completionHandler);
             }
         });
     }
 
-    private void startExec(URI dockerUri, String execId, CompletionHandler completionHandler) {
+    private void startExec(URI dockerUri, String execId, Long timeoutSeconds,
+            CompletionHandler completionHandler) {
         Map<String, Object> startBody = new HashMap<>();
         startBody.put(DOCKER_EXEC_TTY_PROP_NAME, false);
         startBody.put(DOCKER_EXEC_DETACH_PROP_NAME, false);
 
         URI startUri = UriUtils.extendUri(dockerUri, String.format("/exec/%s/start", execId));
 
-        sendPostAttach(startUri, startBody, (op, ex) -> {
+        sendPostAttach(startUri, startBody, timeoutSeconds, (op, ex) -> {
             if (ex != null) {
                 completionHandler.handle(null, ex);
             } else {
@@ -997,11 +990,19 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
         sendRequest(Service.Action.POST, uri, body, completionHandler, mode);
     }
 
-    private void sendPostAttach(URI uri, Object body, CompletionHandler completionHandler) {
+    private void sendPostAttach(URI uri, Object body, Long timeoutSeconds,
+            CompletionHandler completionHandler) {
         String msg = String.format("Sending POST for attach to %s with body (possibly truncated):"
                 + "%n---%n%1.1024s%n---%n", uri, Utils.toJsonHtml(body));
         logger.finest(msg);
-        sendRequest(Service.Action.POST, uri, body, completionHandler, ClientMode.ATTACH);
+        Operation op = Operation.createGet(uri)
+                .setAction(Service.Action.POST)
+                .setCompletion(completionHandler);
+        if (timeoutSeconds != null) {
+            op.setExpiration(ServiceUtils.getExpirationTimeFromNowInMicros(
+                    TimeUnit.SECONDS.toMicros(timeoutSeconds)));
+        }
+        sendRequest(op, body, ClientMode.ATTACH);
     }
 
     private void sendDelete(URI uri, CompletionHandler completionHandler) {
@@ -1014,7 +1015,10 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
         Operation op = Operation.createGet(uri)
                 .setAction(action)
                 .setCompletion(completionHandler);
+        sendRequest(op, body, mode);
+    }
 
+    private void sendRequest(Operation op, Object body, ClientMode mode) {
         if (ClientMode.LARGE_DATA == mode) {
             op.setBodyNoCloning(body);
             prepareRequest(op, true);
@@ -1038,98 +1042,8 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
         }
     }
 
-    /**
-     * Used for creation of a new thread for each host event subscription.
-     */
-    private class EventsMonitor implements Runnable {
-
-        public Operation op;
-        public URI hostUri;
-        public CommandInput input;
-        public ComputeState computeState;
-        public boolean simulatedIOException;
-
-        public EventsMonitor(Operation op,
-                URI hostUri,
-                CommandInput input,
-                ComputeState computeState,
-                boolean simulatedIOException) {
-            this.op = op;
-            this.hostUri = hostUri;
-            this.input = input;
-            this.computeState = computeState;
-            this.simulatedIOException = simulatedIOException;
-        }
-
-        @Override
-        public void run() {
-            logger.info(String.format("Simulation of IOException enabled: [%s]",
-                    simulatedIOException));
-            OperationContext childContext = OperationContext.getOperationContext();
-
-            boolean shouldRestoreContext = true;
-
-            try {
-                // set system user context
-                OperationContext.setFrom(op);
-
-                URL url = new URL(hostUri.toString());
-                URLConnection con = openConnection(input, url);
-
-                // setting "read timeout" to reset the blocking stream (reader.readLine()).
-                // Otherwise there is no way to close the connection.
-                con.setReadTimeout(URL_CONNECTION_READ_TIMEOUT);
-
-                final String hostName = url.getAuthority();
-                runningThreads.put(hostName, Thread.currentThread());
-
-                try (BufferedReader in = new BufferedReader(new InputStreamReader(
-                        con.getInputStream()))) {
-                    readData(in, simulatedIOException);
-                } catch (InterruptedException e) {
-                    logger.fine(String.format("[%s] is thrown.", e.getClass().getName()));
-                } catch (IOException e) {
-                    logger.info(String.format("IOException when listening [%s]. Error: [%s]",
-                            hostName, e.getMessage()));
-
-                    shouldRestoreContext = false;
-
-                    ComputeState state = new ComputeState();
-                    state.powerState = ComputeService.PowerState.UNKNOWN;
-
-                    patchComputeState(computeState.documentSelfLink, state)
-                            .thenCompose((ignore) -> {
-                                // changing the power state of containers to UNKNOWN
-                                return queryExistingContainerStates(computeState.documentSelfLink);
-                            })
-                            .whenComplete((o, ex) -> {
-                                OperationContext.restoreOperationContext(childContext);
-                            });
-                } catch (Exception e) {
-                    logger.warning(String.format("Exception in subscription to [%s]. Error: [%s]",
-                            hostName, e.getMessage()));
-                } finally {
-                    runningThreads.remove(hostName);
-                    closeConnection(con);
-                }
-            } catch (Throwable t) {
-                logger.warning(Utils.toString(t));
-            } finally {
-                if (shouldRestoreContext) {
-                    OperationContext.restoreOperationContext(childContext);
-                }
-            }
-        }
-    }
-
     private void makeSubscription(CommandInput input, Operation op, ComputeState computeState, URI uri,
             Boolean simulateIOExceptionPropertyValue) {
-        boolean maxAllowedNumberOfThreadsExceeded = maxAllowedNumberOfThreadsExceeded();
-
-        if (maxAllowedNumberOfThreadsExceeded) {
-            return;
-        }
-
         if (simulateIOExceptionPropertyValue == null) {
             ConfigurationUtil.getConfigProperty(host, ConfigurationUtil.THROW_IO_EXCEPTION,
                     (prop) -> {
@@ -1139,165 +1053,21 @@ public class RemoteApiDockerAdapterCommandExecutorImpl implements
             return;
         }
 
-        EventsMonitor eventsMonitor = new EventsMonitor(
-                op,
-                uri,
-                input,
-                computeState,
-                simulateIOExceptionPropertyValue);
-
-        executor.submit(eventsMonitor);
-    }
-
-    private DeferredResult<ComputeState> requestComputeState(String selfLink) {
-        URI uri = UriUtils.buildUri(host, selfLink);
-
-        Operation op = Operation.createGet(uri)
-                .setCompletion((o, e) -> {
-                    if (e != null) {
-                        logger.warning(String.format("Failed to retrieve compute state: [%s]", Utils.toString(e)));
-                        return;
-                    }
-                });
-
-        prepareRequest(op, false);
-
-        return host.sendWithDeferredResult(op, ComputeState.class);
-    }
-
-    private DeferredResult patchComputeState(String documentSelfLink, ComputeState computeState) {
-        URI uri = UriUtils.buildUri(host, documentSelfLink);
-
-        Operation op = Operation.createPatch(uri)
-                .setBody(computeState)
-                .setReferer(host.getUri())
-                .setCompletion((o, e) -> {
-                    if (e != null) {
-                        logger.warning(String.format("Failed to patch compute state: [%s]", Utils.toString(e)));
-                        return;
-                    }
-
-                    logger.info(String.format("Successfully patched compute state [%s]", documentSelfLink));
-                });
-
-        return host.sendWithDeferredResult(op);
-    }
-
-    private void readData(BufferedReader in, boolean simulatedIOException) throws IOException, InterruptedException {
-
-        while (true) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new InterruptedException();
-            }
-
-            if (simulatedIOException) {
-                throw new IOException("Simulated IOException from an IT test.");
-            }
+        logger.info(String.format("Simulation of IOException enabled: [%s]",
+                simulateIOExceptionPropertyValue));
 
+        SSLContext sslContext = null;
+        if (isSecure(uri)) {
             try {
-                String inputLine  = in.readLine();
-
-                ObjectMapper mapper = new ObjectMapper();
-                Events event = mapper.readValue(inputLine, Events.class);
-
-                if (EVENT_TYPE_CONTAINER.equals(event.getType())) {
-                    ContainerState cs = new ContainerState();
-                    if (EVENT_TYPE_CONTAINER_DIE.equals(event.getAction())) {
-                        logger.fine(inputLine);
-
-                        cs.powerState = ContainerState.PowerState.STOPPED;
-                    } else if (EVENT_TYPE_CONTAINER_START.equals(event.getAction())) {
-                        logger.fine(inputLine);
-
-                        cs.powerState = ContainerState.PowerState.RUNNING;
-                        cs.started = TimeUnit.NANOSECONDS.toMillis(event.getTimeNano());
-                    } else {
-                        continue;
-                    }
-
-                    String containerId = event.getId();
-
-                    QueryTask queryTask = QueryUtil
-                            .buildPropertyQuery(ContainerState.class, ContainerState.FIELD_NAME_ID, containerId);
-
-                    new ServiceDocumentQuery<ContainerState>(host, ContainerState.class).query(queryTask, (r) -> {
-                        if (r.hasException()) {
-                            logger.warning(String.format("Failed to query resource container state with id [%s]",
-                                    containerId));
-                        } else if (r.hasResult()) {
-                            cs.documentSelfLink = r.getDocumentSelfLink();
-                            patchContainerState(cs);
-                        }
-                    });
-                }
-            } catch (SocketTimeoutException e) {
-                logger.fine("No events have been received. Unblocking the reader.");
+                sslContext = createSslContext(input);
+            } catch (Exception e) {
+                logger.warning(String.format("Exception in subscription to [%s]. Error: [%s]",
+                        uri.getAuthority(), e.getMessage()));
+                return;
             }
         }
-    }
-
-    private boolean maxAllowedNumberOfThreadsExceeded() {
-        ThreadPoolExecutor tpe = (ThreadPoolExecutor) executor;
-        if (tpe.getActiveCount() >= tpe.getMaximumPoolSize()) {
-            logger.warning(String.format("Maximum allowed number of threads exceeded! Use [\"%s\"] property to increase it.",
-                    THREAD_POOL_QUEUE_SIZE_PROP_NAME));
-            return true;
-        }
-
-        return false;
-    }
-
-    private DeferredResult<Void> queryExistingContainerStates(String containerHostLink) {
-        QueryTask queryTask = QueryUtil.buildPropertyQuery(ContainerState.class,
-                ContainerState.FIELD_NAME_PARENT_LINK, containerHostLink);
-
-        DeferredResult<Void> df = new DeferredResult<>();
-
-        new ServiceDocumentQuery<ContainerState>(host, ContainerState.class)
-                .query(queryTask, processContainerStatesQueryResults(df));
-
-        return df;
-    }
-
-    private Consumer<ServiceDocumentQuery.ServiceDocumentQueryElementResult<ContainerState>> processContainerStatesQueryResults(DeferredResult<?> df) {
-        List<String> existingContainerStateLinks = new ArrayList<>();
 
-        return (ServiceDocumentQuery.ServiceDocumentQueryElementResult<ContainerState> r) -> {
-            if (r.hasException()) {
-                logger.warning(
-                        String.format("Failed to query resource container state [%s]", r.getDocumentSelfLink()));
-
-                df.fail(r.getException());
-            } else if (r.hasResult()) {
-                existingContainerStateLinks.add(r.getDocumentSelfLink());
-            } else {
-                List<DeferredResult<Operation>> dfs = new ArrayList<>();
-
-                for (String csSelfLink : existingContainerStateLinks) {
-                    ContainerState cs = new ContainerState();
-                    cs.documentSelfLink = csSelfLink;
-                    cs.powerState = ContainerState.PowerState.UNKNOWN;
-
-                    dfs.add(patchContainerState(cs));
-                }
-
-                DeferredResult.allOf(dfs).whenComplete((o, e) -> {
-                    df.complete(null);
-                });
-            }
-        };
-    }
-
-    private DeferredResult<Operation> patchContainerState(ContainerState cs) {
-        Operation operation = Operation.createPatch(host, UriUtils.buildUriPath(cs.documentSelfLink))
-                .setBody(cs)
-                .setReferer(host.getUri())
-                .setCompletion((o, ex) -> {
-                    if (ex != null) {
-                        logger.warning(String.format("Error patching container state [%s]. Error: [%s]", cs.documentSelfLink, ex.getMessage()));
-                    }
-                });
-
-        return host.sendWithDeferredResult(operation);
+        eventsMultiplexer.subscribe(uri.getAuthority(), uri, sslContext, op, computeState,
+                simulateIOExceptionPropertyValue);
     }
 }
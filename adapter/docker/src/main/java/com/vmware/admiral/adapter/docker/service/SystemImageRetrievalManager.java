@@ -15,28 +15,33 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
-import org.apache.commons.io.IOUtils;
-
 import com.vmware.admiral.adapter.common.AdapterRequest;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.common.util.FileUtil;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationState;
-import com.vmware.xenon.common.FileUtils;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
 
+/**
+ * Resolves the tarballs of the system images, either from the user resources or from the class
+ * path. The images are handed out as files, so they can be streamed to the docker hosts instead
+ * of being held in memory.
+ */
 public class SystemImageRetrievalManager {
 
     public static final String SERVICE_REFERRER_PATH = "/system-image-retrieval-manager";
@@ -46,14 +51,22 @@ public class SystemImageRetrievalManager {
 
     private final Object RETRIEVE_LOCK = new Object();
 
-    private Map<String, List<Consumer<byte[]>>> pendingCallbacksByImagePath = new HashMap<>();
+    private static final String EXTRACTED_IMAGE_PREFIX = "admiral-system-image";
+
+    private Map<String, List<Consumer<File>>> pendingCallbacksByImagePath = new HashMap<>();
 
     /**
-     * Map to keep a reference to loaded system images. Once loaded, the data will be added using
-     * the image file path as a key and time of the last usage will be stored. The timestamp is
-     * global for all the images. Once the defined timeout expires all the images will be cleared.
+     * Map to keep a reference to resolved system images. Once resolved, the file will be added
+     * using the image file path as a key and time of the last usage will be stored. The timestamp
+     * is global for all the images. Once the defined timeout expires all the images will be
+     * resolved again, so changes in the user resources are picked up.
+     */
+    private static Map<String, File> cachedImages = new HashMap<>();
+    /**
+     * Class path images extracted to temp files. They do not change, so they are extracted once
+     * and kept until the process exits.
      */
-    private static Map<String, byte[]> cachedImages = new HashMap<>();
+    private static Map<String, File> extractedResourceImages = new ConcurrentHashMap<>();
     private static long lastUsed;
     private static final long CACHED_DATA_MICROS = Integer.getInteger(
             "com.vmware.admiral.system.image.cache.micros",
@@ -64,18 +77,18 @@ public class SystemImageRetrievalManager {
     }
 
     public void retrieveAgentImage(String containerImageFilePath, AdapterRequest adapterRequest,
-            Consumer<byte[]> callback) {
+            Consumer<File> callback) {
 
         synchronized (RETRIEVE_LOCK) {
-            byte[] imageData = cachedImages.get(containerImageFilePath);
-            if (imageData != null) {
+            File imageFile = cachedImages.get(containerImageFilePath);
+            if (imageFile != null) {
                 host.log(Level.INFO, "Cached image found, %s\n", containerImageFilePath);
                 lastUsed = Utils.getSystemNowMicrosUtc();
-                callback.accept(imageData);
+                callback.accept(imageFile);
                 return;
             }
 
-            List<Consumer<byte[]>> pendingCallbacks = pendingCallbacksByImagePath
+            List<Consumer<File>> pendingCallbacks = pendingCallbacksByImagePath
                     .computeIfAbsent(containerImageFilePath, k -> new ArrayList<>());
 
             pendingCallbacks.add(callback);
@@ -104,35 +117,40 @@ public class SystemImageRetrievalManager {
                 }));
     }
 
-    private void notifyCallbacks(String containerImageFilePath, byte[] imageData) {
-        List<Consumer<byte[]>> pendingCallbacks;
+    private void notifyCallbacks(String containerImageFilePath, File imageFile) {
+        List<Consumer<File>> pendingCallbacks;
         synchronized (RETRIEVE_LOCK) {
-            cachedImages.put(containerImageFilePath, imageData);
+            if (imageFile != null) {
+                cachedImages.put(containerImageFilePath, imageFile);
+            }
             lastUsed = Utils.getSystemNowMicrosUtc();
             pendingCallbacks = pendingCallbacksByImagePath.remove(containerImageFilePath);
         }
-        host.log(Level.INFO, "Caching system agent image data for %s", containerImageFilePath);
-        host.schedule(this::cleanCache, CACHED_DATA_MICROS, TimeUnit.MICROSECONDS);
+        if (imageFile != null) {
+            host.log(Level.INFO, "Caching system agent image file for %s",
+                    containerImageFilePath);
+            host.schedule(this::cleanCache, CACHED_DATA_MICROS, TimeUnit.MICROSECONDS);
+        }
 
         if (pendingCallbacks != null) {
-            for (Consumer<byte[]> consumer : pendingCallbacks) {
-                consumer.accept(imageData);
+            for (Consumer<File> consumer : pendingCallbacks) {
+                consumer.accept(imageFile);
             }
         }
     }
 
     private void retrieveAgentImage(String resourcesPath, String containerImageFilePath) {
-        Consumer<byte[]> finalCallback = (fileBytes) -> {
-            if (fileBytes == null) {
+        Consumer<File> finalCallback = (imageFile) -> {
+            if (imageFile == null) {
                 host.log(Level.WARNING, "System image %s does not exists.", containerImageFilePath);
             }
-            notifyCallbacks(containerImageFilePath, fileBytes);
+            notifyCallbacks(containerImageFilePath, imageFile);
         };
 
         if (resourcesPath != null) {
-            getExternalAgentImage(resourcesPath, containerImageFilePath, (fileBytes) -> {
-                if (fileBytes != null) {
-                    notifyCallbacks(containerImageFilePath, fileBytes);
+            getExternalAgentImage(resourcesPath, containerImageFilePath, (imageFile) -> {
+                if (imageFile != null) {
+                    notifyCallbacks(containerImageFilePath, imageFile);
                 } else {
                     // Fetch the data from resources when the image is not found in user resources
                     getResourceAgentImage(containerImageFilePath, finalCallback);
@@ -144,40 +162,49 @@ public class SystemImageRetrievalManager {
     }
 
     private void getExternalAgentImage(String resourcesPath, String containerImage,
-            Consumer<byte[]> callback) {
+            Consumer<File> callback) {
         Path imageResourcePath = Paths.get(resourcesPath,
                 SYSTEM_IMAGES_PATH, containerImage);
 
         File file = imageResourcePath.toFile();
-        if (!file.exists()) {
+        if (!file.isFile() || file.length() == 0) {
             callback.accept(null);
             return;
         }
 
-        Operation operation = new Operation();
-        operation.setCompletion((op, ex) -> {
-            if (op.hasBody()) {
-                callback.accept(op.getBody(byte[].class));
-            } else {
-                callback.accept(null);
-            }
-
-        });
-
-        FileUtils.readFileAndComplete(operation, file);
+        callback.accept(file);
     }
 
-    private void getResourceAgentImage(String containerImage, Consumer<byte[]> callback) {
+    private void getResourceAgentImage(String containerImage, Consumer<File> callback) {
+        File extractedImage = extractedResourceImages.get(containerImage);
+        if (extractedImage != null && extractedImage.isFile()) {
+            callback.accept(extractedImage);
+            return;
+        }
+
         try (InputStream resourceAsStream = Thread.currentThread().getContextClassLoader()
                 .getResourceAsStream(containerImage)) {
             if (resourceAsStream == null) {
                 callback.accept(null);
-            } else {
-                callback.accept(IOUtils.toByteArray(resourceAsStream));
+                return;
             }
+            // copy the image to a temp file in chunks, so it can be streamed to the hosts
+            extractedImage = File.createTempFile(EXTRACTED_IMAGE_PREFIX, null);
+            extractedImage.deleteOnExit();
+            Files.copy(resourceAsStream, extractedImage.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
+            host.log(Level.WARNING, "Failed to extract system image %s: %s", containerImage,
+                    e.getMessage());
+            if (extractedImage != null && !extractedImage.delete()) {
+                host.log(Level.WARNING, "Failed to delete temp file: %s", extractedImage);
+            }
             callback.accept(null);
+            return;
         }
+
+        extractedResourceImages.put(containerImage, extractedImage);
+        callback.accept(extractedImage);
     }
 
     private void cleanCache() {
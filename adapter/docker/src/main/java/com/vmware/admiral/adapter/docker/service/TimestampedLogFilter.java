@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vmware.admiral.service.common.LogService.LogSecond;
+
+/**
+ * Filters a container log fetched with timestamps, so the log can be fetched incrementally with
+ * the Docker <code>since</code> parameter. Docker takes <code>since</code> in seconds, so the
+ * fetched log starts with the lines of the second of the last line already kept, which are
+ * dropped by their timestamps. The timestamps themselves are removed from the kept lines, and
+ * the offsets at which the seconds of the kept lines start are returned instead.
+ *
+ * The log of a container without a TTY is a stream of frames, each with an 8 byte header giving
+ * its stream and size. The log of a container with a TTY is plain text.
+ */
+final class TimestampedLogFilter {
+    private static final int FRAME_HEADER_SIZE = 8;
+
+    private final byte[] log;
+    private final String lastLogTimestamp;
+    private final List<LogSecond> logSeconds;
+
+    private TimestampedLogFilter(byte[] log, String lastLogTimestamp,
+            List<LogSecond> logSeconds) {
+        this.log = log;
+        this.lastLogTimestamp = lastLogTimestamp;
+        this.logSeconds = logSeconds;
+    }
+
+    /**
+     * Returns the lines of the log following the given timestamp, or all lines if it is
+     * {@code null}, without their timestamps.
+     */
+    static TimestampedLogFilter filter(byte[] log, String afterTimestamp) {
+        Instant after = afterTimestamp == null ? null : Instant.parse(afterTimestamp);
+        boolean framed = isFramed(log);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(log.length);
+        String lastLogTimestamp = null;
+        List<LogSecond> logSeconds = new ArrayList<>();
+
+        int position = 0;
+        while (position < log.length) {
+            int start;
+            int end;
+            if (framed) {
+                if (position + FRAME_HEADER_SIZE > log.length) {
+                    break;
+                }
+                start = position + FRAME_HEADER_SIZE;
+                end = Math.min(log.length,
+                        start + ByteBuffer.wrap(log, position + 4, 4).getInt());
+            } else {
+                start = position;
+                end = indexOf(log, (byte) '\n', start, log.length) + 1;
+                if (end == 0) {
+                    end = log.length;
+                }
+            }
+
+            int space = indexOf(log, (byte) ' ', start, end);
+            Instant timestamp = null;
+            if (space > start) {
+                try {
+                    timestamp = Instant.parse(new String(log, start, space - start,
+                            StandardCharsets.US_ASCII));
+                } catch (DateTimeParseException e) {
+                    // not a timestamped line, kept as it is
+                }
+            }
+
+            if (timestamp == null) {
+                write(out, log, framed ? position : -1, start, end);
+            } else if (after == null || timestamp.isAfter(after)) {
+                if (logSeconds.isEmpty() || logSeconds.get(logSeconds.size() - 1).second
+                        < timestamp.getEpochSecond()) {
+                    logSeconds.add(new LogSecond(out.size(), timestamp.getEpochSecond()));
+                }
+                lastLogTimestamp = new String(log, start, space - start,
+                        StandardCharsets.US_ASCII);
+                write(out, log, framed ? position : -1, space + 1, end);
+            }
+            position = end;
+        }
+
+        return new TimestampedLogFilter(out.toByteArray(), lastLogTimestamp, logSeconds);
+    }
+
+    /** The kept lines, without their timestamps. */
+    byte[] getLog() {
+        return this.log;
+    }
+
+    /** Timestamp of the last kept line, {@code null} if no line was kept. */
+    String getLastLogTimestamp() {
+        return this.lastLogTimestamp;
+    }
+
+    /** Offsets in the kept lines at which each of their seconds starts. */
+    List<LogSecond> getLogSeconds() {
+        return this.logSeconds;
+    }
+
+    private static boolean isFramed(byte[] log) {
+        // the stream type is 0, 1 or 2, followed by 3 zero bytes. A timestamped line of a plain
+        // text log starts with a digit
+        return log.length >= FRAME_HEADER_SIZE && log[0] >= 0 && log[0] <= 2
+                && log[1] == 0 && log[2] == 0 && log[3] == 0;
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[] log, int header, int start,
+            int end) {
+        if (header >= 0) {
+            out.write(log, header, 4);
+            out.write(ByteBuffer.allocate(4).putInt(end - start).array(), 0, 4);
+        }
+        out.write(log, start, end - start);
+    }
+
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Incremental decoder for the stream returned by the docker <code>/events</code> endpoint. The
+ * stream is a sequence of JSON objects which may be split at any byte across the chunks received
+ * from the network. Each call to {@link #decode(byte[], int, int)} consumes the next chunk and
+ * returns the JSON objects completed by it.
+ *
+ * Not thread-safe, one instance is expected to be used per stream.
+ */
+public class DockerEventsStreamDecoder {
+
+    public static final int DEFAULT_MAX_OBJECT_SIZE = 1024 * 1024;
+
+    private final int maxObjectSize;
+    private final ByteArrayOutputStream current = new ByteArrayOutputStream(512);
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    public DockerEventsStreamDecoder() {
+        this(DEFAULT_MAX_OBJECT_SIZE);
+    }
+
+    public DockerEventsStreamDecoder(int maxObjectSize) {
+        this.maxObjectSize = maxObjectSize;
+    }
+
+    public List<String> decode(byte[] chunk) {
+        return decode(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Consumes the given bytes and returns the JSON objects completed by them.
+     *
+     * @throws IllegalStateException when an object exceeds the maximum object size
+     */
+    public List<String> decode(byte[] chunk, int offset, int length) {
+        List<String> objects = null;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = chunk[i];
+            if (depth == 0) {
+                // skip the new lines and whitespaces between objects
+                if (b != '{') {
+                    continue;
+                }
+            }
+
+            current.write(b);
+            if (current.size() > maxObjectSize) {
+                reset();
+                throw new IllegalStateException(
+                        "Docker event exceeds the maximum size of " + maxObjectSize + " bytes");
+            }
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+
+            if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    if (objects == null) {
+                        objects = new ArrayList<>(2);
+                    }
+                    objects.add(new String(current.toByteArray(), StandardCharsets.UTF_8));
+                    current.reset();
+                }
+            }
+        }
+        return objects != null ? objects : Collections.emptyList();
+    }
+
+    /**
+     * Returns the number of bytes of the object which is not yet complete.
+     */
+    public int getPendingBytes() {
+        return current.size();
+    }
+
+    public void reset() {
+        current.reset();
+        depth = 0;
+        inString = false;
+        escaped = false;
+    }
+}
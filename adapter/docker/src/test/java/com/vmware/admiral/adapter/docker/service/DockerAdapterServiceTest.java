@@ -42,6 +42,7 @@ import javax.net.ssl.TrustManager;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vmware.admiral.adapter.common.BatchAdapterRequest;
 import com.vmware.admiral.adapter.common.ContainerOperationType;
 import com.vmware.admiral.adapter.common.service.mock.MockTaskService.MockTaskState;
 import com.vmware.admiral.adapter.docker.mock.BaseMockDockerTestCase;
@@ -403,6 +404,34 @@ public class DockerAdapterServiceTest extends BaseMockDockerTestCase {
                 PowerState.RUNNING, containerState.powerState);
     }
 
+    @Test
+    public void testBatchStopAndStart() throws Throwable {
+        verifyContainerIsRunning(true);
+
+        sendBatchContainerRequest(ContainerOperationType.STOP, containerStateReference);
+
+        waitForPropertyValue(provisioningTaskLink, MockTaskState.class, "taskInfo.stage",
+                TaskState.TaskStage.FINISHED);
+
+        verifyContainerIsRunning(false);
+        sendGetContainerStateRequest();
+        assertEquals("Unexpected PowerState in ContainerState",
+                PowerState.STOPPED, containerState.powerState);
+
+        // a missing container fails the batch, but the other containers are still processed
+        sendBatchContainerRequest(ContainerOperationType.START, containerStateReference,
+                UriUtils.buildUri(host, UriUtils.buildUriPath(ContainerFactoryService.SELF_LINK,
+                        "missing-container")));
+
+        waitForPropertyValue(provisioningTaskLink, MockTaskState.class, "taskInfo.stage",
+                TaskState.TaskStage.FAILED);
+
+        verifyContainerIsRunning(true);
+        sendGetContainerStateRequest();
+        assertEquals("Unexpected PowerState in ContainerState",
+                PowerState.RUNNING, containerState.powerState);
+    }
+
     @Test
     public void testDeleteWithRetry() throws Throwable {
         // verify container is running
@@ -845,6 +874,32 @@ public class DockerAdapterServiceTest extends BaseMockDockerTestCase {
         }
     }
 
+    private void sendBatchContainerRequest(ContainerOperationType type, URI... references)
+            throws Throwable {
+
+        // create a fresh provisioning task for each request
+        createProvisioningTask();
+
+        BatchAdapterRequest request = new BatchAdapterRequest();
+        request.resourceReferences = Arrays.asList(references);
+        request.operationTypeId = type.id;
+        request.serviceTaskCallback = ServiceTaskCallback.create(provisioningTaskLink);
+
+        host.testStart(1);
+        host.send(Operation
+                .createPatch(dockerAdapterServiceUri)
+                .setReferer(URI.create("/"))
+                .setBodyNoCloning(request)
+                .setCompletion((o, ex) -> {
+                    if (ex != null) {
+                        host.failIteration(ex);
+                    }
+
+                    host.completeIteration();
+                }));
+        host.testWait();
+    }
+
     private void sendGetContainerStateRequest() throws Throwable {
         Operation getContainerState = Operation.createGet(containerStateReference)
                 .setCompletion((o, ex) -> {
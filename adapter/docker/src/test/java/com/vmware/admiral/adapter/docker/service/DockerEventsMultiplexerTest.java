@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2020 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.admiral.adapter.docker.service.DockerEventsMultiplexer.HostEventsStats;
+import com.vmware.admiral.common.test.BaseTestCase;
+import com.vmware.admiral.compute.container.ContainerFactoryService;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
+import com.vmware.admiral.host.HostInitCommonServiceConfig;
+import com.vmware.admiral.host.HostInitComputeServicesConfig;
+import com.vmware.admiral.host.HostInitPhotonModelServiceConfig;
+import com.vmware.photon.controller.model.resources.ComputeDescriptionService;
+import com.vmware.photon.controller.model.resources.ComputeDescriptionService.ComputeDescription;
+import com.vmware.photon.controller.model.resources.ComputeService;
+import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Utils;
+
+public class DockerEventsMultiplexerTest extends BaseTestCase {
+
+    private DockerEventsMultiplexer multiplexer;
+    private MockEventsServer server;
+    private ComputeState computeState;
+
+    @Before
+    public void setUp() throws Throwable {
+        HostInitPhotonModelServiceConfig.startServices(host);
+        HostInitCommonServiceConfig.startServices(host);
+        HostInitComputeServicesConfig.startServices(host, false);
+        waitForServiceAvailability(ContainerFactoryService.SELF_LINK,
+                ComputeService.FACTORY_LINK, ComputeDescriptionService.FACTORY_LINK);
+
+        ComputeDescription computeDescription = new ComputeDescription();
+        computeDescription.id = UUID.randomUUID().toString();
+        computeDescription = doPost(computeDescription, ComputeDescriptionService.FACTORY_LINK);
+
+        computeState = new ComputeState();
+        computeState.id = UUID.randomUUID().toString();
+        computeState.descriptionLink = computeDescription.documentSelfLink;
+        computeState.powerState = ComputeService.PowerState.ON;
+        computeState.customProperties = new HashMap<>();
+        computeState = doPost(computeState, ComputeService.FACTORY_LINK);
+
+        server = new MockEventsServer();
+        multiplexer = new DockerEventsMultiplexer(host);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        multiplexer.stop();
+        server.close();
+    }
+
+    @Test
+    public void testEventsOfSeveralHostsAreStreamedAndCoalesced() throws Throwable {
+        ContainerState container1 = createContainer("container-1");
+        ContainerState container2 = createContainer("container-2");
+
+        // two hosts served by the same mock server, each with its own connection
+        subscribe("host-1");
+        waitFor(() -> server.connections.size() == 1);
+        subscribe("host-2");
+        waitFor(() -> server.connections.size() == 2);
+
+        server.send(0, event("container-1", "die"));
+        server.send(0, event("container-1", "start"));
+        server.send(1, event("container-2", "die"));
+
+        waitFor(() -> PowerState.RUNNING == getDocument(ContainerState.class,
+                container1.documentSelfLink).powerState);
+        waitFor(() -> PowerState.STOPPED == getDocument(ContainerState.class,
+                container2.documentSelfLink).powerState);
+
+        HostEventsStats stats1 = multiplexer.getStats().get("host-1");
+        HostEventsStats stats2 = multiplexer.getStats().get("host-2");
+        assertEquals(2, stats1.eventCount.get());
+        assertEquals(1, stats2.eventCount.get());
+        assertEquals(0, stats1.reconnectCount.get());
+        assertTrue(stats1.coalescedEventCount.get() <= 1);
+        assertTrue(multiplexer.isSubscribed("host-1"));
+        assertTrue(multiplexer.isSubscribed("host-2"));
+    }
+
+    @Test
+    public void testLostConnectionMarksHostUnknownAndReconnects() throws Throwable {
+        ContainerState container = createContainer("container-1");
+
+        subscribe("host-1");
+        waitFor(() -> server.connections.size() == 1);
+        server.closeConnections();
+
+        waitFor(() -> !multiplexer.isSubscribed("host-1"));
+        waitFor(() -> ComputeService.PowerState.UNKNOWN == getDocument(ComputeState.class,
+                computeState.documentSelfLink).powerState);
+        waitFor(() -> PowerState.UNKNOWN == getDocument(ContainerState.class,
+                container.documentSelfLink).powerState);
+
+        HostEventsStats stats = multiplexer.getStats().get("host-1");
+        assertTrue(stats.closedTimeMicros.get() > 0);
+
+        // subscribing again opens a new stream and keeps the metrics of the host
+        subscribe("host-1");
+        waitFor(() -> server.connections.size() == 1);
+        assertTrue(multiplexer.isSubscribed("host-1"));
+        assertEquals(1, stats.reconnectCount.get());
+        assertEquals(0, stats.closedTimeMicros.get());
+
+        server.send(0, event("container-1", "start"));
+        waitFor(() -> PowerState.RUNNING == getDocument(ContainerState.class,
+                container.documentSelfLink).powerState);
+    }
+
+    @Test
+    public void testStatsOfRemovedHostsAreDropped() throws Throwable {
+        subscribe("host-1");
+        subscribe("host-2");
+        waitFor(() -> server.connections.size() == 2);
+
+        // unsubscribed hosts are dropped right away
+        assertTrue(multiplexer.unsubscribe("host-2"));
+        assertNull(multiplexer.getStats().get("host-2"));
+        assertFalse(multiplexer.unsubscribe("host-2"));
+
+        // hosts with a lost stream are dropped once they were not subscribed for a while
+        server.closeConnections();
+        waitFor(() -> !multiplexer.isSubscribed("host-1"));
+        long nowMicros = Utils.getSystemNowMicrosUtc();
+        multiplexer.pruneStats(nowMicros);
+        assertNotNull(multiplexer.getStats().get("host-1"));
+
+        multiplexer.pruneStats(nowMicros + TimeUnit.HOURS.toMicros(1));
+        assertTrue(multiplexer.getStats().isEmpty());
+    }
+
+    private void subscribe(String hostKey) {
+        assertTrue(multiplexer.subscribe(hostKey, server.getEventsUri(), null,
+                Operation.createGet(host.getUri()), computeState, false));
+    }
+
+    private ContainerState createContainer(String id) throws Throwable {
+        ContainerState container = new ContainerState();
+        container.id = id;
+        container.parentLink = computeState.documentSelfLink;
+        container.powerState = PowerState.PROVISIONING;
+        return doPost(container, ContainerFactoryService.SELF_LINK);
+    }
+
+    private static String event(String containerId, String action) {
+        return String.format("{\"status\":\"%s\",\"id\":\"%s\",\"Type\":\"container\","
+                + "\"Action\":\"%s\",\"timeNano\":%d}", action, containerId, action,
+                TimeUnit.MICROSECONDS.toNanos(Utils.getSystemNowMicrosUtc()));
+    }
+
+    /**
+     * Serves a chunked <code>/events</code> response on every connection and sends the events
+     * given by the test.
+     */
+    private static class MockEventsServer {
+        private final ServerSocket serverSocket;
+        private final List<Socket> connections = new CopyOnWriteArrayList<>();
+
+        MockEventsServer() throws IOException {
+            serverSocket = new ServerSocket(0);
+            Thread acceptor = new Thread(this::accept, "mock-events-server");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        URI getEventsUri() {
+            return URI.create("http://localhost:" + serverSocket.getLocalPort() + "/events");
+        }
+
+        void send(int connection, String json) throws IOException {
+            byte[] data = json.getBytes(StandardCharsets.UTF_8);
+            OutputStream out = connections.get(connection).getOutputStream();
+            out.write((Integer.toHexString(data.length) + "\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            out.write(data);
+            out.write("\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        void closeConnections() throws IOException {
+            for (Socket socket : connections) {
+                connections.remove(socket);
+                socket.close();
+            }
+        }
+
+        void close() throws IOException {
+            closeConnections();
+            serverSocket.close();
+        }
+
+        private void accept() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    readRequest(socket.getInputStream());
+                    OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\n"
+                            + "Content-Type: application/json\r\n"
+                            + "Transfer-Encoding: chunked\r\n\r\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    connections.add(socket);
+                } catch (IOException e) {
+                    // the server was closed
+                }
+            }
+        }
+
+        private static void readRequest(InputStream in) throws IOException {
+            int matched = 0;
+            byte[] end = "\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+            int b;
+            while (matched < end.length && (b = in.read()) != -1) {
+                matched = b == end[matched] ? matched + 1 : (b == end[0] ? 1 : 0);
+            }
+        }
+    }
+}
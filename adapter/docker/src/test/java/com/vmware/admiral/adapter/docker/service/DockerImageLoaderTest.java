@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.admiral.common.test.BaseTestCase;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.test.TestContext;
+
+public class DockerImageLoaderTest extends BaseTestCase {
+    private static final String LOAD_PATH = "/test-docker/images/load";
+    private static final int READ_TIMEOUT_MILLIS = 30000;
+
+    private MockImageLoadService loadService;
+    private File imageFile;
+    private byte[] imageContent;
+    private DockerImageLoader loader;
+
+    @Before
+    public void setUp() throws Throwable {
+        loadService = new MockImageLoadService();
+        host.startService(Operation.createPost(UriUtils.buildUri(host, LOAD_PATH)),
+                loadService);
+        waitForServiceAvailability(LOAD_PATH);
+
+        imageContent = new byte[1024 * 1024];
+        new Random().nextBytes(imageContent);
+        imageFile = File.createTempFile("docker-image-loader-test", ".tar");
+        imageFile.deleteOnExit();
+        Files.write(imageFile.toPath(), imageContent);
+    }
+
+    @After
+    public void tearDown() {
+        if (loader != null) {
+            loader.stop();
+        }
+        imageFile.delete();
+    }
+
+    @Test
+    public void testLoadStreamsTheImageFile() throws Throwable {
+        loader = new DockerImageLoader(READ_TIMEOUT_MILLIS);
+
+        AtomicReference<Operation> result = new AtomicReference<>();
+        TestContext ctx = testCreate(1);
+        loader.load(getLoadUri(), imageFile, this::openConnection, (o, ex) -> {
+            if (ex != null) {
+                ctx.failIteration(ex);
+                return;
+            }
+            result.set(o);
+            ctx.completeIteration();
+        });
+        ctx.await();
+
+        assertEquals(Operation.STATUS_CODE_OK, result.get().getStatusCode());
+        assertArrayEquals(imageContent, loadService.lastContent.get());
+    }
+
+    @Test
+    public void testLoadFailsOnErrorInResponseStream() throws Throwable {
+        loader = new DockerImageLoader(READ_TIMEOUT_MILLIS);
+        loadService.response = "{\"stream\":\"Loading layer\"}\n{\"error\":\"invalid tar\"}";
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        TestContext ctx = testCreate(1);
+        loader.load(getLoadUri(), imageFile, this::openConnection, (o, ex) -> {
+            failure.set(ex);
+            ctx.completeIteration();
+        });
+        ctx.await();
+
+        assertNotNull(failure.get());
+        assertEquals("invalid tar", failure.get().getMessage());
+    }
+
+    @Test
+    public void testConcurrentLoadsOfTheSameImageAreBounded() throws Throwable {
+        int concurrencyPerImage = 2;
+        int loadCount = 6;
+        loader = new DockerImageLoader(concurrencyPerImage, READ_TIMEOUT_MILLIS);
+        loadService.delayMillis = 200;
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        TestContext ctx = testCreate(loadCount);
+        for (int i = 0; i < loadCount; i++) {
+            loader.load(getLoadUri(), imageFile, this::openConnection, (o, ex) -> {
+                if (ex != null) {
+                    failure.set(ex);
+                }
+                ctx.completeIteration();
+            });
+        }
+        ctx.await();
+
+        assertNull(failure.get());
+        assertEquals(loadCount, loadService.loadCount.get());
+        assertTrue("Too many concurrent loads: " + loadService.maxConcurrentLoads.get(),
+                loadService.maxConcurrentLoads.get() <= concurrencyPerImage);
+    }
+
+    private URI getLoadUri() {
+        return UriUtils.buildUri(host, LOAD_PATH);
+    }
+
+    private HttpURLConnection openConnection(URI uri) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setRequestProperty(Operation.REFERER_HEADER, host.getUri().toString());
+        return connection;
+    }
+
+    private static class MockImageLoadService extends StatelessService {
+        private final AtomicReference<byte[]> lastContent = new AtomicReference<>();
+        private final AtomicInteger loadCount = new AtomicInteger();
+        private final AtomicInteger concurrentLoads = new AtomicInteger();
+        private final AtomicInteger maxConcurrentLoads = new AtomicInteger();
+        private volatile String response = "{\"stream\":\"Loaded image: test:latest\"}";
+        private volatile long delayMillis;
+
+        @Override
+        public void handlePost(Operation post) {
+            int concurrent = concurrentLoads.incrementAndGet();
+            maxConcurrentLoads.accumulateAndGet(concurrent, Math::max);
+            loadCount.incrementAndGet();
+            lastContent.set(post.getBody(byte[].class));
+
+            getHost().schedule(() -> {
+                concurrentLoads.decrementAndGet();
+                post.setBodyNoCloning(response).complete();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
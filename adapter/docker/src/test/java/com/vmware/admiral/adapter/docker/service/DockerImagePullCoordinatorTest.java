@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.xenon.common.DeferredResult;
+
+public class DockerImagePullCoordinatorTest {
+    private static final String HOST_LINK = "/resources/compute/docker-host";
+    private static final String IMAGE = "registry.hub.docker.com/library/alpine:latest";
+    private static final String PULL_RESPONSE = "{\"status\":\"Pulling from library/alpine\"}"
+            + "{\"status\":\"Digest: sha256:0123456789abcdef\"}";
+
+    private DockerImagePullCoordinator coordinator;
+    private AtomicInteger pullCount;
+    private DeferredResult<String> pullResult;
+
+    @Before
+    public void setUp() {
+        coordinator = new DockerImagePullCoordinator(TimeUnit.MINUTES.toMicros(5), 100);
+        pullCount = new AtomicInteger();
+        pullResult = new DeferredResult<>();
+    }
+
+    @Test
+    public void testConcurrentPullsAreMerged() {
+        DeferredResult<Void> pull1 = pull(HOST_LINK, IMAGE, null);
+        DeferredResult<Void> pull2 = pull(HOST_LINK, IMAGE, null);
+        assertEquals(1, pullCount.get());
+        assertFalse(pull1.isDone());
+        assertFalse(pull2.isDone());
+
+        pullResult.complete(PULL_RESPONSE);
+
+        assertTrue(pull1.isDone());
+        assertTrue(pull2.isDone());
+    }
+
+    @Test
+    public void testRecentlyPulledImageIsSkipped() {
+        pullResult.complete(PULL_RESPONSE);
+        pull(HOST_LINK, IMAGE, null);
+
+        assertTrue(pull(HOST_LINK, IMAGE, null).isDone());
+        assertEquals(1, pullCount.get());
+
+        // other hosts, images and credentials are pulled
+        pull("/resources/compute/other-host", IMAGE, null);
+        pull(HOST_LINK, IMAGE.replace("latest", "3.7"), null);
+        pull(HOST_LINK, IMAGE, "credentials");
+        assertEquals(4, pullCount.get());
+
+        // removing images from the host forgets the pulled images
+        coordinator.forget(HOST_LINK);
+        pull(HOST_LINK, IMAGE, null);
+        assertEquals(5, pullCount.get());
+    }
+
+    @Test
+    public void testFailedPullIsNotRemembered() {
+        AtomicBoolean failed = new AtomicBoolean();
+        pull(HOST_LINK, IMAGE, null).whenComplete((ignore, ex) -> failed.set(ex != null));
+        pullResult.fail(new IllegalStateException("pull failed"));
+        assertTrue(failed.get());
+
+        pullResult = DeferredResult.completed(PULL_RESPONSE);
+        pull(HOST_LINK, IMAGE, null);
+        assertEquals(2, pullCount.get());
+    }
+
+    @Test
+    public void testPullJoiningFailedPullFallsBackToItsOwnPull() {
+        DeferredResult<String> prePullResult = new DeferredResult<>();
+        coordinator.pull(HOST_LINK, IMAGE, null, () -> prePullResult);
+        AtomicBoolean failed = new AtomicBoolean();
+        DeferredResult<Void> pull = pull(HOST_LINK, IMAGE, null)
+                .whenComplete((ignore, ex) -> failed.set(ex != null));
+        assertEquals(0, pullCount.get());
+
+        prePullResult.fail(new IllegalStateException("pre-pull failed"));
+        assertEquals(1, pullCount.get());
+        assertFalse(pull.isDone());
+
+        pullResult.complete(PULL_RESPONSE);
+        assertTrue(pull.isDone());
+        assertFalse(failed.get());
+    }
+
+    @Test
+    public void testForgottenImageIsPulled() {
+        pullResult.complete(PULL_RESPONSE);
+        pull(HOST_LINK, IMAGE, null);
+        pull(HOST_LINK, IMAGE, "credentials");
+
+        // e.g. the image was removed from the host outside of the adapter
+        coordinator.forget(HOST_LINK, IMAGE);
+        pull(HOST_LINK, IMAGE, null);
+        pull(HOST_LINK, IMAGE, "credentials");
+        assertEquals(4, pullCount.get());
+    }
+
+    @Test
+    public void testFindDigest() {
+        assertEquals("sha256:0123456789abcdef",
+                DockerImagePullCoordinator.findDigest(PULL_RESPONSE));
+        assertEquals(null, DockerImagePullCoordinator.findDigest("{\"status\":\"done\"}"));
+    }
+
+    private DeferredResult<Void> pull(String hostLink, String image, String registryAuth) {
+        return coordinator.pull(hostLink, image, registryAuth, () -> {
+            pullCount.incrementAndGet();
+            return pullResult;
+        });
+    }
+}
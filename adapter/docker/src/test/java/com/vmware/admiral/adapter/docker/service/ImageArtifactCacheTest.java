@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.admiral.common.test.BaseTestCase;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.test.TestContext;
+import com.vmware.xenon.services.common.FileContentService;
+
+public class ImageArtifactCacheTest extends BaseTestCase {
+    private static final int IMAGE_SIZE = 64 * 1024;
+    private static final String ETAG = "\"test-etag\"";
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Throwable {
+        cacheDir = Files.createTempDirectory("image-artifact-cache-test").toFile();
+        cacheDir.deleteOnExit();
+    }
+
+    @Test
+    public void testConcurrentRequestsShareOneDownload() throws Throwable {
+        byte[] content = createContent();
+        CountingFileContentService imageService = startImageService("/test-images/a.tar",
+                content);
+        ImageArtifactCache cache = new ImageArtifactCache(cacheDir, Long.MAX_VALUE,
+                TimeUnit.MINUTES.toMicros(1));
+
+        List<File> files = acquire(cache, imageService.uri, 5);
+
+        assertEquals(1, imageService.downloadCount.get());
+        for (File file : files) {
+            assertEquals(files.get(0), file);
+            assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        }
+
+        // fresh entries are served without contacting the image server
+        acquire(cache, imageService.uri, 1);
+        assertEquals(1, imageService.probeCount.get());
+        assertEquals(1, imageService.downloadCount.get());
+    }
+
+    @Test
+    public void testStaleEntryIsRevalidatedWithETag() throws Throwable {
+        CountingFileContentService imageService = startImageService("/test-images/b.tar",
+                createContent());
+        ImageArtifactCache cache = new ImageArtifactCache(cacheDir, Long.MAX_VALUE, 0);
+
+        File file = acquire(cache, imageService.uri, 1).get(0);
+        File revalidatedFile = acquire(cache, imageService.uri, 1).get(0);
+
+        assertEquals(file, revalidatedFile);
+        assertEquals(2, imageService.probeCount.get());
+        assertEquals(1, imageService.notModifiedCount.get());
+        assertEquals(1, imageService.downloadCount.get());
+    }
+
+    @Test
+    public void testStaleEntryIsNotDownloadedWhenServerIgnoresConditionalRequests()
+            throws Throwable {
+        CountingFileContentService imageService = startImageService("/test-images/e.tar",
+                createContent());
+        imageService.ignoreConditionalRequests = true;
+        ImageArtifactCache cache = new ImageArtifactCache(cacheDir, Long.MAX_VALUE, 0);
+
+        File file = acquire(cache, imageService.uri, 1).get(0);
+        File revalidatedFile = acquire(cache, imageService.uri, 1).get(0);
+
+        // the probe response carries the ETag of the cached image
+        assertEquals(file, revalidatedFile);
+        assertEquals(2, imageService.probeCount.get());
+        assertEquals(0, imageService.notModifiedCount.get());
+        assertEquals(1, imageService.downloadCount.get());
+    }
+
+    @Test
+    public void testSameContentFromDifferentUrlsIsStoredOnce() throws Throwable {
+        byte[] content = createContent();
+        CountingFileContentService imageService1 = startImageService("/test-images/c1.tar",
+                content);
+        CountingFileContentService imageService2 = startImageService("/test-images/c2.tar",
+                content);
+        ImageArtifactCache cache = new ImageArtifactCache(cacheDir, Long.MAX_VALUE,
+                TimeUnit.MINUTES.toMicros(1));
+
+        File file1 = acquire(cache, imageService1.uri, 1).get(0);
+        File file2 = acquire(cache, imageService2.uri, 1).get(0);
+
+        assertEquals(file1, file2);
+        assertEquals(1, cacheDir.listFiles().length);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedImageIsEvictedOnceReleased() throws Throwable {
+        CountingFileContentService imageService1 = startImageService("/test-images/d1.tar",
+                createContent());
+        CountingFileContentService imageService2 = startImageService("/test-images/d2.tar",
+                createContent());
+        ImageArtifactCache cache = new ImageArtifactCache(cacheDir, IMAGE_SIZE * 3 / 2,
+                TimeUnit.MINUTES.toMicros(1));
+
+        File file1 = acquire(cache, imageService1.uri, 1).get(0);
+        File file2 = acquire(cache, imageService2.uri, 1).get(0);
+        assertNotEquals(file1, file2);
+
+        // both files are in use, so none of them is evicted
+        assertTrue(file1.exists());
+        assertTrue(file2.exists());
+
+        cache.release(file1);
+        assertFalse(file1.exists());
+        assertTrue(file2.exists());
+
+        // the evicted image is downloaded again
+        acquire(cache, imageService1.uri, 1);
+        assertEquals(2, imageService1.downloadCount.get());
+    }
+
+    private List<File> acquire(ImageArtifactCache cache, URI uri, int count) {
+        List<File> files = Collections.synchronizedList(new ArrayList<>());
+        TestContext ctx = testCreate(count);
+        for (int i = 0; i < count; i++) {
+            cache.acquire(host, uri, (file, ex) -> {
+                if (ex != null) {
+                    ctx.failIteration(ex);
+                    return;
+                }
+                files.add(file);
+                ctx.completeIteration();
+            });
+        }
+        ctx.await();
+        return files;
+    }
+
+    private CountingFileContentService startImageService(String path, byte[] content)
+            throws Throwable {
+        File file = File.createTempFile("image-artifact-cache-test", ".tar");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+
+        CountingFileContentService service = new CountingFileContentService(file);
+        service.uri = UriUtils.buildUri(host, path);
+        host.startService(Operation.createPost(service.uri), service);
+        waitForServiceAvailability(path);
+        return service;
+    }
+
+    private static byte[] createContent() {
+        byte[] content = new byte[IMAGE_SIZE];
+        new Random().nextBytes(content);
+        return content;
+    }
+
+    private static class CountingFileContentService extends FileContentService {
+        private final AtomicInteger probeCount = new AtomicInteger();
+        private final AtomicInteger notModifiedCount = new AtomicInteger();
+        private final AtomicInteger downloadCount = new AtomicInteger();
+        private URI uri;
+        private volatile boolean ignoreConditionalRequests;
+
+        CountingFileContentService(File file) {
+            super(file);
+        }
+
+        @Override
+        public void handleGet(Operation get) {
+            String range = get.getRequestHeader(Operation.RANGE_HEADER);
+            if ("bytes=0-0".equals(range)) {
+                probeCount.incrementAndGet();
+                if (!ignoreConditionalRequests
+                        && ETAG.equals(get.getRequestHeader("if-none-match"))) {
+                    notModifiedCount.incrementAndGet();
+                    get.setStatusCode(Operation.STATUS_CODE_NOT_MODIFIED).complete();
+                    return;
+                }
+            } else if (range == null || range.startsWith("bytes=0-")) {
+                downloadCount.incrementAndGet();
+            }
+            get.addResponseHeader("etag", ETAG);
+            super.handleGet(get);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.Test;
+
+public class TimestampedLogFilterTest {
+    private static final String TIMESTAMP_1 = "2018-01-01T10:00:00.1Z";
+    private static final String TIMESTAMP_2 = "2018-01-01T10:00:00.25Z";
+    private static final String TIMESTAMP_3 = "2018-01-01T10:00:01.123456789Z";
+
+    @Test
+    public void testPlainTextLog() {
+        byte[] log = bytes(TIMESTAMP_1 + " line1\n" + TIMESTAMP_2 + " line2\n"
+                + TIMESTAMP_3 + " line3\n");
+
+        TimestampedLogFilter filtered = TimestampedLogFilter.filter(log, null);
+        assertEquals("line1\nline2\nline3\n", string(filtered.getLog()));
+        assertEquals(TIMESTAMP_3, filtered.getLastLogTimestamp());
+        // line1 and line2 are logged in the same second
+        assertEquals(2, filtered.getLogSeconds().size());
+        assertEquals(0, filtered.getLogSeconds().get(0).offset);
+        assertEquals(Instant.parse(TIMESTAMP_1).getEpochSecond(),
+                filtered.getLogSeconds().get(0).second);
+        assertEquals(12, filtered.getLogSeconds().get(1).offset);
+        assertEquals(Instant.parse(TIMESTAMP_3).getEpochSecond(),
+                filtered.getLogSeconds().get(1).second);
+
+        // the lines up to the last kept one are dropped, the timestamps differ in precision
+        filtered = TimestampedLogFilter.filter(log, "2018-01-01T10:00:00.100Z");
+        assertEquals("line2\nline3\n", string(filtered.getLog()));
+
+        filtered = TimestampedLogFilter.filter(log, TIMESTAMP_3);
+        assertEquals("", string(filtered.getLog()));
+        assertNull(filtered.getLastLogTimestamp());
+    }
+
+    @Test
+    public void testFramedLog() {
+        byte[] log = frames(frame(1, TIMESTAMP_1 + " out1\n"), frame(2, TIMESTAMP_2 + " err1\n"),
+                frame(1, TIMESTAMP_3 + " out2\n"));
+
+        TimestampedLogFilter filtered = TimestampedLogFilter.filter(log, TIMESTAMP_1);
+        assertArrayEquals(frames(frame(2, "err1\n"), frame(1, "out2\n")), filtered.getLog());
+        assertEquals(TIMESTAMP_3, filtered.getLastLogTimestamp());
+    }
+
+    @Test
+    public void testLinesWithoutTimestampAreKept() {
+        byte[] log = bytes("no timestamp\n" + TIMESTAMP_1 + " line1");
+
+        TimestampedLogFilter filtered = TimestampedLogFilter.filter(log, null);
+        assertEquals("no timestamp\nline1", string(filtered.getLog()));
+        assertEquals(TIMESTAMP_1, filtered.getLastLogTimestamp());
+    }
+
+    private static byte[] frame(int stream, String payload) {
+        byte[] data = bytes(payload);
+        return ByteBuffer.allocate(8 + data.length).put((byte) stream).put(new byte[3])
+                .putInt(data.length).put(data).array();
+    }
+
+    private static byte[] frames(byte[]... frames) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] data) {
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.docker.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DockerEventsStreamDecoderTest {
+
+    private static final String EVENT_START = "{\"status\":\"start\",\"id\":\"abc\","
+            + "\"Type\":\"container\",\"Action\":\"start\","
+            + "\"Actor\":{\"ID\":\"abc\",\"Attributes\":{\"name\":\"a}b\\\"{\"}},"
+            + "\"time\":1500000000,\"timeNano\":1500000000000000000}";
+
+    private static final String EVENT_DIE = "{\"status\":\"die\",\"id\":\"abc\","
+            + "\"Type\":\"container\",\"Action\":\"die\",\"time\":1500000001}";
+
+    @Test
+    public void testDecodeWholeObjects() {
+        DockerEventsStreamDecoder decoder = new DockerEventsStreamDecoder();
+
+        List<String> objects = decoder.decode(bytes(EVENT_START + "\n" + EVENT_DIE + "\n"));
+
+        assertEquals(2, objects.size());
+        assertEquals(EVENT_START, objects.get(0));
+        assertEquals(EVENT_DIE, objects.get(1));
+        assertEquals(0, decoder.getPendingBytes());
+    }
+
+    @Test
+    public void testDecodeObjectsSplitAcrossChunks() {
+        DockerEventsStreamDecoder decoder = new DockerEventsStreamDecoder();
+        byte[] stream = bytes(EVENT_START + "\n" + EVENT_DIE + "\n");
+
+        // feed the stream byte by byte to split the objects at every possible position
+        List<String> objects = new ArrayList<>();
+        for (int i = 0; i < stream.length; i++) {
+            objects.addAll(decoder.decode(stream, i, 1));
+        }
+
+        assertEquals(2, objects.size());
+        assertEquals(EVENT_START, objects.get(0));
+        assertEquals(EVENT_DIE, objects.get(1));
+    }
+
+    @Test
+    public void testDecodeIncompleteObject() {
+        DockerEventsStreamDecoder decoder = new DockerEventsStreamDecoder();
+        String half = EVENT_DIE.substring(0, 20);
+
+        assertTrue(decoder.decode(bytes(half)).isEmpty());
+        assertEquals(half.length(), decoder.getPendingBytes());
+
+        List<String> objects = decoder.decode(bytes(EVENT_DIE.substring(20)));
+        assertEquals(1, objects.size());
+        assertEquals(EVENT_DIE, objects.get(0));
+    }
+
+    @Test
+    public void testDecodeObjectExceedingMaxSize() {
+        DockerEventsStreamDecoder decoder = new DockerEventsStreamDecoder(10);
+        try {
+            decoder.decode(bytes(EVENT_DIE));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertEquals(0, decoder.getPendingBytes());
+        }
+
+        // the decoder can be used again after the failure
+        assertEquals(1, decoder.decode(bytes("{}")).size());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
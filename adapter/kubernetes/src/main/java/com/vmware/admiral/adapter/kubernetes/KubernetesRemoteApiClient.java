@@ -46,6 +46,7 @@ import com.vmware.admiral.common.util.ServiceUtils;
 import com.vmware.admiral.compute.ContainerHostService;
 import com.vmware.admiral.compute.content.kubernetes.KubernetesUtil;
 import com.vmware.admiral.compute.kubernetes.entities.common.ObjectMeta;
+import com.vmware.admiral.compute.kubernetes.entities.common.WatchEvent;
 import com.vmware.admiral.compute.kubernetes.entities.namespaces.Namespace;
 import com.vmware.admiral.compute.kubernetes.entities.namespaces.NamespaceList;
 import com.vmware.admiral.compute.kubernetes.entities.nodes.KubernetesNodeData;
@@ -73,11 +74,18 @@ public class KubernetesRemoteApiClient {
 
     public static final String LABEL_SELECTOR_QUERY = "labelSelector";
 
+    public static final String WATCH_TIMEOUT_SECONDS_PROPERTY =
+            "com.vmware.admiral.adapter.kubernetes.watch.timeout.seconds";
+
     private static final Logger logger = Logger
             .getLogger(KubernetesRemoteApiClient.class.getName());
 
     private static final int REQUEST_TIMEOUT_SECONDS = 10;
 
+    // must be well below the request timeout, the server holds the watch request that long
+    private static final int WATCH_TIMEOUT_SECONDS = Integer.getInteger(
+            WATCH_TIMEOUT_SECONDS_PROPERTY, 1);
+
     private final ServiceClient serviceClient;
     private final DelegatingX509KeyManager keyManager = new DelegatingX509KeyManager();
     private ServerX509TrustManager trustManager;
@@ -346,6 +354,47 @@ public class KubernetesRemoteApiClient {
         sendRequest(Action.GET, uri, null, context, completionHandler);
     }
 
+    /**
+     * Watches the entities of the given type for the changes following the given resource
+     * version. The server holds the request for a short time and then responds with the events
+     * received meanwhile, which can be read with {@link #parseWatchEvents(String)}. Bookmark
+     * events are requested as well, so the watch can be resumed from a recent resource version
+     * even if none of the watched entities has changed.
+     */
+    public void watchEntities(KubernetesContext context, String entityType,
+            String resourceVersion, CompletionHandler completionHandler) {
+        String apiVersionPrefix = DEPLOYMENT_TYPE.equals(entityType)
+                || REPLICA_SET_TYPE.equals(entityType)
+                ? API_PREFIX_EXTENSIONS_V1BETA : API_PREFIX_V1;
+        URI uri = UriUtils.buildUri(ApiUtil.namespacePrefix(context, apiVersionPrefix)
+                + getKubernetesPath(entityType));
+
+        uri = UriUtils.extendUriWithQuery(uri,
+                "watch", Boolean.TRUE.toString(),
+                "resourceVersion", resourceVersion,
+                "allowWatchBookmarks", Boolean.TRUE.toString(),
+                "timeoutSeconds", String.valueOf(WATCH_TIMEOUT_SECONDS));
+
+        sendRequest(Action.GET, uri, null, context, completionHandler);
+    }
+
+    /**
+     * Parses the body of a watch response, which is a stream of JSON encoded events, one per
+     * line.
+     */
+    public static List<WatchEvent> parseWatchEvents(String body) {
+        List<WatchEvent> events = new ArrayList<>();
+        if (body == null) {
+            return events;
+        }
+        for (String line : body.split("\\n")) {
+            if (!line.trim().isEmpty()) {
+                events.add(Utils.fromJson(line, WatchEvent.class));
+            }
+        }
+        return events;
+    }
+
     public void createEntity(KubernetesDescription description, KubernetesContext context,
             CompletionHandler completionHandler) throws IOException {
         URI uri = ApiUtil.buildKubernetesFactoryUri(description, context);
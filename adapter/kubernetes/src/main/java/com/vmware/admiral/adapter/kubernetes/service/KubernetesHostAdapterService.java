@@ -18,10 +18,13 @@ import static com.vmware.admiral.compute.content.kubernetes.KubernetesUtil.REPLI
 import static com.vmware.admiral.compute.content.kubernetes.KubernetesUtil.SERVICE_TYPE;
 import static com.vmware.admiral.compute.content.kubernetes.KubernetesUtil.createEntityData;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -39,7 +42,9 @@ import com.vmware.admiral.compute.ContainerHostService;
 import com.vmware.admiral.compute.content.kubernetes.KubernetesUtil;
 import com.vmware.admiral.compute.kubernetes.KubernetesEntityDataCollection.EntityListCallback;
 import com.vmware.admiral.compute.kubernetes.KubernetesEntityDataCollection.KubernetesEntityData;
+import com.vmware.admiral.compute.kubernetes.entities.common.BaseKubernetesList;
 import com.vmware.admiral.compute.kubernetes.entities.common.BaseKubernetesObject;
+import com.vmware.admiral.compute.kubernetes.entities.common.WatchEvent;
 import com.vmware.admiral.compute.kubernetes.entities.deployments.Deployment;
 import com.vmware.admiral.compute.kubernetes.entities.deployments.DeploymentList;
 import com.vmware.admiral.compute.kubernetes.entities.pods.Pod;
@@ -69,6 +74,16 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
     public static final String DASHBOARD_LINK_PROP_NAME = "__dashboardLink";
     public static final String DASHBOARD_INSTALLED_PROP_NAME = "__dashboardInstalled";
 
+    public static final String WATCH_RESYNC_INTERVAL_MILLIS_PROPERTY =
+            "com.vmware.admiral.adapter.kubernetes.watch.resync.interval.millis";
+    private static final long WATCH_RESYNC_INTERVAL_MILLIS = Long.getLong(
+            WATCH_RESYNC_INTERVAL_MILLIS_PROPERTY, TimeUnit.MINUTES.toMillis(10));
+
+    private static final List<String> WATCHED_ENTITY_TYPES = Arrays.asList(POD_TYPE,
+            SERVICE_TYPE, DEPLOYMENT_TYPE, REPLICATION_CONTROLLER_TYPE, REPLICA_SET_TYPE);
+
+    private final Map<String, WatchPosition> watchPositions = new ConcurrentHashMap<>();
+
     @Override
     public void handlePatch(Operation op) {
         AdapterRequest request = op.getBody(AdapterRequest.class);
@@ -281,7 +296,24 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
             CallbackHandler callbackHandler) {
         updateContext(request, context);
 
+        // the position is taken, so a concurrent listing of the host lists all entities
+        WatchPosition position = this.watchPositions.remove(context.host.documentSelfLink);
+        if (position != null && !position.isResyncDue()) {
+            watchEntities(request, context, op, callbackHandler, position);
+        } else {
+            listAllEntities(request, context, op, callbackHandler);
+        }
+    }
+
+    /**
+     * Lists all entities of the host and keeps the resource versions of the lists, so the next
+     * listing of the host only has to watch for the changes following them.
+     */
+    private void listAllEntities(AdapterRequest request, KubernetesContext context,
+            Operation op, CallbackHandler callbackHandler) {
         EntityListCallback callbackResponse = new EntityListCallback();
+        Map<String, String> resourceVersions = new ConcurrentHashMap<>();
+        long listTimeMillis = System.currentTimeMillis();
         AtomicBoolean hasError = new AtomicBoolean(false);
         AtomicBoolean allStarted = new AtomicBoolean(false);
         AtomicInteger resultCount = new AtomicInteger(0);
@@ -304,6 +336,10 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
                                     request.getRequestTrackingLog());
                         }
 
+                        if (resourceVersions.size() == WATCHED_ENTITY_TYPES.size()) {
+                            this.watchPositions.put(context.host.documentSelfLink,
+                                    new WatchPosition(resourceVersions, listTimeMillis));
+                        }
                         callbackHandler.complete(request, op, callbackResponse);
                     }
                 }
@@ -315,6 +351,7 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
 
         client.getPods(context, null, resultHandler.appendResult((o) -> {
             PodList podList = o.getBody(PodList.class);
+            addResourceVersion(resourceVersions, POD_TYPE, podList);
             if (podList.items != null) {
                 for (Pod pod : podList.items) {
                     if (validateKubernetesObject(pod)) {
@@ -326,6 +363,7 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
         }));
         client.getServices(context, null, resultHandler.appendResult(o -> {
             ServiceList serviceList = o.getBody(ServiceList.class);
+            addResourceVersion(resourceVersions, SERVICE_TYPE, serviceList);
             if (serviceList.items != null) {
                 for (Service service : serviceList.items) {
                     if (validateKubernetesObject(service)) {
@@ -350,6 +388,7 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
         }));
         client.getDeployments(context, null, resultHandler.appendResult(o -> {
             DeploymentList deploymentList = o.getBody(DeploymentList.class);
+            addResourceVersion(resourceVersions, DEPLOYMENT_TYPE, deploymentList);
             if (deploymentList.items != null) {
                 for (Deployment deployment : deploymentList.items) {
                     if (validateKubernetesObject(deployment)) {
@@ -362,6 +401,7 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
         }));
         client.getReplicationControllers(context, null, resultHandler.appendResult(o -> {
             ReplicationControllerList rcList = o.getBody(ReplicationControllerList.class);
+            addResourceVersion(resourceVersions, REPLICATION_CONTROLLER_TYPE, rcList);
             if (rcList.items != null) {
                 for (ReplicationController rc : rcList.items) {
                     if (validateKubernetesObject(rc)) {
@@ -374,6 +414,7 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
         }));
         client.getReplicaSets(context, null, resultHandler.appendResult(o -> {
             ReplicaSetList rsList = o.getBody(ReplicaSetList.class);
+            addResourceVersion(resourceVersions, REPLICA_SET_TYPE, rsList);
             if (rsList.items != null) {
                 for (ReplicaSet rs : rsList.items) {
                     if (validateKubernetesObject(rs)) {
@@ -386,6 +427,94 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
         allStarted.set(true);
     }
 
+    /**
+     * Watches the entities of the host for the changes following the given position and
+     * completes with the changed entities only. Falls back to listing all entities if the watch
+     * can not be resumed from the position, for example because it is too old.
+     */
+    private void watchEntities(AdapterRequest request, KubernetesContext context, Operation op,
+            CallbackHandler callbackHandler, WatchPosition position) {
+        EntityListCallback callbackResponse = new EntityListCallback();
+        callbackResponse.computeHostLink = context.host.documentSelfLink;
+        callbackResponse.incremental = true;
+
+        Map<String, String> resourceVersions = new ConcurrentHashMap<>(
+                position.resourceVersions);
+        AtomicBoolean hasError = new AtomicBoolean(false);
+        AtomicInteger resultCount = new AtomicInteger(WATCHED_ENTITY_TYPES.size());
+        KubernetesRemoteApiClient client = getApiClient();
+
+        for (String entityType : WATCHED_ENTITY_TYPES) {
+            client.watchEntities(context, entityType, resourceVersions.get(entityType),
+                    (o, ex) -> {
+                        Throwable error = ex;
+                        if (error == null) {
+                            // the events of the entity types are applied concurrently
+                            try {
+                                synchronized (callbackResponse) {
+                                    applyWatchEvents(o.hasBody() ? o.getBody(String.class) : null,
+                                            entityType, callbackResponse, resourceVersions);
+                                }
+                            } catch (Exception e) {
+                                error = e;
+                            }
+                        }
+                        if (error != null) {
+                            if (hasError.compareAndSet(false, true)) {
+                                logInfo("Watching the entities of host [%s] failed, listing"
+                                        + " them: %s", context.host.documentSelfLink,
+                                        error.getMessage());
+                                listAllEntities(request, context, op, callbackHandler);
+                            }
+                        } else if (resultCount.decrementAndGet() == 0 && !hasError.get()) {
+                            this.watchPositions.put(context.host.documentSelfLink,
+                                    new WatchPosition(resourceVersions,
+                                            position.listTimeMillis));
+                            callbackHandler.complete(request, op, callbackResponse);
+                        }
+                    });
+        }
+    }
+
+    private void applyWatchEvents(String body, String entityType,
+            EntityListCallback callbackResponse, Map<String, String> resourceVersions) {
+        for (WatchEvent event : KubernetesRemoteApiClient.parseWatchEvents(body)) {
+            if (WatchEvent.TYPE_ERROR.equals(event.type)) {
+                throw new IllegalStateException(String.format("Watch of %s failed: %s",
+                        entityType, event.object));
+            }
+
+            if (WatchEvent.TYPE_ADDED.equals(event.type)
+                    || WatchEvent.TYPE_MODIFIED.equals(event.type)) {
+                BaseKubernetesObject object = event.getObject();
+                if (validateKubernetesObject(object)) {
+                    callbackResponse.removedIds.remove(object.metadata.uid);
+                    callbackResponse.idToEntityData.put(object.metadata.uid,
+                            createEntityData(object, entityType));
+                }
+            } else if (WatchEvent.TYPE_DELETED.equals(event.type)) {
+                BaseKubernetesObject object = event.getObject();
+                if (object.metadata != null && object.metadata.uid != null) {
+                    callbackResponse.idToEntityData.remove(object.metadata.uid);
+                    callbackResponse.removedIds.add(object.metadata.uid);
+                }
+            }
+
+            // bookmarks carry only the resource version to resume from
+            String resourceVersion = event.getResourceVersion();
+            if (resourceVersion != null) {
+                resourceVersions.put(entityType, resourceVersion);
+            }
+        }
+    }
+
+    private static void addResourceVersion(Map<String, String> resourceVersions,
+            String entityType, BaseKubernetesList list) {
+        if (list.metadata != null && list.metadata.resourceVersion != null) {
+            resourceVersions.put(entityType, list.metadata.resourceVersion);
+        }
+    }
+
     private void updateDashboardLink(ComputeState clusterHost, Service dashboardService) {
         ComputeState patchState = new ComputeState();
         patchState.customProperties = new HashMap<>();
@@ -443,6 +572,28 @@ public class KubernetesHostAdapterService extends AbstractKubernetesAdapterServi
         void fail(AdapterRequest r, Operation o, Throwable e);
     }
 
+    /**
+     * The resource versions of the entity types of a host to resume watching from.
+     */
+    private static class WatchPosition {
+        private final Map<String, String> resourceVersions;
+        private final long listTimeMillis;
+
+        private WatchPosition(Map<String, String> resourceVersions, long listTimeMillis) {
+            this.resourceVersions = resourceVersions;
+            this.listTimeMillis = listTimeMillis;
+        }
+
+        /**
+         * Whether all entities have to be listed again, so changes missed by the callers of the
+         * watch are eventually applied.
+         */
+        private boolean isResyncDue() {
+            return System.currentTimeMillis() - this.listTimeMillis
+                    > WATCH_RESYNC_INTERVAL_MILLIS;
+        }
+    }
+
     private boolean validateKubernetesObject(BaseKubernetesObject object) {
         if (object.metadata == null || object.metadata.selfLink == null
                 || object.metadata.name == null) {
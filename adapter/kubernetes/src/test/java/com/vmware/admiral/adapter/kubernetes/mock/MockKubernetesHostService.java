@@ -16,6 +16,7 @@ import static com.vmware.admiral.adapter.kubernetes.mock.KubernetesPathConstants
 import java.net.URI;
 import java.util.ArrayList;
 
+import com.vmware.admiral.compute.kubernetes.entities.common.ListMeta;
 import com.vmware.admiral.compute.kubernetes.entities.replicaset.ReplicaSetList;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
@@ -24,6 +25,9 @@ import com.vmware.xenon.common.StatefulService;
 public class MockKubernetesHostService extends StatefulService {
     public static final String SELF_LINK = BASE_PATH;
 
+    public static final String WATCH_MODIFIED_POD_UID = "f0e16f00-d800-11e6-9ae1-0050569de380";
+    public static final String WATCH_DELETED_SERVICE_UID = "4b47a07b-eed0-11e6-b39c-005056803d65";
+
     public MockKubernetesHostService() {
         super(ServiceDocument.class);
     }
@@ -31,7 +35,10 @@ public class MockKubernetesHostService extends StatefulService {
     @Override
     public void handleGet(Operation get) {
         URI uri = get.getUri();
-        if (uri.getPath().endsWith(KubernetesPathConstants.PING)) {
+        if (uri.getQuery() != null && uri.getQuery().contains("watch=true")) {
+            get.setBody(watchStub(uri.getPath()));
+            get.complete();
+        } else if (uri.getPath().endsWith(KubernetesPathConstants.PING)) {
             get.setBody("ok");
             get.complete();
         } else if (uri.getPath().endsWith(KubernetesPathConstants.NAMESPACES)) {
@@ -59,6 +66,8 @@ public class MockKubernetesHostService extends StatefulService {
             ReplicaSetList emptyList = new ReplicaSetList();
             emptyList.items = new ArrayList<>();
             emptyList.kind = "ReplicaSetList";
+            emptyList.metadata = new ListMeta();
+            emptyList.metadata.resourceVersion = "2278770";
             get.setBody(emptyList);
             get.complete();
         } else {
@@ -66,6 +75,25 @@ public class MockKubernetesHostService extends StatefulService {
         }
     }
 
+    private String watchStub(String path) {
+        if (path.endsWith(KubernetesPathConstants.PODS)) {
+            return "{\"type\":\"MODIFIED\",\"object\":{\"kind\":\"Pod\",\"apiVersion\":\"v1\","
+                    + "\"metadata\":{\"name\":\"nginx-mysql\",\"namespace\":\"default\","
+                    + "\"selfLink\":\"/api/v1/namespaces/default/pods/nginx-mysql\","
+                    + "\"uid\":\"" + WATCH_MODIFIED_POD_UID + "\","
+                    + "\"resourceVersion\":\"1733300\"}}}\n"
+                    + "{\"type\":\"BOOKMARK\",\"object\":{\"kind\":\"Pod\",\"apiVersion\":\"v1\","
+                    + "\"metadata\":{\"resourceVersion\":\"1733400\"}}}\n";
+        } else if (path.endsWith(KubernetesPathConstants.SERVICES)) {
+            return "{\"type\":\"DELETED\",\"object\":{\"kind\":\"Service\",\"apiVersion\":\"v1\","
+                    + "\"metadata\":{\"name\":\"heapster\",\"namespace\":\"kube-system\","
+                    + "\"selfLink\":\"/api/v1/namespaces/kube-system/services/heapster\","
+                    + "\"uid\":\"" + WATCH_DELETED_SERVICE_UID + "\","
+                    + "\"resourceVersion\":\"2048900\"}}}\n";
+        }
+        return "";
+    }
+
     private String namespaceStub() {
         return "{\n"
                 + "  \"kind\": \"NamespaceList\",\n"
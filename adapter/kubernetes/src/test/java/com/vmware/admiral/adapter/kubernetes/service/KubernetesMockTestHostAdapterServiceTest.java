@@ -13,6 +13,7 @@ package com.vmware.admiral.adapter.kubernetes.service;
 
 import java.net.URI;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -241,6 +242,33 @@ public class KubernetesMockTestHostAdapterServiceTest extends BaseKubernetesMock
         Assert.assertEquals(TaskStage.FINISHED, stage);
     }
 
+    @Test
+    public void testListEntitiesFollowsWatch() throws Throwable {
+        AdapterRequest request = prepareAdapterRequest(ContainerHostOperationType.LIST_ENTITIES);
+        request.serviceTaskCallback = ServiceTaskCallback.createEmpty();
+        OperationResult r = sendAdapterRequest(request, getKubernetesHostStateUri());
+        Assert.assertNull(r.ex);
+        EntityListCallback callback = r.op.getBody(EntityListCallback.class);
+        Assert.assertFalse(callback.incremental);
+        Assert.assertTrue(callback.idToEntityData.containsKey(
+                MockKubernetesHostService.WATCH_MODIFIED_POD_UID));
+        Assert.assertTrue(callback.idToEntityData.containsKey(
+                MockKubernetesHostService.WATCH_DELETED_SERVICE_UID));
+
+        // the next listing returns only the changes following the first one
+        request = prepareAdapterRequest(ContainerHostOperationType.LIST_ENTITIES);
+        request.serviceTaskCallback = ServiceTaskCallback.createEmpty();
+        r = sendAdapterRequest(request, getKubernetesHostStateUri());
+        Assert.assertNull(r.ex);
+        callback = r.op.getBody(EntityListCallback.class);
+        Assert.assertTrue(callback.incremental);
+        Assert.assertEquals(1, callback.idToEntityData.size());
+        Assert.assertEquals("nginx-mysql", callback.idToEntityData.get(
+                MockKubernetesHostService.WATCH_MODIFIED_POD_UID).name);
+        Assert.assertEquals(Collections.singleton(
+                MockKubernetesHostService.WATCH_DELETED_SERVICE_UID), callback.removedIds);
+    }
+
     @Test
     public void testOperationsWithFailingHost() throws Throwable {
         OperationResult r;
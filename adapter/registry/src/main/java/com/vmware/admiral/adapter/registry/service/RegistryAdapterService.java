@@ -18,16 +18,22 @@ import static java.net.HttpURLConnection.HTTP_OK;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import com.vmware.admiral.adapter.registry.service.RegistrySearchResponse.Result;
 import com.vmware.admiral.common.DeploymentProfileConfig;
 import com.vmware.admiral.common.ManagementUriParts;
@@ -45,6 +51,8 @@ import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceClient;
+import com.vmware.xenon.common.ServiceStatUtils;
+import com.vmware.xenon.common.ServiceStats.ServiceStat;
 import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
@@ -86,6 +94,46 @@ public class RegistryAdapterService extends StatelessService {
     public static final String REGISTRY_NO_PROXY_LIST_PARAM_NAME = "registry.no.proxy.list";
     public static final String REGISTRY_PROXY_NULL_VALUE = "__null";
 
+    public static final String RESULT_CACHE_TTL_SECONDS_PROPERTY =
+            "com.vmware.admiral.adapter.registry.result.cache.ttl.seconds";
+    public static final String RESULT_CACHE_MAX_SIZE_PROPERTY =
+            "com.vmware.admiral.adapter.registry.result.cache.max.size";
+    private static final long RESULT_CACHE_TTL_SECONDS = Long.getLong(
+            RESULT_CACHE_TTL_SECONDS_PROPERTY, 15);
+    private static final long RESULT_CACHE_MAX_SIZE = Long.getLong(
+            RESULT_CACHE_MAX_SIZE_PROPERTY, 1000);
+
+    public static final String STAT_NAME_TOKEN_CACHE_HIT_COUNT = "tokenCacheHitCount";
+    public static final String STAT_NAME_TOKEN_CACHE_MISS_COUNT = "tokenCacheMissCount";
+    public static final String STAT_NAME_TOKEN_CACHE_HIT_RATIO = "tokenCacheHitRatio";
+    public static final String STAT_NAME_RESULT_CACHE_HIT_COUNT = "resultCacheHitCount";
+    public static final String STAT_NAME_RESULT_CACHE_MISS_COUNT = "resultCacheMissCount";
+    public static final String STAT_NAME_RESULT_CACHE_HIT_RATIO = "resultCacheHitRatio";
+    public static final String STAT_NAME_COALESCED_REQUEST_COUNT = "coalescedRequestCount";
+    /** Latency of the registry requests, with a histogram of all of them */
+    public static final String STAT_NAME_UPSTREAM_LATENCY_MICROS = "upstreamLatencyMicros";
+    public static final String STAT_NAME_UPSTREAM_LATENCY_MICROS_TOTAL =
+            "upstreamLatencyMicrosTotal";
+    public static final String STAT_NAME_UPSTREAM_REQUEST_COUNT = "upstreamRequestCount";
+
+    private static final String CATALOG_TOKEN_SCOPE = "registry:catalog:*";
+    private static final String REPOSITORY_PULL_TOKEN_SCOPE_FORMAT = "repository:%s:pull";
+
+    private final RegistryTokenCache tokenCache = new RegistryTokenCache();
+
+    /**
+     * Search and list tags results, so the searches repeated while typing a query in the UI are
+     * not sent to the registries each time. The V2 registries are searched by listing their whole
+     * catalog, which is cached instead of the results of every search term.
+     */
+    private final Cache<String, Object> resultCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(RESULT_CACHE_TTL_SECONDS, TimeUnit.SECONDS)
+            .maximumSize(RESULT_CACHE_MAX_SIZE)
+            .build();
+
+    /** Requests waiting for the upstream request of an identical request, by result cache key. */
+    private final Map<String, List<PendingRequest>> pendingRequests = new HashMap<>();
+
     private ServiceClient serviceClientProxy;
     private ServiceClient serviceClientNoProxy;
     private Set<String> serviceClientNoProxyList;
@@ -101,7 +149,6 @@ public class RegistryAdapterService extends StatelessService {
     }
 
     private static class TokenServiceResponse {
-        @SuppressWarnings("unused")
         String expires_in;
         @SuppressWarnings("unused")
         String issued_at;
@@ -109,12 +156,27 @@ public class RegistryAdapterService extends StatelessService {
         String access_token;
     }
 
+    private static class PendingRequest {
+        private final Operation operation;
+        private final Function<Object, Object> toResponse;
+
+        private PendingRequest(Operation operation, Function<Object, Object> toResponse) {
+            this.operation = operation;
+            this.toResponse = toResponse;
+        }
+    }
+
     private static class V2ImageTagsResponse {
         @SuppressWarnings("unused")
         String name;
         String[] tags;
     }
 
+    public RegistryAdapterService() {
+        super();
+        super.toggleOption(ServiceOption.INSTRUMENTATION, true);
+    }
+
     @Override
     public void handleStart(Operation post) {
         trustManager = ServerX509TrustManager.create(getHost());
@@ -201,6 +263,10 @@ public class RegistryAdapterService extends StatelessService {
         public ImageRequest request;
         public RegistryAuthState registryState;
         public boolean tokenAlreadyRequested;
+        /** Authorization header of the registry credentials, the token is requested with. */
+        public String credentials;
+        /** Scope of the cached token the request is sent with. */
+        public String cachedTokenScope;
     }
 
     @Override
@@ -225,6 +291,8 @@ public class RegistryAdapterService extends StatelessService {
 
         context.request = op.getBody(ImageRequest.class);
         context.request.validate();// validate the request
+        context.credentials = context.request.customProperties != null
+                ? context.request.customProperties.get(AUTHORIZATION_HEADER) : null;
         logInfo("Processing operation request for resource %s", context.request.resourceReference);
 
         processRequest(context);
@@ -311,6 +379,7 @@ public class RegistryAdapterService extends StatelessService {
             if (authorizationHeaderValue != null) {
                 context.request.customProperties.put(AUTHORIZATION_HEADER,
                         authorizationHeaderValue);
+                context.credentials = authorizationHeaderValue;
             }
         }
     }
@@ -318,7 +387,9 @@ public class RegistryAdapterService extends StatelessService {
     private void processSearchRequest(RequestContext context) {
         String apiVersion = getApiVersion(context.registryState);
         if (ApiVersion.V1.toString().equals(apiVersion)) {
-            processV1SearchRequest(context);
+            String searchTerm = context.request.customProperties.get(SEARCH_QUERY_PROP_NAME);
+            processCachedRequest(context, buildResultCacheKey(context, "search", searchTerm),
+                    this::processV1SearchRequest, Utils::clone);
         } else if (ApiVersion.V2.toString().equals(apiVersion)) {
             processV2SearchRequest(context);
         } else {
@@ -386,28 +457,47 @@ public class RegistryAdapterService extends StatelessService {
     }
 
     private void processV2SearchRequest(RequestContext context) {
-        try {
-            URI searchUri = URI.create(context.registryState.address);
-
-            searchUri = UriUtils.extendUri(searchUri, "/v2/_catalog");
+        String searchTerm = context.request.customProperties.get(SEARCH_QUERY_PROP_NAME)
+                .toLowerCase();
+
+        processCachedRequest(context, buildResultCacheKey(context, "catalog", null),
+                this::processV2CatalogRequest, repositories -> {
+                    RegistrySearchResponse response = new RegistrySearchResponse();
+                    response.results = new ArrayList<>();
+                    for (String repository : (String[]) repositories) {
+                        if (repository.toLowerCase().contains(searchTerm)) {
+                            Result r = new Result();
+                            r.name = repository;
+                            r.registry = context.registryState.address;
+                            response.results.add(r);
+                        }
+                    }
+                    response.numResults = response.results.size();
+                    return response;
+                });
+    }
 
-            String searchTerm = context.request.customProperties.get(SEARCH_QUERY_PROP_NAME)
-                    .toLowerCase();
+    /**
+     * Lists the whole catalog of a V2 registry, which is searched by the V2 search requests.
+     */
+    private void processV2CatalogRequest(RequestContext context) {
+        try {
+            URI catalogUri = URI.create(context.registryState.address);
 
-            RegistrySearchResponse response = new RegistrySearchResponse();
-            response.results = new ArrayList<>();
+            catalogUri = UriUtils.extendUri(catalogUri, "/v2/_catalog");
 
-            logInfo("Performing registry search: %s", searchUri);
-            sendV2SearchRequest(searchUri, searchTerm, response, context);
+            applyCachedToken(context, CATALOG_TOKEN_SCOPE);
+            logInfo("Performing registry search: %s", catalogUri);
+            sendV2CatalogRequest(catalogUri, new ArrayList<>(), context);
 
         } catch (Exception x) {
             context.operation.fail(x);
         }
     }
 
-    private void sendV2SearchRequest(URI searchUri, String searchTerm,
-            RegistrySearchResponse response, RequestContext context) {
-        Operation search = Operation.createGet(searchUri)
+    private void sendV2CatalogRequest(URI catalogUri, List<String> repositories,
+            RequestContext context) {
+        Operation search = Operation.createGet(catalogUri)
                 .setReferer(getHost().getPublicUri())
                 .setCompletion((o, ex) -> {
                     if (ex != null) {
@@ -422,7 +512,7 @@ public class RegistryAdapterService extends StatelessService {
 
                             if (isBearerTokenChallenge(wwwAuthHeader)) {
                                 requestAuthorizationToken(wwwAuthHeader, context,
-                                        () -> sendV2SearchRequest(searchUri, searchTerm, response,
+                                        () -> sendV2CatalogRequest(catalogUri, repositories,
                                                 context),
                                         (t) -> context.operation.fail(t));
                                 return;
@@ -435,14 +525,7 @@ public class RegistryAdapterService extends StatelessService {
                         V2RegistryCatalogResponse body = o.getBody(V2RegistryCatalogResponse.class);
 
                         if (body.repositories != null) {
-                            for (String repository : body.repositories) {
-                                if (repository.toLowerCase().contains(searchTerm)) {
-                                    Result r = new Result();
-                                    r.name = repository;
-                                    r.registry = context.registryState.address;
-                                    response.results.add(r);
-                                }
-                            }
+                            repositories.addAll(Arrays.asList(body.repositories));
                         }
 
                         String linkHeader = o.getResponseHeader(LINK_HEADER);
@@ -456,10 +539,9 @@ public class RegistryAdapterService extends StatelessService {
                             }
                             URI nextPageUri = UriUtils.extendUri(
                                     URI.create(context.registryState.address), nextPagePath);
-                            sendV2SearchRequest(nextPageUri, searchTerm, response, context);
+                            sendV2CatalogRequest(nextPageUri, repositories, context);
                         } else {
-                            response.numResults = response.results.size();
-                            context.operation.setBody(response);
+                            context.operation.setBody(repositories.toArray(new String[0]));
                             context.operation.complete();
                         }
                     }
@@ -570,6 +652,12 @@ public class RegistryAdapterService extends StatelessService {
     }
 
     private void processListImageTagsRequest(RequestContext context) {
+        String imageName = context.request.customProperties.get(SEARCH_QUERY_PROP_NAME);
+        processCachedRequest(context, buildResultCacheKey(context, "tags", imageName),
+                this::processUncachedListImageTagsRequest, Utils::clone);
+    }
+
+    private void processUncachedListImageTagsRequest(RequestContext context) {
         // Docker Hub list tags requests are expected to use the v2 endpoint,
         // otherwise an incomplete list of tags is returned. Also use the 'library' namespace
         // for image without one in order for the request to succeed
@@ -641,6 +729,9 @@ public class RegistryAdapterService extends StatelessService {
             String path = UriUtils.buildUriPath("/v2", imageName, "/tags/list");
             searchUri = UriUtils.extendUri(searchUri, path);
 
+            applyCachedToken(context, String.format(REPOSITORY_PULL_TOKEN_SCOPE_FORMAT,
+                    imageName));
+
             logInfo("Performing container image list tags: %s", searchUri);
             Operation search = Operation.createGet(searchUri)
                     .setReferer(getHost().getPublicUri())
@@ -719,6 +810,14 @@ public class RegistryAdapterService extends StatelessService {
             String bearerRealm = kvs.get(BEARER_REALM_WWW_AUTH_PROP);
             String service = kvs.get(SERVICE_WWW_AUTH_PROP);
             String scope = kvs.get(SCOPE_WWW_AUTH_PROP);
+            String tokenRegistry = getTokenRegistry(context);
+            if (context.cachedTokenScope != null) {
+                // the cached token was rejected, e.g. it has been revoked
+                tokenCache.invalidate(tokenRegistry, context.cachedTokenScope,
+                        context.credentials, getBearerToken(context));
+                context.cachedTokenScope = null;
+            }
+
             URI tokenServiceUri = new URI(bearerRealm);
             tokenServiceUri = UriUtils.extendUriWithQuery(tokenServiceUri,
                     SERVICE_WWW_AUTH_PROP, service, SCOPE_WWW_AUTH_PROP, scope);
@@ -732,7 +831,11 @@ public class RegistryAdapterService extends StatelessService {
                             return;
                         }
 
-                        String token = getToken(op.getBody(TokenServiceResponse.class));
+                        TokenServiceResponse tokenResponse = op.getBody(
+                                TokenServiceResponse.class);
+                        String token = getToken(tokenResponse);
+                        tokenCache.put(tokenRegistry, scope, context.credentials, token,
+                                tokenResponse != null ? tokenResponse.expires_in : null);
                         String authorizationHeaderValue = String.format("%s %s",
                                 BEARER_TOKEN_PREFIX, token);
                         context.request.customProperties.put(AUTHORIZATION_HEADER,
@@ -742,9 +845,8 @@ public class RegistryAdapterService extends StatelessService {
                         successCallback.run();
                     });
 
-            String authorization = context.request.customProperties.get(AUTHORIZATION_HEADER);
-            if (authorization != null) {
-                getTokenOp.addRequestHeader(AUTHORIZATION_HEADER, authorization);
+            if (context.credentials != null) {
+                getTokenOp.addRequestHeader(AUTHORIZATION_HEADER, context.credentials);
             }
 
             // Remove Xenon's auth token header from the request to the Registry
@@ -756,6 +858,121 @@ public class RegistryAdapterService extends StatelessService {
         }
     }
 
+    /**
+     * Sends the request with the cached token of the given scope, if there is one, instead of
+     * waiting for the registry to challenge it.
+     */
+    private void applyCachedToken(RequestContext context, String scope) {
+        if (context.tokenAlreadyRequested || context.cachedTokenScope != null) {
+            return;
+        }
+        String token = tokenCache.get(getTokenRegistry(context), scope, context.credentials);
+        recordCacheLookup(token != null, STAT_NAME_TOKEN_CACHE_HIT_COUNT,
+                STAT_NAME_TOKEN_CACHE_MISS_COUNT, STAT_NAME_TOKEN_CACHE_HIT_RATIO);
+        if (token != null) {
+            context.request.customProperties.put(AUTHORIZATION_HEADER,
+                    String.format("%s %s", BEARER_TOKEN_PREFIX, token));
+            context.cachedTokenScope = scope;
+        }
+    }
+
+    private String getBearerToken(RequestContext context) {
+        String authorization = context.request.customProperties.get(AUTHORIZATION_HEADER);
+        String prefix = BEARER_TOKEN_PREFIX + " ";
+        if (authorization == null || !authorization.startsWith(prefix)) {
+            return null;
+        }
+        return authorization.substring(prefix.length());
+    }
+
+    private String getTokenRegistry(RequestContext context) {
+        if (context.registryState != null && context.registryState.address != null) {
+            return context.registryState.address;
+        }
+        return String.valueOf(context.request.resourceReference);
+    }
+
+    /**
+     * Completes the request from the result cache, or with the result of an identical request in
+     * progress, or sends it upstream. The upstream request completes an operation of its own,
+     * whose body is cached and converted to the response of each waiting request.
+     */
+    private void processCachedRequest(RequestContext context, String cacheKey,
+            Consumer<RequestContext> upstreamRequest, Function<Object, Object> toResponse) {
+        Object cached = resultCache.getIfPresent(cacheKey);
+        recordCacheLookup(cached != null, STAT_NAME_RESULT_CACHE_HIT_COUNT,
+                STAT_NAME_RESULT_CACHE_MISS_COUNT, STAT_NAME_RESULT_CACHE_HIT_RATIO);
+        if (cached != null) {
+            context.operation.setBody(toResponse.apply(cached));
+            context.operation.complete();
+            return;
+        }
+
+        synchronized (pendingRequests) {
+            List<PendingRequest> pending = pendingRequests.get(cacheKey);
+            if (pending != null) {
+                pending.add(new PendingRequest(context.operation, toResponse));
+                adjustStat(STAT_NAME_COALESCED_REQUEST_COUNT, 1);
+                return;
+            }
+            pending = new ArrayList<>();
+            pending.add(new PendingRequest(context.operation, toResponse));
+            pendingRequests.put(cacheKey, pending);
+        }
+
+        long startMicros = Utils.getSystemNowMicrosUtc();
+        context.operation = Operation.createPatch(getUri())
+                .setCompletion((o, e) -> {
+                    recordUpstreamLatency(Utils.getSystemNowMicrosUtc() - startMicros);
+
+                    Object result = e == null ? o.getBodyRaw() : null;
+                    if (result != null) {
+                        resultCache.put(cacheKey, result);
+                    }
+                    List<PendingRequest> pending;
+                    synchronized (pendingRequests) {
+                        pending = pendingRequests.remove(cacheKey);
+                    }
+                    for (PendingRequest request : pending) {
+                        if (e != null) {
+                            request.operation.fail(e);
+                        } else {
+                            request.operation.setBody(result != null
+                                    ? request.toResponse.apply(result) : null);
+                            request.operation.complete();
+                        }
+                    }
+                });
+
+        upstreamRequest.accept(context);
+    }
+
+    private String buildResultCacheKey(RequestContext context, String requestType,
+            String query) {
+        return String.join(" ", requestType, context.registryState.documentSelfLink,
+                context.registryState.address, getApiVersion(context.registryState),
+                String.valueOf(query), RegistryTokenCache.hashCredentials(context.credentials));
+    }
+
+    private void recordUpstreamLatency(long latencyMicros) {
+        // the count and the total give the average, the histogram the distribution
+        adjustStat(STAT_NAME_UPSTREAM_REQUEST_COUNT, 1);
+        adjustStat(STAT_NAME_UPSTREAM_LATENCY_MICROS_TOTAL, latencyMicros);
+        setStat(ServiceStatUtils.getOrCreateHistogramStat(this,
+                STAT_NAME_UPSTREAM_LATENCY_MICROS), latencyMicros);
+    }
+
+    private void recordCacheLookup(boolean hit, String hitCountStat, String missCountStat,
+            String hitRatioStat) {
+        adjustStat(hit ? hitCountStat : missCountStat, 1);
+        ServiceStat hitCount = getStat(hitCountStat);
+        ServiceStat missCount = getStat(missCountStat);
+        if (hitCount != null && missCount != null) {
+            setStat(hitRatioStat, hitCount.latestValue
+                    / (hitCount.latestValue + missCount.latestValue));
+        }
+    }
+
     /**
      * Get token or access_token from token response instance.
      *
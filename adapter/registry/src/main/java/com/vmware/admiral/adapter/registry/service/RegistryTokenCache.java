@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.registry.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Cache of the bearer tokens issued by the token services of V2 registries, keyed by registry,
+ * scope and the credentials the token was requested with. A token is kept until the
+ * {@code expires_in} of its token service response, minus a margin for the requests in flight.
+ */
+class RegistryTokenCache {
+    public static final String MAX_SIZE_PROPERTY =
+            "com.vmware.admiral.adapter.registry.token.cache.max.size";
+    private static final long MAX_SIZE = Long.getLong(MAX_SIZE_PROPERTY, 1000);
+
+    /** Lifetime of the tokens without {@code expires_in}, as defined by the token spec. */
+    private static final long DEFAULT_EXPIRES_IN_SECONDS = 60;
+    private static final long EXPIRATION_MARGIN_SECONDS = 5;
+
+    private static class CachedToken {
+        private final String token;
+        private final long expirationTimeMicros;
+
+        private CachedToken(String token, long expirationTimeMicros) {
+            this.token = token;
+            this.expirationTimeMicros = expirationTimeMicros;
+        }
+    }
+
+    private final Cache<String, CachedToken> tokens = CacheBuilder.newBuilder()
+            .maximumSize(MAX_SIZE)
+            .build();
+    private final LongSupplier clockMicros;
+
+    RegistryTokenCache() {
+        this(Utils::getSystemNowMicrosUtc);
+    }
+
+    RegistryTokenCache(LongSupplier clockMicros) {
+        this.clockMicros = clockMicros;
+    }
+
+    /**
+     * Returns the cached token of the given registry, scope and credentials, or {@code null} if
+     * there is none or it has expired.
+     */
+    String get(String registry, String scope, String credentials) {
+        String key = buildKey(registry, scope, credentials);
+        CachedToken cachedToken = this.tokens.getIfPresent(key);
+        if (cachedToken == null) {
+            return null;
+        }
+        if (this.clockMicros.getAsLong() >= cachedToken.expirationTimeMicros) {
+            this.tokens.asMap().remove(key, cachedToken);
+            return null;
+        }
+        return cachedToken.token;
+    }
+
+    /**
+     * Caches a token for its lifetime, given in seconds by the {@code expires_in} of the token
+     * service response.
+     */
+    void put(String registry, String scope, String credentials, String token, String expiresIn) {
+        if (token == null) {
+            return;
+        }
+        long expiresInSeconds = DEFAULT_EXPIRES_IN_SECONDS;
+        if (expiresIn != null) {
+            try {
+                expiresInSeconds = Long.parseLong(expiresIn.trim());
+            } catch (NumberFormatException e) {
+                // keep the default lifetime
+            }
+        }
+        long lifetimeSeconds = expiresInSeconds - EXPIRATION_MARGIN_SECONDS;
+        if (lifetimeSeconds <= 0) {
+            return;
+        }
+        this.tokens.put(buildKey(registry, scope, credentials), new CachedToken(token,
+                this.clockMicros.getAsLong() + TimeUnit.SECONDS.toMicros(lifetimeSeconds)));
+    }
+
+    /**
+     * Drops the given token, unless it has already been replaced by a newer one.
+     */
+    void invalidate(String registry, String scope, String credentials, String token) {
+        String key = buildKey(registry, scope, credentials);
+        CachedToken cachedToken = this.tokens.getIfPresent(key);
+        if (cachedToken != null && cachedToken.token.equals(token)) {
+            this.tokens.asMap().remove(key, cachedToken);
+        }
+    }
+
+    /**
+     * Returns a digest of the given credentials, so they are not kept in cache keys as they are.
+     */
+    static String hashCredentials(String credentials) {
+        if (credentials == null) {
+            return "";
+        }
+        return Hashing.sha256().hashString(credentials, StandardCharsets.UTF_8).toString();
+    }
+
+    private static String buildKey(String registry, String scope, String credentials) {
+        return registry + " " + scope + " " + hashCredentials(credentials);
+    }
+}
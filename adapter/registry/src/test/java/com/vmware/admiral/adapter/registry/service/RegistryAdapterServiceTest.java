@@ -22,6 +22,7 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import org.junit.Before;
@@ -44,6 +45,7 @@ import com.vmware.admiral.service.common.ServiceTaskCallback;
 import com.vmware.admiral.service.common.SslTrustCertificateService;
 import com.vmware.admiral.service.common.SslTrustCertificateService.SslTrustCertificateState;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceStats.ServiceStat;
 import com.vmware.xenon.common.UriUtils;
 
 /**
@@ -242,6 +244,38 @@ public class RegistryAdapterServiceTest extends BaseMockRegistryTestCase {
         });
     }
 
+    @Test
+    public void testV2SearchIsServedFromCachedCatalog() throws Throwable {
+        URI v2RegistryStateUri = UriUtils.buildUri(host, v2RegistryStateLink);
+
+        sendRegistrySearchRequest(v2RegistryStateUri, "v2image", (Operation op) -> {
+            RegistrySearchResponse response = op.getBody(RegistrySearchResponse.class);
+            assertEquals("Unexpected number of results", 2, response.results.size());
+        });
+        // another search term is served from the catalog listed by the first search
+        sendRegistrySearchRequest(v2RegistryStateUri, "another", (Operation op) -> {
+            RegistrySearchResponse response = op.getBody(RegistrySearchResponse.class);
+            assertEquals("Unexpected number of results", 1, response.results.size());
+            assertEquals("results[0].name", "test/another", response.results.get(0).name);
+        });
+
+        Map<String, ServiceStat> stats = host.getServiceStats(registryAdapterServiceUri);
+        assertEquals(1, stats.get(RegistryAdapterService.STAT_NAME_RESULT_CACHE_HIT_COUNT)
+                .latestValue, 0);
+        assertEquals(1, stats.get(RegistryAdapterService.STAT_NAME_RESULT_CACHE_MISS_COUNT)
+                .latestValue, 0);
+        assertEquals(0.5, stats.get(RegistryAdapterService.STAT_NAME_RESULT_CACHE_HIT_RATIO)
+                .latestValue, 0);
+
+        // only the catalog listing reached the registry
+        assertEquals(1, stats.get(RegistryAdapterService.STAT_NAME_UPSTREAM_REQUEST_COUNT)
+                .latestValue, 0);
+        ServiceStat latency = stats.get(RegistryAdapterService.STAT_NAME_UPSTREAM_LATENCY_MICROS);
+        assertNotNull(latency.logHistogram);
+        assertEquals(stats.get(RegistryAdapterService.STAT_NAME_UPSTREAM_LATENCY_MICROS_TOTAL)
+                .latestValue, latency.latestValue, 0);
+    }
+
     @Test
     public void testUnsupportedRegistryVersion() throws Throwable {
 
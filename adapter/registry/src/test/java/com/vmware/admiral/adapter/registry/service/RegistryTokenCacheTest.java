@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.adapter.registry.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegistryTokenCacheTest {
+    private static final String REGISTRY = "https://registry.test";
+    private static final String SCOPE = "repository:vmware/admiral:pull";
+    private static final String CREDENTIALS = "Basic dXNlcjpwYXNzd29yZA==";
+
+    private AtomicLong nowMicros;
+    private RegistryTokenCache tokenCache;
+
+    @Before
+    public void setUp() {
+        nowMicros = new AtomicLong(TimeUnit.DAYS.toMicros(1));
+        tokenCache = new RegistryTokenCache(nowMicros::get);
+    }
+
+    @Test
+    public void testTokenExpires() {
+        tokenCache.put(REGISTRY, SCOPE, CREDENTIALS, "token", "300");
+        assertEquals("token", tokenCache.get(REGISTRY, SCOPE, CREDENTIALS));
+
+        // the token is dropped a margin before its expiration
+        nowMicros.addAndGet(TimeUnit.SECONDS.toMicros(296));
+        assertNull(tokenCache.get(REGISTRY, SCOPE, CREDENTIALS));
+
+        // tokens without expires_in live for the default 60 seconds
+        tokenCache.put(REGISTRY, SCOPE, CREDENTIALS, "token", null);
+        nowMicros.addAndGet(TimeUnit.SECONDS.toMicros(50));
+        assertEquals("token", tokenCache.get(REGISTRY, SCOPE, CREDENTIALS));
+        nowMicros.addAndGet(TimeUnit.SECONDS.toMicros(10));
+        assertNull(tokenCache.get(REGISTRY, SCOPE, CREDENTIALS));
+    }
+
+    @Test
+    public void testTokensAreKeyedByScopeAndCredentials() {
+        tokenCache.put(REGISTRY, SCOPE, CREDENTIALS, "token", "300");
+        tokenCache.put(REGISTRY, SCOPE, null, "anonymous-token", "300");
+
+        assertEquals("anonymous-token", tokenCache.get(REGISTRY, SCOPE, null));
+        assertNull(tokenCache.get(REGISTRY, SCOPE, "Basic b3RoZXI6cGFzc3dvcmQ="));
+        assertNull(tokenCache.get(REGISTRY, "registry:catalog:*", CREDENTIALS));
+        assertNull(tokenCache.get("https://other-registry.test", SCOPE, CREDENTIALS));
+    }
+
+    @Test
+    public void testInvalidateKeepsNewerToken() {
+        tokenCache.put(REGISTRY, SCOPE, CREDENTIALS, "token", "300");
+        tokenCache.put(REGISTRY, SCOPE, CREDENTIALS, "new-token", "300");
+
+        tokenCache.invalidate(REGISTRY, SCOPE, CREDENTIALS, "token");
+        assertEquals("new-token", tokenCache.get(REGISTRY, SCOPE, CREDENTIALS));
+
+        tokenCache.invalidate(REGISTRY, SCOPE, CREDENTIALS, "new-token");
+        assertNull(tokenCache.get(REGISTRY, SCOPE, CREDENTIALS));
+    }
+}
@@ -39,6 +39,7 @@ import com.vmware.admiral.compute.ElasticPlacementZoneService;
 import com.vmware.admiral.compute.RegistryConfigCertificateDistributionService;
 import com.vmware.admiral.compute.RegistryHostConfigService;
 import com.vmware.admiral.compute.cluster.ClusterService;
+import com.vmware.admiral.compute.cluster.ClusterSummaryService;
 import com.vmware.admiral.compute.container.CompositeDescriptionCloneService;
 import com.vmware.admiral.compute.container.ContainerHostDataCollectionService;
 import com.vmware.admiral.compute.container.ContainerLogService;
@@ -60,9 +61,12 @@ import com.vmware.admiral.image.service.FavoriteImageFactoryService;
 import com.vmware.admiral.image.service.PopularImagesService;
 import com.vmware.admiral.log.EventLogService;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationFactoryService;
+import com.vmware.admiral.service.common.CounterSubTaskCompletionService;
 import com.vmware.admiral.service.common.CounterSubTaskService;
 import com.vmware.admiral.service.common.MultiTenantDocument;
 import com.vmware.admiral.service.common.RegistryFactoryService;
+import com.vmware.admiral.service.common.RequestProgressAggregatorService;
+import com.vmware.admiral.service.common.ResourceNamePrefixLeaseService;
 import com.vmware.admiral.service.common.ResourceNamePrefixService;
 import com.vmware.admiral.service.common.SslTrustCertificateService;
 import com.vmware.admiral.service.common.SslTrustImportService;
@@ -503,6 +507,10 @@ public class AuthUtil {
                         buildUriWithWildcard(CounterSubTaskService.FACTORY_LINK),
                         MatchType.WILDCARD, Occurance.SHOULD_OCCUR)
 
+                .addFieldClause(ServiceDocument.FIELD_NAME_SELF_LINK,
+                        buildUriWithWildcard(CounterSubTaskCompletionService.SELF_LINK),
+                        MatchType.WILDCARD, Occurance.SHOULD_OCCUR)
+
                 .addFieldClause(ServiceDocument.FIELD_NAME_SELF_LINK,
                         buildUriWithWildcard(CompositeDescriptionContentService.SELF_LINK),
                         MatchType.WILDCARD, Occurance.SHOULD_OCCUR)
@@ -569,6 +577,24 @@ public class AuthUtil {
                         ContainerDescriptionToKubernetesDescriptionConverterService.SELF_LINK,
                         MatchType.TERM, Occurance.SHOULD_OCCUR)
 
+                // Allow POST of request tracker updates, the tracker is patched with the context
+                // of the posting task
+                .addFieldClause(ServiceDocument.FIELD_NAME_SELF_LINK,
+                        RequestProgressAggregatorService.SELF_LINK,
+                        MatchType.TERM, Occurance.SHOULD_OCCUR)
+
+                // Allow POST of resource name requests, the blocks of names are leased from the
+                // prefix with the context of the requesting task
+                .addFieldClause(ServiceDocument.FIELD_NAME_SELF_LINK,
+                        ResourceNamePrefixLeaseService.SELF_LINK,
+                        MatchType.TERM, Occurance.SHOULD_OCCUR)
+
+                // Allow POST of cluster listings, the listed clusters are filtered by the
+                // resource query of the user
+                .addFieldClause(ServiceDocument.FIELD_NAME_SELF_LINK,
+                        ClusterSummaryService.SELF_LINK,
+                        MatchType.TERM, Occurance.SHOULD_OCCUR)
+
                 .build();
 
         List<Query> clauses = new ArrayList<>();
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.logging.Level;
+
+import com.vmware.admiral.common.util.FileUtil;
+import com.vmware.xenon.common.FileUtils;
+import com.vmware.xenon.common.ServiceHost;
+
+/**
+ * In-process host with an empty index for benchmarks of code paths which talk to services. It
+ * listens on a random port and keeps its sandbox in a temporary folder removed on stop.
+ */
+public class BenchmarkHost extends ServiceHost {
+
+    private File sandbox;
+
+    public static BenchmarkHost startHost() throws Throwable {
+        BenchmarkHost host = new BenchmarkHost();
+        host.sandbox = Files.createTempDirectory("admiral-benchmark").toFile();
+
+        Arguments args = new Arguments();
+        args.port = 0;
+        args.sandbox = host.sandbox.toPath();
+        host.initialize(args);
+        host.setLoggingLevel(Level.SEVERE);
+        host.start();
+        host.startDefaultCoreServicesSynchronously();
+        return host;
+    }
+
+    /**
+     * Reads a resource of the benchmarks module.
+     */
+    public static String loadResource(String name) {
+        return FileUtil.getClasspathResourceAsString("/" + name);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (this.sandbox != null) {
+            FileUtils.deleteFiles(this.sandbox);
+        }
+    }
+}
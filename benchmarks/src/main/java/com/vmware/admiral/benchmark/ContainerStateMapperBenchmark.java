@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.admiral.adapter.docker.service.ContainerStateMapper;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Mapping of the docker inspect response of a container to its state, done for every container
+ * on each inspection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContainerStateMapperBenchmark {
+
+    private String inspectJson;
+    private Map<String, Object> inspect;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.inspectJson = BenchmarkHost.loadResource("container-inspect.json");
+        this.inspect = Utils.fromJson(this.inspectJson, Map.class);
+    }
+
+    @Benchmark
+    public ContainerState propertiesToContainerState() {
+        ContainerState containerState = new ContainerState();
+        ContainerStateMapper.propertiesToContainerState(containerState, this.inspect);
+        return containerState;
+    }
+
+    /**
+     * Includes parsing of the inspect response, as done by the docker adapter.
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public ContainerState parseAndMapInspect() {
+        ContainerState containerState = new ContainerState();
+        ContainerStateMapper.propertiesToContainerState(containerState,
+                Utils.fromJson(this.inspectJson, Map.class));
+        return containerState;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.admiral.compute.container.ContainerService.ContainerState;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
+import com.vmware.admiral.compute.container.PortBinding;
+import com.vmware.admiral.compute.container.ServiceNetwork;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * JSON serialization of container states, done for every container document sent between
+ * services or written to the index. The size parameter is the number of entries in each of the
+ * collections of the state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContainerStateSerializationBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int size;
+
+    private ContainerState containerState;
+    private String json;
+
+    @Setup
+    public void setUp() {
+        this.containerState = createContainerState(this.size);
+        this.json = Utils.toJson(this.containerState);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return Utils.toJson(this.containerState);
+    }
+
+    @Benchmark
+    public ContainerState fromJson() {
+        return Utils.fromJson(this.json, ContainerState.class);
+    }
+
+    private static ContainerState createContainerState(int size) {
+        String inspect = BenchmarkHost.loadResource("container-inspect.json");
+
+        ContainerState state = new ContainerState();
+        state.documentSelfLink = "/resources/containers/wordpress-mcm-1";
+        state.id = "0cd0e5d6b7b4b4c9ac0e1f2d3f7a29c0d57b1f7c38fe6c0e3bd7ab8b8e1d8f21";
+        state.names = Arrays.asList("wordpress-mcm-1");
+        state.image = "centurylink/wordpress:3.9.1";
+        state.powerState = PowerState.RUNNING;
+        state.parentLink = "/resources/compute/docker-host-1";
+        state.descriptionLink = "/resources/container-descriptions/wordpress";
+        state.compositeComponentLink = "/resources/composite-components/wordpress-app";
+        state.command = new String[] { "/run.sh" };
+        state.created = System.currentTimeMillis();
+        state.started = state.created;
+        state.memoryLimit = 536870912L;
+        state.cpuShares = 512;
+
+        state.env = new String[size];
+        state.links = new String[size];
+        state.volumes = new String[size];
+        state.ports = new ArrayList<>(size);
+        state.networks = new HashMap<>();
+        state.customProperties = new HashMap<>();
+        state.attributes = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            state.env[i] = "ENV_VARIABLE_" + i + "=value-of-environment-variable-" + i;
+            state.links[i] = "service-" + i + ":alias-" + i;
+            state.volumes[i] = "/var/lib/volume-" + i + ":/data/volume-" + i + ":rw";
+
+            PortBinding port = new PortBinding();
+            port.hostIp = "0.0.0.0";
+            port.hostPort = String.valueOf(30000 + i);
+            port.containerPort = String.valueOf(8000 + i);
+            port.protocol = "tcp";
+            state.ports.add(port);
+
+            ServiceNetwork network = new ServiceNetwork();
+            network.name = "network-" + i;
+            network.aliases = new String[] { "wordpress", "wordpress-" + i };
+            network.ipv4_address = "10.0." + (i / 250) + "." + (i % 250 + 2);
+            state.networks.put(network.name, network);
+
+            state.customProperties.put("__custom_property_" + i, "custom-property-value-" + i);
+        }
+        // the adapter keeps parts of the inspect response as raw JSON attributes
+        state.attributes.put("Config", inspect);
+        state.attributes.put("HostConfig", inspect);
+        return state;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.admiral.compute.ContainerHostService.ContainerHostType;
+import com.vmware.admiral.compute.container.ContainerDescriptionService.ContainerDescription;
+import com.vmware.admiral.compute.container.PortBinding;
+import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
+import com.vmware.admiral.request.allocation.filter.AffinityFilters;
+import com.vmware.admiral.request.allocation.filter.HostSelectionFilter;
+import com.vmware.admiral.request.allocation.filter.HostSelectionFilter.HostSelection;
+import com.vmware.xenon.common.DeferredResult;
+
+/**
+ * Affinity filter chain of the placement host selection applied to synthetic host maps. The
+ * filters query an in-process host with an empty index, so the results measure the filtering
+ * and querying overhead rather than the cost of matching containers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HostSelectionFilterBenchmark {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @Param({ "10", "100", "1000" })
+    public int hostCount;
+
+    private BenchmarkHost host;
+    private ContainerDescription desc;
+    private PlacementHostSelectionTaskState state;
+    private Map<String, HostSelection> hostSelectionMap;
+
+    @SuppressWarnings("rawtypes")
+    private List<HostSelectionFilter> prefetchedFilters;
+
+    @Setup
+    public void setUp() throws Throwable {
+        this.host = BenchmarkHost.startHost();
+
+        this.desc = new ContainerDescription();
+        this.desc.documentSelfLink = "/resources/container-descriptions/wordpress";
+        this.desc.name = "wordpress";
+        this.desc.image = "centurylink/wordpress:3.9.1";
+        this.desc._cluster = 2;
+        this.desc.deploymentPolicyId = "benchmark-policy";
+        PortBinding port = new PortBinding();
+        port.hostPort = "8000";
+        port.containerPort = "80";
+        this.desc.portBindings = new PortBinding[] { port };
+
+        this.state = new PlacementHostSelectionTaskState();
+        this.state.documentSelfLink = "/request/placement-host-selection-tasks/benchmark";
+        this.state.resourceDescriptionLink = this.desc.documentSelfLink;
+        this.state.resourcePoolLinks = Collections.singletonList("/resources/pools/benchmark");
+        this.state.contextId = UUID.randomUUID().toString();
+        this.state.resourceCount = 2;
+
+        this.hostSelectionMap = new LinkedHashMap<>();
+        for (int i = 0; i < this.hostCount; i++) {
+            HostSelection hostSelection = new HostSelection();
+            hostSelection.hostLink = "/resources/compute/docker-host-" + i;
+            hostSelection.name = "docker-host-" + i;
+            hostSelection.hostType = ContainerHostType.DOCKER;
+            hostSelection.availableMemory = 1024L * 1024 * 1024 * (1 + i % 16);
+            hostSelection.resourcePoolLinks = this.state.resourcePoolLinks;
+            hostSelection.deploymentPolicyLink = i % 2 == 0
+                    ? "/resources/deployment-policies/" + this.desc.deploymentPolicyId
+                    : null;
+            hostSelection.clusterStore = "";
+            this.hostSelectionMap.put(hostSelection.hostLink, hostSelection);
+        }
+
+        this.prefetchedFilters = new ArrayList<>(
+                AffinityFilters.build(this.host, this.desc).getQueue());
+        prefetch(this.prefetchedFilters).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.host.stop();
+    }
+
+    /**
+     * Builds the filters, fetches their data and applies them, as done for each placement. The
+     * time is dominated by the latency of the queries, which are polled until they finish.
+     */
+    @Benchmark
+    @SuppressWarnings("rawtypes")
+    public Map<String, HostSelection> prefetchAndFilter() throws Exception {
+        List<HostSelectionFilter> filters = new ArrayList<>(
+                AffinityFilters.build(this.host, this.desc).getQueue());
+        return prefetch(filters)
+                .thenCompose(ignore -> filter(filters))
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Applies filters which have already fetched their data.
+     */
+    @Benchmark
+    public Map<String, HostSelection> filterPrefetched() throws Exception {
+        return filter(this.prefetchedFilters).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private CompletableFuture<Void> prefetch(List<HostSelectionFilter> filters) {
+        List<DeferredResult<Void>> prefetches = new ArrayList<>(filters.size());
+        for (HostSelectionFilter filter : filters) {
+            prefetches.add(filter.prefetch(this.state, this.hostSelectionMap));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        DeferredResult.allOf(prefetches).whenComplete((ignore, e) -> result.complete(null));
+        return result;
+    }
+
+    @SuppressWarnings("rawtypes")
+    private CompletableFuture<Map<String, HostSelection>> filter(
+            List<HostSelectionFilter> filters) {
+        CompletableFuture<Map<String, HostSelection>> result = new CompletableFuture<>();
+        filter(filters.iterator(), this.hostSelectionMap, result);
+        return result;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void filter(Iterator<HostSelectionFilter> filters,
+            Map<String, HostSelection> hostSelectionMap,
+            CompletableFuture<Map<String, HostSelection>> result) {
+        if (!filters.hasNext() || hostSelectionMap.isEmpty()) {
+            result.complete(hostSelectionMap);
+            return;
+        }
+        filters.next().filter(this.state, hostSelectionMap, (filtered, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+                return;
+            }
+            filter(filters, filtered, result);
+        });
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.xenon.services.rdbms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vmware.admiral.benchmark.BenchmarkHost;
+import com.vmware.admiral.compute.container.ContainerFactoryService;
+import com.vmware.admiral.compute.container.ContainerService;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.services.common.QueryTask.Query;
+import com.vmware.xenon.services.common.QueryTask.Query.Occurance;
+import com.vmware.xenon.services.common.QueryTask.QueryTerm.MatchType;
+import com.vmware.xenon.services.rdbms.PostgresSchemaManager.TableDescription;
+
+/**
+ * SQL generation for queries of container states, done for every query of the document index.
+ * Lives in the package of the converter as its entry point is package private. The size
+ * parameter is the number of values of the IN clause of the query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PostgresQueryConverterBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int size;
+
+    private BenchmarkHost host;
+    private TableDescription tableDescription;
+    private Query query;
+
+    @Setup
+    public void setUp() throws Throwable {
+        this.host = BenchmarkHost.startHost();
+
+        PostgresSchemaManager schemaManager = new PostgresSchemaManager(this.host);
+        schemaManager.addFactory(ContainerFactoryService.SELF_LINK, ContainerService.class);
+        this.tableDescription = schemaManager
+                .getTableDescriptionForFactoryLink(ContainerFactoryService.SELF_LINK);
+
+        List<String> hostLinks = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            hostLinks.add("/resources/compute/docker-host-" + i);
+        }
+
+        this.query = Query.Builder.create()
+                .addKindFieldClause(ContainerState.class)
+                .addInClause(ContainerState.FIELD_NAME_PARENT_LINK, hostLinks)
+                .addFieldClause(ContainerState.FIELD_NAME_POWER_STATE, PowerState.RUNNING)
+                .addFieldClause(ContainerState.FIELD_NAME_COMPOSITE_COMPONENT_LINK,
+                        "/resources/composite-components/", MatchType.PREFIX)
+                .addFieldClause(ServiceDocument.FIELD_NAME_SELF_LINK, "*wordpress*",
+                        MatchType.WILDCARD, Occurance.MUST_NOT_OCCUR)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.host.stop();
+    }
+
+    @Benchmark
+    public String convert() {
+        return PostgresQueryConverter.convert(this.query, null, this.tableDescription);
+    }
+}
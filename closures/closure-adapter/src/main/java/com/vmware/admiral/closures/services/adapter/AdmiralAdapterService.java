@@ -153,6 +153,10 @@ public class AdmiralAdapterService extends
                 AUTO_MERGE_IF_NOT_NULL }, indexing = STORE_ONLY)
         public String selectedComputeLink;
 
+        /** Link notified when the container is provisioned, defaults to the closure */
+        @PropertyOptions(usage = { SINGLE_ASSIGNMENT, LINK }, indexing = STORE_ONLY)
+        public String provisioningCallbackLink;
+
         /** (Internal) Set by task after the ComputeState is found to host the containers */
         @PropertyOptions(usage = { SERVICE_USE, AUTO_MERGE_IF_NOT_NULL }, indexing = STORE_ONLY)
         public List<HostSelectionFilter.HostSelection> hostSelections;
@@ -720,7 +724,7 @@ public class AdmiralAdapterService extends
             AdmiralAdapterTaskState state) {
         // Create allocation closure
         ContainerAllocationTaskState allocationTask = prepareContainerAllocationTask(containerDesc,
-                1, state.groupResourcePlacementLink);
+                1, state.groupResourcePlacementLink, state.provisioningCallbackLink);
 
         HostSelectionFilter.HostSelection hostSelection = new HostSelectionFilter.HostSelection();
         hostSelection.resourceCount = 1;
@@ -778,8 +782,8 @@ public class AdmiralAdapterService extends
 
     private ContainerAllocationTaskState prepareContainerAllocationTask(
             ContainerDescription containerDesc,
-            long resourceCount, String placemenStateLink) {
-        String taskLink = buildTaskLink(containerDesc);
+            long resourceCount, String placemenStateLink, String callbackLink) {
+        String taskLink = callbackLink != null ? callbackLink : buildTaskLink(containerDesc);
 
         ContainerAllocationTaskState allocationTask = new ContainerAllocationTaskState();
         allocationTask.resourceDescriptionLink = containerDesc.documentSelfLink;
@@ -1344,6 +1348,7 @@ public class AdmiralAdapterService extends
         containerDesc.ulimits = new Ulimit[] { new Ulimit("nofile",
                 ClosureProps.MAX_FILE_DESCRIPTORS, ClosureProps.MAX_FILE_DESCRIPTORS) };
         containerDesc.env = configuration.envVars;
+        containerDesc.entryPoint = configuration.entryPoint;
         containerDesc.logConfig = prepareLogConfig(configuration);
         containerDesc.customProperties = new HashMap<>();
         containerDesc.customProperties
@@ -14,6 +14,9 @@ package com.vmware.admiral.closures.drivers.docker;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
@@ -34,6 +37,9 @@ import com.vmware.admiral.closures.util.ClosureProps;
 import com.vmware.admiral.closures.util.ClosureUtils;
 import com.vmware.admiral.common.util.OperationUtil;
 import com.vmware.admiral.compute.ResourceType;
+import com.vmware.admiral.compute.container.ShellContainerExecutorService;
+import com.vmware.admiral.compute.container.ShellContainerExecutorService.ShellContainerExecutorResult;
+import com.vmware.admiral.compute.container.ShellContainerExecutorService.ShellContainerExecutorState;
 import com.vmware.admiral.request.RequestBrokerFactoryService;
 import com.vmware.admiral.request.RequestBrokerService.RequestBrokerState;
 import com.vmware.admiral.service.common.ServiceTaskCallback;
@@ -47,6 +53,8 @@ import com.vmware.xenon.common.Utils;
  */
 public class AdmiralDockerClient implements ClosureDockerClient {
 
+    private static final long EXEC_TIMEOUT_MARGIN_SECONDS = 30;
+
     private final ServiceHost serviceHost;
 
     public AdmiralDockerClient(ServiceHost serviceHost) {
@@ -90,6 +98,69 @@ public class AdmiralDockerClient implements ClosureDockerClient {
                 }));
     }
 
+    @Override
+    public void provisionContainer(ImageConfiguration imageConfig,
+            ContainerConfiguration configuration, List<String> tenantLinks, String placementLink,
+            String callbackLink, Consumer<Throwable> errorHandler) {
+        logInfo("Sending provisioning request of container: %s", configuration.name);
+
+        AdmiralAdapterTaskState provisioningRequest = new AdmiralAdapterTaskState();
+        provisioningRequest.imageConfig = imageConfig;
+        provisioningRequest.configuration = configuration;
+        provisioningRequest.tenantLinks = tenantLinks;
+        provisioningRequest.groupResourcePlacementLink = placementLink;
+        provisioningRequest.provisioningCallbackLink = callbackLink;
+        provisioningRequest.serviceTaskCallback = ServiceTaskCallback.create(callbackLink);
+
+        URI uri = UriUtils.buildUri(getHost(), AdmiralAdapterFactoryService.FACTORY_LINK);
+        getHost().sendRequest(OperationUtil.createForcedPost(uri)
+                .setBody(provisioningRequest)
+                .setReferer(getHost().getUri())
+                .setCompletion((o, ex) -> {
+                    if (ex != null) {
+                        logError("Unable to send provisioning request: %s", Utils.toString(ex));
+                        errorHandler.accept(ex);
+                    }
+                }));
+    }
+
+    @Override
+    public void execContainer(String containerLink, String[] command, int timeoutSeconds,
+            BiConsumer<String, Throwable> completion) {
+        ShellContainerExecutorState execState = new ShellContainerExecutorState();
+        execState.command = command;
+        execState.attachStdErr = true;
+        execState.attachStdOut = true;
+        execState.timeoutSeconds = timeoutSeconds;
+
+        URI uri = UriUtils.buildUri(getHost(), ShellContainerExecutorService.SELF_LINK);
+        uri = UriUtils.extendUriWithQuery(uri,
+                ShellContainerExecutorService.CONTAINER_LINK_URI_PARAM, containerLink);
+        // leave some time to the exec service to report a timeout of the command
+        long expirationSeconds = timeoutSeconds + EXEC_TIMEOUT_MARGIN_SECONDS;
+        getHost().sendRequest(Operation.createPost(uri)
+                .setBody(execState)
+                .setReferer(getHost().getUri())
+                .setExpiration(Utils.fromNowMicrosUtc(
+                        TimeUnit.SECONDS.toMicros(expirationSeconds)))
+                .setCompletion((o, ex) -> {
+                    if (ex != null) {
+                        completion.accept(null, ex);
+                        return;
+                    }
+
+                    ShellContainerExecutorResult result = o
+                            .getBody(ShellContainerExecutorResult.class);
+                    if (result.exitCode != null && result.exitCode != 0) {
+                        completion.accept(result.output, new IllegalStateException(
+                                "Command exited with code " + result.exitCode + " in container "
+                                        + containerLink));
+                        return;
+                    }
+                    completion.accept(result.output, null);
+                }));
+    }
+
     private String getConfiguredPlacement(Closure closure) {
         if (closure.customProperties == null) {
             return null;
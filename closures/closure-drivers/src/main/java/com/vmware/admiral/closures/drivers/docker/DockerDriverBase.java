@@ -14,7 +14,9 @@ package com.vmware.admiral.closures.drivers.docker;
 import static com.vmware.admiral.service.common.SslTrustCertificateService.SSL_TRUST_LAST_UPDATED_DOCUMENT_KEY;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -39,6 +41,7 @@ import com.vmware.admiral.common.util.ServiceDocumentQuery.ServiceDocumentQueryE
 import com.vmware.admiral.common.util.SubscriptionManager;
 import com.vmware.admiral.service.common.ConfigurationService;
 import com.vmware.admiral.service.common.SslTrustCertificateService.SslTrustCertificateState;
+import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
@@ -60,6 +63,7 @@ public abstract class DockerDriverBase implements ExecutionDriver {
     private final ServiceHost serviceHost;
     private final DriverRegistry driverRegistry;
     private final ClosureDockerClientFactory dockerClientFactory;
+    private final WarmContainerPool warmPool;
 
     private SubscriptionManager<ConfigurationService.ConfigurationState> subscriptionManager;
     private ServiceDocumentQuery<SslTrustCertificateState> sslTrustQuery;
@@ -72,9 +76,15 @@ public abstract class DockerDriverBase implements ExecutionDriver {
 
     public DockerDriverBase(ServiceHost serviceHost, DriverRegistry driverRegistry,
             ClosureDockerClientFactory dockerClientFactory) {
+        this(serviceHost, driverRegistry, dockerClientFactory, null);
+    }
+
+    public DockerDriverBase(ServiceHost serviceHost, DriverRegistry driverRegistry,
+            ClosureDockerClientFactory dockerClientFactory, WarmContainerPool warmPool) {
         this.serviceHost = serviceHost;
         this.driverRegistry = driverRegistry;
         this.dockerClientFactory = dockerClientFactory;
+        this.warmPool = warmPool;
 
         this.trustCertificates = new AtomicReference<>();
 
@@ -164,11 +174,52 @@ public abstract class DockerDriverBase implements ExecutionDriver {
         imageConfig.registry = getConfigProperty(
                 ClosureProps.CLOSURE_RUNTIME_IMAGE_REGISTRY + closureDesc.runtime);
 
+        if (warmPool != null && warmPool.isSupported(closureDesc.runtime, configuration)
+                && warmPool.execute(closureDesc.runtime, closure, imageConfig, configuration,
+                        closureDesc.resources.timeoutSeconds,
+                        (output, ex) -> handleWarmExecution(closure, output, ex, errorHandler))) {
+            logInfo("Code execution in warm container started.");
+            return;
+        }
+
         logInfo("Creating container with name: %s image: %s", containerName, containerImage);
         dockerClient.createAndStartContainer(closure, imageConfig, configuration, errorHandler);
         logInfo("Code execution request sent.");
     }
 
+    private void handleWarmExecution(Closure closure, String output, Throwable ex,
+            Consumer<Throwable> errorHandler) {
+        if (output == null) {
+            if (ex != null) {
+                // the closure runtime has not been executed
+                errorHandler.accept(ex);
+            }
+            return;
+        }
+
+        // the output of the execution is not part of the container logs
+        Closure logsPatch = new Closure();
+        logsPatch.closureSemaphore = closure.closureSemaphore;
+        logsPatch.logs = shrinkToMaxLogSize(output.getBytes(StandardCharsets.UTF_8));
+        serviceHost.sendRequest(Operation.createPatch(serviceHost, closure.documentSelfLink)
+                .setBody(logsPatch)
+                .setReferer(serviceHost.getUri())
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        Utils.logWarning("Unable to update logs of closure %s: %s",
+                                closure.documentSelfLink, Utils.toString(e));
+                    }
+                }));
+    }
+
+    private static byte[] shrinkToMaxLogSize(byte[] logs) {
+        if (logs.length <= ClosureProps.MAX_LOG_SIZE_BYTES) {
+            return logs;
+        }
+        return Arrays.copyOfRange(logs, logs.length - ClosureProps.MAX_LOG_SIZE_BYTES,
+                logs.length);
+    }
+
     private static String getConfigProperty(String propertyName) {
         return ConfigurationUtil.getProperty(propertyName);
     }
@@ -182,6 +233,11 @@ public abstract class DockerDriverBase implements ExecutionDriver {
             return;
         }
 
+        if (warmPool != null && warmPool.cleanClosure(closure.documentSelfLink)) {
+            logInfo("Cleaned warm container of closure: %s", closure.documentSelfLink);
+            return;
+        }
+
         if (closure.resourceLinks == null || closure.resourceLinks.size() <= 0) {
             errorHandler.accept(new Exception(
                     "No resource to clean for closure: " + closure.documentSelfLink));
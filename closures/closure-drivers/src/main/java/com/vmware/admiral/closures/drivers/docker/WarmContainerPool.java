@@ -0,0 +1,653 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.closures.drivers.docker;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import com.vmware.admiral.closures.drivers.ClosureDockerClient;
+import com.vmware.admiral.closures.drivers.ClosureDockerClientFactory;
+import com.vmware.admiral.closures.drivers.ContainerConfiguration;
+import com.vmware.admiral.closures.drivers.ImageConfiguration;
+import com.vmware.admiral.closures.services.closure.Closure;
+import com.vmware.admiral.closures.util.ClosureProps;
+import com.vmware.admiral.closures.util.ClosureUtils;
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Pool of warm runtime containers executing closures. A pool is kept per runtime, placement,
+ * tenant and resource constraints. Its containers are started with a keep-alive entry point and
+ * each closure leases one of them, runs the closure runtime in it with <code>docker exec</code>
+ * and gives it back. The runtime runs in a fresh copy of the application folder. Afterwards the
+ * folder is removed and the processes left by the closure are killed, so the container is reset
+ * for the next closure. A container in which the closure changed other files is replaced.
+ * Closures with dependencies or external sources build their own images and are not executed in
+ * warm containers.
+ * <p>
+ * When no warm container is available the closure is provisioned as usual and the pool is
+ * refilled in the background. Idle containers are removed after a timeout and containers are
+ * replaced after a number of executions or after a failed one. Pools without containers are
+ * removed once they are not used for the idle timeout. The warm containers are tagged with the
+ * id of their owner, so the ones left by a previous run of the owner can be removed.
+ */
+public class WarmContainerPool {
+
+    static final String ENV_WARM_POOL = "CLOSURE_WARM_POOL";
+    static final String ENV_WARM_POOL_OWNER = "CLOSURE_WARM_POOL_OWNER";
+
+    private static final String RUN_FOLDER = "/tmp/closure-run";
+    private static final String RUN_START_MARKER = "/tmp/closure-run-start";
+
+    // printed by the run script when the closure changed files outside of its run folder
+    static final String DIRTY_MARKER = "__CLOSURE_WARM_CONTAINER_DIRTY__";
+
+    // keeps the container running without executing the closure runtime
+    static final String[] KEEP_ALIVE_ENTRY_POINT = { "/bin/bash", "-c",
+            "while true; do sleep 3600; done" };
+
+    // runs the closure in a copy of the application folder, then kills all processes except the
+    // keep-alive entry point and this script and checks for files changed since the start
+    static final String RUN_SCRIPT = "rm -rf " + RUN_FOLDER + " && touch " + RUN_START_MARKER
+            + " && cp -a /app " + RUN_FOLDER + " && cd " + RUN_FOLDER + " && ./run.sh; rc=$?;"
+            + " cd /; kill -9 -1 2>/dev/null; rm -rf " + RUN_FOLDER + ";"
+            + " if [ -n \"$(find / -xdev -newer " + RUN_START_MARKER + " ! -path /tmp"
+            + " -print -quit 2>/dev/null)\" ]; then echo; echo " + DIRTY_MARKER + "; fi;"
+            + " exit $rc";
+
+    private static final int MAX_REMEMBERED_CLOSURES = 10000;
+
+    private static final long PROVISIONING_TIMEOUT_MICROS = TimeUnit.SECONDS
+            .toMicros(ClosureProps.DOCKER_IMAGE_REQUEST_TIMEOUT_SECONDS * 2L);
+
+    private final ClosureDockerClientFactory dockerClientFactory;
+    private final int poolSize;
+    private final long idleTimeoutMicros;
+    private final int maxRunsPerContainer;
+    private final Set<String> runtimes;
+
+    private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+    private final Map<String, PendingContainer> pendingContainers = new ConcurrentHashMap<>();
+    private final Map<String, WarmContainer> leasedContainers = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> executedClosures = Collections.synchronizedMap(
+            newExecutedClosuresMap());
+    private volatile String ownerId = "";
+    private volatile Consumer<Runnable> requestExecutor = Runnable::run;
+
+    public WarmContainerPool(ClosureDockerClientFactory dockerClientFactory) {
+        this(dockerClientFactory, ClosureProps.WARM_POOL_SIZE,
+                TimeUnit.SECONDS.toMicros(ClosureProps.WARM_POOL_IDLE_TIMEOUT_SECONDS),
+                ClosureProps.WARM_POOL_MAX_RUNS_PER_CONTAINER,
+                Arrays.asList(ClosureProps.WARM_POOL_RUNTIMES.split(",")));
+    }
+
+    public WarmContainerPool(ClosureDockerClientFactory dockerClientFactory, int poolSize,
+            long idleTimeoutMicros, int maxRunsPerContainer, Collection<String> runtimes) {
+        this.dockerClientFactory = dockerClientFactory;
+        this.poolSize = poolSize;
+        this.idleTimeoutMicros = idleTimeoutMicros;
+        this.maxRunsPerContainer = maxRunsPerContainer;
+        this.runtimes = new HashSet<>();
+        for (String runtime : runtimes) {
+            this.runtimes.add(runtime.trim());
+        }
+    }
+
+    public long getIdleTimeoutMicros() {
+        return idleTimeoutMicros;
+    }
+
+    /**
+     * Sets the id of the owner of the warm containers, e.g. the id of the host. It has to be set
+     * before the first closure is executed.
+     */
+    public void setOwnerId(String ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * Sets the executor of the provisioning requests, e.g. to send them as the system user so
+     * that only the system user calls back.
+     */
+    public void setRequestExecutor(Consumer<Runnable> requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Returns the environment variable identifying the warm containers of the owner.
+     */
+    public String getOwnerEnvVar() {
+        return ENV_WARM_POOL_OWNER + "=" + ownerId;
+    }
+
+    /**
+     * Whether closures of the runtime with the given configuration can be executed in warm
+     * containers.
+     */
+    public boolean isSupported(String runtime, ContainerConfiguration configuration) {
+        return poolSize > 0 && runtimes.contains(runtime)
+                && ClosureUtils.isEmpty(configuration.dependencies)
+                && ClosureUtils.isEmpty(configuration.sourceURL);
+    }
+
+    /**
+     * Executes the closure in a warm container. Returns <code>false</code> if no warm container
+     * is available, in which case the caller provisions a container for the closure. The pool is
+     * refilled in both cases.
+     * <p>
+     * The completion is called with the output of the closure runtime once it exits. It is not
+     * called if the closure is cleaned in the meantime, e.g. when it is cancelled.
+     */
+    public boolean execute(String runtime, Closure closure, ImageConfiguration imageConfig,
+            ContainerConfiguration configuration, int timeoutSeconds,
+            BiConsumer<String, Throwable> completion) {
+        Pool pool = getPool(runtime, closure, imageConfig, configuration);
+
+        WarmContainer container = pool.lease();
+        if (container == null) {
+            pool.misses.incrementAndGet();
+            refill(pool);
+            return false;
+        }
+
+        pool.hits.incrementAndGet();
+        leasedContainers.put(closure.documentSelfLink, container);
+        refill(pool);
+
+        logInfo("Executing closure %s in warm container %s", closure.documentSelfLink,
+                container.containerLink);
+        long startMicros = Utils.getSystemNowMicrosUtc();
+        getClient().execContainer(container.containerLink,
+                buildCommand(configuration.envVars), timeoutSeconds, (output, ex) -> {
+                    pool.recordExecution(Utils.getSystemNowMicrosUtc() - startMicros);
+                    if (!leasedContainers.remove(closure.documentSelfLink, container)) {
+                        // the closure was cleaned and the container removed meanwhile
+                        return;
+                    }
+                    executedClosures.put(closure.documentSelfLink, Boolean.TRUE);
+
+                    boolean dirty = isDirty(output);
+                    if (dirty) {
+                        output = output.substring(0, output.lastIndexOf(DIRTY_MARKER)).trim();
+                    }
+
+                    if (ex != null) {
+                        logWarning("Execution of closure %s in warm container %s failed: %s",
+                                closure.documentSelfLink, container.containerLink,
+                                Utils.toString(ex));
+                        pool.failures.incrementAndGet();
+                        retire(container);
+                    } else if (dirty) {
+                        logInfo("Replacing warm container %s changed by closure %s",
+                                container.containerLink, closure.documentSelfLink);
+                        retire(container);
+                    } else {
+                        release(container);
+                    }
+                    completion.accept(output, ex);
+                });
+        return true;
+    }
+
+    /**
+     * Cleans the warm container used by the closure. A container still executing the closure is
+     * removed, otherwise there is nothing to clean. Returns <code>false</code> if the closure has
+     * not been executed in a warm container.
+     */
+    public boolean cleanClosure(String closureLink) {
+        WarmContainer container = leasedContainers.remove(closureLink);
+        if (container != null) {
+            logInfo("Removing warm container %s executing closure %s", container.containerLink,
+                    closureLink);
+            retire(container);
+            return true;
+        }
+        return executedClosures.remove(closureLink) != null;
+    }
+
+    /**
+     * Returns the id of the pool of a pending provisioning or <code>null</code> if the
+     * provisioning is unknown.
+     */
+    public String getPendingPoolId(String provisioningId) {
+        PendingContainer pending = pendingContainers.get(provisioningId);
+        return pending != null ? pending.pool.id : null;
+    }
+
+    /**
+     * Returns the environment variable identifying the containers of the given pool.
+     */
+    public static String getPoolEnvVar(String poolId) {
+        return ENV_WARM_POOL + "=" + poolId;
+    }
+
+    /**
+     * Adds the provisioned container to its pool. The container of an unknown provisioning is
+     * left alone, since the caller may not own it.
+     */
+    public void handleProvisioned(String provisioningId, String containerLink) {
+        PendingContainer pending = pendingContainers.remove(provisioningId);
+        if (pending == null) {
+            logWarning("Ignoring warm container %s of unknown provisioning", containerLink);
+            return;
+        }
+
+        Pool pool = pending.pool;
+        long nowMicros = Utils.getSystemNowMicrosUtc();
+        pool.provisioned.incrementAndGet();
+        pool.provisioningMicros.addAndGet(nowMicros - pending.startMicros);
+        logInfo("Warm container %s provisioned for pool %s", containerLink, pool.id);
+        pool.add(new WarmContainer(pool, containerLink, nowMicros));
+    }
+
+    public void handleProvisioningFailure(String provisioningId, String failure) {
+        PendingContainer pending = pendingContainers.remove(provisioningId);
+        if (pending == null) {
+            return;
+        }
+        logWarning("Provisioning of warm container for pool %s failed: %s", pending.pool.id,
+                failure);
+        pending.pool.provisioningFailures.incrementAndGet();
+        pending.pool.removePending();
+    }
+
+    /**
+     * Removes the given warm containers which are not in a pool, e.g. the ones left by a previous
+     * run of the owner.
+     */
+    public void removeOrphans(Collection<String> containerLinks) {
+        Set<String> known = new HashSet<>();
+        for (Pool pool : pools.values()) {
+            known.addAll(pool.getIdleContainerLinks());
+        }
+        for (WarmContainer container : leasedContainers.values()) {
+            known.add(container.containerLink);
+        }
+        for (String containerLink : containerLinks) {
+            if (!known.contains(containerLink)) {
+                logInfo("Removing orphaned warm container %s", containerLink);
+                removeContainer(containerLink);
+            }
+        }
+    }
+
+    /**
+     * Removes the containers idle for longer than the idle timeout, the pools which have not
+     * been used since and gives up the provisioning requests which have not completed in time.
+     */
+    public void evictIdle() {
+        evictIdle(Utils.getSystemNowMicrosUtc());
+    }
+
+    void evictIdle(long nowMicros) {
+        long lastUsedBeforeMicros = nowMicros - idleTimeoutMicros;
+        for (Pool pool : pools.values()) {
+            for (WarmContainer container : pool.evictIdle(lastUsedBeforeMicros)) {
+                logInfo("Removing idle warm container %s of pool %s", container.containerLink,
+                        pool.id);
+                removeContainer(container.containerLink);
+            }
+            pools.computeIfPresent(pool.id,
+                    (id, p) -> p.isUnused(lastUsedBeforeMicros) ? null : p);
+        }
+
+        pendingContainers.entrySet().removeIf((e) -> {
+            PendingContainer pending = e.getValue();
+            if (pending.startMicros + PROVISIONING_TIMEOUT_MICROS > nowMicros) {
+                return false;
+            }
+            logWarning("Provisioning %s of warm container for pool %s timed out", e.getKey(),
+                    pending.pool.id);
+            pending.pool.provisioningFailures.incrementAndGet();
+            pending.pool.removePending();
+            return true;
+        });
+    }
+
+    /**
+     * Returns the statistics of the pools by pool id.
+     */
+    public Map<String, WarmPoolStats> getStats() {
+        Map<String, WarmPoolStats> stats = new LinkedHashMap<>();
+        for (Pool pool : pools.values()) {
+            stats.put(pool.id, pool.getStats());
+        }
+        return stats;
+    }
+
+    private Pool getPool(String runtime, Closure closure, ImageConfiguration imageConfig,
+            ContainerConfiguration configuration) {
+        String placementLink = closure.customProperties == null ? null
+                : closure.customProperties.get(ClosureProps.CUSTOM_PROPERTY_PLACEMENT);
+        List<String> tenantLinks = closure.tenantLinks == null ? Collections.emptyList()
+                : new ArrayList<>(closure.tenantLinks);
+        Collections.sort(tenantLinks);
+
+        String poolId = ClosureUtils.calculateHash(new String[] {
+                runtime, imageConfig.imageName, imageConfig.imageNameVersion,
+                String.valueOf(placementLink), String.valueOf(tenantLinks),
+                String.valueOf(configuration.memoryMB), String.valueOf(configuration.cpuShares),
+                String.valueOf(configuration.logConfiguration) });
+
+        // the pool is touched atomically with its removal by the eviction
+        long nowMicros = Utils.getSystemNowMicrosUtc();
+        return pools.compute(poolId, (id, pool) -> {
+            if (pool == null) {
+                pool = new Pool(id, runtime, imageConfig,
+                        createWarmConfiguration(id, configuration), tenantLinks, placementLink);
+            }
+            pool.lastUsedMicros = nowMicros;
+            return pool;
+        });
+    }
+
+    private ContainerConfiguration createWarmConfiguration(String poolId,
+            ContainerConfiguration configuration) {
+        ContainerConfiguration warmConfig = new ContainerConfiguration(poolId + "_warm");
+        warmConfig.envVars = new String[] { getPoolEnvVar(poolId), getOwnerEnvVar() };
+        warmConfig.entryPoint = KEEP_ALIVE_ENTRY_POINT;
+        warmConfig.memoryMB = configuration.memoryMB;
+        warmConfig.cpuShares = configuration.cpuShares;
+        warmConfig.logConfiguration = configuration.logConfiguration;
+        return warmConfig;
+    }
+
+    private static boolean isDirty(String output) {
+        return output != null && output.trim().endsWith(DIRTY_MARKER);
+    }
+
+    static String[] buildCommand(String[] envVars) {
+        List<String> command = new ArrayList<>();
+        command.add("env");
+        if (envVars != null) {
+            command.addAll(Arrays.asList(envVars));
+        }
+        command.add("/bin/bash");
+        command.add("-c");
+        command.add(RUN_SCRIPT);
+        return command.toArray(new String[command.size()]);
+    }
+
+    private void refill(Pool pool) {
+        int missing = pool.reserveMissing(poolSize);
+        for (int i = 0; i < missing; i++) {
+            // the id is the only credential of the callback, so it must not be guessable
+            String provisioningId = UUID.randomUUID().toString();
+            pendingContainers.put(provisioningId,
+                    new PendingContainer(pool, Utils.getSystemNowMicrosUtc()));
+
+            String callbackLink = UriUtils.buildUriPath(ManagementUriParts.CLOSURES_WARM_POOLS,
+                    provisioningId);
+            requestExecutor.accept(() -> getClient().provisionContainer(pool.imageConfig,
+                    pool.warmConfig, pool.tenantLinks, pool.placementLink, callbackLink,
+                    (ex) -> handleProvisioningFailure(provisioningId, Utils.toString(ex))));
+        }
+    }
+
+    private void release(WarmContainer container) {
+        container.runs++;
+        container.lastUsedMicros = Utils.getSystemNowMicrosUtc();
+        if (container.runs >= maxRunsPerContainer) {
+            logInfo("Replacing warm container %s after %s executions", container.containerLink,
+                    container.runs);
+            retire(container);
+            return;
+        }
+        container.pool.release(container);
+    }
+
+    private void retire(WarmContainer container) {
+        container.pool.retire();
+        removeContainer(container.containerLink);
+        refill(container.pool);
+    }
+
+    private void removeContainer(String containerLink) {
+        getClient().removeContainer(containerLink, (ex) -> logWarning(
+                "Unable to remove warm container %s: %s", containerLink, Utils.toString(ex)));
+    }
+
+    private ClosureDockerClient getClient() {
+        return dockerClientFactory.getClient();
+    }
+
+    @SuppressWarnings("serial")
+    private static Map<String, Boolean> newExecutedClosuresMap() {
+        return new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > MAX_REMEMBERED_CLOSURES;
+            }
+        };
+    }
+
+    private void logInfo(String message, Object... values) {
+        Utils.log(getClass(), getClass().getSimpleName(), Level.INFO, message, values);
+    }
+
+    private void logWarning(String message, Object... values) {
+        Utils.log(getClass(), getClass().getSimpleName(), Level.WARNING, message, values);
+    }
+
+    /**
+     * Statistics of a pool.
+     */
+    public static class WarmPoolStats {
+        public String runtime;
+        public String image;
+        public String placementLink;
+        public List<String> tenantLinks;
+
+        public int idleContainers;
+        public int leasedContainers;
+        public int pendingContainers;
+
+        /** Executions which found a warm container */
+        public long hits;
+        /** Executions which found no warm container and were provisioned as usual */
+        public long misses;
+        /** Executions which failed in a warm container */
+        public long failures;
+
+        public long provisionedContainers;
+        public long provisioningFailures;
+        public long retiredContainers;
+        public long evictedContainers;
+
+        public long averageExecutionMillis;
+        public long maxExecutionMillis;
+        public long averageProvisioningMillis;
+    }
+
+    private static class PendingContainer {
+        private final Pool pool;
+        private final long startMicros;
+
+        private PendingContainer(Pool pool, long startMicros) {
+            this.pool = pool;
+            this.startMicros = startMicros;
+        }
+    }
+
+    private static class WarmContainer {
+        private final Pool pool;
+        private final String containerLink;
+        private volatile long lastUsedMicros;
+        private volatile int runs;
+
+        private WarmContainer(Pool pool, String containerLink, long lastUsedMicros) {
+            this.pool = pool;
+            this.containerLink = containerLink;
+            this.lastUsedMicros = lastUsedMicros;
+        }
+    }
+
+    /**
+     * Warm containers of a runtime, placement, tenant and resource constraints. The most recently
+     * used idle container is leased first, so the containers which are not needed become idle
+     * and are removed.
+     */
+    private static class Pool {
+        private final String id;
+        private final String runtime;
+        private final ImageConfiguration imageConfig;
+        private final ContainerConfiguration warmConfig;
+        private final List<String> tenantLinks;
+        private final String placementLink;
+
+        private final Deque<WarmContainer> idle = new ArrayDeque<>();
+        private int leased;
+        private int pending;
+        private volatile long lastUsedMicros;
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong provisioned = new AtomicLong();
+        private final AtomicLong provisioningFailures = new AtomicLong();
+        private final AtomicLong provisioningMicros = new AtomicLong();
+        private final AtomicLong retired = new AtomicLong();
+        private final AtomicLong evicted = new AtomicLong();
+        private final AtomicLong executions = new AtomicLong();
+        private final AtomicLong executionMicros = new AtomicLong();
+        private final AtomicLong maxExecutionMicros = new AtomicLong();
+
+        private Pool(String id, String runtime, ImageConfiguration imageConfig,
+                ContainerConfiguration warmConfig, List<String> tenantLinks,
+                String placementLink) {
+            this.id = id;
+            this.runtime = runtime;
+            this.imageConfig = imageConfig;
+            this.warmConfig = warmConfig;
+            this.tenantLinks = tenantLinks;
+            this.placementLink = placementLink;
+        }
+
+        private synchronized WarmContainer lease() {
+            WarmContainer container = idle.pollFirst();
+            if (container != null) {
+                leased++;
+            }
+            return container;
+        }
+
+        private synchronized void release(WarmContainer container) {
+            leased--;
+            idle.addFirst(container);
+        }
+
+        private synchronized void retire() {
+            leased--;
+            retired.incrementAndGet();
+        }
+
+        private synchronized void add(WarmContainer container) {
+            pending--;
+            idle.addFirst(container);
+        }
+
+        private synchronized void removePending() {
+            pending--;
+        }
+
+        /**
+         * Reserves the containers missing for the pool to reach its size and returns their
+         * number.
+         */
+        private synchronized int reserveMissing(int poolSize) {
+            int missing = Math.max(0, poolSize - idle.size() - leased - pending);
+            pending += missing;
+            return missing;
+        }
+
+        private synchronized List<WarmContainer> evictIdle(long lastUsedBeforeMicros) {
+            List<WarmContainer> evictedContainers = new ArrayList<>();
+            Iterator<WarmContainer> it = idle.iterator();
+            while (it.hasNext()) {
+                WarmContainer container = it.next();
+                if (container.lastUsedMicros < lastUsedBeforeMicros) {
+                    it.remove();
+                    evictedContainers.add(container);
+                }
+            }
+            evicted.addAndGet(evictedContainers.size());
+            return evictedContainers;
+        }
+
+        private synchronized List<String> getIdleContainerLinks() {
+            List<String> containerLinks = new ArrayList<>();
+            for (WarmContainer container : idle) {
+                containerLinks.add(container.containerLink);
+            }
+            return containerLinks;
+        }
+
+        /**
+         * Whether the pool has no containers and has not been used since the given time.
+         */
+        private synchronized boolean isUnused(long lastUsedBeforeMicros) {
+            return idle.isEmpty() && leased == 0 && pending == 0
+                    && lastUsedMicros < lastUsedBeforeMicros;
+        }
+
+        private void recordExecution(long durationMicros) {
+            executions.incrementAndGet();
+            executionMicros.addAndGet(durationMicros);
+            maxExecutionMicros.accumulateAndGet(durationMicros, Math::max);
+        }
+
+        private synchronized WarmPoolStats getStats() {
+            WarmPoolStats stats = new WarmPoolStats();
+            stats.runtime = runtime;
+            stats.image = imageConfig.imageName + ":" + imageConfig.imageNameVersion;
+            stats.placementLink = placementLink;
+            stats.tenantLinks = tenantLinks;
+            stats.idleContainers = idle.size();
+            stats.leasedContainers = leased;
+            stats.pendingContainers = pending;
+            stats.hits = hits.get();
+            stats.misses = misses.get();
+            stats.failures = failures.get();
+            stats.provisionedContainers = provisioned.get();
+            stats.provisioningFailures = provisioningFailures.get();
+            stats.retiredContainers = retired.get();
+            stats.evictedContainers = evicted.get();
+            stats.averageExecutionMillis = average(executionMicros.get(), executions.get());
+            stats.maxExecutionMillis = TimeUnit.MICROSECONDS.toMillis(maxExecutionMicros.get());
+            stats.averageProvisioningMillis = average(provisioningMicros.get(),
+                    provisioned.get());
+            return stats;
+        }
+
+        private static long average(long totalMicros, long count) {
+            return count == 0 ? 0 : TimeUnit.MICROSECONDS.toMillis(totalMicros / count);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.closures.drivers.docker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.vmware.admiral.auth.idm.SecurityContext;
+import com.vmware.admiral.auth.idm.SecurityContext.ProjectEntry;
+import com.vmware.admiral.auth.util.SecurityContextUtil;
+import com.vmware.admiral.closures.drivers.docker.WarmContainerPool.WarmPoolStats;
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.common.util.QueryUtil;
+import com.vmware.admiral.common.util.ServiceDocumentQuery;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState;
+import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
+import com.vmware.xenon.common.OperationContext;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.TaskState;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
+
+/**
+ * Exposes the statistics of the warm container pools on GET and removes their idle containers
+ * periodically. The provisioning of the warm containers is reported with PATCH requests to
+ * <code>{SELF_LINK}/{provisioningId}</code>. On start the warm containers left by a previous run
+ * of the host are removed.
+ * <p>
+ * The provisioning requests are sent as the system user, so only PATCH requests of the system user
+ * are accepted. A reported container is adopted only if it is tagged with its pool and owner. The
+ * statistics of all pools are returned to the system user and the cloud admins, the other users get
+ * the pools of their projects. The service has to be privileged.
+ */
+public class WarmContainerPoolService extends StatelessService {
+    public static final String SELF_LINK = ManagementUriParts.CLOSURES_WARM_POOLS;
+
+    private static final long MIN_MAINTENANCE_INTERVAL_MICROS = TimeUnit.SECONDS.toMicros(1);
+    private static final long MAX_MAINTENANCE_INTERVAL_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final WarmContainerPool warmPool;
+
+    public static class ProvisioningCallbackResponse extends ServiceTaskCallbackResponse {
+        public Set<String> resourceLinks;
+    }
+
+    public WarmContainerPoolService(WarmContainerPool warmPool) {
+        super.toggleOption(ServiceOption.URI_NAMESPACE_OWNER, true);
+        super.toggleOption(ServiceOption.PERIODIC_MAINTENANCE, true);
+        super.setMaintenanceIntervalMicros(Math.max(MIN_MAINTENANCE_INTERVAL_MICROS,
+                Math.min(MAX_MAINTENANCE_INTERVAL_MICROS, warmPool.getIdleTimeoutMicros())));
+        this.warmPool = warmPool;
+    }
+
+    @Override
+    public void handleStart(Operation start) {
+        warmPool.setOwnerId(getHost().getId());
+        warmPool.setRequestExecutor(this::runAsSystem);
+        start.complete();
+
+        removeOrphans();
+    }
+
+    @Override
+    public void handleGet(Operation get) {
+        Map<String, WarmPoolStats> stats = warmPool.getStats();
+        if (!getHost().isAuthorizationEnabled() || isSystemUser(get)) {
+            get.setBody(stats).complete();
+            return;
+        }
+
+        SecurityContextUtil.getSecurityContextForCurrentUser(this).whenComplete((sc, ex) -> {
+            if (ex != null) {
+                get.fail(ex);
+                return;
+            }
+            get.setBody(sc.isCloudAdmin() ? stats : filterByProjects(stats, sc)).complete();
+        });
+    }
+
+    @Override
+    public void handlePatch(Operation patch) {
+        if (getHost().isAuthorizationEnabled() && !isSystemUser(patch)) {
+            patch.fail(Operation.STATUS_CODE_FORBIDDEN);
+            return;
+        }
+
+        String provisioningId = UriUtils.getLastPathSegment(patch.getUri());
+        if (SELF_LINK.equals(patch.getUri().getPath()) || !patch.hasBody()) {
+            patch.fail(new IllegalArgumentException("Provisioning callback expected"));
+            return;
+        }
+
+        ProvisioningCallbackResponse response = patch.getBody(ProvisioningCallbackResponse.class);
+        patch.complete();
+
+        String poolId = warmPool.getPendingPoolId(provisioningId);
+        if (poolId == null) {
+            logWarning("Ignoring callback of unknown warm container provisioning");
+            return;
+        }
+
+        TaskState taskInfo = response.taskInfo;
+        if (TaskState.isFailed(taskInfo) || TaskState.isCancelled(taskInfo)) {
+            String failure = taskInfo.failure != null ? taskInfo.failure.message
+                    : String.valueOf(taskInfo.stage);
+            warmPool.handleProvisioningFailure(provisioningId, failure);
+        } else if (response.resourceLinks != null && !response.resourceLinks.isEmpty()) {
+            adoptContainer(provisioningId, poolId, response.resourceLinks.iterator().next());
+        }
+    }
+
+    @Override
+    public void handlePeriodicMaintenance(Operation post) {
+        warmPool.evictIdle();
+        post.complete();
+    }
+
+    private void adoptContainer(String provisioningId, String poolId, String containerLink) {
+        sendWithDeferredResult(Operation.createGet(this, containerLink), ContainerState.class)
+                .whenComplete((container, ex) -> {
+                    if (ex != null) {
+                        warmPool.handleProvisioningFailure(provisioningId, Utils.toString(ex));
+                    } else if (container.env == null
+                            || !Arrays.asList(container.env).contains(
+                                    WarmContainerPool.getPoolEnvVar(poolId))
+                            || !Arrays.asList(container.env).contains(
+                                    warmPool.getOwnerEnvVar())) {
+                        // not a container of the pool, so it is not removed either
+                        warmPool.handleProvisioningFailure(provisioningId, String.format(
+                                "Container %s is not a warm container of the pool",
+                                containerLink));
+                    } else {
+                        warmPool.handleProvisioned(provisioningId, containerLink);
+                    }
+                });
+    }
+
+    private Map<String, WarmPoolStats> filterByProjects(Map<String, WarmPoolStats> stats,
+            SecurityContext sc) {
+        List<String> projectLinks = new ArrayList<>();
+        if (sc.projects != null) {
+            for (ProjectEntry project : sc.projects) {
+                projectLinks.add(project.documentSelfLink);
+            }
+        }
+
+        Map<String, WarmPoolStats> result = new LinkedHashMap<>();
+        for (Map.Entry<String, WarmPoolStats> entry : stats.entrySet()) {
+            List<String> tenantLinks = entry.getValue().tenantLinks;
+            if (tenantLinks != null && !Collections.disjoint(tenantLinks, projectLinks)) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSystemUser(Operation op) {
+        AuthorizationContext ctx = op.getAuthorizationContext();
+        return ctx != null && ctx.isSystemUser();
+    }
+
+    private void runAsSystem(Runnable request) {
+        OperationContext saved = OperationContext.getOperationContext();
+        try {
+            OperationContext.setFrom(Operation.createGet(getUri())
+                    .setAuthorizationContext(getSystemAuthorizationContext()));
+            request.run();
+        } finally {
+            OperationContext.restoreOperationContext(saved);
+        }
+    }
+
+    private void removeOrphans() {
+        QueryTask q = QueryUtil.buildQuery(ContainerState.class, false);
+        QueryTask.Query ownerClause = new QueryTask.Query()
+                .setTermPropertyName(QueryTask.QuerySpecification.buildCollectionItemName(
+                        ContainerState.FIELD_NAME_ENV))
+                .setTermMatchValue(warmPool.getOwnerEnvVar());
+        q.querySpec.query.addBooleanClause(ownerClause);
+
+        List<String> containerLinks = new ArrayList<>();
+        new ServiceDocumentQuery<>(getHost(), ContainerState.class).query(q, (r) -> {
+            if (r.hasException()) {
+                logWarning("Unable to query warm containers: %s",
+                        Utils.toString(r.getException()));
+            } else if (r.hasResult()) {
+                containerLinks.add(r.getDocumentSelfLink());
+            } else if (!containerLinks.isEmpty()) {
+                warmPool.removeOrphans(containerLinks);
+            }
+        });
+    }
+}
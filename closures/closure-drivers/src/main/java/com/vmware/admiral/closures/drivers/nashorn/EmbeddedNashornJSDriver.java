@@ -21,7 +21,6 @@ import javax.script.Bindings;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import com.google.gson.JsonArray;
@@ -32,9 +31,11 @@ import com.google.gson.JsonPrimitive;
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
 
 import com.vmware.admiral.closures.drivers.DriverConstants;
+import com.vmware.admiral.closures.drivers.nashorn.ScriptEnginePool.PooledScriptEngine;
 import com.vmware.admiral.closures.services.closure.Closure;
 import com.vmware.admiral.closures.services.closuredescription.ClosureDescription;
 import com.vmware.admiral.closures.services.closuredescription.ResourceConstraints;
+import com.vmware.admiral.closures.util.ClosureProps;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.TaskState.TaskStage;
 import com.vmware.xenon.common.Utils;
@@ -46,6 +47,10 @@ public class EmbeddedNashornJSDriver extends LocalDriverBase {
 
     private final ServiceHost serviceHost;
 
+    private final ScriptEnginePool enginePool = new ScriptEnginePool(
+            DriverConstants.RUNTIME_NASHORN, ClosureProps.NASHORN_ENGINE_POOL_SIZE,
+            ClosureProps.NASHORN_COMPILED_SCRIPTS_CACHE_SIZE);
+
     public interface JsDateWrap {
         long getTime();
     }
@@ -71,6 +76,10 @@ public class EmbeddedNashornJSDriver extends LocalDriverBase {
         errorHandler.accept(new Exception("Not implemented"));
     }
 
+    public ScriptEnginePool getEnginePool() {
+        return enginePool;
+    }
+
     @Override
     public Closure doExecute(Closure closure, ClosureDescription taskDef) {
         logInfo("Submitting closure for execution: %s", closure.documentSelfLink);
@@ -78,26 +87,25 @@ public class EmbeddedNashornJSDriver extends LocalDriverBase {
         Closure closureResult = new Closure();
 
         Map<String, JsonElement> outputs = new HashMap<>();
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName(DriverConstants.RUNTIME_NASHORN);
-        if (engine == null) {
-            throw new IllegalStateException("Unable to execute script with runtime: "
-                    + taskDef.runtime);
-        }
-
+        PooledScriptEngine pooledEngine = enginePool.acquire();
         try {
-            setBindings(closure, engine);
-            executeScript(closure, taskDef, engine);
-            closureResult.state = TaskStage.FINISHED;
-
-        } catch (ScriptException e) {
-            Utils.logWarning("Exception thrown while executing script: %s", e.getMessage());
-            closureResult.state = TaskStage.FAILED;
-            closureResult.errorMsg = e.getMessage();
-        }
+            ScriptEngine engine = pooledEngine.getEngine();
+            try {
+                setBindings(closure, engine);
+                executeScript(closure, taskDef, pooledEngine);
+                closureResult.state = TaskStage.FINISHED;
+
+            } catch (ScriptException e) {
+                Utils.logWarning("Exception thrown while executing script: %s", e.getMessage());
+                closureResult.state = TaskStage.FAILED;
+                closureResult.errorMsg = e.getMessage();
+            }
 
-        // populate outputs
-        populateOutputs(engine, taskDef.outputNames, outputs);
+            // populate outputs
+            populateOutputs(engine, taskDef.outputNames, outputs);
+        } finally {
+            enginePool.release(pooledEngine);
+        }
         closureResult.outputs = outputs;
         return closureResult;
 
@@ -115,8 +123,8 @@ public class EmbeddedNashornJSDriver extends LocalDriverBase {
         }
     }
 
-    private void executeScript(Closure closureRequest, ClosureDescription taskDef, ScriptEngine engine)
-            throws ScriptException {
+    private void executeScript(Closure closureRequest, ClosureDescription taskDef,
+            PooledScriptEngine engine) throws ScriptException {
         String scriptSource = taskDef.source;
         ResourceConstraints resConstraints = taskDef.resources;
         logInfo("Using resource constraints: cpuShares = %s, ram = %s, timeout = %s",
@@ -13,11 +13,14 @@ package com.vmware.admiral.closures.drivers.nashorn;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 
@@ -25,6 +28,7 @@ import com.vmware.admiral.closures.drivers.ExecutionDriver;
 import com.vmware.admiral.closures.services.closure.Closure;
 import com.vmware.admiral.closures.services.closure.ClosureFactoryService;
 import com.vmware.admiral.closures.services.closuredescription.ClosureDescription;
+import com.vmware.admiral.closures.util.ClosureProps;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.TaskState.TaskStage;
 import com.vmware.xenon.common.UriUtils;
@@ -32,10 +36,42 @@ import com.vmware.xenon.common.Utils;
 
 public abstract class LocalDriverBase implements ExecutionDriver {
 
-    private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(10,
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            ClosureProps.LOCAL_EXECUTION_POOL_SIZE, ClosureProps.LOCAL_EXECUTION_POOL_SIZE,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(ClosureProps.LOCAL_EXECUTION_QUEUE_SIZE),
             new ThreadPoolExecutor.AbortPolicy());
 
-    private final Map<String, Future<?>> submittedTasks = new HashMap<>();
+    private static final AtomicLong rejectedExecutions = new AtomicLong();
+    private static final AtomicLong totalQueueTimeMillis = new AtomicLong();
+    private static final AtomicLong totalExecutionTimeMillis = new AtomicLong();
+
+    private final Map<String, Future<?>> submittedTasks = new ConcurrentHashMap<>();
+
+    /**
+     * Snapshot of the metrics of the pool executing the closures of the local drivers.
+     */
+    public static class ExecutionPoolStats {
+        public int poolSize;
+        public int activeExecutions;
+        public int queuedExecutions;
+        public long completedExecutions;
+        public long rejectedExecutions;
+        public long totalQueueTimeMillis;
+        public long totalExecutionTimeMillis;
+    }
+
+    public static ExecutionPoolStats getExecutionPoolStats() {
+        ExecutionPoolStats stats = new ExecutionPoolStats();
+        stats.poolSize = executor.getPoolSize();
+        stats.activeExecutions = executor.getActiveCount();
+        stats.queuedExecutions = executor.getQueue().size();
+        stats.completedExecutions = executor.getCompletedTaskCount();
+        stats.rejectedExecutions = rejectedExecutions.get();
+        stats.totalQueueTimeMillis = totalQueueTimeMillis.get();
+        stats.totalExecutionTimeMillis = totalExecutionTimeMillis.get();
+        return stats;
+    }
 
     @Override
     public void executeClosure(Closure closureRequest, ClosureDescription taskDef, String token, Consumer<Throwable>
@@ -104,15 +140,43 @@ public abstract class LocalDriverBase implements ExecutionDriver {
 
     private void executeLocal(Closure closureRequest, ClosureDescription taskDef) {
         String taskSelfLink = buildSelfLink(closureRequest);
-        Future<?> futureTask = executor.submit(() -> {
-            Closure result = doExecute(closureRequest, taskDef);
+        long submittedAt = System.currentTimeMillis();
+        Future<?> futureTask;
+        try {
+            futureTask = executor.submit(() -> {
+                long startedAt = System.currentTimeMillis();
+                totalQueueTimeMillis.addAndGet(startedAt - submittedAt);
+                try {
+                    Closure result = doExecute(closureRequest, taskDef);
+                    result.inputs = closureRequest.inputs;
+                    result.closureSemaphore = closureRequest.closureSemaphore;
+                    result.documentSelfLink = taskSelfLink;
+                    sendSelfPatch(result);
+                } finally {
+                    totalExecutionTimeMillis.addAndGet(System.currentTimeMillis() - startedAt);
+                    submittedTasks.remove(taskSelfLink);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedExecutions.incrementAndGet();
+            Utils.logWarning("Closure execution rejected, %d closures already waiting: %s",
+                    executor.getQueue().size(), taskSelfLink);
+
+            Closure result = new Closure();
+            result.state = TaskStage.FAILED;
+            result.errorMsg = "Closure execution rejected: too many closures waiting for execution.";
             result.inputs = closureRequest.inputs;
             result.closureSemaphore = closureRequest.closureSemaphore;
             result.documentSelfLink = taskSelfLink;
             sendSelfPatch(result);
-        });
+            return;
+        }
 
         submittedTasks.put(taskSelfLink, futureTask);
+        if (futureTask.isDone()) {
+            // completed before being tracked
+            submittedTasks.remove(taskSelfLink);
+        }
     }
 
     private String buildSelfLink(Closure closureRequest) {
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.closures.drivers.nashorn;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import com.vmware.admiral.closures.util.ClosureUtils;
+
+/**
+ * Pool of script engines kept warm between closure executions. An engine is used by a single
+ * execution at a time, the executions are isolated by evaluating each one in new engine scope
+ * bindings. Each engine caches the scripts it has compiled by source hash, so repeated executions
+ * of the same source skip parsing and compilation.
+ */
+public class ScriptEnginePool {
+
+    private final ScriptEngineManager manager = new ScriptEngineManager();
+    private final String engineName;
+    private final int compiledScriptsCacheSize;
+    private final BlockingQueue<PooledScriptEngine> idleEngines;
+
+    private final AtomicLong createdEngines = new AtomicLong();
+    private final AtomicLong discardedEngines = new AtomicLong();
+    private final AtomicLong compiledScripts = new AtomicLong();
+    private final AtomicLong compiledScriptHits = new AtomicLong();
+
+    public ScriptEnginePool(String engineName, int poolSize, int compiledScriptsCacheSize) {
+        this.engineName = engineName;
+        this.compiledScriptsCacheSize = compiledScriptsCacheSize;
+        this.idleEngines = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * Takes an idle engine from the pool or creates a new one if there is none. The engine has to
+     * be given back with {@link #release(PooledScriptEngine)} once the execution completes.
+     */
+    public PooledScriptEngine acquire() {
+        PooledScriptEngine engine = this.idleEngines.poll();
+        if (engine != null) {
+            return engine;
+        }
+
+        ScriptEngine scriptEngine = this.manager.getEngineByName(this.engineName);
+        if (scriptEngine == null) {
+            throw new IllegalStateException("Unable to execute script with runtime: "
+                    + this.engineName);
+        }
+        this.createdEngines.incrementAndGet();
+        return new PooledScriptEngine(scriptEngine);
+    }
+
+    /**
+     * Gives the engine back to the pool. The bindings of the execution are dropped, so that the
+     * idle engine does not hold on to its inputs and outputs. The engine is discarded if the pool
+     * is full.
+     */
+    public void release(PooledScriptEngine engine) {
+        engine.clearBindings();
+        if (!this.idleEngines.offer(engine)) {
+            this.discardedEngines.incrementAndGet();
+        }
+    }
+
+    public int getIdleEngines() {
+        return this.idleEngines.size();
+    }
+
+    public long getCreatedEngines() {
+        return this.createdEngines.get();
+    }
+
+    public long getDiscardedEngines() {
+        return this.discardedEngines.get();
+    }
+
+    public long getCompiledScripts() {
+        return this.compiledScripts.get();
+    }
+
+    public long getCompiledScriptHits() {
+        return this.compiledScriptHits.get();
+    }
+
+    @SuppressWarnings("serial")
+    private static Map<String, CompiledScript> newCompiledScriptsCache(int maxSize) {
+        return new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Script engine of the pool with its cache of compiled scripts. Not thread-safe, it is only
+     * used by the execution which acquired it.
+     */
+    public class PooledScriptEngine {
+        private final ScriptEngine engine;
+        private final Map<String, CompiledScript> scripts;
+
+        private PooledScriptEngine(ScriptEngine engine) {
+            this.engine = engine;
+            this.scripts = newCompiledScriptsCache(compiledScriptsCacheSize);
+        }
+
+        public ScriptEngine getEngine() {
+            return this.engine;
+        }
+
+        private void clearBindings() {
+            // plain bindings are cheap to create, unlike the script bindings of the engine which
+            // each execution creates anyway
+            this.engine.setBindings(new SimpleBindings(), ScriptContext.ENGINE_SCOPE);
+        }
+
+        /**
+         * Evaluates the source in the current context of the engine, compiling it only if it
+         * has not been compiled by this engine before.
+         */
+        public Object eval(String source) throws ScriptException {
+            if (!(this.engine instanceof Compilable)) {
+                return this.engine.eval(source);
+            }
+
+            String hash = ClosureUtils.calculateHash(new String[] { source });
+            CompiledScript script = this.scripts.get(hash);
+            if (script == null) {
+                script = ((Compilable) this.engine).compile(source);
+                this.scripts.put(hash, script);
+                compiledScripts.incrementAndGet();
+            } else {
+                compiledScriptHits.incrementAndGet();
+            }
+            return script.eval();
+        }
+    }
+}
@@ -36,6 +36,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.vmware.admiral.closures.drivers.nashorn.EmbeddedNashornJSDriver;
+import com.vmware.admiral.closures.drivers.nashorn.LocalDriverBase.ExecutionPoolStats;
+import com.vmware.admiral.closures.drivers.nashorn.LocalExecutionPoolService;
 import com.vmware.admiral.closures.services.closure.Closure;
 import com.vmware.admiral.closures.services.closure.ClosureFactoryService;
 import com.vmware.admiral.closures.services.closuredescription.ClosureDescription;
@@ -73,6 +75,8 @@ public class ClosureServiceTest extends BasicReusableHostTestCase {
                     TEST_TASK_MAINTANENACE_TIMEOUT_MLS * 1000);
             this.host.startServiceAndWait(closureFactoryService, ClosureFactoryService.FACTORY_LINK,
                     null);
+            this.host.startServiceAndWait(new LocalExecutionPoolService(),
+                    LocalExecutionPoolService.SELF_LINK, null);
 
         } catch (Throwable e) {
             throw new RuntimeException(e);
@@ -1302,6 +1306,13 @@ public class ClosureServiceTest extends BasicReusableHostTestCase {
         this.host.send(closureGet);
         this.host.testWait();
 
+        // the execution is reported by the local execution pool
+        this.host.waitFor("Execution not completed in the local execution pool",
+                () -> getExecutionPoolStats().completedExecutions > 0);
+        ExecutionPoolStats stats = getExecutionPoolStats();
+        assertTrue(stats.poolSize > 0);
+        assertTrue(stats.totalExecutionTimeMillis >= 0);
+
         clean(closureChildURI);
         clean(closureDefChildURI);
     }
@@ -2020,6 +2031,20 @@ public class ClosureServiceTest extends BasicReusableHostTestCase {
         return c.get(2000, TimeUnit.MILLISECONDS).getBody(Closure.class);
     }
 
+    private ExecutionPoolStats getExecutionPoolStats() {
+        CompletableFuture<Operation> c = new CompletableFuture<>();
+        this.host.testStart(1);
+        this.host.send(Operation
+                .createGet(UriUtils.buildUri(this.host, LocalExecutionPoolService.SELF_LINK))
+                .setCompletion(BasicReusableHostTestCase.getSafeHandler((o, ex) -> {
+                    assertNull(ex);
+                    c.complete(o);
+                })));
+        this.host.testWait();
+
+        return c.join().getBody(ExecutionPoolStats.class);
+    }
+
     private void waitForCompletion(String closureLink, int timeout)
             throws Exception {
         Closure fetchedClosure = getClosure(closureLink);
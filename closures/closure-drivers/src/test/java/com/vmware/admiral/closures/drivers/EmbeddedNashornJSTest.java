@@ -11,12 +11,30 @@
 
 package com.vmware.admiral.closures.drivers;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.script.ScriptContext;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
 import org.junit.Test;
 
 import com.vmware.admiral.closures.drivers.nashorn.EmbeddedNashornJSDriver;
+import com.vmware.admiral.closures.drivers.nashorn.ScriptEnginePool;
+import com.vmware.admiral.closures.drivers.nashorn.ScriptEnginePool.PooledScriptEngine;
+import com.vmware.admiral.closures.services.closure.Closure;
+import com.vmware.admiral.closures.services.closuredescription.ClosureDescription;
+import com.vmware.admiral.closures.services.closuredescription.ResourceConstraints;
 import com.vmware.xenon.common.ServiceHost;
+import com.vmware.xenon.common.TaskState.TaskStage;
 
 /**
  */
@@ -29,4 +47,57 @@ public class EmbeddedNashornJSTest {
         ExecutionDriver execDriver = new EmbeddedNashornJSDriver(host);
 
     }
+
+    @Test
+    public void testEngineAndCompiledScriptReuse() throws Exception {
+        ScriptEnginePool pool = new ScriptEnginePool(DriverConstants.RUNTIME_NASHORN, 1, 10);
+
+        PooledScriptEngine engine = pool.acquire();
+        assertEquals(2, ((Number) engine.eval("1 + 1")).intValue());
+        pool.release(engine);
+
+        PooledScriptEngine reused = pool.acquire();
+        assertSame(engine, reused);
+        assertEquals(2, ((Number) reused.eval("1 + 1")).intValue());
+
+        // the pool is empty while the engine is in use
+        PooledScriptEngine other = pool.acquire();
+        pool.release(reused);
+        pool.release(other);
+
+        assertEquals(2, pool.getCreatedEngines());
+        assertEquals(1, pool.getIdleEngines());
+        assertEquals(1, pool.getCompiledScripts());
+        assertEquals(1, pool.getCompiledScriptHits());
+    }
+
+    @Test
+    public void testExecutionsAreIsolated() {
+        EmbeddedNashornJSDriver driver = new EmbeddedNashornJSDriver(mock(ServiceHost.class));
+
+        ClosureDescription taskDef = new ClosureDescription();
+        taskDef.source = "if (typeof leaked !== 'undefined') { result = leaked; }"
+                + " else { result = inputs.a + 1; } var leaked = -1;";
+        taskDef.outputNames = new ArrayList<>(Collections.singletonList("result"));
+        taskDef.resources = new ResourceConstraints();
+
+        for (int i = 0; i < 2; i++) {
+            Closure closure = new Closure();
+            Map<String, JsonElement> inputs = new HashMap<>();
+            inputs.put("a", new JsonPrimitive(i));
+            closure.inputs = inputs;
+
+            Closure result = driver.doExecute(closure, taskDef);
+            assertEquals(TaskStage.FINISHED, result.state);
+            assertNull(result.errorMsg);
+            assertEquals(i + 1, result.outputs.get("result").getAsInt());
+        }
+
+        assertEquals(1, driver.getEnginePool().getCreatedEngines());
+        assertEquals(1, driver.getEnginePool().getCompiledScriptHits());
+
+        // the idle engine does not keep the bindings of the last execution
+        PooledScriptEngine engine = driver.getEnginePool().acquire();
+        assertTrue(engine.getEngine().getBindings(ScriptContext.ENGINE_SCOPE).isEmpty());
+    }
 }
@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.closures.drivers.docker;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.admiral.closures.drivers.ClosureDockerClient;
+import com.vmware.admiral.closures.drivers.ContainerConfiguration;
+import com.vmware.admiral.closures.drivers.ImageConfiguration;
+import com.vmware.admiral.closures.drivers.docker.WarmContainerPool.WarmPoolStats;
+import com.vmware.admiral.closures.services.closure.Closure;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+
+public class WarmContainerPoolTest {
+    private static final String RUNTIME = "nodejs";
+    private static final int POOL_SIZE = 2;
+    private static final long IDLE_TIMEOUT_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private TestDockerClient dockerClient;
+    private WarmContainerPool warmPool;
+    private ImageConfiguration imageConfig;
+
+    @Before
+    public void setUp() {
+        dockerClient = new TestDockerClient();
+        warmPool = new WarmContainerPool(() -> dockerClient, POOL_SIZE, IDLE_TIMEOUT_MICROS, 3,
+                Arrays.asList(RUNTIME));
+        warmPool.setOwnerId("test-host");
+
+        imageConfig = new ImageConfiguration();
+        imageConfig.imageName = "vmware/photon-closure-runner_nodejs";
+        imageConfig.imageNameVersion = "2.0";
+    }
+
+    @Test
+    public void testMissThenHit() {
+        assertFalse(execute("closure-1", new AtomicReference<>()));
+        assertEquals(POOL_SIZE, dockerClient.provisioned.size());
+        ContainerConfiguration warmConfig = dockerClient.provisioned.get(0);
+        assertArrayEquals(WarmContainerPool.KEEP_ALIVE_ENTRY_POINT, warmConfig.entryPoint);
+        assertTrue(Arrays.asList(warmConfig.envVars).contains(
+                WarmContainerPool.ENV_WARM_POOL_OWNER + "=test-host"));
+
+        provisionAll();
+
+        AtomicReference<String> output = new AtomicReference<>();
+        assertTrue(execute("closure-2", output));
+        assertEquals(1, dockerClient.execs.size());
+        List<String> command = Arrays.asList(dockerClient.execs.get(0).command);
+        assertEquals("env", command.get(0));
+        assertTrue(command.contains("TASK_URI=http://localhost/closure-2"));
+        assertEquals(WarmContainerPool.RUN_SCRIPT, command.get(command.size() - 1));
+
+        dockerClient.execs.remove(0).completion.accept("closure output", null);
+        assertEquals("closure output", output.get());
+        // the container is back in the pool, nothing is provisioned
+        assertEquals(POOL_SIZE, dockerClient.provisioned.size());
+
+        WarmPoolStats stats = warmPool.getStats().values().iterator().next();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+        assertEquals(POOL_SIZE, stats.idleContainers);
+        assertEquals(0, stats.leasedContainers);
+        assertEquals(POOL_SIZE, stats.provisionedContainers);
+        assertTrue(warmPool.cleanClosure("/closures/closure-2"));
+    }
+
+    @Test
+    public void testFailedExecutionReplacesContainer() {
+        execute("closure-1", new AtomicReference<>());
+        provisionAll();
+
+        execute("closure-2", new AtomicReference<>());
+        Exec exec = dockerClient.execs.remove(0);
+        exec.completion.accept("error output", new IllegalStateException("exit code 1"));
+
+        assertEquals(Collections.singletonList(exec.containerLink), dockerClient.removed);
+        assertEquals(POOL_SIZE + 1, dockerClient.provisioned.size());
+        WarmPoolStats stats = warmPool.getStats().values().iterator().next();
+        assertEquals(1, stats.failures);
+        assertEquals(1, stats.retiredContainers);
+    }
+
+    @Test
+    public void testChangedContainerIsReplaced() {
+        execute("closure-1", new AtomicReference<>());
+        provisionAll();
+
+        AtomicReference<String> output = new AtomicReference<>();
+        execute("closure-2", output);
+        Exec exec = dockerClient.execs.remove(0);
+        exec.completion.accept("closure output\n\n" + WarmContainerPool.DIRTY_MARKER + "\n",
+                null);
+
+        assertEquals("closure output", output.get());
+        assertEquals(Collections.singletonList(exec.containerLink), dockerClient.removed);
+        assertEquals(POOL_SIZE + 1, dockerClient.provisioned.size());
+        WarmPoolStats stats = warmPool.getStats().values().iterator().next();
+        assertEquals(0, stats.failures);
+        assertEquals(1, stats.retiredContainers);
+    }
+
+    @Test
+    public void testContainerReplacedAfterMaxRuns() {
+        execute("closure-1", new AtomicReference<>());
+        provisionAll();
+
+        for (int i = 0; i < 3; i++) {
+            execute("closure-" + i, new AtomicReference<>());
+            dockerClient.execs.remove(0).completion.accept("", null);
+        }
+
+        assertEquals(1, dockerClient.removed.size());
+        assertEquals(POOL_SIZE + 1, dockerClient.provisioned.size());
+    }
+
+    @Test
+    public void testCleanClosureRemovesLeasedContainer() {
+        execute("closure-1", new AtomicReference<>());
+        provisionAll();
+
+        AtomicReference<String> output = new AtomicReference<>();
+        execute("closure-2", output);
+        Exec exec = dockerClient.execs.remove(0);
+
+        assertTrue(warmPool.cleanClosure("/closures/closure-2"));
+        assertEquals(Collections.singletonList(exec.containerLink), dockerClient.removed);
+
+        // the completion of the execution in the removed container is ignored
+        exec.completion.accept("output", null);
+        assertNull(output.get());
+        assertFalse(warmPool.cleanClosure("/closures/closure-2"));
+        assertFalse(warmPool.cleanClosure("/closures/unknown"));
+    }
+
+    @Test
+    public void testIdleContainersAreEvicted() {
+        execute("closure-1", new AtomicReference<>());
+        provisionAll();
+
+        warmPool.evictIdle(Utils.getSystemNowMicrosUtc());
+        assertTrue(dockerClient.removed.isEmpty());
+
+        // the leased container keeps the pool
+        execute("closure-2", new AtomicReference<>());
+        warmPool.evictIdle(Utils.getSystemNowMicrosUtc() + IDLE_TIMEOUT_MICROS + 1);
+        assertEquals(POOL_SIZE - 1, dockerClient.removed.size());
+        WarmPoolStats stats = warmPool.getStats().values().iterator().next();
+        assertEquals(POOL_SIZE - 1, stats.evictedContainers);
+        assertEquals(0, stats.idleContainers);
+    }
+
+    @Test
+    public void testUnusedPoolIsRemoved() {
+        execute("closure-1", new AtomicReference<>());
+        provisionAll();
+
+        long nowMicros = Utils.getSystemNowMicrosUtc();
+        warmPool.evictIdle(nowMicros + IDLE_TIMEOUT_MICROS + 1);
+        // the idle containers are removed, then the pool which has none left
+        assertEquals(POOL_SIZE, dockerClient.removed.size());
+        assertTrue(warmPool.getStats().isEmpty());
+    }
+
+    @Test
+    public void testPoolWithPendingContainersIsKept() {
+        execute("closure-1", new AtomicReference<>());
+
+        warmPool.evictIdle(Utils.getSystemNowMicrosUtc() + IDLE_TIMEOUT_MICROS + 1);
+        assertEquals(1, warmPool.getStats().size());
+    }
+
+    @Test
+    public void testOrphansAreRemoved() {
+        execute("closure-1", new AtomicReference<>());
+        provisionAll();
+        execute("closure-2", new AtomicReference<>());
+        String leasedLink = dockerClient.execs.get(0).containerLink;
+        WarmPoolStats stats = warmPool.getStats().values().iterator().next();
+        assertEquals(1, stats.idleContainers);
+
+        List<String> containerLinks = new ArrayList<>();
+        containerLinks.add(leasedLink);
+        containerLinks.add("/resources/containers/orphan");
+        for (String provisioningId : dockerClient.provisioningIds) {
+            containerLinks.add("/resources/containers/" + provisioningId);
+        }
+        warmPool.removeOrphans(containerLinks);
+
+        // only the containers which are not in the pool are removed
+        assertEquals(dockerClient.provisioningIds.size() + 1, dockerClient.removed.size());
+        assertTrue(dockerClient.removed.contains("/resources/containers/orphan"));
+        assertFalse(dockerClient.removed.contains(leasedLink));
+    }
+
+    @Test
+    public void testFailedProvisioningIsRetriedOnNextExecution() {
+        execute("closure-1", new AtomicReference<>());
+        for (String provisioningId : new ArrayList<>(dockerClient.provisioningIds)) {
+            warmPool.handleProvisioningFailure(provisioningId, "no host available");
+        }
+
+        execute("closure-2", new AtomicReference<>());
+        assertEquals(POOL_SIZE * 2, dockerClient.provisioned.size());
+        WarmPoolStats stats = warmPool.getStats().values().iterator().next();
+        assertEquals(POOL_SIZE, stats.provisioningFailures);
+        assertEquals(POOL_SIZE, stats.pendingContainers);
+    }
+
+    @Test
+    public void testContainerOfUnknownProvisioningIsNotRemoved() {
+        execute("closure-1", new AtomicReference<>());
+        String provisioningId = dockerClient.provisioningIds.get(0);
+        String poolId = warmPool.getPendingPoolId(provisioningId);
+        assertTrue(Arrays.asList(dockerClient.provisioned.get(0).envVars).contains(
+                WarmContainerPool.getPoolEnvVar(poolId)));
+        // the provisioning ids are random, not derived from the pool
+        assertFalse(provisioningId.startsWith(poolId));
+        assertNull(warmPool.getPendingPoolId(poolId + "-1"));
+
+        warmPool.handleProvisioned(poolId + "-1", "/resources/containers/other");
+        assertTrue(dockerClient.removed.isEmpty());
+        WarmPoolStats stats = warmPool.getStats().values().iterator().next();
+        assertEquals(0, stats.idleContainers);
+        assertEquals(POOL_SIZE, stats.pendingContainers);
+    }
+
+    @Test
+    public void testProvisioningRequestsUseRequestExecutor() {
+        List<Runnable> requests = new ArrayList<>();
+        warmPool.setRequestExecutor(requests::add);
+
+        execute("closure-1", new AtomicReference<>());
+        assertEquals(POOL_SIZE, requests.size());
+        assertTrue(dockerClient.provisioned.isEmpty());
+
+        requests.forEach(Runnable::run);
+        assertEquals(POOL_SIZE, dockerClient.provisioned.size());
+    }
+
+    @Test
+    public void testClosuresWithDependenciesAreNotSupported() {
+        ContainerConfiguration configuration = new ContainerConfiguration("test");
+        assertTrue(warmPool.isSupported(RUNTIME, configuration));
+        assertFalse(warmPool.isSupported("java", configuration));
+
+        configuration.dependencies = "{\"moment\": \"2.18.1\"}";
+        assertFalse(warmPool.isSupported(RUNTIME, configuration));
+    }
+
+    private boolean execute(String closureId, AtomicReference<String> output) {
+        Closure closure = new Closure();
+        closure.documentSelfLink = "/closures/" + closureId;
+
+        ContainerConfiguration configuration = new ContainerConfiguration(closureId);
+        configuration.envVars = new String[] { "TASK_URI=http://localhost/" + closureId };
+        configuration.memoryMB = 50;
+        configuration.cpuShares = 1024;
+
+        return warmPool.execute(RUNTIME, closure, imageConfig, configuration, 60,
+                (o, ex) -> output.set(o));
+    }
+
+    private void provisionAll() {
+        for (String provisioningId : new ArrayList<>(dockerClient.provisioningIds)) {
+            dockerClient.provisioningIds.remove(provisioningId);
+            warmPool.handleProvisioned(provisioningId, "/resources/containers/" + provisioningId);
+        }
+    }
+
+    private static class Exec {
+        private final String containerLink;
+        private final String[] command;
+        private final BiConsumer<String, Throwable> completion;
+
+        private Exec(String containerLink, String[] command,
+                BiConsumer<String, Throwable> completion) {
+            this.containerLink = containerLink;
+            this.command = command;
+            this.completion = completion;
+        }
+    }
+
+    private static class TestDockerClient implements ClosureDockerClient {
+        private final List<ContainerConfiguration> provisioned = new ArrayList<>();
+        private final List<String> provisioningIds = new ArrayList<>();
+        private final List<Exec> execs = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+
+        @Override
+        public void provisionContainer(ImageConfiguration imageConfig,
+                ContainerConfiguration configuration, List<String> tenantLinks,
+                String placementLink, String callbackLink, Consumer<Throwable> errorHandler) {
+            provisioned.add(configuration);
+            provisioningIds.add(UriUtils.getLastPathSegment(callbackLink));
+        }
+
+        @Override
+        public void execContainer(String containerLink, String[] command, int timeoutSeconds,
+                BiConsumer<String, Throwable> completion) {
+            execs.add(new Exec(containerLink, command, completion));
+        }
+
+        @Override
+        public void removeContainer(String containerId, Consumer<Throwable> errorHandler) {
+            removed.add(containerId);
+        }
+
+        @Override
+        public void createAndStartContainer(Closure closure, ImageConfiguration imageConfig,
+                ContainerConfiguration configuration, Consumer<Throwable> errorHandler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void cleanImage(String imageName, String computeStateLink,
+                Consumer<Throwable> errorHandler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void inspectImage(String imageName, String computeStateLink,
+                Consumer<Throwable> errorHandler) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -11,6 +11,8 @@
 
 package com.vmware.admiral.closures.drivers;
 
+import java.util.List;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import com.vmware.admiral.closures.services.closure.Closure;
@@ -37,6 +39,33 @@ public interface ClosureDockerClient {
     void createAndStartContainer(Closure closure, ImageConfiguration imageConfig,
             ContainerConfiguration configuration, Consumer<Throwable> errorHandler);
 
+    /**
+     * Provisions a container which is not bound to a closure, e.g. a warm container of a pool.
+     * The callback link is notified with the links of the provisioned container or with the
+     * failure of the provisioning.
+     *
+     * @param imageConfig Image configuration to use
+     * @param configuration Configuration properties to use
+     * @param tenantLinks Tenant links of the container
+     * @param placementLink Group placement to use, may be <code>null</code>
+     * @param callbackLink Link of the service notified when the container is provisioned
+     */
+    void provisionContainer(ImageConfiguration imageConfig, ContainerConfiguration configuration,
+            List<String> tenantLinks, String placementLink, String callbackLink,
+            Consumer<Throwable> errorHandler);
+
+    /**
+     * Executes a command in a running container and waits for it to complete. The completion
+     * is called with the output of the command. If the command exits with a non zero code, both
+     * the output and the failure are provided.
+     *
+     * @param containerLink Link of the container
+     * @param command Command to execute
+     * @param timeoutSeconds Timeout of the command
+     */
+    void execContainer(String containerLink, String[] command, int timeoutSeconds,
+            BiConsumer<String, Throwable> completion);
+
     /**
      * Cleans docker image
      *
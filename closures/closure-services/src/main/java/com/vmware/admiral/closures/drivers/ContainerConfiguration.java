@@ -23,6 +23,8 @@ public class ContainerConfiguration {
 
     public String[] envVars;
 
+    public String[] entryPoint;
+
     public Integer memoryMB;
 
     public Integer cpuShares;
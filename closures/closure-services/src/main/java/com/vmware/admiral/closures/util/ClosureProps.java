@@ -62,6 +62,39 @@ public class ClosureProps {
             .getInteger("com.vmware.admiral.closures.container.description.expiration.seconds",
                     120);
 
+    // number of threads executing closures with the local (embedded) drivers
+    public static final int LOCAL_EXECUTION_POOL_SIZE = Integer
+            .getInteger("com.vmware.admiral.closures.local.execution.pool.size", 10);
+
+    // number of closures waiting for a thread of the local execution pool before rejecting
+    public static final int LOCAL_EXECUTION_QUEUE_SIZE = Integer
+            .getInteger("com.vmware.admiral.closures.local.execution.queue.size", 1000);
+
+    // number of idle script engines kept warm by the embedded Nashorn driver
+    public static final int NASHORN_ENGINE_POOL_SIZE = Integer
+            .getInteger("com.vmware.admiral.closures.nashorn.engine.pool.size",
+                    LOCAL_EXECUTION_POOL_SIZE);
+
+    // number of compiled scripts cached by each script engine of the embedded Nashorn driver
+    public static final int NASHORN_COMPILED_SCRIPTS_CACHE_SIZE = Integer
+            .getInteger("com.vmware.admiral.closures.nashorn.compiled.scripts.cache.size", 100);
+
+    // number of idle runtime containers kept warm per runtime and placement, 0 disables the pool
+    public static final int WARM_POOL_SIZE = Integer
+            .getInteger("com.vmware.admiral.closures.warm.pool.size", 0);
+
+    // comma separated runtimes executed in warm containers when the pool is enabled
+    public static final String WARM_POOL_RUNTIMES = System.getProperty(
+            "com.vmware.admiral.closures.warm.pool.runtimes", "nodejs,python,powershell");
+
+    // time after which an idle warm container is removed
+    public static final long WARM_POOL_IDLE_TIMEOUT_SECONDS = Long
+            .getLong("com.vmware.admiral.closures.warm.pool.idle.timeout.seconds", 10 * 60L);
+
+    // number of closures executed by a warm container before it is replaced
+    public static final int WARM_POOL_MAX_RUNS_PER_CONTAINER = Integer
+            .getInteger("com.vmware.admiral.closures.warm.pool.max.runs.per.container", 100);
+
     /**
      * Publicly/Externally accessible URI of Admiral services. In case it exits the propery will be
      * used by closure runtime execution to callback Admiral services instead of xenon publicUri
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.service.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.admiral.common.test.BaseTestCase;
+import com.vmware.admiral.service.common.CounterSubTaskService.CounterSubTaskCheckpoint;
+import com.vmware.admiral.service.common.CounterSubTaskService.CounterSubTaskState;
+import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.TaskState;
+import com.vmware.xenon.common.TaskState.TaskStage;
+import com.vmware.xenon.common.test.TestContext;
+
+public class CounterSubTaskServiceTest extends BaseTestCase {
+    private static final String CALLBACK_LINK = "/test-counter-callback";
+
+    private CallbackService callbackService;
+
+    @Before
+    public void setUp() throws Throwable {
+        host.startFactory(new CounterSubTaskService());
+        waitForServiceAvailability(CounterSubTaskService.FACTORY_LINK);
+        host.startServiceAndWait(new CounterSubTaskCompletionService(),
+                CounterSubTaskCompletionService.SELF_LINK, null);
+
+        callbackService = new CallbackService();
+        host.startServiceAndWait(callbackService, CALLBACK_LINK, null);
+    }
+
+    @Test
+    public void testCompletionsArePersistedBeforeAck() throws Throwable {
+        CounterSubTaskState counter = createCounter(2, 0);
+
+        // started updates do not change the counts and are not persisted
+        completeSubTask(counter, TaskState.createAsStarted());
+        CounterSubTaskState state = getDocument(CounterSubTaskState.class,
+                counter.documentSelfLink);
+        assertEquals(counter.documentVersion, state.documentVersion);
+
+        completeSubTask(counter, TaskState.createAsFinished());
+        state = getDocument(CounterSubTaskState.class, counter.documentSelfLink);
+        assertEquals(counter.documentVersion + 1, state.documentVersion);
+        assertEquals(1, state.completionsRemaining);
+        assertEquals(1, state.finishedCount);
+        assertEquals(0, callbackService.responses.size());
+
+        completeSubTask(counter, TaskState.createAsFinished());
+        state = getDocument(CounterSubTaskState.class, counter.documentSelfLink);
+        assertEquals(0, state.completionsRemaining);
+        assertEquals(2, state.finishedCount);
+        waitFor(() -> callbackService.responses.size() == 1);
+        assertEquals(TaskStage.FINISHED, callbackService.responses.get(0).taskInfo.stage);
+    }
+
+    @Test
+    public void testConcurrentCompletionsAreCheckpointed() throws Throwable {
+        int count = 50;
+        CounterSubTaskState counter = createCounter(count, 0);
+
+        TestContext ctx = testCreate(count);
+        for (int i = 0; i < count; i++) {
+            CounterSubTaskState body = new CounterSubTaskState();
+            body.taskInfo = TaskState.createAsFinished();
+            host.send(Operation.createPatch(host, CounterSubTaskCompletionService
+                    .buildCompletionLink(counter.documentSelfLink))
+                    .setBody(body)
+                    .setCompletion(ctx.getCompletion()));
+        }
+        ctx.await();
+
+        // every completion is acknowledged after the checkpoint carrying it is persisted
+        CounterSubTaskState state = getDocument(CounterSubTaskState.class,
+                counter.documentSelfLink);
+        assertEquals(0, state.completionsRemaining);
+        assertEquals(count, state.finishedCount);
+        assertTrue(state.documentVersion - counter.documentVersion <= count);
+        waitFor(() -> callbackService.responses.size() == 1);
+        assertEquals(TaskStage.FINISHED, callbackService.responses.get(0).taskInfo.stage);
+    }
+
+    @Test
+    public void testCheckpointIsAppliedOnce() throws Throwable {
+        CounterSubTaskState counter = createCounter(4, 0);
+
+        CounterSubTaskCheckpoint checkpoint = new CounterSubTaskCheckpoint();
+        checkpoint.batchId = UUID.randomUUID().toString();
+        checkpoint.sequence = 1;
+        checkpoint.finishedCount = 2;
+        checkpoint.taskInfo = TaskState.createAsFinished();
+        doPatch(checkpoint, counter.documentSelfLink);
+
+        // a retry of the checkpoint, e.g. after its response was lost, is not counted again
+        doPatch(checkpoint, counter.documentSelfLink);
+        CounterSubTaskState state = getDocument(CounterSubTaskState.class,
+                counter.documentSelfLink);
+        assertEquals(2, state.completionsRemaining);
+        assertEquals(2, state.finishedCount);
+
+        checkpoint.sequence = 2;
+        checkpoint.finishedCount = 1;
+        checkpoint.failCount = 1;
+        checkpoint.taskInfo = TaskState.createAsFinished();
+        doPatch(checkpoint, counter.documentSelfLink);
+
+        state = getDocument(CounterSubTaskState.class, counter.documentSelfLink);
+        assertEquals(0, state.completionsRemaining);
+        assertEquals(3, state.finishedCount);
+        assertEquals(1, state.failCount);
+        waitFor(() -> callbackService.responses.size() == 1);
+        assertEquals(TaskStage.FAILED, callbackService.responses.get(0).taskInfo.stage);
+    }
+
+    @Test
+    public void testCompletionsSurviveOwnerRestart() throws Throwable {
+        CounterSubTaskState counter = createCounter(4, 0);
+        reportSubTask(counter, TaskState.createAsFinished());
+        reportSubTask(counter, TaskState.createAsFinished());
+
+        // stop the counter without deleting its document and start it again, as after an
+        // owner restart or change in the middle of the fan-out
+        host.testStart(1);
+        host.send(Operation.createDelete(host, counter.documentSelfLink)
+                .addPragmaDirective(Operation.PRAGMA_DIRECTIVE_NO_INDEX_UPDATE)
+                .setCompletion(host.getCompletion()));
+        host.testWait();
+        host.startServiceAndWait(new CounterSubTaskService(), counter.documentSelfLink, null);
+
+        reportSubTask(counter, TaskState.createAsFinished());
+        assertEquals(0, callbackService.responses.size());
+        reportSubTask(counter, TaskState.createAsFinished());
+
+        CounterSubTaskState state = getDocument(CounterSubTaskState.class,
+                counter.documentSelfLink);
+        assertEquals(0, state.completionsRemaining);
+        assertEquals(4, state.finishedCount);
+        waitFor(() -> callbackService.responses.size() == 1);
+        assertEquals(TaskStage.FINISHED, callbackService.responses.get(0).taskInfo.stage);
+    }
+
+    @Test
+    public void testFailureOverErrorThresholdCompletesCounter() throws Throwable {
+        CounterSubTaskState counter = createCounter(4, 0.3);
+
+        completeSubTask(counter, TaskState.createAsFinished());
+        completeSubTask(counter, TaskState.createAsFailed());
+
+        // 1 of 4 failed is below the threshold
+        assertEquals(0, callbackService.responses.size());
+
+        completeSubTask(counter, TaskState.createAsFailed());
+
+        CounterSubTaskState state = getDocument(CounterSubTaskState.class,
+                counter.documentSelfLink);
+        assertEquals(0, state.completionsRemaining);
+        assertEquals(1, state.finishedCount);
+        assertEquals(2, state.failCount);
+        waitFor(() -> callbackService.responses.size() == 1);
+        assertEquals(TaskStage.FAILED, callbackService.responses.get(0).taskInfo.stage);
+
+        // completions after the counter completed are ignored
+        completeSubTask(counter, TaskState.createAsFinished());
+        state = getDocument(CounterSubTaskState.class, counter.documentSelfLink);
+        assertEquals(1, state.finishedCount);
+        assertEquals(1, callbackService.responses.size());
+    }
+
+    private CounterSubTaskState createCounter(long count, double errorThreshold)
+            throws Throwable {
+        CounterSubTaskState counter = new CounterSubTaskState();
+        counter.completionsRemaining = count;
+        counter.errorThreshold = errorThreshold;
+        counter.serviceTaskCallback = ServiceTaskCallback.create(CALLBACK_LINK);
+        return doPost(counter, CounterSubTaskService.FACTORY_LINK);
+    }
+
+    private void completeSubTask(CounterSubTaskState counter, TaskState taskInfo)
+            throws Throwable {
+        CounterSubTaskState body = new CounterSubTaskState();
+        body.taskInfo = taskInfo;
+        doPatch(body, counter.documentSelfLink);
+    }
+
+    private void reportSubTask(CounterSubTaskState counter, TaskState taskInfo) {
+        CounterSubTaskState body = new CounterSubTaskState();
+        body.taskInfo = taskInfo;
+        doPatch((Object) body, CounterSubTaskCompletionService.buildCompletionLink(
+                counter.documentSelfLink));
+    }
+
+    private static class CallbackService extends StatelessService {
+        private final List<ServiceTaskCallbackResponse> responses =
+                new CopyOnWriteArrayList<>();
+
+        @Override
+        public void handlePatch(Operation patch) {
+            this.responses.add(patch.getBody(ServiceTaskCallbackResponse.class));
+            patch.complete();
+        }
+    }
+}
@@ -73,6 +73,7 @@ public interface ManagementUriParts {
     String PLACEMENT_UPDATE_TASKS = RESOURCES + "/placement-update-tasks";
     String TAG_ASSIGNMENT = RESOURCES + "/tag-assignment";
     String CLUSTERS = RESOURCES + "/clusters";
+    String CLUSTER_SUMMARIES = RESOURCES + "/cluster-summaries";
     String FAVORITE_IMAGES = RESOURCES + "/favorite-images";
     String FAVORITE_IMAGES_POPULATE_EMBEDDED = FAVORITE_IMAGES + "/populate-embedded";
 
@@ -111,6 +112,8 @@ public interface ManagementUriParts {
     String CLOSURES_DESC = RESOURCES + "/closure" + DESCRIPTION_SUFFIX;
     String CLOSURES_IMAGES = RESOURCES + "/closure-images";
     String CLOSURES_CONTAINER_DESC = CONTAINER_DESC + "/closure-container-desc";
+    String CLOSURES_WARM_POOLS = RESOURCES + "/closure-warm-pools";
+    String CLOSURES_LOCAL_EXECUTION_POOL = RESOURCES + "/closure-local-execution-pool";
 
     String CONTAINER_HOSTS = RESOURCES + "/hosts";
     String CONTAINER_HOST_DATA_COLLECTION = RESOURCES + "/hosts-data-collections";
@@ -191,6 +194,7 @@ public interface ManagementUriParts {
     String REQUEST_PROVISION_COMPOSITE_KUBERNETES_TASKS = REQUEST
             + "/provision-composite-kubernetes-tasks";
     String REQUEST_PROVISION_PLACEMENT_TASKS = REQUEST + "/placement-tasks";
+    String REQUEST_PLACEMENT_HOST_SNAPSHOTS = REQUEST + "/placement-host-snapshots";
     String REQUEST_PROVISION_NAME_PREFIXES_TASKS = REQUEST + "/resource-prefix-tasks";
     String REQUEST_CALLBACK_HANDLER_TASKS = REQUEST + "/callback-handler/";
     String REQUEST_CONTAINER_PORTS_ALLOCATION_TASKS = REQUEST + "/container-ports-allocation-tasks";
@@ -203,6 +207,9 @@ public interface ManagementUriParts {
     String DELETE_SERVICE_DOCUMENTS = URI_PREFIX + "/delete-tasks";
 
     String COUNTER_SUB_TASKS = URI_PREFIX + "/counter-subtasks";
+    String COUNTER_SUB_TASK_COMPLETIONS = URI_PREFIX + "/counter-subtask-completions";
+    String REQUEST_PROGRESS_AGGREGATOR = URI_PREFIX + "/request-progress-aggregator";
+    String RESOURCE_NAME_PREFIX_LEASES = URI_PREFIX + "/name-prefix-leases";
     // Continuous delivery:
     String CONTINUOUS_DELIVERY = URI_PREFIX + "/continous-delivery";
 
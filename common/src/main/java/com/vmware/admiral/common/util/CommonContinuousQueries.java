@@ -21,6 +21,7 @@ import com.vmware.admiral.service.common.EventTopicService.EventTopicState;
 import com.vmware.admiral.service.common.ExtensibilitySubscriptionService.ExtensibilitySubscription;
 import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
 import com.vmware.photon.controller.model.resources.ComputeService.LifecycleState;
+import com.vmware.photon.controller.model.resources.ResourcePoolService.ResourcePoolState;
 import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
@@ -62,11 +63,21 @@ public class CommonContinuousQueries {
          */
         COMPUTES,
 
+        /**
+         * Query for all {@link ComputeState}s, regardless of their owner, with their content.
+         */
+        ALL_COMPUTES,
+
         /**
          * Query for all {@link ComputeState}s in {@link LifecycleState.RETIRED} state.
          */
         RETIRED_COMPUTES,
 
+        /**
+         * Query for all {@link ResourcePoolState}s, with their content.
+         */
+        RESOURCE_POOLS,
+
         /**
          * Query for all {@link EventTopicState}s
          */
@@ -121,6 +132,14 @@ public class CommonContinuousQueries {
             task = QueryTask.Builder.create().addOption(QueryOption.CONTINUOUS)
                     .setQuery(computeQuery).build();
             break;
+        case ALL_COMPUTES:
+            Query allComputesQuery = Query.Builder.create()
+                    .addKindFieldClause(ComputeState.class)
+                    .build();
+            task = QueryTask.Builder.create()
+                    .addOptions(EnumSet.of(QueryOption.CONTINUOUS, QueryOption.EXPAND_CONTENT))
+                    .setQuery(allComputesQuery).build();
+            break;
         case RETIRED_COMPUTES:
             Query retiredComputesQuery = Query.Builder.create()
                     .addKindFieldClause(ComputeState.class)
@@ -130,6 +149,14 @@ public class CommonContinuousQueries {
             task = QueryTask.Builder.create().addOption(QueryOption.CONTINUOUS)
                     .setQuery(retiredComputesQuery).build();
             break;
+        case RESOURCE_POOLS:
+            Query resourcePoolQuery = Query.Builder.create()
+                    .addKindFieldClause(ResourcePoolState.class)
+                    .build();
+            task = QueryTask.Builder.create()
+                    .addOptions(EnumSet.of(QueryOption.CONTINUOUS, QueryOption.EXPAND_CONTENT))
+                    .setQuery(resourcePoolQuery).build();
+            break;
         case EVENT_TOPICS:
             Query eventTopicQuery = Query.Builder.create()
                     .addKindFieldClause(EventTopicState.class)
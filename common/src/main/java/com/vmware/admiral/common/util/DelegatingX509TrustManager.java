@@ -11,20 +11,70 @@
 
 package com.vmware.admiral.common.util;
 
+import java.security.KeyStore;
+import java.security.KeyStoreException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.net.ssl.X509TrustManager;
+import javax.security.auth.x500.X500Principal;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import com.vmware.photon.controller.model.security.util.CertificateUtil;
 
 /**
  * A TrustManager implementation that delegates to a dynamic list of other TrustManagers.
  *
  * The list can be changed in runtime without reloading or replacing the main TrustManager.
+ *
+ * The delegates are indexed by the certificates they trust and their subjects, so a chain is
+ * checked only by the delegates trusting one of its certificates or issuers. A chain none of them
+ * accepts is validated once against all trusted certificates together, and then by the delegates
+ * which do not expose their trusted certificates. The trusted chains are cached for
+ * {@link #TRUSTED_CHAIN_CACHE_EXPIRATION_MINUTES}, but not past the expiration of any of their
+ * certificates. A chain checked while a delegate is replaced or removed is not cached, so it is
+ * not trusted again on a check by the old delegates.
  */
 public class DelegatingX509TrustManager implements X509TrustManager {
+    public static final String TRUSTED_CHAIN_CACHE_SIZE_PROPERTY =
+            "com.vmware.admiral.trust.manager.trusted.chain.cache.size";
+    private static final long TRUSTED_CHAIN_CACHE_SIZE = Long.getLong(
+            TRUSTED_CHAIN_CACHE_SIZE_PROPERTY, 1000);
+    private static final long TRUSTED_CHAIN_CACHE_EXPIRATION_MINUTES = 10;
+
     private final Map<Object, X509TrustManager> delegates = new ConcurrentHashMap<Object, X509TrustManager>();
 
+    /** The keys of the delegates by the certificates they trust. */
+    private final Map<X509Certificate, Set<Object>> delegatesByTrustedCertificate =
+            new ConcurrentHashMap<>();
+    /** The keys of the delegates by the subjects of the certificates they trust. */
+    private final Map<X500Principal, Set<Object>> delegatesBySubject = new ConcurrentHashMap<>();
+    /** The keys of the delegates which do not expose the certificates they trust. */
+    private final Set<Object> unindexedDelegates = ConcurrentHashMap.newKeySet();
+
+    /** The expiration time in milliseconds of the trusted chains. */
+    private final Cache<List<Object>, Long> trustedChains = CacheBuilder.newBuilder()
+            .maximumSize(TRUSTED_CHAIN_CACHE_SIZE)
+            .expireAfterWrite(TRUSTED_CHAIN_CACHE_EXPIRATION_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    /** Trust manager of all the indexed trusted certificates, built when first needed. */
+    private volatile X509TrustManager combinedTrustManager;
+
+    /** Changed whenever a delegate is replaced or removed. */
+    private final AtomicLong generation = new AtomicLong();
+
     @Override
     public void checkClientTrusted(X509Certificate[] chain, String authType)
             throws CertificateException {
@@ -41,19 +91,64 @@ public class DelegatingX509TrustManager implements X509TrustManager {
             throw new CertificateException("Can't work without any delegates");
         }
 
+        List<Object> chainKey = new ArrayList<>(chain.length + 1);
+        chainKey.add(authType);
+        chainKey.addAll(Arrays.asList(chain));
+        Long expirationMillis = trustedChains.getIfPresent(chainKey);
+        if (expirationMillis != null) {
+            if (System.currentTimeMillis() < expirationMillis) {
+                return;
+            }
+            trustedChains.invalidate(chainKey);
+        }
+
+        long checkGeneration = generation.get();
+
         CertificateException lastException = null;
-        for (X509TrustManager delegate : delegates.values()) {
+        for (Object key : findDelegates(chain)) {
+            X509TrustManager delegate = delegates.get(key);
+            if (delegate == null) {
+                continue;
+            }
             try {
                 delegate.checkServerTrusted(chain, authType);
 
-                // found a delegate that accepts the certificate, so break out
+                // found a delegate that accepts the certificate, so return
                 // without checking the rest
+                cacheTrustedChain(chainKey, chain, checkGeneration);
                 return;
 
             } catch (CertificateException x) {
                 lastException = x;
+            }
+        }
+
+        // none of the delegates trusting a certificate of the chain or its issuer accepted it,
+        // so try to build a path to any of the trusted certificates
+        if (!delegatesByTrustedCertificate.isEmpty()) {
+            try {
+                getCombinedTrustManager().checkServerTrusted(chain, authType);
+                cacheTrustedChain(chainKey, chain, checkGeneration);
+                return;
+
+            } catch (CertificateException x) {
+                lastException = x;
+            }
+        }
+
+        for (Object key : unindexedDelegates) {
+            X509TrustManager delegate = delegates.get(key);
+            if (delegate == null) {
                 continue;
             }
+            try {
+                delegate.checkServerTrusted(chain, authType);
+                cacheTrustedChain(chainKey, chain, checkGeneration);
+                return;
+
+            } catch (CertificateException x) {
+                lastException = x;
+            }
         }
 
         // if we reached here then none of the delegates accepted the
@@ -73,8 +168,16 @@ public class DelegatingX509TrustManager implements X509TrustManager {
      * @param key
      * @param newDelegate
      */
-    public void putDelegate(Object key, X509TrustManager newDelegate) {
-        delegates.put(key, newDelegate);
+    public synchronized void putDelegate(Object key, X509TrustManager newDelegate) {
+        X509TrustManager oldDelegate = delegates.put(key, newDelegate);
+        if (oldDelegate != null) {
+            unindexDelegate(key, oldDelegate);
+            // the chains trusted by the old delegate may not be trusted by the new one
+            generation.incrementAndGet();
+            trustedChains.invalidateAll();
+        }
+        indexDelegate(key, newDelegate);
+        combinedTrustManager = null;
     }
 
     /**
@@ -93,8 +196,105 @@ public class DelegatingX509TrustManager implements X509TrustManager {
      * @param key
      * @return
      */
-    public X509TrustManager removeDelegate(Object key) {
-        return delegates.remove(key);
+    public synchronized X509TrustManager removeDelegate(Object key) {
+        X509TrustManager oldDelegate = delegates.remove(key);
+        if (oldDelegate != null) {
+            unindexDelegate(key, oldDelegate);
+            generation.incrementAndGet();
+            trustedChains.invalidateAll();
+            combinedTrustManager = null;
+        }
+        return oldDelegate;
+    }
+
+    /**
+     * Caches a trusted chain until its first certificate expires, unless a delegate has been
+     * replaced or removed since the chain was checked.
+     */
+    private synchronized void cacheTrustedChain(List<Object> chainKey, X509Certificate[] chain,
+            long checkGeneration) {
+        if (checkGeneration != generation.get()) {
+            return;
+        }
+        long expirationMillis = Long.MAX_VALUE;
+        for (X509Certificate certificate : chain) {
+            expirationMillis = Math.min(expirationMillis, certificate.getNotAfter().getTime());
+        }
+        trustedChains.put(chainKey, expirationMillis);
+    }
+
+    /**
+     * Returns the keys of the delegates trusting a certificate of the given chain, followed by
+     * the ones trusting a certificate with the subject of an issuer of the chain.
+     */
+    private Set<Object> findDelegates(X509Certificate[] chain) {
+        Set<Object> keys = new LinkedHashSet<>();
+        for (X509Certificate certificate : chain) {
+            keys.addAll(delegatesByTrustedCertificate.getOrDefault(certificate,
+                    Collections.emptySet()));
+        }
+        for (X509Certificate certificate : chain) {
+            keys.addAll(delegatesBySubject.getOrDefault(certificate.getIssuerX500Principal(),
+                    Collections.emptySet()));
+        }
+        return keys;
+    }
+
+    private void indexDelegate(Object key, X509TrustManager delegate) {
+        X509Certificate[] trustedCertificates = delegate.getAcceptedIssuers();
+        if (trustedCertificates == null || trustedCertificates.length == 0) {
+            unindexedDelegates.add(key);
+            return;
+        }
+        for (X509Certificate certificate : trustedCertificates) {
+            delegatesByTrustedCertificate.computeIfAbsent(certificate,
+                    (c) -> ConcurrentHashMap.newKeySet()).add(key);
+            delegatesBySubject.computeIfAbsent(certificate.getSubjectX500Principal(),
+                    (s) -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+    }
+
+    private void unindexDelegate(Object key, X509TrustManager delegate) {
+        unindexedDelegates.remove(key);
+        X509Certificate[] trustedCertificates = delegate.getAcceptedIssuers();
+        if (trustedCertificates == null) {
+            return;
+        }
+        for (X509Certificate certificate : trustedCertificates) {
+            delegatesByTrustedCertificate.computeIfPresent(certificate, (c, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+            delegatesBySubject.computeIfPresent(certificate.getSubjectX500Principal(),
+                    (s, keys) -> {
+                        keys.remove(key);
+                        return keys.isEmpty() ? null : keys;
+                    });
+        }
+    }
+
+    private X509TrustManager getCombinedTrustManager() throws CertificateException {
+        X509TrustManager trustManager = combinedTrustManager;
+        if (trustManager != null) {
+            return trustManager;
+        }
+        synchronized (this) {
+            if (combinedTrustManager == null) {
+                KeyStore trustStore = CertificateUtil.createEmptyKeyStore();
+                int index = 0;
+                try {
+                    for (X509Certificate certificate : delegatesByTrustedCertificate.keySet()) {
+                        trustStore.setCertificateEntry("trusted-" + index++, certificate);
+                    }
+                } catch (KeyStoreException e) {
+                    throw new CertificateException("Failed to combine the trusted certificates",
+                            e);
+                }
+                combinedTrustManager = (X509TrustManager) CertificateUtil
+                        .getTrustManagers(trustStore)[0];
+            }
+            return combinedTrustManager;
+        }
     }
 
 }
@@ -21,7 +21,11 @@ import java.nio.file.Paths;
 import java.security.KeyStore;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -45,6 +49,7 @@ import com.vmware.xenon.common.Utils;
  * SslTrustCertificateService. The TrustManager is synchronized with any changes in
  * SslTrustCertificateService and have up to date ssl trust certificate at any point of time with
  * some delays when the deployment requires polling for updates instead of subscription based model.
+ * The periodic reload of all certificates only applies the differences with the loaded ones.
  */
 public class ServerX509TrustManager implements X509TrustManager, Closeable {
     private static final String SSL_TRUST_CONFIG_SUBSCRIBE_FOR_LINK = UriUtils.buildUriPath(
@@ -75,6 +80,12 @@ public class ServerX509TrustManager implements X509TrustManager, Closeable {
     private final SslTrustQueryCompletionHandler queryHandler;
     private final SubscriptionManager<ConfigurationState> subscriptionManager;
 
+    /* The certificates of the delegates added by alias, to skip the unchanged ones */
+    private final Map<String, String> certificates = new ConcurrentHashMap<>();
+
+    /* The aliases of the certificates loaded from SslTrustCertificateService */
+    private final Set<String> loadedAliases = ConcurrentHashMap.newKeySet();
+
     /* Last time the document was update in microseconds since UNIX epoch */
     private volatile long documentUpdateTimeMicros;
 
@@ -215,8 +226,7 @@ public class ServerX509TrustManager implements X509TrustManager, Closeable {
         Runnable task = () -> {
             try {
                 host.log(Level.FINE, "Host %s reloading all certificates", host.getPublicUri());
-                documentUpdateTimeMicros = 0;
-                loadSslTrustCertServices();
+                reloadSslTrustCertServices();
 
                 reloadCounter.updateAndGet((r) -> (r > reloadCounterThreshold) ? r : r + 1);
 
@@ -254,6 +264,19 @@ public class ServerX509TrustManager implements X509TrustManager, Closeable {
         this.documentUpdateTimeMicros = currentDocumentUpdateTimeMicros;
     }
 
+    /**
+     * Queries all certificates and applies the differences with the loaded ones: the changed
+     * certificates are replaced, the unchanged ones are kept and the ones which are not found
+     * anymore are removed.
+     */
+    private void reloadSslTrustCertServices() {
+        long currentDocumentUpdateTimeMicros = Utils.getNowMicrosUtc();
+        Set<String> aliasesBeforeReload = new HashSet<>(loadedAliases);
+        sslTrustQuery.queryUpdatedSince(0, new SslTrustQueryCompletionHandler(this,
+                aliasesBeforeReload));
+        this.documentUpdateTimeMicros = currentDocumentUpdateTimeMicros;
+    }
+
     private void subscribeForSslTrustCertNotifications() {
         this.subscriptionManager.start((n) -> {
             loadSslTrustCertServices();
@@ -309,10 +332,23 @@ public class ServerX509TrustManager implements X509TrustManager, Closeable {
     }
 
     public void putDelegate(String alias, String certificate) {
+        if (certificate.equals(this.certificates.get(alias))
+                && this.delegatingTrustManager.getDelegate(alias) != null) {
+            // unchanged, keep the delegate and its trusted chains
+            return;
+        }
+
         X509TrustManager delegateTrustManager = (X509TrustManager) CertificateUtil
                 .getTrustManagers(alias, certificate)[0];
 
         this.delegatingTrustManager.putDelegate(alias, delegateTrustManager);
+        this.certificates.put(alias, certificate);
+    }
+
+    private void removeDelegate(String alias) {
+        this.delegatingTrustManager.removeDelegate(alias);
+        this.certificates.remove(alias);
+        this.loadedAliases.remove(alias);
     }
 
     public X509TrustManager getDelegate(Object key) {
@@ -322,9 +358,17 @@ public class ServerX509TrustManager implements X509TrustManager, Closeable {
     private static class SslTrustQueryCompletionHandler implements
             Consumer<ServiceDocumentQueryElementResult<SslTrustCertificateState>> {
         private final ServerX509TrustManager self;
+        /* Aliases not found yet by a reload of all certificates, removed when it completes */
+        private final Set<String> staleAliases;
 
         private SslTrustQueryCompletionHandler(ServerX509TrustManager self) {
+            this(self, null);
+        }
+
+        private SslTrustQueryCompletionHandler(ServerX509TrustManager self,
+                Set<String> staleAliases) {
             this.self = self;
+            this.staleAliases = staleAliases;
         }
 
         @Override
@@ -338,17 +382,24 @@ public class ServerX509TrustManager implements X509TrustManager, Closeable {
                 SslTrustCertificateState sslTrustCert = result.getResult();
                 self.host.log(Level.FINE, "Adding certificate %s", sslTrustCert.fingerprint);
 
+                if (staleAliases != null) {
+                    staleAliases.remove(sslTrustCert.getAlias());
+                }
                 if (ServiceDocument.isDeleted(sslTrustCert)) {
                     deleteCertificate(sslTrustCert.getAlias());
                 } else {
                     loadCertificate(sslTrustCert);
                 }
+            } else if (staleAliases != null) {
+                // the reload of all certificates has completed
+                staleAliases.forEach(this::deleteCertificate);
             }
         }
 
         private void loadCertificate(SslTrustCertificateState sslTrustCert) {
             try {
                 self.putDelegate(sslTrustCert.getAlias(), sslTrustCert.certificate);
+                self.loadedAliases.add(sslTrustCert.getAlias());
                 Utils.log(getClass(), "Self Signed Trust Store", Level.FINE,
                         "Certificate with alias %s updated", sslTrustCert.getAlias());
             } catch (Throwable e) {
@@ -359,7 +410,7 @@ public class ServerX509TrustManager implements X509TrustManager, Closeable {
         }
 
         private void deleteCertificate(String alias) {
-            self.delegatingTrustManager.removeDelegate(alias);
+            self.removeDelegate(alias);
             Utils.log(getClass(), "Self Signed Trust Store", Level.FINE,
                     "Certificate with alias %s removed", alias);
 
@@ -328,7 +328,10 @@ public class ServiceDocumentQuery<T extends ServiceDocument> {
                 && q.querySpec.options.contains(QueryOption.COUNT);
     }
 
-    private Query createUpdatedSinceTimeRange(long timeInMicros) {
+    /**
+     * Creates a clause matching the documents updated or deleted since the given time.
+     */
+    public static Query createUpdatedSinceTimeRange(long timeInMicros) {
         long limitToNowInMicros = Utils.fromNowMicrosUtc(TimeUnit.SECONDS.toMicros(10));
         NumericRange<Long> range = NumericRange.createLongRange(timeInMicros, limitToNowInMicros,
                 true, false);
@@ -25,6 +25,7 @@ import java.util.logging.Level;
 import com.vmware.admiral.log.EventLogFactoryService;
 import com.vmware.admiral.service.common.CommonInitialBootService;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationFactoryService;
+import com.vmware.admiral.service.common.CounterSubTaskCompletionService;
 import com.vmware.admiral.service.common.CounterSubTaskService;
 import com.vmware.admiral.service.common.CredentialsProxyService;
 import com.vmware.admiral.service.common.EventTopicService;
@@ -35,6 +36,8 @@ import com.vmware.admiral.service.common.LongURIGetService;
 import com.vmware.admiral.service.common.NodeHealthCheckService;
 import com.vmware.admiral.service.common.NodeMigrationService;
 import com.vmware.admiral.service.common.RegistryFactoryService;
+import com.vmware.admiral.service.common.RequestProgressAggregatorService;
+import com.vmware.admiral.service.common.ResourceNamePrefixLeaseService;
 import com.vmware.admiral.service.common.ResourceNamePrefixService;
 import com.vmware.admiral.service.common.ReverseProxyService;
 import com.vmware.admiral.service.common.SslTrustCertificateFactoryService;
@@ -64,6 +67,9 @@ public class HostInitCommonServiceConfig extends HostInitServiceHelper {
                     service(ReverseProxyService.class),
                     service(ExtensibilitySubscriptionFactoryService.class),
                     service(LongURIGetService.class),
+                    service(RequestProgressAggregatorService.class),
+                    service(CounterSubTaskCompletionService.class),
+                    service(ResourceNamePrefixLeaseService.class),
                     service(RegistryFactoryService.class),
                     service(EventLogFactoryService.class),
                     factoryService(ResourceNamePrefixService.class),
@@ -84,6 +90,9 @@ public class HostInitCommonServiceConfig extends HostInitServiceHelper {
             ReverseProxyService.class,
             ExtensibilitySubscriptionFactoryService.class,
             LongURIGetService.class,
+            RequestProgressAggregatorService.class,
+            CounterSubTaskCompletionService.class,
+            ResourceNamePrefixLeaseService.class,
             RegistryFactoryService.class,
             EventLogFactoryService.class
     };
@@ -34,6 +34,7 @@ import com.vmware.admiral.common.util.QueryUtil;
 import com.vmware.admiral.common.util.ServiceUtils;
 import com.vmware.admiral.host.IExtensibilityRegistryHost;
 import com.vmware.admiral.service.common.CounterSubTaskService.CounterSubTaskState;
+import com.vmware.admiral.service.common.RequestProgressAggregatorService.RequestTrackerUpdate;
 import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
 import com.vmware.admiral.service.common.TagAssignmentService.KeyValue;
 import com.vmware.admiral.service.common.TagAssignmentService.TagAssignmentRequest;
@@ -41,7 +42,10 @@ import com.vmware.photon.controller.model.resources.ResourceState;
 import com.vmware.photon.controller.model.resources.TagService.TagState;
 import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.CompletionHandler;
 import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceDocumentDescription.PropertyIndexingOption;
+import com.vmware.xenon.common.ServiceDocumentDescription.PropertyUsageOption;
 import com.vmware.xenon.common.ServiceErrorResponse;
 import com.vmware.xenon.common.StatefulService;
 import com.vmware.xenon.common.TaskState;
@@ -129,6 +133,14 @@ public abstract class AbstractTaskStatefulService<T extends TaskServiceDocument<
          * Set of resource links provisioned or performed operation on them.
          */
         public Set<String> resourceLinks;
+
+        /**
+         * Updates of several tasks applied to the request tracker at once, in order. Only set
+         * on the updates sent by {@link RequestProgressAggregatorService}.
+         */
+        @PropertyOptions(usage = PropertyUsageOption.SERVICE_USE,
+                indexing = PropertyIndexingOption.STORE_ONLY)
+        public List<TaskStatusState> coalescedUpdates;
     }
 
     public AbstractTaskStatefulService(Class<? extends TaskServiceDocument<E>> stateType,
@@ -461,37 +473,54 @@ public abstract class AbstractTaskStatefulService<T extends TaskServiceDocument<
 
     protected void updateRequestTracker(T state, int retryCount) {
         if (state != null && state.requestTrackerLink != null) {
-            sendRequest(Operation
-                    .createPatch(this, state.requestTrackerLink)
-                    .setBody(fromTask(state))
-                    .setCompletion((o, ex) -> {
-                        if (ex != null) {
-                            // log but don't fail the task
-                            if (ex instanceof CancellationException) {
-                                logFine("CancellationException: Failed to update request tracker:"
-                                        + " %s", state.requestTrackerLink);
-                                // retry only the finished and failed updates. The others are not so
-                                // important
-                            } else if (TaskStage.FINISHED.name()
-                                    .equals(state.taskInfo.stage.name())
-                                    || TaskStage.FAILED.name().equals(state.taskInfo.stage.name())
-                                    && retryCount > 0) {
-                                getHost().schedule(
-                                        () -> updateRequestTracker(state, retryCount - 1),
-                                        QueryUtil.QUERY_RETRY_INTERVAL_MILLIS,
-                                        TimeUnit.MILLISECONDS);
-                            } else {
-                                logWarning("Failed to update request tracker: %s. Error: %s",
-                                        state.requestTrackerLink, Utils.toString(ex));
-                            }
-                        }
-                    }));
+            sendRequestTrackerUpdate(state.requestTrackerLink, fromTask(state), (o, ex) -> {
+                if (ex != null) {
+                    // log but don't fail the task
+                    if (ex instanceof CancellationException) {
+                        logFine("CancellationException: Failed to update request tracker:"
+                                + " %s", state.requestTrackerLink);
+                        // retry only the finished and failed updates. The others are not so
+                        // important
+                    } else if (TaskStage.FINISHED.name()
+                            .equals(state.taskInfo.stage.name())
+                            || TaskStage.FAILED.name().equals(state.taskInfo.stage.name())
+                            && retryCount > 0) {
+                        getHost().schedule(
+                                () -> updateRequestTracker(state, retryCount - 1),
+                                QueryUtil.QUERY_RETRY_INTERVAL_MILLIS,
+                                TimeUnit.MILLISECONDS);
+                    } else {
+                        logWarning("Failed to update request tracker: %s. Error: %s",
+                                state.requestTrackerLink, Utils.toString(ex));
+                    }
+                }
+            });
 
         } else if (state != null && state.documentSelfLink != null) {
             logFine("Task doesn't have a requestTrackerLink set: %s ", state.documentSelfLink);
         }
     }
 
+    /**
+     * Sends the task status to the request tracker through the node local
+     * {@link RequestProgressAggregatorService}, or directly when the aggregator is not started.
+     */
+    protected void sendRequestTrackerUpdate(String requestTrackerLink,
+            TaskStatusState taskStatus, CompletionHandler completion) {
+        if (getHost().checkServiceAvailable(RequestProgressAggregatorService.SELF_LINK)) {
+            RequestTrackerUpdate update = new RequestTrackerUpdate();
+            update.requestTrackerLink = requestTrackerLink;
+            update.taskStatus = taskStatus;
+            sendRequest(Operation.createPost(this, RequestProgressAggregatorService.SELF_LINK)
+                    .setBody(update)
+                    .setCompletion(completion));
+        } else {
+            sendRequest(Operation.createPatch(this, requestTrackerLink)
+                    .setBody(taskStatus)
+                    .setCompletion(completion));
+        }
+    }
+
     protected void handleStagePatch(T state) {
         if (getInstance().shouldFail(state.taskSubStage)) {
             failTask("Fail task in stage [" + state.taskSubStage
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.service.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only log kept in fixed-size chunks, so appending new output does not copy the output
+ * already kept. Once the log grows over its maximum size the oldest chunks are dropped, like in a
+ * ring buffer.
+ *
+ * Positions in the log count the bytes appended since it was last replaced, so a reader can
+ * continue from where its previous read ended. Output appended with the second it was logged in
+ * is also indexed by the second, so the output logged since a given second is read without
+ * reading the rest of the log.
+ */
+public class ChunkedLog {
+    /** Second of output for which the second it was logged in is not known */
+    public static final long NO_SECOND = -1;
+
+    private static final int MIN_CHUNK_CAPACITY = 1024;
+
+    private final int chunkSize;
+    private final long maxSize;
+
+    // all chunks but the last one are full
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int lastChunkLength;
+    // positions of the first and following the last kept byte since the log was replaced
+    private long startPosition;
+    private long endPosition;
+    // position of the first output of each second of the appended output, by ascending second
+    private final List<long[]> secondPositions = new ArrayList<>();
+
+    public ChunkedLog(int chunkSize, long maxSize) {
+        this.chunkSize = chunkSize;
+        this.maxSize = Math.max(maxSize, chunkSize);
+    }
+
+    /**
+     * Appends data to the log, dropping the oldest chunks if the log grows over its maximum size.
+     */
+    public synchronized void append(byte[] data) {
+        append(data, 0, data.length, NO_SECOND);
+    }
+
+    /**
+     * Appends the data between the given indexes to the log, the output logged in the given
+     * second since the epoch, or {@link #NO_SECOND}.
+     */
+    public synchronized void append(byte[] data, int from, int to, long second) {
+        if (from < to && second != NO_SECOND && (this.secondPositions.isEmpty()
+                || lastSecondPosition()[1] < second)) {
+            this.secondPositions.add(new long[] { this.endPosition, second });
+        }
+
+        int position = from;
+        while (position < to) {
+            if (this.chunks.isEmpty() || this.lastChunkLength == this.chunkSize) {
+                this.chunks.add(new byte[Math.min(this.chunkSize,
+                        Math.max(MIN_CHUNK_CAPACITY, to - position))]);
+                this.lastChunkLength = 0;
+            }
+
+            int last = this.chunks.size() - 1;
+            byte[] chunk = this.chunks.get(last);
+            int length = Math.min(to - position, this.chunkSize - this.lastChunkLength);
+            if (chunk.length < this.lastChunkLength + length) {
+                chunk = Arrays.copyOf(chunk, Math.min(this.chunkSize,
+                        Math.max(chunk.length * 2, this.lastChunkLength + length)));
+                this.chunks.set(last, chunk);
+            }
+
+            System.arraycopy(data, position, chunk, this.lastChunkLength, length);
+            this.lastChunkLength += length;
+            this.endPosition += length;
+            position += length;
+        }
+
+        while (this.endPosition - this.startPosition > this.maxSize && this.chunks.size() > 1) {
+            this.chunks.remove(0);
+            this.startPosition += this.chunkSize;
+        }
+
+        // the output of the oldest kept second may start in a dropped chunk
+        while (this.secondPositions.size() > 1
+                && this.secondPositions.get(1)[0] <= this.startPosition) {
+            this.secondPositions.remove(0);
+        }
+        if (!this.secondPositions.isEmpty()
+                && this.secondPositions.get(0)[0] < this.startPosition) {
+            this.secondPositions.get(0)[0] = this.startPosition;
+        }
+    }
+
+    /**
+     * Replaces the log with the given data.
+     */
+    public synchronized void replace(byte[] data) {
+        clear();
+        append(data);
+    }
+
+    /**
+     * Drops the whole log, starting the positions over.
+     */
+    public synchronized void clear() {
+        this.chunks.clear();
+        this.secondPositions.clear();
+        this.lastChunkLength = 0;
+        this.startPosition = 0;
+        this.endPosition = 0;
+    }
+
+    /**
+     * Reads the whole kept log.
+     */
+    public synchronized byte[] read() {
+        return read(this.startPosition);
+    }
+
+    /**
+     * Reads the last lines of the log.
+     */
+    public synchronized byte[] readTail(int lines) {
+        long from = this.endPosition;
+        if (lines > 0) {
+            from = this.startPosition;
+            int newLines = 0;
+            // a line break ending the log does not start a new line
+            for (long position = this.endPosition - 2; position >= this.startPosition;
+                    position--) {
+                if (byteAt(position) == '\n' && ++newLines == lines) {
+                    from = position + 1;
+                    break;
+                }
+            }
+        }
+        return read(from);
+    }
+
+    /**
+     * Reads the log following the given position. If the position is past the end of the log, the
+     * log has been replaced since it was read, so the whole kept log is read.
+     */
+    public synchronized byte[] readFrom(long position) {
+        if (position > this.endPosition) {
+            return read();
+        }
+        return read(Math.max(position, this.startPosition));
+    }
+
+    /**
+     * Reads the output logged since the given second since the epoch. Output appended without its
+     * second is read only if it follows output logged since then, and the whole kept log is read
+     * if none of it was appended with its second.
+     */
+    public synchronized byte[] readSince(long second) {
+        if (this.secondPositions.isEmpty()) {
+            return read();
+        }
+
+        int low = 0;
+        int high = this.secondPositions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.secondPositions.get(middle)[1] < second) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return read(low < this.secondPositions.size() ? this.secondPositions.get(low)[0]
+                : this.endPosition);
+    }
+
+    /**
+     * Returns the position following the end of the log, from which the output appended next is
+     * read.
+     */
+    public synchronized long getEndPosition() {
+        return this.endPosition;
+    }
+
+    /**
+     * Returns the size of the kept log.
+     */
+    public synchronized long size() {
+        return this.endPosition - this.startPosition;
+    }
+
+    private long[] lastSecondPosition() {
+        return this.secondPositions.get(this.secondPositions.size() - 1);
+    }
+
+    private byte byteAt(long position) {
+        long index = position - this.startPosition;
+        return this.chunks.get((int) (index / this.chunkSize))[(int) (index % this.chunkSize)];
+    }
+
+    private byte[] read(long from) {
+        byte[] data = new byte[(int) (this.endPosition - from)];
+        long index = from - this.startPosition;
+        int position = 0;
+        while (position < data.length) {
+            byte[] chunk = this.chunks.get((int) (index / this.chunkSize));
+            int chunkPosition = (int) (index % this.chunkSize);
+            int length = Math.min(data.length - position, this.chunkSize - chunkPosition);
+            System.arraycopy(chunk, chunkPosition, data, position, length);
+            position += length;
+            index += length;
+        }
+        return data;
+    }
+}
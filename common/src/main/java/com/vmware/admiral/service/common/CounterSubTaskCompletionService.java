@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.service.common;
+
+import static com.vmware.admiral.common.util.PropertyUtils.mergeCustomProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.service.common.CounterSubTaskService.CounterSubTaskCheckpoint;
+import com.vmware.admiral.service.common.CounterSubTaskService.CounterSubTaskState;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.TaskState;
+import com.vmware.xenon.common.TaskState.TaskStage;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Node local service to which the sub tasks of a {@link CounterSubTaskService} report their
+ * completions, at <code>SELF_LINK/counter id</code>.
+ *
+ * The completions of a counter are queued without locks and reported to the counter by
+ * checkpoints, each carrying all of the completions queued since the previous one. A completion is
+ * acknowledged only after the checkpoint carrying it has been persisted by the counter owner, and
+ * the completions queued meanwhile make up the next checkpoint, so a fan-out costs a counter update
+ * per checkpoint instead of per completion. A failed checkpoint, e.g. while the counter owner
+ * restarts or changes, is retried with the same sequence number, which the counter applies at most
+ * once.
+ */
+public class CounterSubTaskCompletionService extends StatelessService {
+    public static final String SELF_LINK = ManagementUriParts.COUNTER_SUB_TASK_COMPLETIONS;
+
+    public static final String CHECKPOINT_RETRIES_PROPERTY =
+            "com.vmware.admiral.counter.subtask.checkpoint.retries";
+    public static final String CHECKPOINT_RETRY_DELAY_MILLIS_PROPERTY =
+            "com.vmware.admiral.counter.subtask.checkpoint.retry.delay.millis";
+    private static final int CHECKPOINT_RETRIES = Integer.getInteger(
+            CHECKPOINT_RETRIES_PROPERTY, 5);
+    private static final long CHECKPOINT_RETRY_DELAY_MILLIS = Long.getLong(
+            CHECKPOINT_RETRY_DELAY_MILLIS_PROPERTY, 1000);
+    private static final long IDLE_BATCH_EXPIRATION_MICROS = TimeUnit.MINUTES.toMicros(
+            Long.getLong("com.vmware.admiral.counter.subtask.completion.idle.minutes", 60));
+
+    private final ConcurrentMap<String, CompletionBatch> batches = new ConcurrentHashMap<>();
+
+    private static class Completion {
+        private final Operation op;
+        private final TaskState taskInfo;
+        private final Map<String, String> customProperties;
+
+        private Completion(Operation op, CounterSubTaskState body) {
+            this.op = op;
+            this.taskInfo = body.taskInfo;
+            this.customProperties = body.customProperties;
+        }
+    }
+
+    /**
+     * Completions of a counter queued on this node. At most one checkpoint of a batch is in
+     * progress, so its checkpoints reach the counter in sequence.
+     */
+    private static class CompletionBatch {
+        private final String id = UUID.randomUUID().toString();
+        private final String counterLink;
+        private final Queue<Completion> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean checkpointing = new AtomicBoolean();
+        /** Sequence of the last checkpoint, changed only while checkpointing. */
+        private long sequence;
+        private volatile long lastCompletionMicros;
+
+        private CompletionBatch(String counterLink) {
+            this.counterLink = counterLink;
+        }
+    }
+
+    public CounterSubTaskCompletionService() {
+        super.toggleOption(ServiceOption.URI_NAMESPACE_OWNER, true);
+        super.toggleOption(ServiceOption.PERIODIC_MAINTENANCE, true);
+    }
+
+    /**
+     * Returns the link the sub tasks of the counter with the given link report to.
+     */
+    public static String buildCompletionLink(String counterLink) {
+        return UriUtils.buildUriPath(SELF_LINK, UriUtils.getLastPathSegment(counterLink));
+    }
+
+    @Override
+    public void handlePatch(Operation patch) {
+        if (SELF_LINK.equals(patch.getUri().getPath())) {
+            Operation.failActionNotSupported(patch);
+            return;
+        }
+
+        CounterSubTaskState body = patch.getBody(CounterSubTaskState.class);
+        if (body.taskInfo == null || body.taskInfo.stage == null) {
+            patch.fail(new IllegalArgumentException("taskInfo, taskInfo.stage are required"));
+            return;
+        }
+
+        switch (body.taskInfo.stage) {
+        case FINISHED:
+        case FAILED:
+        case CANCELLED:
+            break;
+        default:
+            // not a completion, nothing to count
+            patch.complete();
+            return;
+        }
+
+        String counterLink = UriUtils.buildUriPath(CounterSubTaskService.FACTORY_LINK,
+                UriUtils.getLastPathSegment(patch.getUri()));
+        CompletionBatch batch = batches.computeIfAbsent(counterLink, CompletionBatch::new);
+        batch.lastCompletionMicros = Utils.getSystemNowMicrosUtc();
+        batch.pending.add(new Completion(patch, body));
+        checkpoint(batch);
+    }
+
+    @Override
+    public void handlePeriodicMaintenance(Operation post) {
+        long expiration = Utils.getSystemNowMicrosUtc() - IDLE_BATCH_EXPIRATION_MICROS;
+        // a completion queued in a removed batch is still checkpointed by it
+        batches.values().removeIf(batch -> batch.lastCompletionMicros < expiration
+                && batch.pending.isEmpty() && !batch.checkpointing.get());
+        post.complete();
+    }
+
+    /**
+     * Sends the queued completions of the batch as a checkpoint, unless a checkpoint of the batch
+     * is in progress already, which sends them when it completes.
+     */
+    private void checkpoint(CompletionBatch batch) {
+        while (!batch.pending.isEmpty() && batch.checkpointing.compareAndSet(false, true)) {
+            List<Completion> completions = new ArrayList<>();
+            Completion completion;
+            while ((completion = batch.pending.poll()) != null) {
+                completions.add(completion);
+            }
+            if (completions.isEmpty()) {
+                batch.checkpointing.set(false);
+                continue;
+            }
+
+            sendCheckpoint(batch, buildCheckpoint(batch, completions), completions,
+                    CHECKPOINT_RETRIES);
+            return;
+        }
+    }
+
+    private static CounterSubTaskCheckpoint buildCheckpoint(CompletionBatch batch,
+            List<Completion> completions) {
+        CounterSubTaskCheckpoint checkpoint = new CounterSubTaskCheckpoint();
+        checkpoint.batchId = batch.id;
+        checkpoint.sequence = ++batch.sequence;
+        checkpoint.taskInfo = new TaskState();
+        for (Completion completion : completions) {
+            if (TaskStage.FINISHED == completion.taskInfo.stage) {
+                checkpoint.finishedCount++;
+                // as when patching the counter directly, only the finished tasks add properties
+                checkpoint.customProperties = mergeCustomProperties(
+                        checkpoint.customProperties, completion.customProperties);
+            } else {
+                checkpoint.failCount++;
+                checkpoint.taskInfo.failure = completion.taskInfo.failure;
+            }
+            checkpoint.taskInfo.stage = completion.taskInfo.stage;
+        }
+        return checkpoint;
+    }
+
+    private void sendCheckpoint(CompletionBatch batch, CounterSubTaskCheckpoint checkpoint,
+            List<Completion> completions, int retriesLeft) {
+        sendRequest(Operation.createPatch(this, batch.counterLink)
+                .setBody(checkpoint)
+                .setCompletion((o, e) -> {
+                    if (e != null && retriesLeft > 0) {
+                        logWarning("Retrying checkpoint %d of %s (%d retries left): %s",
+                                checkpoint.sequence, batch.counterLink, retriesLeft,
+                                Utils.toString(e));
+                        getHost().schedule(() -> sendCheckpoint(batch, checkpoint,
+                                completions, retriesLeft - 1),
+                                CHECKPOINT_RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                        return;
+                    }
+
+                    if (e != null) {
+                        logSevere("Failed checkpoint %d of %s, failing %d completions: %s",
+                                checkpoint.sequence, batch.counterLink, completions.size(),
+                                Utils.toString(e));
+                        completions.forEach(c -> c.op.fail(e));
+                    } else {
+                        completions.forEach(c -> c.op.complete());
+                        CounterSubTaskState counter = o.getBody(CounterSubTaskState.class);
+                        if (counter.completionsRemaining <= 0) {
+                            batches.remove(batch.counterLink, batch);
+                        }
+                    }
+
+                    batch.checkpointing.set(false);
+                    checkpoint(batch);
+                }));
+    }
+}
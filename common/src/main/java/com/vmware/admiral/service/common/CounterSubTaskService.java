@@ -13,6 +13,7 @@ package com.vmware.admiral.service.common;
 
 import static com.vmware.admiral.common.util.PropertyUtils.mergeCustomProperties;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.function.Consumer;
@@ -33,6 +34,13 @@ import com.vmware.xenon.common.Utils;
  * Task tracking the progress of parallel progressing services/tasks. When all services complete the
  * operation issues a PATCH to original service with the taskInfo.stage set to FINISHED, or if the
  * operation fails, set to FAILED
+ *
+ * The sub tasks report their completions to the node local {@link CounterSubTaskCompletionService},
+ * which counts them in memory and applies them to the counter by checkpoints, each a single
+ * {@link CounterSubTaskCheckpoint} update for all the completions queued since the previous one.
+ * A completion is acknowledged only after its checkpoint has been persisted, so a counter
+ * continues from the reported completions after an owner restart or change. Completions patched to
+ * the counter directly are applied one by one.
  */
 public class CounterSubTaskService extends StatefulService {
     public static final String FACTORY_LINK = ManagementUriParts.COUNTER_SUB_TASKS;
@@ -52,6 +60,9 @@ public class CounterSubTaskService extends StatefulService {
         /** (Optional) Custom properties */
         public volatile Map<String, String> customProperties;
 
+        /** Sequence of the last applied checkpoint per completion batch. */
+        public Map<String, Long> checkpointSequences;
+
         protected ServiceTaskCallbackResponse getFinishedResponse() {
             return serviceTaskCallback.getFinishedResponse();
         }
@@ -66,6 +77,26 @@ public class CounterSubTaskService extends StatefulService {
         }
     }
 
+    /**
+     * Completions of a number of sub tasks, applied to the counter with a single update.
+     */
+    public static class CounterSubTaskCheckpoint {
+        /** Id of the completion batch reporting the completions. */
+        public String batchId;
+
+        /** Sequence of the checkpoint within its batch, a checkpoint is applied at most once. */
+        public long sequence;
+
+        public long finishedCount;
+        public long failCount;
+
+        /** Stage of the last completion and failure of the last failed one, if any. */
+        public TaskState taskInfo;
+
+        /** (Optional) Custom properties of the completions */
+        public Map<String, String> customProperties;
+    }
+
     public CounterSubTaskService() {
         super(CounterSubTaskState.class);
         super.toggleOption(ServiceOption.PERSISTENCE, true);
@@ -94,7 +125,8 @@ public class CounterSubTaskService extends StatefulService {
                         CounterSubTaskState body = o.getBody(CounterSubTaskState.class);
                         service.logInfo("Creating %d tasks(s), reporting through sub task %s",
                                 subTaskInitState.completionsRemaining, body.documentSelfLink);
-                        callbackFunc.accept(body.documentSelfLink);
+                        callbackFunc.accept(CounterSubTaskCompletionService
+                                .buildCompletionLink(body.documentSelfLink));
                     });
             service.sendRequest(postOp);
         } catch (Throwable e) {
@@ -110,6 +142,13 @@ public class CounterSubTaskService extends StatefulService {
 
     @Override
     public void handlePatch(Operation patch) {
+        // read as a checkpoint first, it keeps all the fields of a single completion
+        CounterSubTaskCheckpoint checkpoint = patch.getBody(CounterSubTaskCheckpoint.class);
+        if (checkpoint.batchId != null) {
+            handleCheckpoint(patch, checkpoint);
+            return;
+        }
+
         CounterSubTaskState patchBody = patch.getBody(CounterSubTaskState.class);
         CounterSubTaskState currentState = getState(patch);
         if (patchBody.taskInfo == null || patchBody.taskInfo.stage == null) {
@@ -127,8 +166,10 @@ public class CounterSubTaskService extends StatefulService {
 
         switch (patchBody.taskInfo.stage) {
         case STARTED:
-            // don't decrement completions remaining.
-            break;
+            // don't decrement completions remaining, nothing to persist.
+            patch.addPragmaDirective(Operation.PRAGMA_DIRECTIVE_STATE_NOT_MODIFIED);
+            patch.complete();
+            return;
         case FINISHED:
             currentState.completionsRemaining--;
             currentState.finishedCount++;
@@ -138,12 +179,7 @@ public class CounterSubTaskService extends StatefulService {
         case CANCELLED:
             currentState.completionsRemaining--;
             currentState.failCount++;
-            double failedRatio = (double) currentState.failCount / (double) (currentState
-                    .finishedCount
-                    + currentState.failCount + currentState.completionsRemaining);
-
-            if (currentState.errorThreshold == 0 ||
-                    failedRatio > currentState.errorThreshold) {
+            if (isOverErrorThreshold(currentState)) {
                 logWarning("Notifying parent of task failure from stage %s. Error: %s",
                         patchBody.taskInfo.stage, patchBody.taskInfo.failure == null ? "n.a."
                                 : patchBody.taskInfo.failure.message);
@@ -166,11 +202,68 @@ public class CounterSubTaskService extends StatefulService {
             return;
         }
 
+        notifyParent(currentState, patchBody.taskInfo);
+    }
+
+    private void handleCheckpoint(Operation patch, CounterSubTaskCheckpoint checkpoint) {
+        CounterSubTaskState currentState = getState(patch);
+        Long appliedSequence = currentState.checkpointSequences == null ? null
+                : currentState.checkpointSequences.get(checkpoint.batchId);
+        if (currentState.completionsRemaining <= 0
+                || (appliedSequence != null && appliedSequence >= checkpoint.sequence)) {
+            // completed already, or a retry of an applied checkpoint
+            patch.addPragmaDirective(Operation.PRAGMA_DIRECTIVE_STATE_NOT_MODIFIED);
+            patch.setBody(currentState);
+            patch.complete();
+            return;
+        }
+
+        if (currentState.checkpointSequences == null) {
+            currentState.checkpointSequences = new HashMap<>();
+        }
+        currentState.checkpointSequences.put(checkpoint.batchId, checkpoint.sequence);
+        currentState.completionsRemaining -= checkpoint.finishedCount + checkpoint.failCount;
+        currentState.finishedCount += checkpoint.finishedCount;
+        currentState.failCount += checkpoint.failCount;
+        currentState.customProperties = mergeCustomProperties(currentState.customProperties,
+                checkpoint.customProperties);
+
+        TaskState lastTaskInfo = checkpoint.taskInfo;
+        if (checkpoint.failCount > 0 && isOverErrorThreshold(currentState)) {
+            logWarning("Notifying parent of task failure. Error: %s",
+                    lastTaskInfo.failure == null ? "n.a." : lastTaskInfo.failure.message);
+            lastTaskInfo = TaskState.createAsFailed();
+            lastTaskInfo.failure = checkpoint.taskInfo.failure;
+            currentState.completionsRemaining = 0;
+        }
+
+        boolean isFinished = currentState.completionsRemaining <= 0;
+        if (isFinished) {
+            currentState.completionsRemaining = 0;
+        }
+        patch.setBody(currentState);
+        patch.complete();
+
+        if (!isFinished) {
+            logInfo("Remaining %d", currentState.completionsRemaining);
+            return;
+        }
+
+        notifyParent(currentState, lastTaskInfo);
+    }
+
+    private static boolean isOverErrorThreshold(CounterSubTaskState state) {
+        double failedRatio = (double) state.failCount
+                / (double) (state.finishedCount + state.failCount + state.completionsRemaining);
+        return state.errorThreshold == 0 || failedRatio > state.errorThreshold;
+    }
+
+    private void notifyParent(CounterSubTaskState currentState, TaskState lastTaskInfo) {
         ServiceTaskCallbackResponse responseBody;
-        if (TaskStage.FINISHED == patchBody.taskInfo.stage) {
+        if (TaskStage.FINISHED == lastTaskInfo.stage) {
             responseBody = currentState.getFinishedResponse();
         } else {
-            responseBody = currentState.getFailedResponse(patchBody.taskInfo.failure);
+            responseBody = currentState.getFailedResponse(lastTaskInfo.failure);
         }
 
         responseBody.customProperties = mergeCustomProperties(
@@ -12,6 +12,9 @@
 package com.vmware.admiral.service.common;
 
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 import com.vmware.admiral.common.ManagementUriParts;
@@ -22,10 +25,18 @@ import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.ServiceDocumentDescription;
 import com.vmware.xenon.common.ServiceDocumentDescription.PropertyIndexingOption;
 import com.vmware.xenon.common.StatefulService;
+import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
 
 /**
  * LogService is log management service which maintains the logs of a container.
+ *
+ * The logs are kept by the service in memory in a {@link ChunkedLog} and only the rest of the
+ * state is persisted. An update with {@link LogServiceState#lastLogTimestamp} appends the logs
+ * fetched after the timestamp of the kept ones. A GET with the {@link #TAIL_QUERY_PARAM},
+ * {@link #SINCE_QUERY_PARAM} or {@link #OFFSET_QUERY_PARAM} query parameter reads only the part
+ * of the logs asked for, from the chunks holding it. The logs are not kept across restarts, the
+ * next fetch reads them from the container again.
  */
 public class LogService extends StatefulService {
     private static final String CONTAINER_LOG_MAX_SIZE_PROPERTY = "container.log.max.size";
@@ -33,8 +44,23 @@ public class LogService extends StatefulService {
     public static final int DEFAULT_MAX_LOG_SIZE_VALUE = 16 * 1024 * 1024;
     public static final int MAX_LOG_SIZE = getMaxLogSize();
 
+    private static final int LOG_CHUNK_SIZE = Integer.getInteger(
+            "com.vmware.admiral.service.common.log.chunk.size", 64 * 1024);
+
     public static final String FACTORY_LINK = ManagementUriParts.LOGS;
 
+    /** Reads the given number of last lines of the logs. */
+    public static final String TAIL_QUERY_PARAM = "tail";
+
+    /** Reads the logs logged since the given Docker timestamp, in seconds since the epoch. */
+    public static final String SINCE_QUERY_PARAM = "since";
+
+    /**
+     * Reads the logs following the given offset, the {@link LogServiceState#nextOffset} of a
+     * previous read.
+     */
+    public static final String OFFSET_QUERY_PARAM = "offset";
+
     protected static final long DEFAULT_EXPIRATION_MICROS = Long.getLong(
             "com.vmware.admiral.service.common.expiration.micros", TimeUnit.MINUTES.toMicros(5));
 
@@ -51,8 +77,65 @@ public class LogService extends StatefulService {
                 PropertyIndexingOption.STORE_ONLY,
                 PropertyIndexingOption.EXCLUDE_FROM_SIGNATURE })
         public byte[] logs;
+
+        /**
+         * Docker timestamp of the last line of the logs. An update with it appends the logs to
+         * the kept ones, provided they were fetched after the kept ones, i.e. its
+         * {@link #sinceLogTimestamp} is the lastLogTimestamp of the kept logs. An update
+         * without it replaces the logs.
+         */
+        @Documentation(description = "Docker timestamp of the last line of the logs.")
+        public String lastLogTimestamp;
+
+        /**
+         * Docker timestamp the logs of an update were fetched after, {@code null} if the update
+         * carries the whole container log.
+         */
+        @Documentation(description = "Docker timestamp the logs were fetched after.")
+        public String sinceLogTimestamp;
+
+        /**
+         * The seconds the appended logs were logged in, by the offset in {@link #logs} of the
+         * first line of each second, so they can be read with {@link #SINCE_QUERY_PARAM}.
+         */
+        @Documentation(description = "The seconds the logs were logged in.")
+        @PropertyOptions(indexing = {
+                PropertyIndexingOption.STORE_ONLY,
+                PropertyIndexingOption.EXCLUDE_FROM_SIGNATURE })
+        public List<LogSecond> logSeconds;
+
+        /**
+         * Offset following the read logs, from which the logs appended next are read with
+         * {@link #OFFSET_QUERY_PARAM}.
+         */
+        @Documentation(description = "Offset following the read logs.")
+        public Long nextOffset;
     }
 
+    /**
+     * Second in which the lines of the logs from an offset on were logged.
+     */
+    public static class LogSecond {
+        /** Offset in the logs of the first line logged in the second */
+        public int offset;
+
+        /** The second, since the epoch */
+        public long second;
+
+        public LogSecond() {
+        }
+
+        public LogSecond(int offset, long second) {
+            this.offset = offset;
+            this.second = second;
+        }
+    }
+
+    private final ChunkedLog log = new ChunkedLog(LOG_CHUNK_SIZE, MAX_LOG_SIZE);
+
+    // timestamp of the last line of the kept logs, null unless they hold the whole container log
+    private String lastLogTimestamp;
+
     public LogService() {
         super(LogServiceState.class);
         super.toggleOption(Service.ServiceOption.PERSISTENCE, true);
@@ -82,6 +165,51 @@ public class LogService extends StatefulService {
         startPost.complete();
     }
 
+    @Override
+    public void handleStart(Operation start) {
+        if (start.hasBody()) {
+            // also moves the logs of a state persisted with them to the chunked log
+            LogServiceState state = start.getBody(LogServiceState.class);
+            writeLogs(state);
+            start.setBody(state);
+        }
+        start.complete();
+    }
+
+    @Override
+    public void handleGet(Operation get) {
+        LogServiceState state = Utils.clone(getState(get));
+
+        Map<String, String> params = UriUtils.parseUriQueryParams(get.getUri());
+        String param = null;
+        try {
+            synchronized (this.log) {
+                if (params.containsKey(TAIL_QUERY_PARAM)) {
+                    param = TAIL_QUERY_PARAM;
+                    state.logs = this.log.readTail(Integer.parseInt(params.get(param)));
+                } else if (params.containsKey(SINCE_QUERY_PARAM)) {
+                    param = SINCE_QUERY_PARAM;
+                    // Docker takes fractions of the second as well
+                    state.logs = this.log.readSince(
+                            (long) Double.parseDouble(params.get(param)));
+                } else if (params.containsKey(OFFSET_QUERY_PARAM)) {
+                    param = OFFSET_QUERY_PARAM;
+                    state.logs = this.log.readFrom(Long.parseLong(params.get(param)));
+                } else {
+                    state.logs = this.log.read();
+                }
+                state.lastLogTimestamp = this.lastLogTimestamp;
+                state.nextOffset = this.log.getEndPosition();
+            }
+        } catch (NumberFormatException e) {
+            get.fail(new IllegalArgumentException(String.format(
+                    "Invalid value of query parameter '%s'", param)));
+            return;
+        }
+
+        get.setBody(state).complete();
+    }
+
     @Override
     public void handlePut(Operation put) {
         if (!checkForBody(put)) {
@@ -91,9 +219,7 @@ public class LogService extends StatefulService {
         LogServiceState currentState = getState(put);
         LogServiceState newState = put.getBody(LogServiceState.class);
 
-        if (newState.logs != null) {
-            currentState.logs = newState.logs;
-        }
+        writeLogs(newState);
         // workaround for NullPointerException in xenon when the service has no REPLICATION option
         if (currentState.documentEpoch == null) {
             currentState.documentEpoch = 0L;
@@ -102,6 +228,45 @@ public class LogService extends StatefulService {
         put.setBody(currentState).complete();
     }
 
+    private void writeLogs(LogServiceState state) {
+        if (state.logs != null) {
+            synchronized (this.log) {
+                if (state.lastLogTimestamp == null || state.sinceLogTimestamp == null) {
+                    this.log.clear();
+                    appendLogs(state);
+                } else if (Objects.equals(state.sinceLogTimestamp, this.lastLogTimestamp)) {
+                    appendLogs(state);
+                } else {
+                    // fetched after other logs than the kept ones, e.g. by a concurrent fetch
+                    // which has already appended them
+                    logFine("Skipping logs fetched since %s, the kept logs end at %s",
+                            state.sinceLogTimestamp, this.lastLogTimestamp);
+                    state.lastLogTimestamp = this.lastLogTimestamp;
+                }
+                this.lastLogTimestamp = state.lastLogTimestamp;
+            }
+        }
+        state.logs = null;
+        state.lastLogTimestamp = null;
+        state.sinceLogTimestamp = null;
+        state.logSeconds = null;
+        state.nextOffset = null;
+    }
+
+    private void appendLogs(LogServiceState state) {
+        int from = 0;
+        long second = ChunkedLog.NO_SECOND;
+        if (state.logSeconds != null) {
+            for (LogSecond logSecond : state.logSeconds) {
+                int to = Math.max(from, Math.min(logSecond.offset, state.logs.length));
+                this.log.append(state.logs, from, to, second);
+                from = to;
+                second = logSecond.second;
+            }
+        }
+        this.log.append(state.logs, from, state.logs.length, second);
+    }
+
     /* Workaround for https://www.pivotaltracker.com/n/projects/1471320/stories/143794415
      * to not overload the storage with container logs.
      * Remove when bug is fixed.*/
@@ -116,8 +281,9 @@ public class LogService extends StatefulService {
     }
 
     protected void doMaintenance(Operation post, String selfLink, long documentExpirationTime) {
+        // the logs themselves are not needed
         sendRequest(Operation
-                .createGet(this, selfLink)
+                .createGet(UriUtils.buildUri(getHost(), selfLink, TAIL_QUERY_PARAM + "=0"))
                 .setCompletion((o, ex) -> {
                     if (ex != null) {
                         post.fail(ex);
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.service.common;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.service.common.AbstractTaskStatefulService.TaskStatusState;
+import com.vmware.xenon.common.Claims;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.TaskState;
+import com.vmware.xenon.common.TaskState.TaskStage;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Node local service which coalesces the request tracker updates of the tasks running on the node.
+ *
+ * The updates of a request tracker are kept for a short window, during which a newer update of
+ * the same task replaces the older one, and are then applied in order by a single PATCH of the
+ * tracker carrying all of them in {@link TaskStatusState#coalescedUpdates}. A FINISHED or FAILED update
+ * flushes the pending updates of its tracker right away and the POST carrying it completes with
+ * the result of the PATCH, so the caller can retry it. Other updates complete as soon as they are
+ * queued.
+ *
+ * The updates are kept apart per authorization subject of the posting tasks and each PATCH is sent
+ * with the authorization context of the updates it carries, so the tracker authorizes them the same
+ * way as when the tasks patch it directly.
+ */
+public class RequestProgressAggregatorService extends StatelessService {
+    public static final String SELF_LINK = ManagementUriParts.REQUEST_PROGRESS_AGGREGATOR;
+
+    public static final String COALESCE_WINDOW_MILLIS_PROPERTY =
+            "com.vmware.admiral.request.tracker.coalesce.window.millis";
+    private static final long COALESCE_WINDOW_MILLIS = Long.getLong(
+            COALESCE_WINDOW_MILLIS_PROPERTY, 500);
+
+    public static class RequestTrackerUpdate {
+        /** Link of the request tracker to update. */
+        public String requestTrackerLink;
+
+        /** Status of the task to apply to the request tracker. */
+        public TaskStatusState taskStatus;
+    }
+
+    private final Map<String, PendingUpdates> pendingUpdates = new HashMap<>();
+    private final long coalesceWindowMillis;
+
+    public RequestProgressAggregatorService() {
+        this(COALESCE_WINDOW_MILLIS);
+    }
+
+    public RequestProgressAggregatorService(long coalesceWindowMillis) {
+        this.coalesceWindowMillis = coalesceWindowMillis;
+    }
+
+    @Override
+    public void handlePost(Operation post) {
+        RequestTrackerUpdate update = post.getBody(RequestTrackerUpdate.class);
+        if (update.requestTrackerLink == null || update.taskStatus == null
+                || update.taskStatus.documentSelfLink == null) {
+            post.fail(new IllegalArgumentException(
+                    "requestTrackerLink and taskStatus.documentSelfLink are required"));
+            return;
+        }
+
+        AuthorizationContext authorizationContext = post.getAuthorizationContext();
+        String key = update.requestTrackerLink + "|" + getSubject(authorizationContext);
+        boolean schedule;
+        synchronized (this.pendingUpdates) {
+            PendingUpdates pending = this.pendingUpdates.get(key);
+            schedule = pending == null;
+            if (schedule) {
+                pending = new PendingUpdates(update.requestTrackerLink);
+                this.pendingUpdates.put(key, pending);
+            }
+            // the latest context of the subject is used, an earlier token may have expired
+            pending.authorizationContext = authorizationContext;
+            pending.add(update.taskStatus);
+        }
+
+        if (isTerminal(update.taskStatus.taskInfo)) {
+            flush(key, post);
+            return;
+        }
+
+        if (schedule) {
+            getHost().schedule(() -> flush(key, null),
+                    this.coalesceWindowMillis, TimeUnit.MILLISECONDS);
+        }
+        post.complete();
+    }
+
+    private void flush(String key, Operation post) {
+        PendingUpdates pending;
+        synchronized (this.pendingUpdates) {
+            pending = this.pendingUpdates.remove(key);
+        }
+        if (pending == null) {
+            // already flushed by a terminal update
+            return;
+        }
+
+        TaskStatusState body = new TaskStatusState();
+        body.coalescedUpdates = pending.updates;
+
+        // the scheduled flush does not run in the context of the posting tasks
+        sendRequest(Operation.createPatch(this, pending.requestTrackerLink)
+                .setBody(body)
+                .setAuthorizationContext(pending.authorizationContext)
+                .setCompletion((o, e) -> {
+                    if (post != null) {
+                        if (e != null) {
+                            post.fail(e);
+                        } else {
+                            post.complete();
+                        }
+                    } else if (e != null) {
+                        logWarning("Failed to update request tracker: %s. Error: %s",
+                                pending.requestTrackerLink, Utils.toString(e));
+                    }
+                }));
+    }
+
+    /**
+     * Updates of a request tracker in the order they were received. A newer update of a task
+     * replaces the older one, unless the older one carries a name, resource links or event log
+     * link, which the tracker applies only once.
+     */
+    private static class PendingUpdates {
+        private final String requestTrackerLink;
+        private final List<TaskStatusState> updates = new ArrayList<>();
+        private final Map<String, TaskStatusState> replaceableUpdates = new HashMap<>();
+        private AuthorizationContext authorizationContext;
+
+        private PendingUpdates(String requestTrackerLink) {
+            this.requestTrackerLink = requestTrackerLink;
+        }
+
+        private void add(TaskStatusState update) {
+            String key = update.documentSelfLink + update.phase;
+            TaskStatusState replaced = this.replaceableUpdates.remove(key);
+            if (replaced != null) {
+                this.updates.remove(replaced);
+            }
+            this.updates.add(update);
+            if (update.name == null && update.resourceLinks == null
+                    && update.eventLogLink == null) {
+                this.replaceableUpdates.put(key, update);
+            }
+        }
+    }
+
+    private static String getSubject(AuthorizationContext authorizationContext) {
+        Claims claims = authorizationContext == null ? null : authorizationContext.getClaims();
+        return claims == null ? null : claims.getSubject();
+    }
+
+    private static boolean isTerminal(TaskState taskInfo) {
+        return taskInfo != null && (taskInfo.stage == TaskStage.FINISHED
+                || taskInfo.stage == TaskStage.FAILED);
+    }
+}
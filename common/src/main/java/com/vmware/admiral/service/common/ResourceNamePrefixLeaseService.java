@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.service.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.service.common.ResourceNamePrefixService.NamePrefixBlock;
+import com.vmware.admiral.service.common.ResourceNamePrefixService.NamePrefixRequest;
+import com.vmware.admiral.service.common.ResourceNamePrefixService.NamePrefixResponse;
+import com.vmware.xenon.common.Claims;
+import com.vmware.xenon.common.DeferredResult;
+import com.vmware.xenon.common.LocalizableValidationException;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.Utils;
+
+/**
+ * Node local service handing out resource name prefixes from blocks of numbers leased from the
+ * {@link ResourceNamePrefixService} documents, so the generation of names is not serialized on
+ * the owner of the document.
+ *
+ * The names of a block are taken with an atomic counter. The next block is leased in the
+ * background once the current one is running out, and a block which has not been used up within
+ * {@link #BLOCK_EXPIRATION_MILLIS_PROPERTY} is dropped, so changes of the prefix are applied.
+ *
+ * The blocks are leased with the authorization context of the caller and are kept per prefix and
+ * caller, so names are only handed out to callers authorized to update the prefix document.
+ */
+public class ResourceNamePrefixLeaseService extends StatelessService {
+    public static final String SELF_LINK = ManagementUriParts.RESOURCE_NAME_PREFIX_LEASES;
+
+    public static final String BLOCK_SIZE_PROPERTY = "dcp.management.name.prefix.block.size";
+    public static final String BLOCK_EXPIRATION_MILLIS_PROPERTY =
+            "dcp.management.name.prefix.block.expiration.millis";
+    private static final long BLOCK_SIZE = Long.getLong(BLOCK_SIZE_PROPERTY, 1000);
+    private static final long BLOCK_EXPIRATION_MILLIS = Long.getLong(
+            BLOCK_EXPIRATION_MILLIS_PROPERTY, TimeUnit.MINUTES.toMillis(1));
+
+    public static class NamePrefixLeaseRequest {
+        /** Link of the resource name prefix to hand out the names of. */
+        public String resourceNamePrefixLink;
+
+        public long resourceCount;
+    }
+
+    private final Map<String, LeasedBlocks> leasedBlocks = new ConcurrentHashMap<>();
+
+    public ResourceNamePrefixLeaseService() {
+        super.toggleOption(ServiceOption.PERIODIC_MAINTENANCE, true);
+        super.setMaintenanceIntervalMicros(TimeUnit.MILLISECONDS.toMicros(BLOCK_EXPIRATION_MILLIS));
+    }
+
+    @Override
+    public void handlePost(Operation post) {
+        NamePrefixLeaseRequest request = post.getBody(NamePrefixLeaseRequest.class);
+        if (request.resourceNamePrefixLink == null) {
+            post.fail(new IllegalArgumentException("resourceNamePrefixLink is required"));
+            return;
+        }
+        if (request.resourceCount <= 0) {
+            post.fail(new LocalizableValidationException(
+                    "Requested resource count must be positive number.",
+                    "common.name-prefix.count.positive"));
+            return;
+        }
+
+        AuthorizationContext authorizationContext = post.getAuthorizationContext();
+        String key = request.resourceNamePrefixLink + "|" + getSubject(authorizationContext);
+        LeasedBlocks blocks = this.leasedBlocks.computeIfAbsent(key,
+                k -> new LeasedBlocks(request.resourceNamePrefixLink));
+        handOut(blocks, request.resourceCount, new ArrayList<>((int) request.resourceCount),
+                post);
+    }
+
+    @Override
+    public void handlePeriodicMaintenance(Operation post) {
+        // drops the blocks of callers which have not requested names since they expired
+        this.leasedBlocks.values().removeIf(LeasedBlocks::isIdle);
+        post.complete();
+    }
+
+    private void handOut(LeasedBlocks blocks, long count, List<String> names, Operation post) {
+        while (names.size() < count) {
+            Block block = blocks.getCurrent();
+            if (block == null) {
+                blocks.lease(this, post.getAuthorizationContext()).whenComplete((ignore, e) -> {
+                    if (e != null) {
+                        post.fail(e);
+                        return;
+                    }
+                    handOut(blocks, count, names, post);
+                });
+                return;
+            }
+            if (count > block.range) {
+                post.fail(new LocalizableValidationException(
+                        "Requested resource count must be less than the range.",
+                        "common.name-prefix.count.range"));
+                return;
+            }
+            block.take(count - names.size(), names);
+        }
+
+        if (blocks.isRunningOut()) {
+            blocks.lease(this, post.getAuthorizationContext()).whenComplete((ignore, e) -> {
+                if (e != null) {
+                    logWarning("Failed to lease the next block of %s: %s",
+                            blocks.resourceNamePrefixLink, Utils.toString(e));
+                }
+            });
+        }
+
+        NamePrefixResponse response = new NamePrefixResponse();
+        response.resourceNamePrefixes = names;
+        post.setBodyNoCloning(response).complete();
+    }
+
+    private static String getSubject(AuthorizationContext authorizationContext) {
+        Claims claims = authorizationContext == null ? null : authorizationContext.getClaims();
+        return claims == null ? null : claims.getSubject();
+    }
+
+    /**
+     * The blocks of a resource name prefix leased by the node for a caller.
+     */
+    private static class LeasedBlocks {
+        private final String resourceNamePrefixLink;
+        private Block current;
+        private Block next;
+        private DeferredResult<Void> leasing;
+
+        private LeasedBlocks(String resourceNamePrefixLink) {
+            this.resourceNamePrefixLink = resourceNamePrefixLink;
+        }
+
+        /**
+         * Returns the block to take the names from, or {@code null} if a block has to be leased.
+         */
+        private synchronized Block getCurrent() {
+            if (this.current != null && this.current.isUsable()) {
+                return this.current;
+            }
+            this.current = this.next != null && this.next.isUsable() ? this.next : null;
+            this.next = null;
+            return this.current;
+        }
+
+        private synchronized boolean isIdle() {
+            return this.leasing == null && (this.current == null || !this.current.isUsable())
+                    && (this.next == null || !this.next.isUsable());
+        }
+
+        private synchronized boolean isRunningOut() {
+            return this.next == null && this.leasing == null
+                    && (this.current == null || this.current.remaining() < BLOCK_SIZE / 4);
+        }
+
+        /**
+         * Leases a block with the given authorization context, unless one is already being
+         * leased.
+         */
+        private synchronized DeferredResult<Void> lease(StatelessService service,
+                AuthorizationContext authorizationContext) {
+            if (this.leasing != null) {
+                return this.leasing;
+            }
+            DeferredResult<Void> leasing = new DeferredResult<>();
+            this.leasing = leasing;
+
+            NamePrefixRequest request = new NamePrefixRequest();
+            request.resourceCount = BLOCK_SIZE;
+            request.leaseBlock = true;
+            service.sendRequest(Operation.createPatch(service, this.resourceNamePrefixLink)
+                    .setBody(request)
+                    .setAuthorizationContext(authorizationContext)
+                    .setCompletion((o, e) -> {
+                        synchronized (this) {
+                            this.leasing = null;
+                            if (e == null) {
+                                Block block = new Block(
+                                        o.getBody(NamePrefixResponse.class).block);
+                                if (this.current == null || !this.current.isUsable()) {
+                                    this.current = block;
+                                } else {
+                                    this.next = block;
+                                }
+                            }
+                        }
+                        if (e != null) {
+                            leasing.fail(e);
+                        } else {
+                            leasing.complete(null);
+                        }
+                    }));
+            return leasing;
+        }
+    }
+
+    private static class Block {
+        private final String prefix;
+        private final boolean addRandomToken;
+        private final long range;
+        private final long end;
+        private final long expirationTimeMillis;
+        private final AtomicLong nextNumber;
+
+        private Block(NamePrefixBlock block) {
+            this.prefix = block.prefix;
+            this.addRandomToken = block.addRandomToken;
+            this.range = block.range;
+            this.end = block.firstNumber + block.count;
+            this.expirationTimeMillis = System.currentTimeMillis() + BLOCK_EXPIRATION_MILLIS;
+            this.nextNumber = new AtomicLong(block.firstNumber);
+        }
+
+        private boolean isUsable() {
+            return remaining() > 0 && System.currentTimeMillis() < this.expirationTimeMillis;
+        }
+
+        private long remaining() {
+            return Math.max(0, this.end - this.nextNumber.get());
+        }
+
+        /**
+         * Takes up to the given number of names, fewer if the block runs out.
+         */
+        private void take(long count, List<String> names) {
+            long first = this.nextNumber.getAndAdd(count);
+            long last = Math.min(first + count, this.end);
+            for (long number = first; number < last; number++) {
+                names.add(ResourceNamePrefixService.buildNamePrefix(this.prefix, number,
+                        this.addRandomToken));
+            }
+        }
+    }
+}
@@ -40,6 +40,9 @@ import com.vmware.xenon.common.UriUtils;
  * A prefix is a base name to be followed by a counter of a specified number of digits. When the
  * digits have all been used the service rolls back to the first number (which potentially might
  * cause issue if the resources are still not removed).
+ *
+ * Besides names, the service leases blocks of counter values to the
+ * {@link ResourceNamePrefixLeaseService} of each node, which hands the names out locally.
  */
 public class ResourceNamePrefixService extends StatefulService {
     public static final String FACTORY_LINK = ManagementUriParts.RESOURCE_NAME_PREFIXES;
@@ -50,6 +53,8 @@ public class ResourceNamePrefixService extends StatefulService {
     private static final Boolean DEFAULT_ADD_RANDOM_TOKEN = Boolean.TRUE;
     private static final long SINCE_TIME = new GregorianCalendar(2016, Calendar.JANUARY, 1)
             .getTime().getTime();
+    // a block is at most a part of the range, so the nodes do not use up small ranges at once
+    private static final long MAX_BLOCK_RANGE_DIVISOR = 10;
 
     static ServiceDocument buildDefaultStateInstance() {
         ResourceNamePrefixState state = new ResourceNamePrefixState();
@@ -117,11 +122,29 @@ public class ResourceNamePrefixService extends StatefulService {
     /** An DTO used during PATCH request in order to get the next prefix in the sequence. */
     public static class NamePrefixRequest {
         public long resourceCount;
+
+        /** Whether to lease a block of up to resourceCount numbers instead of prefixes. */
+        public boolean leaseBlock;
     }
 
     /** An DTO used during PATCH response in order to return the requested prefixes. */
     public static class NamePrefixResponse {
         public List<String> resourceNamePrefixes;
+
+        /** The leased block, when requested. */
+        public NamePrefixBlock block;
+    }
+
+    /** A block of consecutive numbers of the sequence leased to a node. */
+    public static class NamePrefixBlock {
+        public String prefix;
+        public boolean addRandomToken;
+
+        /** The range of the sequence, the maximum number of prefixes of a single request. */
+        public long range;
+
+        public long firstNumber;
+        public long count;
     }
 
     public ResourceNamePrefixService() {
@@ -195,38 +218,72 @@ public class ResourceNamePrefixService extends StatefulService {
             patch.fail(new LocalizableValidationException(
                     "Requested resource count must be positive number.", "common.name-prefix.count.positive"));
             return;
-        } else if (request.resourceCount > state.getRange()) {
+        } else if (request.resourceCount > state.getRange() && !request.leaseBlock) {
             patch.fail(new LocalizableValidationException(
                     "Requested resource count must be less than the range.", "common.name-prefix.count.range"));
             return;
         }
 
         NamePrefixResponse response = new NamePrefixResponse();
+        if (request.leaseBlock) {
+            response.block = leaseBlock(state, request.resourceCount);
+            patch.setBodyNoCloning(response);
+            patch.complete();
+            return;
+        }
+
         response.resourceNamePrefixes = new ArrayList<String>((int) request.resourceCount);
 
         for (int i = 0; i < request.resourceCount; i++) {
-            final StringBuilder namePrefix = new StringBuilder();
-            namePrefix.append(state.prefix);
-            namePrefix.append(state.currentCount++);
-            if (state.addRandomToken) {
-                namePrefix.append(RANDOM_GENERATED_TOKEN_DELIMITER);
-                //adding time since 2016 as shortest and smallest possible guaranteed random token
-                long timestamp = System.currentTimeMillis() - SINCE_TIME;
-                namePrefix.append(timestamp);
-            }
-            response.resourceNamePrefixes.add(namePrefix.toString());
-            if (state.currentCount > state.getMaxNumber()) {
-                // reset back to the beginning.
-                logWarning("Reseting name prefix counter [%s] to initial value [%s]...",
-                        state.currentCount, state.nextNumber);
-                state.currentCount = state.nextNumber;
-            }
+            response.resourceNamePrefixes.add(buildNamePrefix(state.prefix,
+                    state.currentCount++, state.addRandomToken));
+            resetCurrentCountIfExceeded(state);
         }
 
         patch.setBodyNoCloning(response);
         patch.complete();
     }
 
+    private NamePrefixBlock leaseBlock(ResourceNamePrefixState state, long count) {
+        NamePrefixBlock block = new NamePrefixBlock();
+        block.prefix = state.prefix;
+        block.addRandomToken = state.addRandomToken;
+        block.range = state.getRange();
+        block.firstNumber = state.currentCount;
+        // the block ends where the counter is reset
+        block.count = Math.min(Math.min(count,
+                Math.max(1, state.getRange() / MAX_BLOCK_RANGE_DIVISOR)),
+                state.getMaxNumber() - state.currentCount + 1);
+        state.currentCount += block.count;
+        resetCurrentCountIfExceeded(state);
+        return block;
+    }
+
+    private void resetCurrentCountIfExceeded(ResourceNamePrefixState state) {
+        if (state.currentCount > state.getMaxNumber()) {
+            // reset back to the beginning.
+            logWarning("Reseting name prefix counter [%s] to initial value [%s]...",
+                    state.currentCount, state.nextNumber);
+            state.currentCount = state.nextNumber;
+        }
+    }
+
+    /**
+     * Builds the name prefix with the given number of the sequence.
+     */
+    public static String buildNamePrefix(String prefix, long number, boolean addRandomToken) {
+        final StringBuilder namePrefix = new StringBuilder();
+        namePrefix.append(prefix);
+        namePrefix.append(number);
+        if (addRandomToken) {
+            namePrefix.append(RANDOM_GENERATED_TOKEN_DELIMITER);
+            //adding time since 2016 as shortest and smallest possible guaranteed random token
+            long timestamp = System.currentTimeMillis() - SINCE_TIME;
+            namePrefix.append(timestamp);
+        }
+        return namePrefix.toString();
+    }
+
     @Override
     public ServiceDocument getDocumentTemplate() {
         ServiceDocument template = super.getDocumentTemplate();
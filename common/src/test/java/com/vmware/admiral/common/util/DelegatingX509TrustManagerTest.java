@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.X509TrustManager;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.photon.controller.model.security.util.CertificateUtil;
+import com.vmware.photon.controller.model.security.util.KeyUtil;
+
+public class DelegatingX509TrustManagerTest {
+    private static final int OTHER_DELEGATES_COUNT = 5;
+
+    private DelegatingX509TrustManager trustManager;
+    private X509Certificate caCertificate;
+    private X509Certificate[] serverChain;
+    private CountingTrustManager caDelegate;
+    private List<CountingTrustManager> otherDelegates;
+
+    @Before
+    public void setUp() throws Exception {
+        trustManager = new DelegatingX509TrustManager();
+
+        KeyPair caKeyPair = KeyUtil.generateRSAKeyPair();
+        caCertificate = createCaCertificate("CN=test-ca", caKeyPair);
+        serverChain = new X509Certificate[] { CertificateUtil.generateSigned("server.test",
+                caCertificate, caKeyPair.getPrivate()).getCertificate() };
+
+        otherDelegates = new ArrayList<>();
+        for (int i = 0; i < OTHER_DELEGATES_COUNT; i++) {
+            CountingTrustManager delegate = new CountingTrustManager(createTrustManager(
+                    createCaCertificate("CN=other-ca-" + i, KeyUtil.generateRSAKeyPair())));
+            otherDelegates.add(delegate);
+            trustManager.putDelegate("other-" + i, delegate);
+        }
+        caDelegate = new CountingTrustManager(createTrustManager(caCertificate));
+        trustManager.putDelegate("ca", caDelegate);
+    }
+
+    @Test
+    public void testChainIsCheckedOnlyByTheDelegateTrustingItsIssuer() throws Exception {
+        trustManager.checkServerTrusted(serverChain, "RSA");
+        trustManager.checkServerTrusted(serverChain, "RSA");
+
+        // the second check is served by the trusted chains cache
+        assertEquals(1, caDelegate.checks.get());
+        for (CountingTrustManager delegate : otherDelegates) {
+            assertEquals(0, delegate.checks.get());
+        }
+    }
+
+    @Test
+    public void testChainIsNotTrustedAfterItsDelegateIsRemoved() throws Exception {
+        trustManager.checkServerTrusted(serverChain, "RSA");
+
+        trustManager.removeDelegate("ca");
+
+        try {
+            trustManager.checkServerTrusted(serverChain, "RSA");
+            fail("Should not trust a chain whose issuer is not trusted anymore");
+        } catch (CertificateException ignored) {
+        }
+        for (CountingTrustManager delegate : otherDelegates) {
+            assertEquals(0, delegate.checks.get());
+        }
+    }
+
+    @Test
+    public void testDelegateWithoutTrustedCertificatesIsChecked() throws Exception {
+        trustManager.removeDelegate("ca");
+        CountingTrustManager unindexedDelegate = new CountingTrustManager(caDelegate) {
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return new X509Certificate[0];
+            }
+        };
+        trustManager.putDelegate("unindexed", unindexedDelegate);
+
+        trustManager.checkServerTrusted(serverChain, "RSA");
+
+        assertEquals(1, unindexedDelegate.checks.get());
+    }
+
+    @Test
+    public void testChainIsNotCachedWhenItsDelegateIsRemovedDuringTheCheck() throws Exception {
+        trustManager.putDelegate("ca", new CountingTrustManager(caDelegate) {
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType)
+                    throws CertificateException {
+                super.checkServerTrusted(chain, authType);
+                // removed after accepting the chain, before the chain is cached
+                trustManager.removeDelegate("ca");
+            }
+        });
+
+        trustManager.checkServerTrusted(serverChain, "RSA");
+
+        try {
+            trustManager.checkServerTrusted(serverChain, "RSA");
+            fail("Should not trust a chain accepted by a removed delegate");
+        } catch (CertificateException ignored) {
+        }
+    }
+
+    @Test
+    public void testChainIsNotCachedPastItsExpiration() throws Exception {
+        long now = System.currentTimeMillis();
+        X509Certificate[] expiredChain = new X509Certificate[] { createCaCertificate(
+                "CN=expired-ca", KeyUtil.generateRSAKeyPair(),
+                new Date(now - TimeUnit.DAYS.toMillis(1)), new Date(now - 1)) };
+        CountingTrustManager acceptingDelegate = new CountingTrustManager(caDelegate) {
+            @Override
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                checks.incrementAndGet();
+            }
+
+            @Override
+            public X509Certificate[] getAcceptedIssuers() {
+                return expiredChain;
+            }
+        };
+        trustManager.putDelegate("accepting", acceptingDelegate);
+
+        trustManager.checkServerTrusted(expiredChain, "RSA");
+        trustManager.checkServerTrusted(expiredChain, "RSA");
+
+        // the chain expired, so it is checked again instead of being served by the cache
+        assertEquals(2, acceptingDelegate.checks.get());
+    }
+
+    private static X509Certificate createCaCertificate(String name, KeyPair keyPair)
+            throws Exception {
+        long now = System.currentTimeMillis();
+        return createCaCertificate(name, keyPair, new Date(now - TimeUnit.HOURS.toMillis(1)),
+                new Date(now + TimeUnit.DAYS.toMillis(1)));
+    }
+
+    private static X509Certificate createCaCertificate(String name, KeyPair keyPair,
+            Date notBefore, Date notAfter) throws Exception {
+        X500Name subject = new X500Name(name);
+        JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(subject,
+                BigInteger.valueOf(System.nanoTime()), notBefore, notAfter, subject,
+                keyPair.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+        return new JcaX509CertificateConverter().getCertificate(builder.build(
+                new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+    }
+
+    private static X509TrustManager createTrustManager(X509Certificate certificate)
+            throws Exception {
+        KeyStore trustStore = CertificateUtil.createEmptyKeyStore();
+        trustStore.setCertificateEntry("trusted", certificate);
+        return (X509TrustManager) CertificateUtil.getTrustManagers(trustStore)[0];
+    }
+
+    private static class CountingTrustManager implements X509TrustManager {
+        private final X509TrustManager delegate;
+        protected final AtomicInteger checks = new AtomicInteger();
+
+        private CountingTrustManager(X509TrustManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType)
+                throws CertificateException {
+            delegate.checkClientTrusted(chain, authType);
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType)
+                throws CertificateException {
+            checks.incrementAndGet();
+            delegate.checkServerTrusted(chain, authType);
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return delegate.getAcceptedIssuers();
+        }
+    }
+}
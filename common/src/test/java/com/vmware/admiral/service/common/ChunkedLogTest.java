@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.service.common;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests for ChunkedLog
+ */
+public class ChunkedLogTest {
+
+    @Test
+    public void testAppendAndReplace() {
+        ChunkedLog log = new ChunkedLog(4, 1024);
+
+        log.append("line1\n".getBytes());
+        log.append("line2\n".getBytes());
+        assertEquals("line1\nline2\n", new String(log.read()));
+        assertEquals(12, log.size());
+
+        log.replace("line3\n".getBytes());
+        assertEquals("line3\n", new String(log.read()));
+
+        log.replace(new byte[0]);
+        assertEquals("", new String(log.read()));
+        assertEquals(0, log.size());
+    }
+
+    @Test
+    public void testDropOldestChunks() {
+        ChunkedLog log = new ChunkedLog(4, 8);
+
+        log.append("0123456789ab".getBytes());
+        assertEquals(8, log.size());
+        assertEquals("456789ab", new String(log.read()));
+
+        log.append("cd".getBytes());
+        assertEquals("89abcd", new String(log.read()));
+    }
+
+    @Test
+    public void testReadTail() {
+        ChunkedLog log = new ChunkedLog(4, 1024);
+        log.append("line1\nline2\nline3\n".getBytes());
+
+        assertEquals("line3\n", new String(log.readTail(1)));
+        assertEquals("line2\nline3\n", new String(log.readTail(2)));
+        assertEquals("line1\nline2\nline3\n", new String(log.readTail(5)));
+        assertEquals("", new String(log.readTail(0)));
+
+        log.append("line4".getBytes());
+        assertEquals("line4", new String(log.readTail(1)));
+        assertEquals("line3\nline4", new String(log.readTail(2)));
+    }
+
+    @Test
+    public void testReadFrom() {
+        ChunkedLog log = new ChunkedLog(4, 8);
+        log.append("line1\n".getBytes());
+        long position = log.getEndPosition();
+        assertEquals(6, position);
+
+        log.append("line2\n".getBytes());
+        assertEquals("line2\n", new String(log.readFrom(position)));
+        assertEquals("", new String(log.readFrom(log.getEndPosition())));
+        // the read part is dropped already
+        assertEquals("1\nline2\n", new String(log.readFrom(0)));
+
+        // the log was replaced since the position was read
+        log.replace("l3\n".getBytes());
+        assertEquals("l3\n", new String(log.readFrom(position)));
+    }
+
+    @Test
+    public void testReadSince() {
+        ChunkedLog log = new ChunkedLog(4, 1024);
+        assertEquals("", new String(log.readSince(10)));
+
+        byte[] data = "line1\nline2\nline3\n".getBytes();
+        log.append(data, 0, 6, ChunkedLog.NO_SECOND);
+        log.append(data, 6, 12, 10);
+        log.append(data, 12, 18, 12);
+
+        assertEquals("line2\nline3\n", new String(log.readSince(9)));
+        assertEquals("line2\nline3\n", new String(log.readSince(10)));
+        assertEquals("line3\n", new String(log.readSince(11)));
+        assertEquals("", new String(log.readSince(13)));
+
+        // the first kept output is of the oldest kept second
+        ChunkedLog droppingLog = new ChunkedLog(4, 10);
+        droppingLog.append(data, 0, 6, 10);
+        droppingLog.append(data, 6, 12, 12);
+        assertEquals("1\nline2\n", new String(droppingLog.readSince(10)));
+        droppingLog.append(data, 12, 18, 14);
+        assertEquals("ne2\nline3\n", new String(droppingLog.readSince(12)));
+        assertEquals("line3\n", new String(droppingLog.readSince(13)));
+
+        // without seconds the whole log is read
+        log.replace(data);
+        assertEquals("line1\nline2\nline3\n", new String(log.readSince(13)));
+    }
+}
@@ -53,6 +53,7 @@ import com.vmware.admiral.compute.ElasticPlacementZoneConfigurationService;
 import com.vmware.admiral.compute.ElasticPlacementZoneConfigurationService.ElasticPlacementZoneConfigurationState;
 import com.vmware.admiral.compute.PlacementZoneConstants.PlacementZoneType;
 import com.vmware.admiral.compute.PlacementZoneUtil;
+import com.vmware.admiral.compute.cluster.ClusterSummaryService.ClusterSummaryRequest;
 import com.vmware.admiral.compute.container.GroupResourcePlacementService.GroupResourcePlacementState;
 import com.vmware.admiral.service.common.MultiTenantDocument;
 import com.vmware.admiral.service.common.SslTrustCertificateService.SslTrustCertificateState;
@@ -412,6 +413,32 @@ public class ClusterService extends StatelessService {
     }
 
     private void getAllClusters(Operation get) {
+        Map<String, String> queryParams = UriUtils.parseUriQueryParams(get.getUri());
+        if (queryParams.containsKey(HOSTS_FILTER_QUERY_PARAM)
+                || queryParams.containsKey(CUSTOM_OPTIONS_QUERY_PARAM)
+                || UriUtils.getODataFilterParamValue(get.getUri()) != null) {
+            // the filters are OData queries over the hosts and placement zones, which need the
+            // index
+            getAllClustersFilteringHosts(get);
+            return;
+        }
+
+        ClusterSummaryRequest request = new ClusterSummaryRequest();
+        request.projectLink = OperationUtil.extractProjectFromHeader(get);
+        request.typeFilter = queryParams.get(CLUSTER_TYPE_FILTER_QUERY_PARAM);
+        request.skip = UriUtils.getODataSkipParamValue(get.getUri());
+        request.top = UriUtils.getODataTopParamValue(get.getUri());
+        request.expand = UriUtils.hasODataExpandParamValue(get.getUri());
+
+        // sent with the context of the user, the view lists what the user is authorized to see
+        sendWithDeferredResult(Operation
+                .createPost(this, ClusterSummaryService.SELF_LINK)
+                .setBody(request), ServiceDocumentQueryResult.class)
+                .thenAccept(get::setBody)
+                .whenCompleteNotify(get);
+    }
+
+    private void getAllClustersFilteringHosts(Operation get) {
         boolean expand = UriUtils.hasODataExpandParamValue(get.getUri());
 
         String typeFilter = UriUtils.parseUriQueryParams(get.getUri())
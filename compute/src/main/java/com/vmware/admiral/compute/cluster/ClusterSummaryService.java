@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.compute.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.common.util.CommonContinuousQueries;
+import com.vmware.admiral.common.util.CommonContinuousQueries.ContinuousQueryId;
+import com.vmware.admiral.common.util.ServiceDocumentQuery;
+import com.vmware.admiral.compute.ComputeConstants;
+import com.vmware.admiral.compute.cluster.ClusterService.ClusterDto;
+import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
+import com.vmware.photon.controller.model.resources.ResourcePoolService.ResourcePoolState;
+import com.vmware.photon.controller.model.resources.ResourcePoolService.ResourcePoolState.ResourcePoolProperty;
+import com.vmware.xenon.common.DeferredResult;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
+import com.vmware.xenon.common.Service.Action;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceDocumentDescription;
+import com.vmware.xenon.common.ServiceDocumentQueryResult;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryFilter;
+import com.vmware.xenon.services.common.QueryTask;
+import com.vmware.xenon.services.common.QueryTask.Query;
+import com.vmware.xenon.services.common.QueryTask.QuerySpecification.QueryOption;
+import com.vmware.xenon.services.common.ServiceUriPaths;
+
+/**
+ * Per node materialized view of the clusters, used by {@link ClusterService} to list the clusters
+ * without querying the resource pools and the hosts of every placement zone.
+ *
+ * The view keeps the resource pools and the container hosts, indexed by resource pool, and builds
+ * the {@link ClusterDto}s of the listed clusters from memory. It is kept current by continuous
+ * query notifications of the resource pools and computes indexed on the node, so a compute which
+ * stops being a container host or moves to another resource pool is evicted from its cluster.
+ * The view is reloaded every {@link #FULL_SYNC_INTERVAL_SECONDS_PROPERTY}, which also picks the
+ * changes not indexed on the node.
+ *
+ * The view is shared by all users, so it is loaded as system, while the requests are authorized
+ * and the listed resource pools and hosts are filtered by the resource query of the requesting
+ * user. The hosts of elastic placement zones
+ * are queried as before, since they are matched by the query of the zone.
+ */
+public class ClusterSummaryService extends StatelessService {
+    public static final String SELF_LINK = ManagementUriParts.CLUSTER_SUMMARIES;
+
+    public static final String FULL_SYNC_INTERVAL_SECONDS_PROPERTY =
+            "com.vmware.admiral.compute.cluster.summary.full.sync.interval.seconds";
+    private static final long FULL_SYNC_INTERVAL_MICROS = TimeUnit.SECONDS.toMicros(
+            Long.getLong(FULL_SYNC_INTERVAL_SECONDS_PROPERTY, 300));
+
+    private static final int QUERY_PAGE_SIZE = Integer.getInteger(
+            "com.vmware.admiral.compute.cluster.summary.query.page.size", 1000);
+
+    private static final String RESOURCE_POOL_KIND = Utils.buildKind(ResourcePoolState.class);
+    private static final String COMPUTE_KIND = Utils.buildKind(ComputeState.class);
+
+    private static final ServiceDocumentDescription RESOURCE_POOL_DESCRIPTION =
+            ServiceDocumentDescription.Builder.create().buildDescription(ResourcePoolState.class);
+    private static final ServiceDocumentDescription COMPUTE_DESCRIPTION =
+            ServiceDocumentDescription.Builder.create().buildDescription(ComputeState.class);
+
+    public static class ClusterSummaryRequest {
+        /** (Optional) Project to list the clusters and hosts of. */
+        public String projectLink;
+
+        /** (Optional) Cluster type filter, see {@link ClusterUtils#filterByType}. */
+        public String typeFilter;
+
+        /** (Optional) Number of clusters to skip, the clusters are ordered by link. */
+        public Integer skip;
+
+        /** (Optional) Maximum number of clusters to list. */
+        public Integer top;
+
+        /** Whether to return the {@link ClusterDto}s or only their links. */
+        public boolean expand;
+    }
+
+    // guarded by this
+    private final Map<String, ResourcePoolState> resourcePools = new HashMap<>();
+    private final Map<String, ComputeState> hosts = new HashMap<>();
+    private final Map<String, Set<String>> hostLinksByResourcePool = new HashMap<>();
+    // notifications received during a load, applied over its results
+    private List<Object> pendingChanges;
+    private DeferredResult<Void> loaded = new DeferredResult<>();
+    private boolean isLoaded;
+
+    public ClusterSummaryService() {
+        super.toggleOption(ServiceOption.PERIODIC_MAINTENANCE, true);
+        super.setMaintenanceIntervalMicros(FULL_SYNC_INTERVAL_MICROS);
+    }
+
+    @Override
+    public void handleStart(Operation startPost) {
+        startPost.complete();
+
+        CommonContinuousQueries.subscribeTo(getHost(), ContinuousQueryId.RESOURCE_POOLS,
+                this::onChange);
+        CommonContinuousQueries.subscribeTo(getHost(), ContinuousQueryId.ALL_COMPUTES,
+                this::onChange);
+        load();
+    }
+
+    @Override
+    public void handlePeriodicMaintenance(Operation post) {
+        post.complete();
+        load();
+    }
+
+    @Override
+    public void handlePost(Operation post) {
+        if (!post.hasBody()) {
+            post.fail(new IllegalArgumentException("body is required"));
+            return;
+        }
+
+        ClusterSummaryRequest request = post.getBody(ClusterSummaryRequest.class);
+        Predicate<ServiceDocument> authorized = getAuthorizationFilter(post);
+        getLoadedView()
+                .thenCompose(ignore -> listClusters(request, authorized))
+                .thenAccept(post::setBodyNoCloning)
+                .whenCompleteNotify(post);
+    }
+
+    /**
+     * Returns a filter of the documents the user of the operation is authorized to read.
+     */
+    private Predicate<ServiceDocument> getAuthorizationFilter(Operation op) {
+        AuthorizationContext authorizationContext = op.getAuthorizationContext();
+        if (!getHost().isAuthorizationEnabled()
+                || (authorizationContext != null && authorizationContext.isSystemUser())) {
+            return document -> true;
+        }
+
+        QueryFilter filter = authorizationContext == null ? null
+                : authorizationContext.getResourceQueryFilter(Action.GET);
+        if (filter == null) {
+            return document -> false;
+        }
+        return document -> filter.evaluate(document,
+                RESOURCE_POOL_KIND.equals(document.documentKind) ? RESOURCE_POOL_DESCRIPTION
+                        : COMPUTE_DESCRIPTION);
+    }
+
+    private DeferredResult<ServiceDocumentQueryResult> listClusters(
+            ClusterSummaryRequest request, Predicate<ServiceDocument> authorized) {
+        List<ResourcePoolState> page;
+        int count;
+        Map<String, List<ComputeState>> hostsByResourcePool = new HashMap<>();
+        synchronized (this) {
+            List<ResourcePoolState> matching = this.resourcePools.values().stream()
+                    .filter(rp -> belongsTo(rp.tenantLinks, request.projectLink))
+                    .filter(rp -> ClusterUtils.filterByType(ClusterUtils.getClusterType(rp),
+                            request.typeFilter))
+                    .filter(authorized)
+                    .sorted(Comparator.comparing(rp -> rp.documentSelfLink))
+                    .collect(Collectors.toList());
+            count = matching.size();
+
+            int from = Math.min(request.skip == null ? 0 : Math.max(request.skip, 0), count);
+            int to = request.top == null || request.top <= 0 ? count
+                    : Math.min(from + request.top, count);
+            page = cloneDocuments(matching.subList(from, to));
+
+            if (request.expand) {
+                for (ResourcePoolState rp : page) {
+                    if (!isElastic(rp)) {
+                        hostsByResourcePool.put(rp.documentSelfLink, cloneDocuments(
+                                getHosts(rp.documentSelfLink, request.projectLink, authorized)));
+                    }
+                }
+            }
+        }
+
+        ServiceDocumentQueryResult result = new ServiceDocumentQueryResult();
+        result.documentLinks = page.stream()
+                .map(rp -> ClusterUtils.toClusterSelfLink(rp.documentSelfLink))
+                .collect(Collectors.toList());
+        result.documentCount = (long) count;
+        if (!request.expand || page.isEmpty()) {
+            return DeferredResult.completed(result);
+        }
+
+        List<DeferredResult<ClusterDto>> clusters = page.stream()
+                .map(rp -> {
+                    List<ComputeState> hosts = hostsByResourcePool.get(rp.documentSelfLink);
+                    DeferredResult<List<ComputeState>> hostsResult = hosts != null
+                            ? DeferredResult.completed(hosts)
+                            : ClusterUtils.getHostsWithinPlacementZone(rp.documentSelfLink,
+                                    request.projectLink, getHost());
+                    return hostsResult.thenApply(h -> ClusterUtils
+                            .placementZoneAndItsHostsToClusterDto(rp, h));
+                })
+                .collect(Collectors.toList());
+        return DeferredResult.allOf(clusters).thenApply(clusterDtos -> {
+            result.documents = new LinkedHashMap<>();
+            clusterDtos.forEach(c -> result.documents.put(c.documentSelfLink, c));
+            return result;
+        });
+    }
+
+    /**
+     * Returns the hosts of the given resource pool which belong to the given project and are
+     * accepted by the authorization filter.
+     */
+    private List<ComputeState> getHosts(String resourcePoolLink, String projectLink,
+            Predicate<ServiceDocument> authorized) {
+        Set<String> hostLinks = this.hostLinksByResourcePool.getOrDefault(resourcePoolLink,
+                Collections.emptySet());
+        return hostLinks.stream()
+                .map(this.hosts::get)
+                .filter(host -> belongsTo(host.tenantLinks, projectLink))
+                .filter(authorized)
+                .sorted(Comparator.comparing(host -> host.documentSelfLink))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean belongsTo(List<String> tenantLinks, String projectLink) {
+        return projectLink == null || projectLink.isEmpty()
+                || (tenantLinks != null && tenantLinks.contains(projectLink));
+    }
+
+    private static <T extends ServiceDocument> List<T> cloneDocuments(List<T> documents) {
+        // the view is shared, while the documents are returned to the caller as they are
+        return documents.stream().map(Utils::clone).collect(Collectors.toList());
+    }
+
+    private static boolean isElastic(ResourcePoolState resourcePool) {
+        return resourcePool.properties != null
+                && resourcePool.properties.contains(ResourcePoolProperty.ELASTIC);
+    }
+
+    private static boolean isContainerHost(ComputeState compute) {
+        return compute.customProperties != null && Boolean.parseBoolean(compute.customProperties
+                .get(ComputeConstants.COMPUTE_CONTAINER_HOST_PROP_NAME));
+    }
+
+    private void onChange(Operation op) {
+        op.complete();
+        QueryTask queryTask = op.getBody(QueryTask.class);
+        if (queryTask.results == null || queryTask.results.documents == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (this.pendingChanges != null) {
+                this.pendingChanges.addAll(queryTask.results.documents.values());
+                return;
+            }
+            applyDocuments(queryTask.results.documents.values());
+        }
+    }
+
+    /**
+     * Returns the view once it has been loaded, starting the load if a previous one failed.
+     */
+    private synchronized DeferredResult<Void> getLoadedView() {
+        if (!this.isLoaded && this.pendingChanges == null) {
+            load();
+        }
+        return this.loaded;
+    }
+
+    /**
+     * Reloads the view, unless a load is running. The notifications received in the meantime are
+     * applied over the loaded documents, so the changes made during the load are kept.
+     */
+    private synchronized void load() {
+        if (this.pendingChanges != null) {
+            return;
+        }
+        this.pendingChanges = new ArrayList<>();
+
+        DeferredResult.allOf(Arrays.asList(
+                queryDocuments(Query.Builder.create()
+                        .addKindFieldClause(ResourcePoolState.class)
+                        .build()),
+                queryDocuments(Query.Builder.create()
+                        .addKindFieldClause(ComputeState.class)
+                        .addCompositeFieldClause(ComputeState.FIELD_NAME_CUSTOM_PROPERTIES,
+                                ComputeConstants.COMPUTE_CONTAINER_HOST_PROP_NAME, "true")
+                        .build())))
+                .whenComplete((results, e) -> {
+                    DeferredResult<Void> loaded;
+                    synchronized (this) {
+                        if (e == null) {
+                            this.resourcePools.clear();
+                            this.hosts.clear();
+                            this.hostLinksByResourcePool.clear();
+                            results.forEach(this::applyDocuments);
+                        }
+                        applyDocuments(this.pendingChanges);
+                        this.pendingChanges = null;
+
+                        loaded = this.loaded;
+                        if (e == null) {
+                            this.isLoaded = true;
+                        } else if (!this.isLoaded) {
+                            // the next listing starts a new load
+                            this.loaded = new DeferredResult<>();
+                        }
+                    }
+
+                    if (e != null) {
+                        logWarning("Failed to load the cluster summaries: %s", Utils.toString(e));
+                        if (!loaded.isDone()) {
+                            loaded.fail(e);
+                        }
+                    } else if (!loaded.isDone()) {
+                        loaded.complete(null);
+                    }
+                });
+    }
+
+    private void applyDocuments(Iterable<Object> documents) {
+        for (Object json : documents) {
+            ServiceDocument document = Utils.fromJson(json, ServiceDocument.class);
+            boolean deleted = Action.DELETE.toString().equals(document.documentUpdateAction);
+            if (RESOURCE_POOL_KIND.equals(document.documentKind)) {
+                ResourcePoolState current = this.resourcePools.get(document.documentSelfLink);
+                if (current != null
+                        && current.documentUpdateTimeMicros > document.documentUpdateTimeMicros) {
+                    continue;
+                }
+                if (deleted) {
+                    this.resourcePools.remove(document.documentSelfLink);
+                } else {
+                    this.resourcePools.put(document.documentSelfLink,
+                            Utils.fromJson(json, ResourcePoolState.class));
+                }
+            } else if (COMPUTE_KIND.equals(document.documentKind)) {
+                ComputeState current = this.hosts.get(document.documentSelfLink);
+                if (current != null
+                        && current.documentUpdateTimeMicros > document.documentUpdateTimeMicros) {
+                    continue;
+                }
+                // also evicts a host moved to another resource pool or no longer a container host
+                removeHost(document.documentSelfLink);
+                ComputeState compute = deleted ? null : Utils.fromJson(json, ComputeState.class);
+                if (compute != null && isContainerHost(compute)) {
+                    addHost(compute);
+                }
+            }
+        }
+    }
+
+    private void addHost(ComputeState host) {
+        this.hosts.put(host.documentSelfLink, host);
+        if (host.resourcePoolLink != null) {
+            this.hostLinksByResourcePool
+                    .computeIfAbsent(host.resourcePoolLink, link -> new HashSet<>())
+                    .add(host.documentSelfLink);
+        }
+    }
+
+    private void removeHost(String hostLink) {
+        ComputeState host = this.hosts.remove(hostLink);
+        if (host == null || host.resourcePoolLink == null) {
+            return;
+        }
+        Set<String> hostLinks = this.hostLinksByResourcePool.get(host.resourcePoolLink);
+        if (hostLinks != null) {
+            hostLinks.remove(hostLink);
+            if (hostLinks.isEmpty()) {
+                this.hostLinksByResourcePool.remove(host.resourcePoolLink);
+            }
+        }
+    }
+
+    /**
+     * Queries the documents of the view as system.
+     */
+    private DeferredResult<List<Object>> queryDocuments(Query query) {
+        QueryTask queryTask = QueryTask.Builder.createDirectTask()
+                .setQuery(query)
+                .addOption(QueryOption.EXPAND_CONTENT)
+                .setResultLimit(QUERY_PAGE_SIZE)
+                .build();
+        queryTask.documentExpirationTimeMicros = ServiceDocumentQuery.getDefaultQueryExpiration();
+
+        List<Object> documents = new ArrayList<>();
+        return sendWithDeferredResult(Operation
+                .createPost(this, ServiceUriPaths.CORE_QUERY_TASKS)
+                .setBody(queryTask)
+                .setAuthorizationContext(getSystemAuthorizationContext()), QueryTask.class)
+                .thenCompose(result -> collectPages(result.results, documents));
+    }
+
+    private DeferredResult<List<Object>> collectPages(ServiceDocumentQueryResult page,
+            List<Object> documents) {
+        if (page.documents != null) {
+            documents.addAll(page.documents.values());
+        }
+        if (page.nextPageLink == null) {
+            return DeferredResult.completed(documents);
+        }
+        return sendWithDeferredResult(Operation
+                .createGet(this, page.nextPageLink)
+                .setAuthorizationContext(getSystemAuthorizationContext()), QueryTask.class)
+                .thenCompose(result -> collectPages(result.results, documents));
+    }
+}
@@ -295,13 +295,7 @@ public class ClusterUtils {
                 resourcePoolState.customProperties,
                 ContainerHostDataCollectionService.RESOURCE_POOL_CPU_USAGE_CUSTOM_PROP)
                 .orElse(0.0);
-        ClusterType type = PlacementZoneUtil.isSchedulerPlacementZone(resourcePoolState)
-                ? ClusterType.VCH
-                : ClusterType.DOCKER;
-        ePZClusterDto.type = ClusterType
-                .valueOf(PropertyUtils.getPropertyString(resourcePoolState.customProperties,
-                        ClusterService.CLUSTER_TYPE_CUSTOM_PROP)
-                        .orElse(type.toString()));
+        ePZClusterDto.type = getClusterType(resourcePoolState);
         if (computeStates == null || computeStates.isEmpty()) {
             ePZClusterDto.status = getEnforcedStatus(resourcePoolState);
             if (ePZClusterDto.status == null) {
@@ -363,6 +357,16 @@ public class ClusterUtils {
         return ePZClusterDto;
     }
 
+    public static ClusterType getClusterType(ResourcePoolState resourcePoolState) {
+        ClusterType type = PlacementZoneUtil.isSchedulerPlacementZone(resourcePoolState)
+                ? ClusterType.VCH
+                : ClusterType.DOCKER;
+        return ClusterType
+                .valueOf(PropertyUtils.getPropertyString(resourcePoolState.customProperties,
+                        ClusterService.CLUSTER_TYPE_CUSTOM_PROP)
+                        .orElse(type.toString()));
+    }
+
     public static boolean hasPlacementZone(ComputeState hostState) {
         return hostState != null
                 && hostState.resourcePoolLink != null
@@ -420,6 +424,14 @@ public class ClusterUtils {
      * the cluster type. It can be preceded by "!" which indicates negation.
      */
     public static boolean filterByType(ClusterDto cluster, String typeFilter) {
+        return filterByType(cluster.type, typeFilter);
+    }
+
+    /**
+     * Checks if the cluster type matches the type filter, see
+     * {@link #filterByType(ClusterDto, String)}.
+     */
+    public static boolean filterByType(ClusterType type, String typeFilter) {
         if (typeFilter == null) {
             return true;
         }
@@ -430,7 +442,7 @@ public class ClusterUtils {
         }
         ClusterType filter = ClusterType.valueOf(typeFilter);
 
-        return isFilterExclusive ^ cluster.type == filter;
+        return isFilterExclusive ^ type == filter;
     }
 
     private static ClusterStatus getEnforcedStatus(ResourcePoolState resourcePoolState) {
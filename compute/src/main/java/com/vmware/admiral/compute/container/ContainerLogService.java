@@ -13,6 +13,7 @@ package com.vmware.admiral.compute.container;
 
 import static com.vmware.admiral.common.util.ServiceUtils.addServiceRequestRoute;
 
+import java.net.URI;
 import java.util.Map;
 
 import com.vmware.admiral.adapter.common.AdapterRequest;
@@ -30,10 +31,22 @@ import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
 
+/**
+ * Serves the logs of a container from its {@link LogService} and has the adapter fetch the logs
+ * logged since the last fetch.
+ *
+ * The tail, since and offset reads of the whole logs are served from the kept logs, so the adapter
+ * fetch appends only the new logs to them. Reads with timestamps or of stdout or stderr only are
+ * fetched by the adapter as asked, replacing the kept logs.
+ */
 public class ContainerLogService extends StatelessService {
     public static final String SELF_LINK = ManagementUriParts.CONTAINER_LOGS;
     public static final String CONTAINER_ID_QUERY_PARAM = "id";
 
+    private static final String TIMESTAMPS_QUERY_PARAM = "timestamps";
+    private static final String STD_ERR_QUERY_PARAM = "stderr";
+    private static final String STD_OUT_QUERY_PARAM = "stdout";
+
     @Override
     public void handleGet(Operation get) {
         Map<String, String> params = UriUtils.parseUriQueryParams(get.getUri());
@@ -47,7 +60,23 @@ public class ContainerLogService extends StatelessService {
         final String containerLogsLink = UriUtils.buildUriPath(LogService.FACTORY_LINK,
                 containerId);
 
-        sendRequest(Operation.createGet(this, containerLogsLink)
+        URI containerLogsUri = UriUtils.buildUri(getHost(), containerLogsLink);
+        for (String param : new String[] { LogService.TAIL_QUERY_PARAM,
+                LogService.SINCE_QUERY_PARAM, LogService.OFFSET_QUERY_PARAM }) {
+            String value = params.get(param);
+            if (value != null) {
+                containerLogsUri = UriUtils.extendUriWithQuery(containerLogsUri, param, value);
+            }
+        }
+
+        // the offset refers to the kept logs only
+        params.remove(LogService.OFFSET_QUERY_PARAM);
+        if (isReadFromKeptLogs(params)) {
+            params.remove(LogService.TAIL_QUERY_PARAM);
+            params.remove(LogService.SINCE_QUERY_PARAM);
+        }
+
+        sendRequest(Operation.createGet(containerLogsUri)
                 .setCompletion((o, e) -> {
                     if (e != null) {
                         requestLog(get, containerId, params);
@@ -58,6 +87,12 @@ public class ContainerLogService extends StatelessService {
                 }));
     }
 
+    private static boolean isReadFromKeptLogs(Map<String, String> params) {
+        return !Boolean.parseBoolean(params.get(TIMESTAMPS_QUERY_PARAM))
+                && Boolean.parseBoolean(params.getOrDefault(STD_ERR_QUERY_PARAM, "true"))
+                && Boolean.parseBoolean(params.getOrDefault(STD_OUT_QUERY_PARAM, "true"));
+    }
+
     private void requestLog(Operation get, String containerId, Map<String, String> params) {
         sendRequest(Operation.createGet(this,
                 UriUtils.buildUriPath(ContainerFactoryService.SELF_LINK, containerId))
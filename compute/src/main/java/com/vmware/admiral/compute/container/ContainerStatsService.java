@@ -13,22 +13,54 @@ package com.vmware.admiral.compute.container;
 
 import static com.vmware.admiral.common.util.ServiceUtils.addServiceRequestRoute;
 
-import java.util.LinkedHashMap;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 import com.vmware.admiral.adapter.common.AdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest.BatchAdapterResponse;
 import com.vmware.admiral.adapter.common.ContainerOperationType;
 import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.common.util.QueryUtil;
+import com.vmware.admiral.common.util.ServiceDocumentQuery;
 import com.vmware.admiral.common.util.ServiceUtils;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.compute.container.maintenance.ContainerStats;
+import com.vmware.admiral.service.common.MultiTenantDocument;
 import com.vmware.admiral.service.common.ServiceTaskCallback;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
+import com.vmware.xenon.common.ServerSentEvent;
 import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceStats;
 import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryTask;
+import com.vmware.xenon.services.common.QueryTask.QuerySpecification;
+import com.vmware.xenon.services.common.QueryTask.QueryTerm.MatchType;
 
 public class ContainerStatsService extends StatelessService {
     public static final String SELF_LINK = ManagementUriParts.CONTAINER_STATS;
@@ -37,16 +69,89 @@ public class ContainerStatsService extends StatelessService {
 
     public static final String CONTAINER_ID_QUERY_PARAM = "id";
 
-    private static final long INSPECT_INTERVAL = TimeUnit.SECONDS.toMicros(70);
-    private static final int MAX_SIZE = 10;
+    public static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    public static final String STAT_NAME_INSPECT_CACHE_HIT_COUNT = "inspectCacheHitCount";
+    public static final String STAT_NAME_INSPECT_CACHE_MISS_COUNT = "inspectCacheMissCount";
+    public static final String STAT_NAME_INSPECT_CACHE_EVICTION_COUNT = "inspectCacheEvictionCount";
+
+    static final long INSPECT_CACHE_TTL_SECONDS = Long.getLong(
+            "com.vmware.admiral.compute.container.stats.inspect.cache.ttl.seconds", 70);
+    private static final long INSPECT_CACHE_MAX_SIZE = Long.getLong(
+            "com.vmware.admiral.compute.container.stats.inspect.cache.max.size", 10000);
+    private static final int BULK_HOST_CONCURRENCY = Integer.getInteger(
+            "com.vmware.admiral.compute.container.stats.bulk.host.concurrency", 4);
+    private static final long BATCH_CALLBACK_TIMEOUT_SECONDS = Long.getLong(
+            "com.vmware.admiral.compute.container.stats.batch.callback.timeout.seconds", 120);
+
+    /**
+     * Time of the last inspect per container link. A container is inspected again only after its
+     * entry has expired or has been evicted.
+     */
+    private final Cache<String, Long> inspectCache;
+
+    /**
+     * Inspect and stats adapter requests in progress per container link, shared by the concurrent
+     * GETs for the same container.
+     */
+    private final ConcurrentMap<String, DeferredResult<Void>> pendingInspects =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DeferredResult<Void>> pendingStatsRequests =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Completions of the batch adapter requests waiting for the adapter callback, by callback id.
+     */
+    private final ConcurrentMap<String, Consumer<Throwable>> pendingBatches =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Body of the bulk stats POST request. The containers matching all of the given criteria are
+     * selected.
+     */
+    public static class ContainerStatsBulkRequest {
+        /** Ids of the containers. */
+        public List<String> ids;
+
+        /** Link of the host of the containers. */
+        public String hostLink;
 
-    @SuppressWarnings("unchecked")
-    private static Map<String, Long> inspectCache = new LinkedHashMap(16, 0.75f, true) {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry eldest) {
-            return size() > MAX_SIZE;
+        /** Link of the project of the containers. */
+        public String projectLink;
+
+        public void validate() {
+            if ((ids == null || ids.isEmpty()) && hostLink == null && projectLink == null) {
+                throw new IllegalArgumentException(
+                        "At least one of 'ids', 'hostLink' or 'projectLink' expected.");
+            }
         }
-    };
+    }
+
+    /**
+     * Single line of the bulk stats response.
+     */
+    public static class ContainerStatsBulkEntry {
+        public String documentSelfLink;
+        public ServiceStats stats;
+        public String error;
+    }
+
+    public ContainerStatsService() {
+        this(Ticker.systemTicker());
+    }
+
+    ContainerStatsService(Ticker ticker) {
+        super.toggleOption(ServiceOption.INSTRUMENTATION, true);
+        // batch adapter requests call back at SELF_LINK/<callback id>
+        super.toggleOption(ServiceOption.URI_NAMESPACE_OWNER, true);
+        this.inspectCache = CacheBuilder
+                .newBuilder()
+                .maximumSize(INSPECT_CACHE_MAX_SIZE)
+                .expireAfterWrite(INSPECT_CACHE_TTL_SECONDS, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
 
     @Override
     public void handleGet(Operation get) {
@@ -61,6 +166,201 @@ public class ContainerStatsService extends StatelessService {
         getContainerStateAndProcess(get, containerId);
     }
 
+    /**
+     * Returns the stats of all containers matching the {@link ContainerStatsBulkRequest} as
+     * {@link ContainerStatsBulkEntry} JSON objects, in the order they are collected. The inspect
+     * and stats requests of the containers on the same host are sent as a single batch request to
+     * the adapters supporting it, which bound the concurrency per host. The containers of the rest
+     * of the adapters are requested one by one, with a bounded concurrency per host.
+     * <p>
+     * Only clients accepting <code>text/event-stream</code> get a streamed response, each entry
+     * as a server-sent event as soon as it is collected. Otherwise the response is buffered and
+     * the entries are returned as newline-delimited JSON once all of them are collected.
+     */
+    @Override
+    public void handlePost(Operation post) {
+        if (!post.hasBody()) {
+            post.fail(new IllegalArgumentException("body is required"));
+            return;
+        }
+        ContainerStatsBulkRequest request = post.getBody(ContainerStatsBulkRequest.class);
+        try {
+            request.validate();
+        } catch (Exception e) {
+            post.fail(e);
+            return;
+        }
+
+        QueryTask queryTask = QueryUtil.buildQuery(ContainerState.class, true);
+        if (request.ids != null && !request.ids.isEmpty()) {
+            QueryUtil.addListValueClause(queryTask, ServiceDocument.FIELD_NAME_SELF_LINK,
+                    request.ids.stream()
+                            .map(id -> UriUtils.buildUriPath(ContainerFactoryService.SELF_LINK,
+                                    UriUtils.getLastPathSegment(id)))
+                            .collect(Collectors.toList()));
+        }
+        if (request.hostLink != null) {
+            QueryUtil.addListValueClause(queryTask, ContainerState.FIELD_NAME_PARENT_LINK,
+                    Collections.singletonList(request.hostLink));
+        }
+        if (request.projectLink != null) {
+            QueryUtil.addListValueClause(queryTask, QuerySpecification.buildCollectionItemName(
+                    MultiTenantDocument.FIELD_NAME_TENANT_LINKS),
+                    Collections.singletonList(request.projectLink), MatchType.TERM);
+        }
+        QueryUtil.addExpandOption(queryTask);
+
+        Map<String, List<ContainerState>> containersByHost = new HashMap<>();
+        new ServiceDocumentQuery<>(getHost(), ContainerState.class).query(queryTask, (r) -> {
+            if (r.hasException()) {
+                post.fail(r.getException());
+            } else if (r.hasResult()) {
+                ContainerState container = r.getResult();
+                String hostLink = container.parentLink != null ? container.parentLink : "";
+                containersByHost.computeIfAbsent(hostLink, k -> new ArrayList<>())
+                        .add(container);
+            } else {
+                processBulkStats(post, containersByHost);
+            }
+        });
+    }
+
+    private void processBulkStats(Operation post,
+            Map<String, List<ContainerState>> containersByHost) {
+        int total = containersByHost.values().stream().mapToInt(List::size).sum();
+        BulkStatsContext context = new BulkStatsContext(post, total);
+        if (total == 0) {
+            context.complete();
+            return;
+        }
+
+        for (List<ContainerState> containers : containersByHost.values()) {
+            Map<Boolean, List<ContainerState>> containersByBatchSupport = containers.stream()
+                    .collect(Collectors.partitioningBy((c) -> BatchAdapterRequest
+                            .isSupportedBy(c.adapterManagementReference)));
+
+            List<ContainerState> batchContainers = containersByBatchSupport.get(true);
+            if (!batchContainers.isEmpty()) {
+                processBatchBulkStats(batchContainers, context);
+            }
+
+            List<ContainerState> otherContainers = containersByBatchSupport.get(false);
+            Queue<ContainerState> queue = new ConcurrentLinkedQueue<>(otherContainers);
+            int workers = Math.min(otherContainers.size(), Math.max(1, BULK_HOST_CONCURRENCY));
+            for (int i = 0; i < workers; i++) {
+                processNextBulkStats(queue, context);
+            }
+        }
+    }
+
+    /**
+     * Inspects the containers of a host which have not been inspected recently and collects the
+     * stats of all of them, with a single batch adapter request per operation.
+     */
+    private void processBatchBulkStats(List<ContainerState> containers,
+            BulkStatsContext context) {
+        URI adapterReference = containers.get(0).adapterManagementReference;
+        List<ContainerState> notInspected = containers.stream()
+                .filter((c) -> inspectCache.getIfPresent(c.documentSelfLink) == null)
+                .collect(Collectors.toList());
+        updateInspectCacheStats();
+
+        // failed inspects are cached as well, not to retry them on every request
+        requestBatch(adapterReference, ContainerOperationType.INSPECT, notInspected,
+                pendingInspects, (link) -> inspectCache.put(link, Utils.getNowMicrosUtc()))
+                .thenCompose(ignore -> requestBatch(adapterReference,
+                        ContainerOperationType.STATS, containers, pendingStatsRequests,
+                        (link) -> {
+                        }))
+                .whenComplete((ignore, e) -> containers.forEach(
+                        (container) -> appendBulkStats(container, context)));
+    }
+
+    private void processNextBulkStats(Queue<ContainerState> queue, BulkStatsContext context) {
+        ContainerState container = queue.poll();
+        if (container == null) {
+            return;
+        }
+
+        inspect(container)
+                .thenCompose(ignore -> collectStats(container))
+                .thenCompose(ignore -> appendBulkStats(container, context))
+                .whenComplete((ignore, e) -> processNextBulkStats(queue, context));
+    }
+
+    /**
+     * Appends the current /stats of the container to the bulk stats response.
+     */
+    private DeferredResult<Void> appendBulkStats(ContainerState container,
+            BulkStatsContext context) {
+        return sendWithDeferredResult(Operation.createGet(
+                UriUtils.buildStatsUri(getHost(), container.documentSelfLink)),
+                ServiceStats.class)
+                .handle((stats, e) -> {
+                    ContainerStatsBulkEntry entry = new ContainerStatsBulkEntry();
+                    entry.documentSelfLink = container.documentSelfLink;
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null
+                                ? e.getCause() : e;
+                        entry.error = cause.getMessage();
+                    } else {
+                        entry.stats = stats;
+                    }
+                    context.append(entry);
+                    return null;
+                });
+    }
+
+    private static class BulkStatsContext {
+        private final Operation op;
+        private final boolean isEventStream;
+        private final AtomicInteger remaining;
+        private final StringBuilder body;
+
+        BulkStatsContext(Operation op, int count) {
+            this.op = op;
+            this.remaining = new AtomicInteger(count);
+            String accept = op.getRequestHeader(Operation.ACCEPT_HEADER);
+            this.isEventStream = accept != null
+                    && accept.contains(Operation.MEDIA_TYPE_TEXT_EVENT_STREAM);
+            this.body = this.isEventStream ? null : new StringBuilder();
+            if (this.isEventStream) {
+                op.startEventStream();
+            }
+        }
+
+        void append(ContainerStatsBulkEntry entry) {
+            String line = Utils.toJson(entry);
+            if (isEventStream) {
+                synchronized (op) {
+                    op.sendServerSentEvent(new ServerSentEvent().setData(line));
+                }
+            } else {
+                synchronized (body) {
+                    body.append(line).append('\n');
+                }
+            }
+            if (remaining.decrementAndGet() == 0) {
+                complete();
+            }
+        }
+
+        void complete() {
+            if (isEventStream) {
+                // completing the operation ends the event stream
+                op.complete();
+                return;
+            }
+            String result;
+            synchronized (body) {
+                result = body.toString();
+            }
+            op.setContentType(NDJSON_CONTENT_TYPE);
+            op.setBodyNoCloning(result);
+            op.complete();
+        }
+    }
+
     /**
      * start processing the request - first fetch the ContainerState
      */
@@ -77,16 +377,26 @@ public class ContainerStatsService extends StatelessService {
                     }
                     ServiceUtils.handleExceptions(op, () -> {
                         ContainerState containerState = o.getBody(ContainerState.class);
-                        processInspect(containerState, () ->
-                                processStatsRequest(op, containerState));
+                        inspect(containerState)
+                                .thenCompose(ignore -> collectStats(containerState))
+                                .whenComplete((ignore, e) ->
+                                        forwardStatsResponse(op, containerState));
                     });
                 }));
     }
 
     /**
-     * Request getting stats through the adapter and then return /stats as body response
+     * Request getting stats through the adapter. The returned result completes when the adapter
+     * request completes, successfully or not.
      */
-    private void processStatsRequest(Operation op, ContainerState containerState) {
+    private DeferredResult<Void> collectStats(ContainerState containerState) {
+        String containerLink = containerState.documentSelfLink;
+        DeferredResult<Void> pending = new DeferredResult<>();
+        DeferredResult<Void> existing = pendingStatsRequests.putIfAbsent(containerLink, pending);
+        if (existing != null) {
+            return existing;
+        }
+
         AdapterRequest request = new AdapterRequest();
         request.resourceReference = UriUtils.buildUri(getHost(), containerState.documentSelfLink);
         request.operationTypeId = ContainerOperationType.STATS.id;
@@ -100,8 +410,10 @@ public class ContainerStatsService extends StatelessService {
                         logWarning("Exception in stats request for container: %s. Error: %s",
                                 containerState.documentSelfLink, Utils.toString(ex));
                     }
-                    forwardStatsResponse(op, containerState);
+                    pendingStatsRequests.remove(containerLink, pending);
+                    pending.complete(null);
                 }));
+        return pending;
     }
 
     /**
@@ -123,10 +435,22 @@ public class ContainerStatsService extends StatelessService {
                 }));
     }
 
-    private void processInspect(ContainerState container, Runnable callback) {
-        if (!isInspectionNeeded(container)) {
-            callback.run();
-            return;
+    /**
+     * Inspects the container, unless it has been inspected recently. The returned result completes
+     * when the inspect completes, successfully or not.
+     */
+    private DeferredResult<Void> inspect(ContainerState container) {
+        String containerLink = container.documentSelfLink;
+        boolean isCached = inspectCache.getIfPresent(containerLink) != null;
+        updateInspectCacheStats();
+        if (isCached) {
+            return DeferredResult.completed(null);
+        }
+
+        DeferredResult<Void> pending = new DeferredResult<>();
+        DeferredResult<Void> existing = pendingInspects.putIfAbsent(containerLink, pending);
+        if (existing != null) {
+            return existing;
         }
 
         AdapterRequest request = new AdapterRequest();
@@ -141,17 +465,122 @@ public class ContainerStatsService extends StatelessService {
                         logWarning("Error while inspect request for container: %s. Error: %s",
                                 container.documentSelfLink, Utils.toString(ex));
                     }
-                    callback.run();
+                    // failed inspects are cached as well, not to retry them on every GET
+                    inspectCache.put(containerLink, Utils.getNowMicrosUtc());
+                    pendingInspects.remove(containerLink, pending);
+                    pending.complete(null);
+                }));
+        return pending;
+    }
+
+    /**
+     * Requests the operation for containers of the same host with a single batch adapter request.
+     * The containers with a request for the same operation already in progress join it instead.
+     * The returned result completes when the operation completes for all containers, successfully
+     * or not, after calling <code>onCompletion</code> for each of the requested containers.
+     */
+    private DeferredResult<Void> requestBatch(URI adapterReference,
+            ContainerOperationType operationType, List<ContainerState> containers,
+            ConcurrentMap<String, DeferredResult<Void>> pendingRequests,
+            Consumer<String> onCompletion) {
+        List<DeferredResult<Void>> results = new ArrayList<>(containers.size());
+        Map<String, DeferredResult<Void>> requested = new HashMap<>();
+        for (ContainerState container : containers) {
+            DeferredResult<Void> pending = new DeferredResult<>();
+            DeferredResult<Void> existing = pendingRequests.putIfAbsent(
+                    container.documentSelfLink, pending);
+            if (existing != null) {
+                results.add(existing);
+            } else {
+                requested.put(container.documentSelfLink, pending);
+                results.add(pending);
+            }
+        }
+        if (requested.isEmpty()) {
+            return DeferredResult.allOf(results).thenApply(ignore -> null);
+        }
+
+        String callbackId = UUID.randomUUID().toString();
+        pendingBatches.put(callbackId, (e) -> {
+            if (e != null) {
+                // do not fail, just log warning, previous /stats will be returned
+                logWarning("Error in %s batch request for %d containers. Error: %s",
+                        operationType, requested.size(), Utils.toString(e));
+            }
+            requested.forEach((link, pending) -> {
+                onCompletion.accept(link);
+                pendingRequests.remove(link, pending);
+                pending.complete(null);
+            });
+        });
+        getHost().schedule(() -> completeBatch(callbackId, new TimeoutException(
+                "No callback of " + operationType + " batch request in "
+                        + BATCH_CALLBACK_TIMEOUT_SECONDS + " seconds")),
+                BATCH_CALLBACK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        BatchAdapterRequest request = new BatchAdapterRequest();
+        request.resourceReferences = requested.keySet().stream()
+                .map((link) -> UriUtils.buildUri(getHost(), link))
+                .collect(Collectors.toList());
+        request.operationTypeId = operationType.id;
+        request.serviceTaskCallback = ServiceTaskCallback.create(
+                UriUtils.buildUriPath(SELF_LINK, callbackId));
+        // the callback is accepted only from the system user
+        sendRequest(Operation
+                .createPatch(getHost(), adapterReference.toString())
+                .setBodyNoCloning(request)
+                .setAuthorizationContext(getSystemAuthorizationContext())
+                .setCompletion((o, ex) -> {
+                    if (ex != null) {
+                        completeBatch(callbackId, ex);
+                    }
                 }));
+
+        return DeferredResult.allOf(results).thenApply(ignore -> null);
     }
 
-    private boolean isInspectionNeeded(ContainerState container) {
-        Long lastInspect = inspectCache.get(container.documentSelfLink);
-        if (lastInspect == null || lastInspect < Utils.fromNowMicrosUtc(-INSPECT_INTERVAL)) {
-            inspectCache.put(container.documentSelfLink, Utils.getNowMicrosUtc());
-            return true;
+    private void completeBatch(String callbackId, Throwable e) {
+        Consumer<Throwable> completion = pendingBatches.remove(callbackId);
+        if (completion != null) {
+            completion.accept(e);
         }
-        return false;
+    }
+
+    /**
+     * Handles the callbacks of the batch adapter requests, at <code>SELF_LINK/callback id</code>.
+     */
+    @Override
+    public void handlePatch(Operation patch) {
+        if (SELF_LINK.equals(patch.getUri().getPath())) {
+            Operation.failActionNotSupported(patch);
+            return;
+        }
+        AuthorizationContext authorizationContext = patch.getAuthorizationContext();
+        if (getHost().isAuthorizationEnabled()
+                && (authorizationContext == null || !authorizationContext.isSystemUser())) {
+            patch.fail(Operation.STATUS_CODE_FORBIDDEN);
+            return;
+        }
+
+        BatchAdapterResponse response = patch.getBody(BatchAdapterResponse.class);
+        patch.complete();
+
+        Throwable e = null;
+        if (response.taskInfo != null && TaskState.isFailed(response.taskInfo)) {
+            e = new IllegalStateException(String.format("Failed for %d containers: %s",
+                    response.failedResourceLinks != null ? response.failedResourceLinks.size()
+                            : 0,
+                    response.taskInfo.failure != null ? response.taskInfo.failure.message
+                            : "unknown error"));
+        }
+        completeBatch(UriUtils.getLastPathSegment(patch.getUri()), e);
+    }
+
+    private void updateInspectCacheStats() {
+        CacheStats stats = inspectCache.stats();
+        setStat(STAT_NAME_INSPECT_CACHE_HIT_COUNT, stats.hitCount());
+        setStat(STAT_NAME_INSPECT_CACHE_MISS_COUNT, stats.missCount());
+        setStat(STAT_NAME_INSPECT_CACHE_EVICTION_COUNT, stats.evictionCount());
     }
 
     @Override
@@ -161,6 +590,12 @@ public class ContainerStatsService extends StatelessService {
                 String.format("Get container stats. Provide the ContainerState id in URI query "
                         + "parameter with key \"%s\".", CONTAINER_ID_QUERY_PARAM),
                 ContainerStats.class);
+        addServiceRequestRoute(template, Action.POST,
+                "Get the stats of many containers, selected by ids, host or project. The result "
+                        + "is streamed as server-sent events to clients accepting "
+                        + "text/event-stream. Otherwise it is buffered and returned as "
+                        + "newline-delimited JSON once all entries are collected.",
+                ContainerStatsBulkEntry.class);
         return template;
     }
 
@@ -43,6 +43,7 @@ public class ShellContainerExecutorService extends StatelessService {
     private static final int RETRY_COUNT = Integer.parseInt(System.getProperty(
             "dcp.management.container.shell.availability.retry", "20"));
     public static final String COMMAND_KEY = "command";
+    public static final String TIMEOUT_SECONDS_KEY = "timeoutSeconds";
     public static final String HOST_LINK_URI_PARAM = "hostLink";
     public static final String CONTAINER_LINK_URI_PARAM = "containerLink";
 
@@ -52,6 +53,8 @@ public class ShellContainerExecutorService extends StatelessService {
         public String[] command;
         public Boolean attachStdErr;
         public Boolean attachStdOut;
+        /** Timeout of the command in seconds, defaults to the timeout of the docker requests. */
+        public Integer timeoutSeconds;
     }
 
     public static class ShellContainerExecutorResult {
@@ -182,6 +185,11 @@ public class ShellContainerExecutorService extends StatelessService {
             adapterRequest.customProperties.put("AttachStdout", execState.attachStdOut.toString());
         }
 
+        if (execState.timeoutSeconds != null) {
+            adapterRequest.customProperties.put(TIMEOUT_SECONDS_KEY,
+                    execState.timeoutSeconds.toString());
+        }
+
         String host = container.adapterManagementReference.getHost();
         String targetPath = null;
         if (StringUtils.isBlank(host)) {
@@ -190,9 +198,14 @@ public class ShellContainerExecutorService extends StatelessService {
             targetPath = container.adapterManagementReference.getPath();
         }
 
-        sendRequest(Operation
+        Operation patch = Operation
                 .createPatch(getHost(), targetPath)
-                .setBodyNoCloning(adapterRequest)
+                .setBodyNoCloning(adapterRequest);
+        if (execState.timeoutSeconds != null) {
+            // the command can run longer than the default operation timeout
+            patch.setExpiration(op.getExpirationMicrosUtc());
+        }
+        sendRequest(patch
                 .setCompletion((o, e) -> {
                     if (e != null) {
                         logSevere("Exec command failed: %s", e.getMessage());
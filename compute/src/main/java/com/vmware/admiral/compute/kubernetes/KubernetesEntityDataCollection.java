@@ -120,6 +120,18 @@ public class KubernetesEntityDataCollection extends StatefulService {
         public String computeHostLink;
         public Map<String, KubernetesEntityData> idToEntityData = new ConcurrentHashMap<>();
         public boolean unlockDataCollectionForHost;
+
+        /**
+         * Whether the callback carries only the entities changed since the previous listing of
+         * the host, in which case the entities which are not listed are left as they are and
+         * only the ones in {@link #removedIds} are deleted.
+         */
+        public boolean incremental;
+
+        /**
+         * The IDs of the entities removed since the previous listing of the host.
+         */
+        public Set<String> removedIds = new HashSet<>();
     }
 
     public KubernetesEntityDataCollection() {
@@ -282,10 +294,10 @@ public class KubernetesEntityDataCollection extends StatefulService {
             if (entityState.id != null) {
                 exists = callback.idToEntityData.remove(entityState.id) != null;
             }
-            if (!exists) {
-                handleMissingEntity(entityState);
-            } else {
+            if (exists) {
                 requestEntityInspection(entityState);
+            } else if (!callback.incremental || callback.removedIds.contains(entityState.id)) {
+                handleMissingEntity(entityState);
             }
         }
 
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.compute.kubernetes.entities.common;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import com.vmware.xenon.common.Utils;
+
+/**
+ * WatchEvent represents a single event of a watched resource.
+ */
+public class WatchEvent {
+
+    public static final String TYPE_ADDED = "ADDED";
+    public static final String TYPE_MODIFIED = "MODIFIED";
+    public static final String TYPE_DELETED = "DELETED";
+    public static final String TYPE_BOOKMARK = "BOOKMARK";
+    public static final String TYPE_ERROR = "ERROR";
+
+    /**
+     * The type of the event: ADDED, MODIFIED, DELETED, BOOKMARK or ERROR.
+     */
+    public String type;
+
+    /**
+     * The object of the event. For DELETED it is the state of the object immediately before
+     * deletion, for BOOKMARK only its resource version is set and for ERROR it is a Status
+     * object.
+     */
+    public JsonObject object;
+
+    public BaseKubernetesObject getObject() {
+        return Utils.fromJson(this.object, BaseKubernetesObject.class);
+    }
+
+    /**
+     * Returns the resource version of the object, which is the resource version to resume
+     * watching from after this event.
+     */
+    public String getResourceVersion() {
+        if (this.object == null || !this.object.has("metadata")) {
+            return null;
+        }
+        JsonElement resourceVersion = this.object.getAsJsonObject("metadata")
+                .get("resourceVersion");
+        return resourceVersion == null || resourceVersion.isJsonNull() ? null
+                : resourceVersion.getAsString();
+    }
+}
@@ -13,9 +13,9 @@ package com.vmware.admiral.compute.kubernetes.entities.replicaset;
 
 import java.util.List;
 
-import com.vmware.admiral.compute.kubernetes.entities.common.BaseKubernetesObject;
+import com.vmware.admiral.compute.kubernetes.entities.common.BaseKubernetesList;
 
-public class ReplicaSetList extends BaseKubernetesObject {
+public class ReplicaSetList extends BaseKubernetesList {
 
     public List<ReplicaSet> items;
 }
@@ -32,6 +32,7 @@ import com.vmware.admiral.compute.RegistryConfigCertificateDistributionService;
 import com.vmware.admiral.compute.RegistryHostConfigService;
 import com.vmware.admiral.compute.ResourceType;
 import com.vmware.admiral.compute.cluster.ClusterService;
+import com.vmware.admiral.compute.cluster.ClusterSummaryService;
 import com.vmware.admiral.compute.container.CompositeComponentFactoryService;
 import com.vmware.admiral.compute.container.CompositeComponentRegistry;
 import com.vmware.admiral.compute.container.CompositeDescriptionCloneService;
@@ -128,6 +129,7 @@ public class HostInitComputeServicesConfig extends HostInitServiceHelper {
                     service(KubernetesDescriptionContentService.class),
                     service(PodLogService.class),
                     service(ClusterService.class),
+                    service(ClusterSummaryService.class),
                     service(DanglingDescriptionsCleanupService.class),
                     service(ContainerDescriptionToKubernetesDescriptionConverterService.class),
                     service(FavoriteImageFactoryService.class),
@@ -184,6 +186,7 @@ public class HostInitComputeServicesConfig extends HostInitServiceHelper {
                 KubernetesDescriptionContentService.class,
                 PodLogService.class,
                 ClusterService.class,
+                ClusterSummaryService.class,
                 DanglingDescriptionsCleanupService.class,
                 ContainerDescriptionToKubernetesDescriptionConverterService.class,
                 FavoriteImageFactoryService.class,
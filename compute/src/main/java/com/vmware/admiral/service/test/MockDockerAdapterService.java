@@ -21,12 +21,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 
 import com.vmware.admiral.adapter.common.AdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest.BatchAdapterResponse;
 import com.vmware.admiral.adapter.common.ContainerOperationType;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.common.util.QueryUtil;
@@ -39,10 +44,12 @@ import com.vmware.admiral.compute.container.ShellContainerExecutorService;
 import com.vmware.admiral.compute.container.maintenance.ContainerStats;
 import com.vmware.admiral.compute.container.maintenance.ContainerStatsEvaluator;
 import com.vmware.admiral.service.common.LogService;
+import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
 import com.vmware.admiral.service.test.MockDockerContainerToHostService.MockDockerContainerToHostState;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceErrorResponse;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.TaskState.TaskStage;
@@ -87,6 +94,19 @@ public class MockDockerAdapterService extends BaseMockAdapterService {
         }
     }
 
+    private static class MockBatchItemRequest extends MockAdapterRequest {
+        private final transient Consumer<ServiceErrorResponse> completion;
+
+        private MockBatchItemRequest(BatchAdapterRequest batchRequest, URI resourceReference,
+                Consumer<ServiceErrorResponse> completion) {
+            this.operationTypeId = batchRequest.operationTypeId;
+            this.resourceReference = resourceReference;
+            this.serviceTaskCallback = batchRequest.serviceTaskCallback;
+            this.customProperties = batchRequest.customProperties;
+            this.completion = completion;
+        }
+    }
+
     @Override
     public void handleRequest(Operation op) {
         if (op.getAction() == Action.DELETE) {
@@ -122,8 +142,55 @@ public class MockDockerAdapterService extends BaseMockAdapterService {
 
         op.setStatusCode(Operation.STATUS_CODE_ACCEPTED).complete();
 
-        MockAdapterRequest state = op.getBody(MockAdapterRequest.class);
+        BatchAdapterRequest batchRequest = op.getBody(BatchAdapterRequest.class);
+        if (batchRequest.resourceReferences != null) {
+            processBatchRequest(batchRequest);
+            return;
+        }
+
+        processRequest(op.getBody(MockAdapterRequest.class));
+    }
+
+    private void processBatchRequest(BatchAdapterRequest batchRequest) {
+        AtomicInteger remaining = new AtomicInteger(batchRequest.resourceReferences.size());
+        List<String> completedResourceLinks = new ArrayList<>();
+        Map<String, ServiceErrorResponse> failedResourceLinks = new ConcurrentHashMap<>();
+        for (URI resourceReference : batchRequest.resourceReferences) {
+            processRequest(new MockBatchItemRequest(batchRequest, resourceReference, (e) -> {
+                if (e == null) {
+                    synchronized (completedResourceLinks) {
+                        completedResourceLinks.add(resourceReference.getPath());
+                    }
+                } else {
+                    failedResourceLinks.put(resourceReference.getPath(), e);
+                }
+                if (remaining.decrementAndGet() > 0) {
+                    return;
+                }
+
+                BatchAdapterResponse response = new BatchAdapterResponse();
+                response.copy(failedResourceLinks.isEmpty()
+                        ? batchRequest.serviceTaskCallback.getFinishedResponse()
+                        : batchRequest.serviceTaskCallback.getFailedResponse(
+                                failedResourceLinks.values().iterator().next()));
+                response.completedResourceLinks = completedResourceLinks;
+                response.failedResourceLinks = failedResourceLinks;
+                super.patchTaskStage(batchRequest, null, response);
+            }));
+        }
+    }
+
+    @Override
+    protected void patchTaskStage(AdapterRequest state, ServiceErrorResponse errorResponse,
+            ServiceTaskCallbackResponse callbackResponse) {
+        if (state instanceof MockBatchItemRequest) {
+            ((MockBatchItemRequest) state).completion.accept(errorResponse);
+            return;
+        }
+        super.patchTaskStage(state, errorResponse, callbackResponse);
+    }
 
+    private void processRequest(MockAdapterRequest state) {
         TaskState taskInfo = state.validateMock();
 
         logInfo("Request accepted for resource: %s", state.resourceReference);
@@ -16,6 +16,7 @@ import static com.vmware.admiral.compute.content.kubernetes.KubernetesUtil.creat
 import java.net.HttpURLConnection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import com.vmware.admiral.adapter.common.AdapterRequest;
 import com.vmware.admiral.adapter.common.ContainerHostOperationType;
@@ -30,6 +31,17 @@ import com.vmware.xenon.common.Utils;
 public class MockKubernetesHostAdapterService extends BaseMockAdapterService {
     public static final String SELF_LINK = ManagementUriParts.ADAPTER_KUBERNETES_HOST;
 
+    private static volatile Set<String> removedEntityIds;
+
+    /**
+     * Makes the entity listing incremental, listing the entities of
+     * {@link MockKubernetesAdapterService} as changed and the given IDs as removed. The listing
+     * is complete again if the IDs are {@code null}.
+     */
+    public static void setIncrementalListing(Set<String> removedIds) {
+        removedEntityIds = removedIds;
+    }
+
     @Override
     public void handleRequest(Operation op) {
         if (op.getAction() == Action.DELETE) {
@@ -71,6 +83,11 @@ public class MockKubernetesHostAdapterService extends BaseMockAdapterService {
                         .put(entity.id, createEntityData(entity.getEntityAsBaseKubernetesObject(),
                                 entity.getType()));
             }
+            Set<String> removedIds = removedEntityIds;
+            if (removedIds != null) {
+                callbackResponse.incremental = true;
+                callbackResponse.removedIds = removedIds;
+            }
             patchTaskStage(request, null, callbackResponse);
             op.setBody(callbackResponse);
             op.complete();
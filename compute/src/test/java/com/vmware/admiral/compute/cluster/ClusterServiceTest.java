@@ -346,6 +346,104 @@ public class ClusterServiceTest extends ComputeBaseTest {
         assertTrue(filteredClustersList.contains(clusterDocker.documentSelfLink));
     }
 
+    @Test
+    public void testListClustersPaging() throws Throwable {
+        createCluster(createContainerHostSpec(
+                Collections.singletonList(buildProjectLink("test-docker-project")),
+                ContainerHostType.DOCKER, "docker-host"));
+        createCluster(createContainerHostSpec(
+                Collections.singletonList(buildProjectLink("test-vch-project")),
+                ContainerHostType.VCH, "vch-host"));
+
+        List<String> allClustersList = getClustersLinks();
+        assertEquals(3, allClustersList.size());
+
+        TestRequestSender sender = host.getTestRequestSender();
+        ServiceDocumentQueryResult firstPage = sender.sendAndWait(Operation.createGet(
+                UriUtils.buildUri(host, ClusterService.SELF_LINK, "$top=2&$skip=0")),
+                ServiceDocumentQueryResult.class);
+        assertEquals(2, firstPage.documentLinks.size());
+        assertEquals(Long.valueOf(3), firstPage.documentCount);
+
+        ServiceDocumentQueryResult secondPage = sender.sendAndWait(Operation.createGet(
+                UriUtils.buildUri(host, ClusterService.SELF_LINK, "$top=2&$skip=2")),
+                ServiceDocumentQueryResult.class);
+        assertEquals(1, secondPage.documentLinks.size());
+
+        Set<String> pagedLinks = new HashSet<>(firstPage.documentLinks);
+        pagedLinks.addAll(secondPage.documentLinks);
+        assertEquals(new HashSet<>(allClustersList), pagedLinks);
+
+        // the type filter is applied before paging
+        ServiceDocumentQueryResult vchPage = sender.sendAndWait(Operation.createGet(
+                UriUtils.buildUri(host, ClusterService.SELF_LINK,
+                        "type=VCH&$top=2&$skip=0")),
+                ServiceDocumentQueryResult.class);
+        assertEquals(1, vchPage.documentLinks.size());
+        assertEquals(Long.valueOf(1), vchPage.documentCount);
+    }
+
+    @Test
+    public void testListClustersFollowsHostChanges() throws Throwable {
+        final String projectLink = buildProjectLink("test-docker-project");
+        ClusterDto cluster = createCluster(createContainerHostSpec(
+                Collections.singletonList(projectLink), ContainerHostType.DOCKER));
+        assertEquals(ClusterStatus.ON,
+                getClustersExpand().get(cluster.documentSelfLink).status);
+
+        ComputeState patch = new ComputeState();
+        patch.powerState = ComputeService.PowerState.OFF;
+        doPatch(patch, cluster.nodeLinks.get(0));
+        assertEquals(ClusterStatus.OFF,
+                getClustersExpand().get(cluster.documentSelfLink).status);
+
+        addHostInCluster(Service.getId(cluster.documentSelfLink),
+                createContainerHostSpec(projectLink));
+        ClusterDto listedCluster = getClustersExpand().get(cluster.documentSelfLink);
+        assertEquals(2, listedCluster.nodeLinks.size());
+        assertEquals(2, listedCluster.nodes.size());
+
+        deleteHostInCluster(Service.getId(cluster.documentSelfLink),
+                Service.getId(cluster.nodeLinks.get(0)));
+        listedCluster = getClustersExpand().get(cluster.documentSelfLink);
+        assertEquals(1, listedCluster.nodeLinks.size());
+        assertTrue(!listedCluster.nodeLinks.contains(cluster.nodeLinks.get(0)));
+
+        deleteCluster(Service.getId(cluster.documentSelfLink));
+        assertTrue(!getClustersLinks().contains(cluster.documentSelfLink));
+    }
+
+    @Test
+    public void testListClustersEvictsHostsNoLongerInCluster() throws Throwable {
+        final String projectLink = buildProjectLink("test-docker-project");
+        ClusterDto cluster = createCluster(createContainerHostSpec(
+                Collections.singletonList(projectLink), ContainerHostType.DOCKER));
+        ClusterDto otherCluster = createCluster(createContainerHostSpec(
+                Collections.singletonList(projectLink), ContainerHostType.DOCKER,
+                "other-host"));
+        String hostLink = cluster.nodeLinks.get(0);
+
+        // the host moves to the resource pool of the other cluster
+        ComputeState patch = new ComputeState();
+        patch.resourcePoolLink = otherCluster.documentSelfLink.replace(
+                ClusterService.SELF_LINK, ResourcePoolService.FACTORY_LINK);
+        doPatch(patch, hostLink);
+        waitFor(() -> isListedInCluster(hostLink, otherCluster.documentSelfLink));
+        assertTrue(!isListedInCluster(hostLink, cluster.documentSelfLink));
+
+        // the host stops being a container host
+        patch = new ComputeState();
+        patch.customProperties = new HashMap<>();
+        patch.customProperties.put(ComputeConstants.COMPUTE_CONTAINER_HOST_PROP_NAME, "false");
+        doPatch(patch, hostLink);
+        waitFor(() -> !isListedInCluster(hostLink, otherCluster.documentSelfLink));
+    }
+
+    private boolean isListedInCluster(String hostLink, String clusterLink) {
+        List<String> nodeLinks = getClustersExpand().get(clusterLink).nodeLinks;
+        return nodeLinks != null && nodeLinks.contains(hostLink);
+    }
+
     @Test
     public void testGetOneCluster() throws Throwable {
         final String projectLinkDocker = buildProjectLink("test-docker-project");
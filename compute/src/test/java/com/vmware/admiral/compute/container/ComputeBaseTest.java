@@ -20,6 +20,7 @@ import org.junit.Before;
 
 import com.vmware.admiral.common.test.BaseTestCase;
 import com.vmware.admiral.common.test.HostInitTestDcpServicesConfig;
+import com.vmware.admiral.compute.cluster.ClusterSummaryService;
 import com.vmware.admiral.host.CompositeComponentInterceptor;
 import com.vmware.admiral.host.ComputeInitialBootService;
 import com.vmware.admiral.host.HostInitCommonServiceConfig;
@@ -44,6 +45,8 @@ public abstract class ComputeBaseTest extends BaseTestCase {
     @Before
     public void beforeForComputeBase() throws Throwable {
         host.addPrivilegedService(ContainerHostDataCollectionService.class);
+        host.addPrivilegedService(ClusterSummaryService.class);
+        host.addPrivilegedService(ContainerStatsService.class);
         startServices(host);
         waitForInitialBootServiceToBeSelfStopped(ComputeInitialBootService.SELF_LINK);
     }
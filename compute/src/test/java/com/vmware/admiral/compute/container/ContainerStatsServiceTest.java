@@ -17,9 +17,19 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.google.common.base.Ticker;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
@@ -27,27 +37,35 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.vmware.admiral.adapter.common.AdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest.BatchAdapterResponse;
 import com.vmware.admiral.adapter.common.ContainerOperationType;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.compute.container.ContainerDescriptionService.ContainerDescription;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
+import com.vmware.admiral.compute.container.ContainerStatsService.ContainerStatsBulkEntry;
+import com.vmware.admiral.compute.container.ContainerStatsService.ContainerStatsBulkRequest;
 import com.vmware.admiral.compute.container.HealthChecker.HealthConfig;
 import com.vmware.admiral.compute.container.HealthChecker.HealthConfig.HttpVersion;
 import com.vmware.admiral.compute.container.HealthChecker.HealthConfig.RequestProtocol;
 import com.vmware.admiral.compute.container.maintenance.ContainerStats;
 import com.vmware.admiral.compute.container.maintenance.ContainerStatsEvaluator;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServerSentEvent;
 import com.vmware.xenon.common.Service.Action;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.ServiceStats;
 import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.common.test.TestContext;
 import com.vmware.xenon.common.test.TestRequestSender;
 import com.vmware.xenon.common.test.TestRequestSender.FailureResponse;
 
 public class ContainerStatsServiceTest extends ComputeBaseTest {
+    private static final String TEST_STATS_SERVICE_LINK = "/test-container-stats";
+
     private ContainerStats containerStats;
     private ContainerState containerState;
 
@@ -245,11 +263,262 @@ public class ContainerStatsServiceTest extends ComputeBaseTest {
             assertEquals(ServiceStats.KIND, stats.documentKind);
             assertTrue(mockAdapterService.isStatsInvokedForResource(containerLink));
             assertFalse(mockAdapterService.isInspectInvokedForResource(containerLink));
+
+            ServiceStats serviceStats = getDocument(ServiceStats.class,
+                    ContainerStatsService.SELF_LINK + ServiceHost.SERVICE_URI_SUFFIX_STATS);
+            assertTrue(serviceStats.entries.get(
+                    ContainerStatsService.STAT_NAME_INSPECT_CACHE_HIT_COUNT).latestValue >= 1);
+        } finally {
+            stopService(mockAdapterService);
+        }
+    }
+
+    @Test
+    public void testConcurrentRequestsShareInspectAndStats() throws Throwable {
+        HoldingAdapterService adapter = startHoldingAdapter();
+        ContainerStatsService statsService = startStatsService(new TestTicker());
+        ContainerState container = createContainerForAdapter(HoldingAdapterService.SELF_LINK);
+        try {
+            TestContext ctx = testCreate(2);
+            for (int i = 0; i < 2; i++) {
+                host.send(Operation.createGet(buildStatsRequestUri(container))
+                        .setCompletion(ctx.getCompletion()));
+            }
+
+            // both requests miss the cache and wait for the same inspect
+            waitFor(() -> getServiceStat(ContainerStatsService.STAT_NAME_INSPECT_CACHE_MISS_COUNT)
+                    == 2);
+            assertEquals(1, adapter.inspectCount.get());
+
+            adapter.release();
+            waitFor(() -> adapter.statsCount.get() > 0);
+            adapter.release();
+            ctx.await();
+
+            assertEquals(1, adapter.inspectCount.get());
+            assertEquals(1, adapter.statsCount.get());
+        } finally {
+            stopService(statsService);
+            stopService(adapter);
+        }
+    }
+
+    @Test
+    public void testInspectCacheEntriesExpire() throws Throwable {
+        HoldingAdapterService adapter = startHoldingAdapter();
+        adapter.hold = false;
+        TestTicker ticker = new TestTicker();
+        ContainerStatsService statsService = startStatsService(ticker);
+        ContainerState container = createContainerForAdapter(HoldingAdapterService.SELF_LINK);
+        try {
+            TestRequestSender sender = host.getTestRequestSender();
+            sender.sendAndWait(Operation.createGet(buildStatsRequestUri(container)));
+            assertEquals(1, adapter.inspectCount.get());
+
+            ticker.advance(ContainerStatsService.INSPECT_CACHE_TTL_SECONDS - 1, TimeUnit.SECONDS);
+            sender.sendAndWait(Operation.createGet(buildStatsRequestUri(container)));
+            assertEquals(1, adapter.inspectCount.get());
+
+            ticker.advance(1, TimeUnit.SECONDS);
+            sender.sendAndWait(Operation.createGet(buildStatsRequestUri(container)));
+            assertEquals(2, adapter.inspectCount.get());
+            assertEquals(3, adapter.statsCount.get());
+        } finally {
+            stopService(statsService);
+            stopService(adapter);
+        }
+    }
+
+    @Test
+    public void testContainerStatsBulkWithoutCriteria() {
+        TestRequestSender sender = host.getTestRequestSender();
+        FailureResponse failureResponse = sender.sendAndWaitFailure(Operation
+                .createPost(host, ContainerStatsService.SELF_LINK)
+                .setBody(new ContainerStatsBulkRequest()));
+        assertEquals(Operation.STATUS_CODE_BAD_REQUEST, failureResponse.op.getStatusCode());
+    }
+
+    @Test
+    public void testContainerStatsBulk() throws Throwable {
+        MockAdapterService mockAdapterService = new MockAdapterService();
+        try {
+            stopService(mockAdapterService);
+
+            URI adapterServiceUri = UriUtils.buildUri(host, ManagementUriParts.ADAPTER_DOCKER);
+            host.startService(Operation.createPost(adapterServiceUri), mockAdapterService);
+            waitForServiceAvailability(ManagementUriParts.ADAPTER_DOCKER);
+
+            ContainerState container1 = doPost(createContainerState(null, "/host-a"),
+                    ContainerFactoryService.SELF_LINK);
+            ContainerState container2 = doPost(createContainerState(null, "/host-a"),
+                    ContainerFactoryService.SELF_LINK);
+            ContainerState container3 = doPost(createContainerState(null, "/host-b"),
+                    ContainerFactoryService.SELF_LINK);
+            List<String> containerLinks = Arrays.asList(container1.documentSelfLink,
+                    container2.documentSelfLink, container3.documentSelfLink);
+
+            ContainerStatsBulkRequest request = new ContainerStatsBulkRequest();
+            request.ids = Arrays.asList(
+                    UriUtils.getLastPathSegment(container1.documentSelfLink),
+                    UriUtils.getLastPathSegment(container2.documentSelfLink),
+                    UriUtils.getLastPathSegment(container3.documentSelfLink));
+
+            TestRequestSender sender = host.getTestRequestSender();
+            Operation response = sender.sendAndWait(Operation
+                    .createPost(host, ContainerStatsService.SELF_LINK)
+                    .setBody(request));
+            assertEquals(Operation.STATUS_CODE_OK, response.getStatusCode());
+            assertEquals(ContainerStatsService.NDJSON_CONTENT_TYPE, response.getContentType());
+
+            String[] lines = response.getBody(String.class).split("\n");
+            assertEquals(3, lines.length);
+            for (String line : lines) {
+                ContainerStatsBulkEntry entry = Utils.fromJson(line,
+                        ContainerStatsBulkEntry.class);
+                assertNotNull(entry.stats);
+                assertTrue(containerLinks.contains(entry.documentSelfLink));
+                assertTrue(mockAdapterService.isStatsInvokedForResource(entry.documentSelfLink));
+                assertTrue(mockAdapterService.isInspectInvokedForResource(
+                        entry.documentSelfLink));
+            }
+
+            // a single inspect and a single stats batch request per host
+            assertEquals(2, mockAdapterService.inspectBatchCount.get());
+            assertEquals(2, mockAdapterService.statsBatchCount.get());
+        } finally {
+            stopService(mockAdapterService);
+        }
+    }
+
+    @Test
+    public void testContainerStatsBulkEventStream() throws Throwable {
+        MockAdapterService mockAdapterService = new MockAdapterService();
+        try {
+            stopService(mockAdapterService);
+
+            URI adapterServiceUri = UriUtils.buildUri(host, ManagementUriParts.ADAPTER_DOCKER);
+            host.startService(Operation.createPost(adapterServiceUri), mockAdapterService);
+            waitForServiceAvailability(ManagementUriParts.ADAPTER_DOCKER);
+
+            ContainerState container1 = doPost(createContainerState(null),
+                    ContainerFactoryService.SELF_LINK);
+            ContainerState container2 = doPost(createContainerState(null),
+                    ContainerFactoryService.SELF_LINK);
+
+            ContainerStatsBulkRequest request = new ContainerStatsBulkRequest();
+            request.ids = Arrays.asList(
+                    UriUtils.getLastPathSegment(container1.documentSelfLink),
+                    UriUtils.getLastPathSegment(container2.documentSelfLink));
+
+            List<ServerSentEvent> events = new CopyOnWriteArrayList<>();
+            TestRequestSender sender = host.getTestRequestSender();
+            Operation response = sender.sendAndWait(Operation
+                    .createPost(host, ContainerStatsService.SELF_LINK)
+                    .addRequestHeader(Operation.ACCEPT_HEADER,
+                            Operation.MEDIA_TYPE_TEXT_EVENT_STREAM)
+                    .setServerSentEventHandler(events::add)
+                    .setBody(request));
+            assertEquals(Operation.STATUS_CODE_OK, response.getStatusCode());
+
+            // each entry is sent as its own event, nothing is buffered in the response body
+            assertEquals(2, events.size());
+            for (ServerSentEvent event : events) {
+                ContainerStatsBulkEntry entry = Utils.fromJson(event.data,
+                        ContainerStatsBulkEntry.class);
+                assertNotNull(entry.stats);
+                assertTrue(entry.documentSelfLink.equals(container1.documentSelfLink)
+                        || entry.documentSelfLink.equals(container2.documentSelfLink));
+            }
         } finally {
             stopService(mockAdapterService);
         }
     }
 
+    @Test
+    public void testContainerStatsBulkRequestsOtherAdaptersPerContainer() throws Throwable {
+        HoldingAdapterService adapter = startHoldingAdapter();
+        adapter.hold = false;
+        try {
+            ContainerState container1 = createContainerForAdapter(HoldingAdapterService.SELF_LINK);
+            ContainerState container2 = createContainerForAdapter(HoldingAdapterService.SELF_LINK);
+
+            ContainerStatsBulkRequest request = new ContainerStatsBulkRequest();
+            request.ids = Arrays.asList(
+                    UriUtils.getLastPathSegment(container1.documentSelfLink),
+                    UriUtils.getLastPathSegment(container2.documentSelfLink));
+
+            TestRequestSender sender = host.getTestRequestSender();
+            Operation response = sender.sendAndWait(Operation
+                    .createPost(host, ContainerStatsService.SELF_LINK)
+                    .setBody(request));
+            assertEquals(2, response.getBody(String.class).split("\n").length);
+
+            // the adapter doesn't support batch requests, each container is requested alone
+            assertEquals(0, adapter.batchCount.get());
+            assertEquals(2, adapter.inspectCount.get());
+            assertEquals(2, adapter.statsCount.get());
+        } finally {
+            stopService(adapter);
+        }
+    }
+
+    @Test
+    public void testBatchCallbackRequiresExistingCallbackId() {
+        TestRequestSender sender = host.getTestRequestSender();
+        FailureResponse failure = sender.sendAndWaitFailure(Operation
+                .createPatch(host, ContainerStatsService.SELF_LINK)
+                .setBody(new BatchAdapterResponse()));
+        assertEquals(Operation.STATUS_CODE_BAD_METHOD, failure.op.getStatusCode());
+
+        // unknown callbacks are ignored
+        Operation response = sender.sendAndWait(Operation
+                .createPatch(host, UriUtils.buildUriPath(ContainerStatsService.SELF_LINK,
+                        "unknown"))
+                .setBody(new BatchAdapterResponse()));
+        assertEquals(Operation.STATUS_CODE_OK, response.getStatusCode());
+    }
+
+    private HoldingAdapterService startHoldingAdapter() throws Throwable {
+        HoldingAdapterService adapter = new HoldingAdapterService();
+        host.startService(Operation.createPost(
+                UriUtils.buildUri(host, HoldingAdapterService.SELF_LINK)), adapter);
+        waitForServiceAvailability(HoldingAdapterService.SELF_LINK);
+        return adapter;
+    }
+
+    private ContainerStatsService startStatsService(Ticker ticker) throws Throwable {
+        ContainerStatsService statsService = new ContainerStatsService(ticker);
+        host.startService(Operation.createPost(
+                UriUtils.buildUri(host, TEST_STATS_SERVICE_LINK)), statsService);
+        waitForServiceAvailability(TEST_STATS_SERVICE_LINK);
+        return statsService;
+    }
+
+    private ContainerState createContainerForAdapter(String adapterLink) throws Throwable {
+        ContainerState container = createContainerState(null);
+        container.adapterManagementReference = UriUtils.buildUri(adapterLink);
+        return doPost(container, ContainerFactoryService.SELF_LINK);
+    }
+
+    private URI buildStatsRequestUri(ContainerState container) {
+        return UriUtils.buildUri(host, TEST_STATS_SERVICE_LINK, String.format("%s=%s",
+                ContainerStatsService.CONTAINER_ID_QUERY_PARAM,
+                UriUtils.getLastPathSegment(container.documentSelfLink)));
+    }
+
+    private double getServiceStat(String name) throws Throwable {
+        ServiceStats stats = getDocument(ServiceStats.class,
+                TEST_STATS_SERVICE_LINK + ServiceHost.SERVICE_URI_SUFFIX_STATS);
+        return stats.entries.containsKey(name) ? stats.entries.get(name).latestValue : 0;
+    }
+
+    private ContainerState createContainerState(String containerDescriptionLink,
+            String parentLink) {
+        ContainerState container = createContainerState(containerDescriptionLink);
+        container.parentLink = parentLink;
+        return container;
+    }
+
     private ContainerState createContainerState(String containerDescriptionLink) {
         ContainerState container = new ContainerState();
         container.descriptionLink = containerDescriptionLink;
@@ -355,6 +624,9 @@ public class ContainerStatsServiceTest extends ComputeBaseTest {
             return resourcesInvokedStats.contains(link);
         }
 
+        private final AtomicInteger inspectBatchCount = new AtomicInteger();
+        private final AtomicInteger statsBatchCount = new AtomicInteger();
+
         public void reset() {
             resourcesInvokedStats.clear();
             resourcesInvokedInspect.clear();
@@ -362,6 +634,12 @@ public class ContainerStatsServiceTest extends ComputeBaseTest {
 
         @Override
         public void handlePatch(Operation op) {
+            BatchAdapterRequest batchRequest = op.getBody(BatchAdapterRequest.class);
+            if (batchRequest.resourceReferences != null) {
+                handleBatchPatch(op, batchRequest);
+                return;
+            }
+
             AdapterRequest state = op.getBody(AdapterRequest.class);
             if (ContainerOperationType.STATS.id.equals(state.operationTypeId)) {
                 logInfo(">>>> Invoking MockAdapterService handlePatch for Stats for: %s",
@@ -374,6 +652,76 @@ public class ContainerStatsServiceTest extends ComputeBaseTest {
             }
             op.complete();
         }
+
+        private void handleBatchPatch(Operation op, BatchAdapterRequest batchRequest) {
+            List<String> links = new ArrayList<>();
+            batchRequest.resourceReferences.forEach((r) -> links.add(r.getPath()));
+            if (ContainerOperationType.STATS.id.equals(batchRequest.operationTypeId)) {
+                statsBatchCount.incrementAndGet();
+                resourcesInvokedStats.addAll(links);
+            } else if (ContainerOperationType.INSPECT.id.equals(batchRequest.operationTypeId)) {
+                inspectBatchCount.incrementAndGet();
+                resourcesInvokedInspect.addAll(links);
+            }
+            op.complete();
+
+            BatchAdapterResponse response = new BatchAdapterResponse();
+            response.copy(batchRequest.serviceTaskCallback.getFinishedResponse());
+            response.completedResourceLinks = links;
+            sendRequest(Operation
+                    .createPatch(this, batchRequest.serviceTaskCallback.serviceSelfLink)
+                    .setBody(response));
+        }
     }
 
+    /**
+     * Adapter counting the inspect and stats requests and holding them until released.
+     */
+    public static class HoldingAdapterService extends StatelessService {
+        public static final String SELF_LINK = "/test-holding-adapter";
+
+        private final AtomicInteger inspectCount = new AtomicInteger();
+        private final AtomicInteger statsCount = new AtomicInteger();
+        private final AtomicInteger batchCount = new AtomicInteger();
+        private final Queue<Operation> held = new ConcurrentLinkedQueue<>();
+        private volatile boolean hold = true;
+
+        @Override
+        public void handlePatch(Operation op) {
+            if (op.getBody(BatchAdapterRequest.class).resourceReferences != null) {
+                batchCount.incrementAndGet();
+            }
+            AdapterRequest request = op.getBody(AdapterRequest.class);
+            if (ContainerOperationType.STATS.id.equals(request.operationTypeId)) {
+                statsCount.incrementAndGet();
+            } else if (ContainerOperationType.INSPECT.id.equals(request.operationTypeId)) {
+                inspectCount.incrementAndGet();
+            }
+            if (hold) {
+                held.add(op);
+            } else {
+                op.complete();
+            }
+        }
+
+        void release() {
+            Operation op;
+            while ((op = held.poll()) != null) {
+                op.complete();
+            }
+        }
+    }
+
+    private static class TestTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
 }
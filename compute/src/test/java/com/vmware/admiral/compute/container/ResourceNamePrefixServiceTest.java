@@ -16,18 +16,24 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vmware.admiral.service.common.ResourceNamePrefixLeaseService;
+import com.vmware.admiral.service.common.ResourceNamePrefixLeaseService.NamePrefixLeaseRequest;
 import com.vmware.admiral.service.common.ResourceNamePrefixService;
 import com.vmware.admiral.service.common.ResourceNamePrefixService.NamePrefixRequest;
 import com.vmware.admiral.service.common.ResourceNamePrefixService.NamePrefixResponse;
 import com.vmware.admiral.service.common.ResourceNamePrefixService.ResourceNamePrefixState;
+import com.vmware.xenon.common.Claims;
 import com.vmware.xenon.common.FactoryService;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
 
@@ -210,6 +216,83 @@ public class ResourceNamePrefixServiceTest extends ComputeBaseTest {
         }
     }
 
+    @Test
+    public void testLeasedResourcePrefixNames() throws Throwable {
+        waitForServiceAvailability(ResourceNamePrefixLeaseService.SELF_LINK);
+        ResourceNamePrefixState state = createValidResourceNamePrefixState();
+        state.numberOfDigits = 5;
+        state.nextNumber = 1;
+        state = doPost(state, ResourceNamePrefixService.FACTORY_LINK);
+
+        NamePrefixLeaseRequest request = new NamePrefixLeaseRequest();
+        request.resourceNamePrefixLink = state.documentSelfLink;
+        request.resourceCount = 3;
+        NamePrefixResponse response = doPost(request, ResourceNamePrefixLeaseService.SELF_LINK,
+                NamePrefixResponse.class);
+        assertEquals(Arrays.asList("ABC1", "ABC2", "ABC3"), response.resourceNamePrefixes);
+
+        request.resourceCount = 2;
+        response = doPost(request, ResourceNamePrefixLeaseService.SELF_LINK,
+                NamePrefixResponse.class);
+        assertEquals(Arrays.asList("ABC4", "ABC5"), response.resourceNamePrefixes);
+
+        // the names were handed out from a single leased block
+        state = getDocument(ResourceNamePrefixState.class, state.documentSelfLink);
+        assertEquals(1 + 1000, state.currentCount);
+    }
+
+    @Test
+    public void testLeasedBlocksAreKeptPerCaller() throws Throwable {
+        waitForServiceAvailability(ResourceNamePrefixLeaseService.SELF_LINK);
+        ResourceNamePrefixState state = createValidResourceNamePrefixState();
+        state.numberOfDigits = 5;
+        state.nextNumber = 1;
+        state = doPost(state, ResourceNamePrefixService.FACTORY_LINK);
+
+        AuthorizationContext user1 = createAuthorizationContext("user1");
+        AuthorizationContext user2 = createAuthorizationContext("user2");
+
+        assertEquals(Arrays.asList("ABC1", "ABC2"), lease(state, 2, user1));
+        // the block leased with the context of the first user is not handed out to the second
+        assertEquals(Arrays.asList("ABC1001", "ABC1002"), lease(state, 2, user2));
+        assertEquals(Arrays.asList("ABC3"), lease(state, 1, user1));
+
+        state = getDocument(ResourceNamePrefixState.class, state.documentSelfLink);
+        assertEquals(1 + 2000, state.currentCount);
+    }
+
+    @Test
+    public void testLeaseBlockWithinRange() throws Throwable {
+        ResourceNamePrefixState state = createValidResourceNamePrefixState();
+        state.numberOfDigits = 3;
+        state.nextNumber = 960;
+        state = doPost(state, ResourceNamePrefixService.FACTORY_LINK);
+
+        NamePrefixRequest request = new NamePrefixRequest();
+        request.leaseBlock = true;
+        request.resourceCount = 1000;
+
+        // at most a tenth of the range
+        NamePrefixResponse response = patch(state, request);
+        assertEquals(960, response.block.firstNumber);
+        assertEquals(3, response.block.count);
+
+        // the block ends where the counter is reset
+        response = patch(state, request);
+        assertEquals(963, response.block.firstNumber);
+        assertEquals(3, response.block.count);
+        for (int i = 0; i < 11; i++) {
+            response = patch(state, request);
+        }
+        assertEquals(996, response.block.firstNumber);
+        response = patch(state, request);
+        assertEquals(999, response.block.firstNumber);
+        assertEquals(1, response.block.count);
+
+        response = patch(state, request);
+        assertEquals(state.nextNumber, response.block.firstNumber);
+    }
+
     private void validateIllegalArgument(ResourceNamePrefixState state, String expecation)
             throws Throwable {
         validateLocalizableException(() -> {
@@ -226,6 +309,37 @@ public class ResourceNamePrefixServiceTest extends ComputeBaseTest {
         return state;
     }
 
+    private List<String> lease(ResourceNamePrefixState state, long count,
+            AuthorizationContext authorizationContext) throws Throwable {
+        NamePrefixLeaseRequest request = new NamePrefixLeaseRequest();
+        request.resourceNamePrefixLink = state.documentSelfLink;
+        request.resourceCount = count;
+
+        NamePrefixResponse[] result = new NamePrefixResponse[] { null };
+        host.testStart(1);
+        host.send(Operation.createPost(host, ResourceNamePrefixLeaseService.SELF_LINK)
+                .setBody(request)
+                .setAuthorizationContext(authorizationContext)
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        host.failIteration(e);
+                        return;
+                    }
+                    result[0] = o.getBody(NamePrefixResponse.class);
+                    host.completeIteration();
+                }));
+        host.testWait();
+        return result[0].resourceNamePrefixes;
+    }
+
+    private static AuthorizationContext createAuthorizationContext(String subject) {
+        Claims claims = new Claims.Builder().setSubject(subject).getResult();
+        return AuthorizationContext.Builder.create()
+                .setClaims(claims)
+                .setToken(subject)
+                .getResult();
+    }
+
     private NamePrefixResponse patch(ResourceNamePrefixState state, NamePrefixRequest request)
             throws Throwable {
         return patch(state, request, false);
@@ -17,10 +17,15 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -99,6 +104,7 @@ public class KubernetesEntityDataCollectionTest extends ComputeBaseTest {
     @After
     public void tearDown() {
         MockKubernetesAdapterService.clearKubernetesEntities();
+        MockKubernetesHostAdapterService.setIncrementalListing(null);
         if (forDelete.size() != 0) {
             host.testStart(forDelete.size());
             forDelete.forEach(link -> host.sendRequest(
@@ -393,6 +399,31 @@ public class KubernetesEntityDataCollectionTest extends ComputeBaseTest {
         Assert.assertEquals(0, pods.size());
     }
 
+    @Test
+    public void testIncrementalDataCollection() throws Throwable {
+        for (String id : Arrays.asList("pod-1", "pod-2")) {
+            PodState existingPod = new PodState();
+            existingPod.id = id;
+            existingPod.name = id;
+            existingPod.parentLink = COMPUTE_HOST_LINK;
+            existingPod.documentSelfLink = id;
+            addForDelete(doPost(existingPod, PodFactoryService.SELF_LINK).documentSelfLink);
+        }
+
+        // pod-1 is unchanged, so it is not listed but kept
+        MockKubernetesAdapterService.addEntity(makeEntity("pod-3", "new-pod",
+                KubernetesUtil.POD_TYPE, null));
+        MockKubernetesHostAdapterService.setIncrementalListing(
+                Collections.singleton("pod-2"));
+        startDataCollectionAndWait();
+
+        waitFor(() -> getEntities(PodState.class).size() == 2);
+        Set<String> ids = getEntities(PodState.class).stream()
+                .map(pod -> pod.id)
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("pod-1", "pod-3")), ids);
+    }
+
     @Test
     public void testDataCollectionDiscoverAdmiralApplication() throws Throwable {
         String testCompositeId = "test-composite-id";
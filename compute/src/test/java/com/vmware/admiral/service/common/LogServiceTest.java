@@ -14,6 +14,7 @@ package com.vmware.admiral.service.common;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Before;
@@ -22,8 +23,10 @@ import org.junit.Test;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.compute.container.ComputeBaseTest;
 import com.vmware.admiral.compute.container.ContainerFactoryService;
+import com.vmware.admiral.service.common.LogService.LogSecond;
 import com.vmware.admiral.service.common.LogService.LogServiceState;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.UriUtils;
 
 public class LogServiceTest extends ComputeBaseTest {
 
@@ -43,6 +46,64 @@ public class LogServiceTest extends ComputeBaseTest {
         assertEquals(new String(logState.logs), new String(newLogState.logs));
     }
 
+    @Test
+    public void testAppendLogsFetchedAfterKeptOnes() throws Throwable {
+        LogServiceState logState = new LogServiceState();
+        logState.documentSelfLink = "test-container";
+        logState.logs = "line1\n".getBytes();
+        logState.lastLogTimestamp = "2018-01-01T10:00:00.1Z";
+        logState = doPost(logState, LogService.FACTORY_LINK);
+        assertEquals("line1\n", new String(logState.logs));
+        assertEquals("2018-01-01T10:00:00.1Z", logState.lastLogTimestamp);
+
+        postLogs(logState.documentSelfLink, "line2\n", "2018-01-01T10:00:00.1Z",
+                "2018-01-01T10:00:01Z");
+        // fetched after other logs than the kept ones, skipped
+        postLogs(logState.documentSelfLink, "line2\n", "2018-01-01T10:00:00.1Z",
+                "2018-01-01T10:00:01Z");
+
+        LogServiceState newLogState = getDocument(LogServiceState.class,
+                logState.documentSelfLink);
+        assertEquals("line1\nline2\n", new String(newLogState.logs));
+        assertEquals("2018-01-01T10:00:01Z", newLogState.lastLogTimestamp);
+
+        newLogState = host.getServiceState(null, LogServiceState.class,
+                UriUtils.buildUri(host, logState.documentSelfLink,
+                        LogService.TAIL_QUERY_PARAM + "=1"));
+        assertEquals("line2\n", new String(newLogState.logs));
+
+        // logs without timestamp replace the kept ones
+        postLogs(logState.documentSelfLink, "line3\n", null, null);
+        newLogState = getDocument(LogServiceState.class, logState.documentSelfLink);
+        assertEquals("line3\n", new String(newLogState.logs));
+        assertNull(newLogState.lastLogTimestamp);
+    }
+
+    @Test
+    public void testReadSinceAndFromOffset() throws Throwable {
+        LogServiceState logState = new LogServiceState();
+        logState.documentSelfLink = "test-container-reads";
+        logState.logs = "line1\nline2\n".getBytes();
+        logState.logSeconds = Arrays.asList(new LogSecond(0, 10), new LogSecond(6, 12));
+        logState.lastLogTimestamp = "1970-01-01T00:00:12Z";
+        logState = doPost(logState, LogService.FACTORY_LINK);
+        assertEquals(Long.valueOf(12), logState.nextOffset);
+
+        LogServiceState newLogState = readLogs(logState.documentSelfLink,
+                LogService.SINCE_QUERY_PARAM + "=11.5");
+        assertEquals("line2\n", new String(newLogState.logs));
+
+        postLogs(logState.documentSelfLink, "line3\n", "1970-01-01T00:00:12Z",
+                "1970-01-01T00:00:14Z");
+        newLogState = readLogs(logState.documentSelfLink,
+                LogService.OFFSET_QUERY_PARAM + "=" + logState.nextOffset);
+        assertEquals("line3\n", new String(newLogState.logs));
+        assertEquals(Long.valueOf(18), newLogState.nextOffset);
+
+        newLogState = readLogs(logState.documentSelfLink, LogService.SINCE_QUERY_PARAM + "=12");
+        assertEquals("line2\nline3\n", new String(newLogState.logs));
+    }
+
     @Test
     public void testMaxLogSize() {
         int maxLogSize = LogService.MAX_LOG_SIZE;
@@ -67,6 +128,21 @@ public class LogServiceTest extends ComputeBaseTest {
         assertNull(logServiceState);
     }
 
+    private LogServiceState readLogs(String documentSelfLink, String query) {
+        return host.getServiceState(null, LogServiceState.class,
+                UriUtils.buildUri(host, documentSelfLink, query));
+    }
+
+    private void postLogs(String documentSelfLink, String logs, String sinceLogTimestamp,
+            String lastLogTimestamp) throws Throwable {
+        LogServiceState logState = new LogServiceState();
+        logState.documentSelfLink = documentSelfLink;
+        logState.logs = logs.getBytes();
+        logState.sinceLogTimestamp = sinceLogTimestamp;
+        logState.lastLogTimestamp = lastLogTimestamp;
+        doPost(logState, LogService.FACTORY_LINK);
+    }
+
     public static class LogServiceStub extends LogService {
 
         private static final long EXPIRATION_TIME = Long.MIN_VALUE;
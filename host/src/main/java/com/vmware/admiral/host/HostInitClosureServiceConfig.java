@@ -21,10 +21,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 
+import com.vmware.admiral.closures.drivers.ClosureDockerClientFactory;
 import com.vmware.admiral.closures.drivers.DriverRegistry;
 import com.vmware.admiral.closures.drivers.DriverRegistryImpl;
 import com.vmware.admiral.closures.drivers.docker.ClosureDockerClientFactoryImpl;
 import com.vmware.admiral.closures.drivers.docker.DockerDriverBase;
+import com.vmware.admiral.closures.drivers.docker.WarmContainerPool;
+import com.vmware.admiral.closures.drivers.docker.WarmContainerPoolService;
+import com.vmware.admiral.closures.drivers.nashorn.LocalExecutionPoolService;
 import com.vmware.admiral.closures.services.adapter.AdmiralAdapterFactoryService;
 import com.vmware.admiral.closures.services.closure.ClosureFactoryService;
 import com.vmware.admiral.closures.services.closuredescription.ClosureDescriptionFactoryService;
@@ -75,10 +79,19 @@ public class HostInitClosureServiceConfig extends HostInitServiceHelper {
     }
 
     private static void registerExecutionDrivers(ServiceHost host) {
+        ClosureDockerClientFactory dockerClientFactory = new ClosureDockerClientFactoryImpl(host);
+        WarmContainerPool warmPool = new WarmContainerPool(dockerClientFactory);
+        host.startService(Operation.createPost(
+                UriUtils.buildUri(host, WarmContainerPoolService.SELF_LINK)),
+                new WarmContainerPoolService(warmPool));
+        host.startService(Operation.createPost(
+                UriUtils.buildUri(host, LocalExecutionPoolService.SELF_LINK)),
+                new LocalExecutionPoolService());
+
         Map<String, String> runtimes = driverRegistry.getSupportedRuntimes();
         runtimes.forEach((r, image) -> driverRegistry
-                .register(r, new DockerDriverBase(host, driverRegistry, new
-                        ClosureDockerClientFactoryImpl(host)) {
+                .register(r, new DockerDriverBase(host, driverRegistry, dockerClientFactory,
+                        warmPool) {
                     @Override
                     public String getDockerImage() {
                         return image;
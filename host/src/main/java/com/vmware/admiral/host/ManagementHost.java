@@ -35,13 +35,16 @@ import com.vmware.admiral.auth.idm.SessionService;
 import com.vmware.admiral.auth.project.ProjectFactoryService;
 import com.vmware.admiral.auth.project.ProjectService;
 import com.vmware.admiral.auth.util.AuthUtil;
+import com.vmware.admiral.closures.drivers.docker.WarmContainerPoolService;
 import com.vmware.admiral.common.SwaggerDocumentation;
 import com.vmware.admiral.common.serialization.ReleaseConstants;
 import com.vmware.admiral.common.util.AuthUtils;
 import com.vmware.admiral.common.util.ConfigurationUtil;
 import com.vmware.admiral.common.util.SecurityUtils;
 import com.vmware.admiral.common.util.ServerX509TrustManager;
+import com.vmware.admiral.compute.cluster.ClusterSummaryService;
 import com.vmware.admiral.compute.container.ContainerHostDataCollectionService;
+import com.vmware.admiral.compute.container.ContainerStatsService;
 import com.vmware.admiral.host.interceptor.AuthCredentialsInterceptor;
 import com.vmware.admiral.host.interceptor.InUsePlacementZoneInterceptor;
 import com.vmware.admiral.host.interceptor.OperationInterceptorRegistry;
@@ -49,6 +52,7 @@ import com.vmware.admiral.host.interceptor.ProjectInterceptor;
 import com.vmware.admiral.host.interceptor.SchedulerPlacementZoneInterceptor;
 import com.vmware.admiral.host.interceptor.UnauthorizedDeleteInterceptor;
 import com.vmware.admiral.host.swagger.SwaggerDocumentationService;
+import com.vmware.admiral.request.PlacementHostSnapshotService;
 import com.vmware.admiral.service.common.AuthBootstrapService;
 import com.vmware.admiral.service.common.ConfigurationService;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationState;
@@ -494,6 +498,18 @@ public class ManagementHost extends PostgresServiceHost implements IExtensibilit
         // behalf of those principals.
         addPrivilegedService(ContainerHostDataCollectionService.class);
 
+        // ClusterSummaryService keeps a node wide view of the clusters and their hosts, which it
+        // filters by the resource query of the requesting principal.
+        addPrivilegedService(ClusterSummaryService.class);
+
+        // ContainerStatsService sends its batch adapter requests as the system user, so that
+        // only the adapter can call back.
+        addPrivilegedService(ContainerStatsService.class);
+
+        // PlacementHostSnapshotService keeps node wide snapshots of the placement hosts, which it
+        // filters by the resource query of the requesting principal.
+        addPrivilegedService(PlacementHostSnapshotService.class);
+
         // NodeMigrationService needs to be privileged in order to not get forbidden during the
         // migration process.
         addPrivilegedService(NodeMigrationService.class);
@@ -502,6 +518,10 @@ public class ManagementHost extends PostgresServiceHost implements IExtensibilit
         // authorization token from a repository (Harbor may misbehave with it).
         addPrivilegedService(RegistryAdapterService.class);
 
+        // WarmContainerPoolService provisions the warm containers as the system user, so that
+        // only the system user can call back, and filters the pool statistics by project.
+        addPrivilegedService(WarmContainerPoolService.class);
+
         if (AuthUtil.useAuthConfig(this)) {
 
             Service authService = authProvider.getAuthenticationService();
@@ -13,14 +13,12 @@ package com.vmware.photon.controller.model.monitoring;
 
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.TimeUnit;
 
 import com.vmware.photon.controller.model.UriPaths;
 import com.vmware.xenon.common.FactoryService;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.ServiceStats.TimeSeriesStats;
-import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.TimeBin;
 import com.vmware.xenon.common.StatefulService;
 
 /**
@@ -62,11 +60,7 @@ public class InMemoryResourceMetricService extends StatefulService {
             if (currentStats == null) {
                 currentState.timeSeriesStats.put(tsStats.getKey(), tsStats.getValue());
             } else {
-                for (Entry<Long, TimeBin> bin : tsStats.getValue().bins.entrySet()) {
-                    for (int i = 0; i < bin.getValue().count; i++) {
-                        currentStats.add(TimeUnit.MILLISECONDS.toMicros(bin.getKey()), bin.getValue().avg, bin.getValue().avg);
-                    }
-                }
+                TimeBinSeries.merge(currentStats, tsStats.getValue());
             }
         }
         setState(put, currentState);
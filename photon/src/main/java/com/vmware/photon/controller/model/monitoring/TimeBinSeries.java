@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.photon.controller.model.monitoring;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.AggregationType;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.TimeBin;
+
+/**
+ * Series of time bins backed by parallel primitive arrays sorted by bin id. Bins are merged at
+ * bin level - count, avg, var, min, max, sum and latest are combined in constant time regardless
+ * of the number of samples a bin stands for. Missing values are held as {@link Double#NaN}.
+ *
+ * Unlike replaying a bin through {@link TimeSeriesStats#add}, merging keeps the min, max and latest
+ * of the source bin rather than its average, and fills in latest and var of the target bin when
+ * the aggregation types include them.
+ *
+ * Not thread-safe.
+ */
+public class TimeBinSeries {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] binIds;
+    private double[] counts;
+    private double[] avgs;
+    private double[] vars;
+    private double[] mins;
+    private double[] maxs;
+    private double[] sums;
+    private double[] latests;
+    private int size;
+
+    public TimeBinSeries() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TimeBinSeries(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.binIds = new long[capacity];
+        this.counts = new double[capacity];
+        this.avgs = new double[capacity];
+        this.vars = new double[capacity];
+        this.mins = new double[capacity];
+        this.maxs = new double[capacity];
+        this.sums = new double[capacity];
+        this.latests = new double[capacity];
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public long getBinId(int index) {
+        return this.binIds[index];
+    }
+
+    public long getLastBinId() {
+        if (this.size == 0) {
+            throw new IllegalStateException("Time bin series is empty");
+        }
+        return this.binIds[this.size - 1];
+    }
+
+    public double getLatest(int index) {
+        return this.latests[index];
+    }
+
+    /**
+     * Merges the given bin into the bin with the given id, adding the bin when missing.
+     */
+    public void add(long binId, TimeBin bin) {
+        add(binId, bin.count, value(bin.avg), value(bin.var), value(bin.min), value(bin.max),
+                value(bin.sum), value(bin.latest));
+    }
+
+    /**
+     * Adds a single sample to the bin with the given id, adding the bin when missing.
+     */
+    public void add(long binId, double value) {
+        add(binId, 1, value, 0, value, value, value, value);
+    }
+
+    /**
+     * Merges the bin at the given index of the source series into the bin with the given id,
+     * adding the bin when missing. Used to roll bins up into bins of a coarser series.
+     */
+    public void add(long binId, TimeBinSeries source, int index) {
+        add(binId, source.counts[index], source.avgs[index], source.vars[index],
+                source.mins[index], source.maxs[index], source.sums[index],
+                source.latests[index]);
+    }
+
+    /**
+     * Removes the bins with ids lower than the given one.
+     */
+    public void removeBefore(long binId) {
+        int index = Arrays.binarySearch(this.binIds, 0, this.size, binId);
+        int removed = index < 0 ? -(index + 1) : index;
+        if (removed == 0) {
+            return;
+        }
+        int kept = this.size - removed;
+        System.arraycopy(this.binIds, removed, this.binIds, 0, kept);
+        System.arraycopy(this.counts, removed, this.counts, 0, kept);
+        System.arraycopy(this.avgs, removed, this.avgs, 0, kept);
+        System.arraycopy(this.vars, removed, this.vars, 0, kept);
+        System.arraycopy(this.mins, removed, this.mins, 0, kept);
+        System.arraycopy(this.maxs, removed, this.maxs, 0, kept);
+        System.arraycopy(this.sums, removed, this.sums, 0, kept);
+        System.arraycopy(this.latests, removed, this.latests, 0, kept);
+        this.size = kept;
+    }
+
+    private void add(long binId, double count, double avg, double var, double min, double max,
+            double sum, double latest) {
+        int index = indexOf(binId);
+        if (index < 0) {
+            index = insert(-(index + 1), binId);
+        }
+
+        double currentCount = this.counts[index];
+        if (!Double.isNaN(avg)) {
+            if (Double.isNaN(this.avgs[index])) {
+                this.avgs[index] = avg;
+                this.vars[index] = var;
+            } else {
+                double total = currentCount + count;
+                if (total > 0) {
+                    double delta = avg - this.avgs[index];
+                    this.avgs[index] += delta * count / total;
+                    this.vars[index] = mergeVar(this.vars[index], var, delta, currentCount,
+                            count, total);
+                }
+            }
+        }
+        this.mins[index] = min(this.mins[index], min);
+        this.maxs[index] = max(this.maxs[index], max);
+        this.sums[index] = sum(this.sums[index], sum);
+        if (!Double.isNaN(latest)) {
+            this.latests[index] = latest;
+        }
+        this.counts[index] = currentCount + count;
+    }
+
+    /**
+     * Merges the bin at the given index into the target bin, limited to the given aggregation
+     * types.
+     */
+    public void mergeInto(int index, TimeBin target, Set<AggregationType> aggregationTypes) {
+        merge(target, this.counts[index], this.avgs[index], this.vars[index], this.mins[index],
+                this.maxs[index], this.sums[index], this.latests[index], aggregationTypes);
+    }
+
+    /**
+     * Merges the source bin into the target bin, limited to the given aggregation types.
+     */
+    public static void merge(TimeBin target, TimeBin source,
+            Set<AggregationType> aggregationTypes) {
+        merge(target, source.count, value(source.avg), value(source.var), value(source.min),
+                value(source.max), value(source.sum), value(source.latest), aggregationTypes);
+    }
+
+    /**
+     * Merges the bins of the source time series into the target time series. The bins are
+     * normalized to the bin duration of the target and the target keeps at most
+     * {@link TimeSeriesStats#numBins} of the latest bins.
+     */
+    public static void merge(TimeSeriesStats target, TimeSeriesStats source) {
+        SortedMap<Long, TimeBin> bins = target.bins;
+        for (Map.Entry<Long, TimeBin> entry : source.bins.entrySet()) {
+            long binId = entry.getKey();
+            if (target.binDurationMillis > 0) {
+                binId -= binId % target.binDurationMillis;
+            }
+
+            TimeBin bin = bins.get(binId);
+            if (bin != null) {
+                merge(bin, entry.getValue(), target.aggregationType);
+                continue;
+            }
+
+            if (!bins.isEmpty() && bins.size() >= target.numBins) {
+                Long firstBinId = bins.firstKey();
+                if (binId < firstBinId) {
+                    continue;
+                }
+                bins.remove(firstBinId);
+            }
+            if (binId == entry.getKey()) {
+                bins.put(binId, entry.getValue());
+            } else {
+                bin = new TimeBin();
+                merge(bin, entry.getValue(), target.aggregationType);
+                bins.put(binId, bin);
+            }
+        }
+    }
+
+    private static void merge(TimeBin target, double count, double avg, double var, double min,
+            double max, double sum, double latest, Set<AggregationType> aggregationTypes) {
+        if (aggregationTypes.contains(AggregationType.AVG) && !Double.isNaN(avg)) {
+            if (target.avg == null) {
+                target.avg = avg;
+                target.var = Double.isNaN(var) ? null : var;
+            } else {
+                double total = target.count + count;
+                if (total > 0) {
+                    double delta = avg - target.avg;
+                    target.var = mergeVar(value(target.var), var, delta, target.count, count,
+                            total);
+                    target.avg += delta * count / total;
+                }
+            }
+        }
+
+        if (aggregationTypes.contains(AggregationType.MIN) && !Double.isNaN(min)) {
+            target.min = min(value(target.min), min);
+        }
+
+        if (aggregationTypes.contains(AggregationType.MAX) && !Double.isNaN(max)) {
+            target.max = max(value(target.max), max);
+        }
+
+        if (aggregationTypes.contains(AggregationType.SUM) && !Double.isNaN(sum)) {
+            target.sum = sum(value(target.sum), sum);
+        }
+
+        if (aggregationTypes.contains(AggregationType.LATEST) && !Double.isNaN(latest)) {
+            target.latest = latest;
+        }
+        target.count += count;
+    }
+
+    /**
+     * Combines the sums of squared differences from the mean of two bins, which is what
+     * {@link TimeBin#var} holds.
+     */
+    private static double mergeVar(double varA, double varB, double delta, double countA,
+            double countB, double total) {
+        if (Double.isNaN(varA) || Double.isNaN(varB)) {
+            return Double.isNaN(varA) ? varB : varA;
+        }
+        return varA + varB + delta * delta * countA * countB / total;
+    }
+
+    private int indexOf(long binId) {
+        // bins are mostly added in time order, check the last bin before searching
+        if (this.size == 0 || this.binIds[this.size - 1] < binId) {
+            return -(this.size + 1);
+        }
+        if (this.binIds[this.size - 1] == binId) {
+            return this.size - 1;
+        }
+        return Arrays.binarySearch(this.binIds, 0, this.size, binId);
+    }
+
+    private int insert(int index, long binId) {
+        if (this.size == this.binIds.length) {
+            int capacity = this.size * 2;
+            this.binIds = Arrays.copyOf(this.binIds, capacity);
+            this.counts = Arrays.copyOf(this.counts, capacity);
+            this.avgs = Arrays.copyOf(this.avgs, capacity);
+            this.vars = Arrays.copyOf(this.vars, capacity);
+            this.mins = Arrays.copyOf(this.mins, capacity);
+            this.maxs = Arrays.copyOf(this.maxs, capacity);
+            this.sums = Arrays.copyOf(this.sums, capacity);
+            this.latests = Arrays.copyOf(this.latests, capacity);
+        }
+        int moved = this.size - index;
+        if (moved > 0) {
+            System.arraycopy(this.binIds, index, this.binIds, index + 1, moved);
+            System.arraycopy(this.counts, index, this.counts, index + 1, moved);
+            System.arraycopy(this.avgs, index, this.avgs, index + 1, moved);
+            System.arraycopy(this.vars, index, this.vars, index + 1, moved);
+            System.arraycopy(this.mins, index, this.mins, index + 1, moved);
+            System.arraycopy(this.maxs, index, this.maxs, index + 1, moved);
+            System.arraycopy(this.sums, index, this.sums, index + 1, moved);
+            System.arraycopy(this.latests, index, this.latests, index + 1, moved);
+        }
+        this.binIds[index] = binId;
+        this.counts[index] = 0;
+        this.avgs[index] = Double.NaN;
+        this.vars[index] = Double.NaN;
+        this.mins[index] = Double.NaN;
+        this.maxs[index] = Double.NaN;
+        this.sums[index] = Double.NaN;
+        this.latests[index] = Double.NaN;
+        this.size++;
+        return index;
+    }
+
+    private static double value(Double value) {
+        return value == null ? Double.NaN : value;
+    }
+
+    private static double min(double current, double value) {
+        return Double.isNaN(current) || value < current ? value : current;
+    }
+
+    private static double max(double current, double value) {
+        return Double.isNaN(current) || value > current ? value : current;
+    }
+
+    private static double sum(double current, double value) {
+        if (Double.isNaN(value)) {
+            return current;
+        }
+        return Double.isNaN(current) ? value : current + value;
+    }
+}
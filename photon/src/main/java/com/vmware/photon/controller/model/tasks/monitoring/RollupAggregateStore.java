@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.photon.controller.model.tasks.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import com.vmware.photon.controller.model.UriPaths;
+import com.vmware.photon.controller.model.monitoring.TimeBinSeries;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.AggregationType;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.TimeBin;
+
+/**
+ * In-memory running rollup aggregates of the raw metrics of a resource, kept between the runs of
+ * {@link SingleResourceStatsAggregationTaskService}. A store is owned by the task factory of a
+ * host and shared by its tasks.
+ *
+ * Each aggregate holds the hourly bins of one raw metric of one resource, the time from which
+ * its raw metrics have been applied and a watermark - the timestamp of the latest raw metric
+ * applied. A run only needs to query and apply the raw metrics newer than the watermark minus the
+ * lateness allowance, so that metrics stored out of order are still applied. Metrics applied
+ * within the allowance are tracked by timestamp and applied once. Coarser rollups are derived from
+ * the hourly bins without touching the raw metrics.
+ *
+ * The raw metrics remain the source of truth: a missing aggregate, e.g. after a restart or an
+ * owner change of the task, only costs a full query of the raw metrics since the last rollup.
+ */
+class RollupAggregateStore {
+
+    public static final String MAX_AGGREGATES = UriPaths.PROPERTY_PREFIX
+            + "SingleResourceStatsAggregationTaskService.rollup.maxAggregates";
+    private static final int DEFAULT_MAX_AGGREGATES = 10000;
+
+    public static final String LATENESS_ALLOWANCE_MILLIS = UriPaths.PROPERTY_PREFIX
+            + "SingleResourceStatsAggregationTaskService.rollup.latenessAllowanceMillis";
+    private static final long DEFAULT_LATENESS_ALLOWANCE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * Size of the bins held by the aggregates.
+     */
+    static final int BIN_SIZE_MILLIS = StatsConstants.BUCKET_SIZE_HOURS_IN_MILLIS;
+
+    /**
+     * Period for which hourly bins are kept, enough to derive the current and the previous
+     * daily bin.
+     */
+    private static final long RETENTION_MICROS = TimeUnit.DAYS.toMicros(2);
+
+    private final Map<String, RollupAggregate> aggregates;
+    private final long latenessMicros;
+
+    RollupAggregateStore() {
+        this(Integer.getInteger(MAX_AGGREGATES, DEFAULT_MAX_AGGREGATES),
+                TimeUnit.MILLISECONDS.toMicros(Long.getLong(LATENESS_ALLOWANCE_MILLIS,
+                        DEFAULT_LATENESS_ALLOWANCE_MILLIS)));
+    }
+
+    @SuppressWarnings("serial")
+    RollupAggregateStore(int maxAggregates, long latenessMicros) {
+        this.latenessMicros = latenessMicros;
+        this.aggregates = new LinkedHashMap<String, RollupAggregate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RollupAggregate> eldest) {
+                return super.size() > maxAggregates;
+            }
+        };
+    }
+
+    /**
+     * Returns the aggregate of the given metric of the given resource if it holds all raw metrics
+     * since the given time, otherwise {@code null}.
+     */
+    synchronized RollupAggregate get(String resourceId, String metricKey, long fromMicros) {
+        RollupAggregate aggregate = this.aggregates.get(buildKey(resourceId, metricKey));
+        if (aggregate == null || !aggregate.covers(fromMicros)) {
+            return null;
+        }
+        return aggregate;
+    }
+
+    /**
+     * Creates an empty aggregate of the given metric of the given resource which is to hold the
+     * raw metrics since the given time, replacing the existing one.
+     */
+    synchronized RollupAggregate create(String resourceId, String metricKey, long fromMicros) {
+        RollupAggregate aggregate = new RollupAggregate(fromMicros, this.latenessMicros);
+        this.aggregates.put(buildKey(resourceId, metricKey), aggregate);
+        return aggregate;
+    }
+
+    synchronized void remove(String resourceId, String metricKey) {
+        this.aggregates.remove(buildKey(resourceId, metricKey));
+    }
+
+    private static String buildKey(String resourceId, String metricKey) {
+        return resourceId + StatsUtil.SEPARATOR + metricKey;
+    }
+
+    synchronized int size() {
+        return this.aggregates.size();
+    }
+
+    static class RollupAggregate {
+        private final TimeBinSeries bins = new TimeBinSeries();
+        private final long latenessMicros;
+        private long fromMicros;
+        private long watermarkMicros = -1;
+
+        /**
+         * Timestamps of the applied raw metrics within the lateness allowance. The timestamp
+         * identifies the raw metrics document of a resource.
+         */
+        private final TreeSet<Long> recentTimestamps = new TreeSet<>();
+
+        /**
+         * Timestamp of the metric holding the latest value of each bin, by bin id.
+         */
+        private final TreeMap<Long, Long> latestTimestamps = new TreeMap<>();
+
+        private RollupAggregate(long fromMicros, long latenessMicros) {
+            this.fromMicros = fromMicros;
+            this.latenessMicros = latenessMicros;
+        }
+
+        /**
+         * Returns whether the aggregate holds all raw metrics since the given time.
+         */
+        synchronized boolean covers(long fromMicros) {
+            return this.fromMicros <= fromMicros;
+        }
+
+        /**
+         * Returns the time after which raw metrics have to be queried to update the aggregate.
+         */
+        synchronized long getQueryFromMicros() {
+            return Math.max(this.fromMicros, this.watermarkMicros - this.latenessMicros);
+        }
+
+        /**
+         * Applies the raw metric value and returns whether it has been applied. A metric is
+         * skipped when it has already been applied, when it precedes the time from which the
+         * aggregate holds the raw metrics, or when it is later than the lateness allowance. A late
+         * metric is added to its bin but does not replace the latest value of a bin which holds a
+         * newer metric.
+         */
+        synchronized boolean apply(long timestampMicros, double value) {
+            if (timestampMicros < this.fromMicros
+                    || timestampMicros < this.watermarkMicros - this.latenessMicros
+                    || !this.recentTimestamps.add(timestampMicros)) {
+                return false;
+            }
+
+            long binId = StatsUtil.computeIntervalEndMicros(timestampMicros, BIN_SIZE_MILLIS);
+            Long latestTimestamp = this.latestTimestamps.get(binId);
+            if (latestTimestamp == null || latestTimestamp < timestampMicros) {
+                this.bins.add(binId, value);
+                this.latestTimestamps.put(binId, timestampMicros);
+            } else {
+                TimeBin sample = new TimeBin();
+                sample.avg = sample.min = sample.max = sample.sum = value;
+                sample.var = 0.0;
+                sample.count = 1;
+                this.bins.add(binId, sample);
+            }
+
+            if (timestampMicros > this.watermarkMicros) {
+                this.watermarkMicros = timestampMicros;
+                this.recentTimestamps.headSet(this.watermarkMicros - this.latenessMicros)
+                        .clear();
+            }
+            return true;
+        }
+
+        /**
+         * Merges the bins of the given size with ids not lower than the given one into the target
+         * bins. Bins coarser than the hourly bins of the aggregate are derived from them.
+         */
+        synchronized void mergeInto(Map<Long, TimeBin> target, long binSizeMillis,
+                long fromBinId, Set<AggregationType> aggregationTypes, boolean latestValueOnly) {
+            TimeBinSeries series = this.bins;
+            if (binSizeMillis != BIN_SIZE_MILLIS) {
+                series = rollup(binSizeMillis);
+            }
+            for (int i = 0; i < series.size(); i++) {
+                long binId = series.getBinId(i);
+                if (binId < fromBinId) {
+                    continue;
+                }
+                TimeBin bin = target.get(binId);
+                if (bin == null) {
+                    bin = new TimeBin();
+                    target.put(binId, bin);
+                }
+                if (latestValueOnly) {
+                    TimeBin latest = new TimeBin();
+                    latest.avg = latest.min = latest.max = latest.sum = series.getLatest(i);
+                    latest.count = 1;
+                    TimeBinSeries.merge(bin, latest, aggregationTypes);
+                } else {
+                    series.mergeInto(i, bin, aggregationTypes);
+                }
+            }
+        }
+
+        /**
+         * Drops the bins which are older than needed to derive the current coarser bins.
+         */
+        synchronized void prune() {
+            if (this.bins.size() == 0) {
+                return;
+            }
+            long fromBinId = this.bins.getLastBinId() - RETENTION_MICROS;
+            this.bins.removeBefore(fromBinId);
+            this.latestTimestamps.headMap(fromBinId).clear();
+            // the aggregate no longer holds the raw metrics from before the earliest bin
+            this.fromMicros = Math.max(this.fromMicros,
+                    fromBinId - TimeUnit.MILLISECONDS.toMicros(BIN_SIZE_MILLIS));
+        }
+
+        private TimeBinSeries rollup(long binSizeMillis) {
+            TimeBinSeries series = new TimeBinSeries();
+            for (int i = 0; i < this.bins.size(); i++) {
+                // bin ids are the end of the interval, so the bin belongs to the coarser
+                // interval of its last microsecond
+                long binId = StatsUtil.computeIntervalEndMicros(this.bins.getBinId(i) - 1,
+                        binSizeMillis);
+                series.add(binId, this.bins, i);
+            }
+            return series;
+        }
+    }
+}
@@ -13,7 +13,6 @@ package com.vmware.photon.controller.model.tasks.monitoring;
 
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -23,8 +22,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 import com.vmware.photon.controller.model.UriPaths;
@@ -32,9 +29,11 @@ import com.vmware.photon.controller.model.monitoring.InMemoryResourceMetricServi
 import com.vmware.photon.controller.model.monitoring.InMemoryResourceMetricService.InMemoryResourceMetric;
 import com.vmware.photon.controller.model.monitoring.ResourceMetricsService;
 import com.vmware.photon.controller.model.monitoring.ResourceMetricsService.ResourceMetrics;
+import com.vmware.photon.controller.model.monitoring.TimeBinSeries;
 import com.vmware.photon.controller.model.query.QueryUtils;
 import com.vmware.photon.controller.model.resources.util.PhotonModelUtils;
 import com.vmware.photon.controller.model.tasks.TaskUtils;
+import com.vmware.photon.controller.model.tasks.monitoring.RollupAggregateStore.RollupAggregate;
 import com.vmware.photon.controller.model.util.ClusterUtil;
 import com.vmware.photon.controller.model.util.ClusterUtil.ServiceTypeCluster;
 import com.vmware.xenon.common.FactoryService;
@@ -90,11 +89,13 @@ public class SingleResourceStatsAggregationTaskService extends
     private static final long DEFAULT_EXPIRATION_MINUTES = 10;
 
     public static FactoryService createFactory() {
+        // the running rollup aggregates are kept per host and shared by the tasks of the factory
+        RollupAggregateStore rollupAggregates = new RollupAggregateStore();
         TaskFactoryService fs = new TaskFactoryService(
                 SingleResourceStatsAggregationTaskState.class) {
             @Override
             public Service createServiceInstance() throws Throwable {
-                return new SingleResourceStatsAggregationTaskService();
+                return new SingleResourceStatsAggregationTaskService(rollupAggregates);
             }
         };
         fs.setPeerNodeSelectorPath(ServiceUriPaths.DEFAULT_1X_NODE_SELECTOR);
@@ -181,8 +182,15 @@ public class SingleResourceStatsAggregationTaskService extends
         GET_LAST_ROLLUP_TIME, INIT_RESOURCE_QUERY, PROCESS_RESOURCES, PUBLISH_METRICS
     }
 
+    private final RollupAggregateStore rollupAggregates;
+
     public SingleResourceStatsAggregationTaskService() {
+        this(new RollupAggregateStore());
+    }
+
+    SingleResourceStatsAggregationTaskService(RollupAggregateStore rollupAggregates) {
         super(SingleResourceStatsAggregationTaskState.class);
+        this.rollupAggregates = rollupAggregates;
         super.toggleOption(ServiceOption.OWNER_SELECTION, true);
         super.toggleOption(ServiceOption.IDEMPOTENT_POST, true);
         super.toggleOption(ServiceOption.REPLICATION, true);
@@ -522,22 +530,9 @@ public class SingleResourceStatsAggregationTaskService extends
                     // List of metrics we didn't find in memory and need to be queried from disk.
                     Map<String, Set<String>> metricsToBeQueried = new HashMap<>();
 
-                    /*Nested map to store in memory stats
-                    {
-                        ...
-                        "CPUUtilization(Hourly)" : {
-                            "1478040373000" : [
-                                "TimeBin1",
-                                "TimeBin2"
-                            ],
-                            "1478040505000" : [
-                                "TimeBin3",
-                                "TimeBin4"
-                            ]
-                        }
-                        ...
-                    }*/
-                    Map<String, SortedMap<Long, List<TimeBin>>> inMemoryStats = new HashMap<>();
+                    // In memory stats per rollup metric key, e.g. "CPUUtilization(Hourly)", with
+                    // the bins of all resources merged per bin id
+                    Map<String, TimeBinSeries> inMemoryStats = new HashMap<>();
 
                     for (Operation operation : ops.values()) {
                         if (operation.getStatusCode() != Operation.STATUS_CODE_OK) {
@@ -568,7 +563,7 @@ public class SingleResourceStatsAggregationTaskService extends
      */
     private void processInMemoryMetrics(SingleResourceStatsAggregationTaskState currentState,
             Map<String, Set<String>> metricsToBeQueried,
-            Map<String, SortedMap<Long, List<TimeBin>>> inMemoryStats,
+            Map<String, TimeBinSeries> inMemoryStats,
             InMemoryResourceMetric metric) {
         String metricKey = UriUtils.getLastPathSegment(metric.documentSelfLink);
         String resourceId = stripRollupKey(metricKey);
@@ -604,6 +599,9 @@ public class SingleResourceStatsAggregationTaskService extends
                 metricList.add(rawMetricKey);
                 continue;
             }
+            // the running aggregate of the raw metrics misses the metrics covered by the
+            // in-memory bins from now on
+            this.rollupAggregates.remove(resourceId, rawMetricKey);
             processInMemoryTimeBins(currentState, inMemoryStats, metricEntry, timeSeriesStats);
         }
     }
@@ -613,7 +611,7 @@ public class SingleResourceStatsAggregationTaskService extends
      * in the inMemoryStats data structure.
      */
     private void processInMemoryTimeBins(SingleResourceStatsAggregationTaskState currentState,
-            Map<String, SortedMap<Long, List<TimeBin>>> inMemoryStats,
+            Map<String, TimeBinSeries> inMemoryStats,
             Entry<String, Long> metricEntry,
             TimeSeriesStats timeSeriesStats) {
         String metricKeyWithRollUp = metricEntry.getKey();
@@ -631,16 +629,9 @@ public class SingleResourceStatsAggregationTaskService extends
                 continue;
             }
 
-            SortedMap<Long, List<TimeBin>> bins = inMemoryStats.get(metricKeyWithRollUp);
-
+            TimeBinSeries bins = inMemoryStats.get(metricKeyWithRollUp);
             if (bins == null) {
-                bins = new TreeMap<>();
-            }
-
-            List<TimeBin> binList = bins.get(binId);
-            if (binList == null) {
-                binList = new ArrayList<>();
-                bins.put(binId, binList);
+                bins = new TimeBinSeries(timeSeriesStats.bins.size());
                 inMemoryStats.put(metricKeyWithRollUp, bins);
             }
 
@@ -651,9 +642,9 @@ public class SingleResourceStatsAggregationTaskService extends
                 TimeBin latest = new TimeBin();
                 latest.avg = latest.min = latest.max = latest.sum = bin.latest;
                 latest.count = 1;
-                bins.get(binId).add(latest);
+                bins.add(binId, latest);
             } else {
-                bins.get(binId).add(bin);
+                bins.add(binId, bin);
             }
 
         }
@@ -674,26 +665,27 @@ public class SingleResourceStatsAggregationTaskService extends
     }
 
     /**
-     *  Class that holds the rollup metric keys of interest and their last rollup time.
+     * Queries the raw metrics which have not been applied yet to the running rollup aggregates of
+     * the resources to be queried, and applies them. The metrics within the lateness allowance of
+     * an aggregate are queried again to pick up metrics stored out of order; the aggregate applies
+     * each of them once. For a resource without a running aggregate,
+     * or with one which does not go back to the last rollup time, all raw metrics since the last
+     * rollup time are queried.
      */
-    private static class RollupMetricHolder {
-        String rollupKey;
-        Long beginTimestampMicros;
-    }
-
     private void getRawMetrics(SingleResourceStatsAggregationTaskState currentState,
             QueryTask resourceQueryTask, Map<String, Set<String>> metricsToBeQueried,
-            Map<String, SortedMap<Long, List<TimeBin>>> inMemoryStats) {
+            Map<String, TimeBinSeries> inMemoryStats) {
         if (metricsToBeQueried == null || metricsToBeQueried.isEmpty()) {
             aggregateMetrics(currentState, resourceQueryTask, null, inMemoryStats);
             return;
         }
 
+        // running aggregates by resource id and metric key
+        Map<String, Map<String, RollupAggregate>> rawAggregates = new HashMap<>();
         Query.Builder overallQueryBuilder = Query.Builder.create();
         for (Entry<String, Set<String>> entry : metricsToBeQueried.entrySet()) {
             String resourceId = entry.getKey();
             for (String metricKey : entry.getValue()) {
-                logFine(() -> String.format("Querying raw metrics from disk for %s", metricKey));
                 Long range = null;
                 int binSize = 0;
                 for (Entry<String, Long> metricEntry : currentState.lastRollupTimeForMetric
@@ -705,6 +697,23 @@ public class SingleResourceStatsAggregationTaskService extends
                         }
                     }
                 }
+                long fromMicros = 0;
+                if (range != null && range != 0) {
+                    fromMicros = StatsUtil.computeIntervalBeginMicros(range - 1, binSize);
+                }
+
+                RollupAggregate aggregate = this.rollupAggregates
+                        .get(resourceId, metricKey, fromMicros);
+                if (aggregate == null) {
+                    aggregate = this.rollupAggregates
+                            .create(resourceId, metricKey, fromMicros);
+                }
+                rawAggregates.computeIfAbsent(resourceId, k -> new HashMap<>())
+                        .put(metricKey, aggregate);
+                long queryFromMicros = aggregate.getQueryFromMicros();
+
+                logFine(() -> String.format("Querying raw metrics from disk for %s since %d",
+                        metricKey, queryFromMicros));
                 Query.Builder builder = Query.Builder.create(Occurance.SHOULD_OCCUR);
                 builder.addKindFieldClause(ResourceMetrics.class);
                 builder.addFieldClause(ServiceDocument.FIELD_NAME_SELF_LINK,
@@ -713,30 +722,14 @@ public class SingleResourceStatsAggregationTaskService extends
                 builder.addRangeClause(QuerySpecification
                         .buildCompositeFieldName(ResourceMetrics.FIELD_NAME_ENTRIES, metricKey),
                         NumericRange.createDoubleRange(0.0, Double.MAX_VALUE, true, true));
-                if (range != null && range != 0) {
+                if (queryFromMicros > 0) {
                     builder.addRangeClause(ResourceMetrics.FIELD_NAME_TIMESTAMP,
-                            NumericRange.createGreaterThanOrEqualRange(
-                                    StatsUtil.computeIntervalBeginMicros(range - 1, binSize)));
+                            NumericRange.createGreaterThanOrEqualRange(queryFromMicros));
                 }
                 overallQueryBuilder.addClause(builder.build());
             }
         }
 
-        // create a set of rollup metric keys we are interested in and the timestamp
-        // to rollup from for each
-        Set<RollupMetricHolder> rollupMetricHolder = new HashSet<>();
-        for (Entry<String, Long> metricEntry : currentState.lastRollupTimeForMetric
-                .entrySet()) {
-            RollupMetricHolder metric = new RollupMetricHolder();
-            metric.rollupKey = metricEntry.getKey();
-            if (metricEntry.getValue() != null && metricEntry.getValue() != 0) {
-                metric.beginTimestampMicros = StatsUtil.computeIntervalBeginMicros(
-                        metricEntry.getValue() - 1,
-                        lookupBinSize(metricEntry.getKey()));
-            }
-            rollupMetricHolder.add(metric);
-        }
-
         QueryTask task = QueryTask.Builder.createDirectTask()
                 .addOption(QueryOption.EXPAND_CONTENT)
                 .addOption(QueryOption.TOP_RESULTS)
@@ -753,43 +746,59 @@ public class SingleResourceStatsAggregationTaskService extends
                         sendSelfFailurePatch(currentState, queryEx.getMessage());
                         return;
                     }
-                    Map<String, List<ResourceMetrics>> rawMetricsForKey = new HashMap<>();
+                    List<ResourceMetrics> rawMetrics = new ArrayList<>();
                     for (Object obj : response.results.documents.values()) {
-                        ResourceMetrics rawMetric = Utils.fromJson(obj, ResourceMetrics.class);
-                        for (RollupMetricHolder metric : rollupMetricHolder) {
-                            for (String rawMetricKey : rawMetric.entries.keySet()) {
-                                if (!rawMetricKey.contains(stripRollupKey(metric.rollupKey))) {
-                                    continue;
-                                }
-                                // we want to consider raw metrics with the specified key and the appropriate timestamp
-                                if ((metric.beginTimestampMicros == null ||
-                                        rawMetric.timestampMicrosUtc >= metric.beginTimestampMicros)) {
-                                    List<ResourceMetrics> rawMetricResultSet = rawMetricsForKey
-                                            .get(metric.rollupKey);
-                                    if (rawMetricResultSet == null) {
-                                        rawMetricResultSet = new ArrayList<>();
-                                        rawMetricsForKey.put(metric.rollupKey, rawMetricResultSet);
-                                    }
-                                    rawMetricResultSet.add(rawMetric);
-                                }
+                        rawMetrics.add(Utils.fromJson(obj, ResourceMetrics.class));
+                    }
+                    // apply the raw metrics in time order
+                    rawMetrics.sort(Comparator.comparingLong(m -> m.timestampMicrosUtc));
+                    for (ResourceMetrics rawMetric : rawMetrics) {
+                        Map<String, RollupAggregate> aggregates = rawAggregates
+                                .get(StatsUtil.getResourceId(rawMetric.documentSelfLink));
+                        if (aggregates == null) {
+                            continue;
+                        }
+                        // the values are matched to the aggregates by the exact raw metric key,
+                        // as they were always looked up by it
+                        for (Entry<String, Double> value : rawMetric.entries.entrySet()) {
+                            RollupAggregate aggregate = aggregates.get(value.getKey());
+                            if (aggregate != null && value.getValue() != null) {
+                                aggregate.apply(rawMetric.timestampMicrosUtc, value.getValue());
                             }
                         }
                     }
-                    aggregateMetrics(currentState, resourceQueryTask, rawMetricsForKey,
+
+                    aggregateMetrics(currentState, resourceQueryTask, rawAggregates,
                             inMemoryStats);
+
+                    boolean truncated = rawMetrics.size() >= RAW_METRICS_LIMIT;
+                    for (Entry<String, Map<String, RollupAggregate>> entry : rawAggregates
+                            .entrySet()) {
+                        for (Entry<String, RollupAggregate> aggregate : entry.getValue()
+                                .entrySet()) {
+                            if (truncated) {
+                                // the oldest raw metrics have been left out, do not keep the
+                                // incomplete aggregates
+                                this.rollupAggregates.remove(entry.getKey(),
+                                        aggregate.getKey());
+                            } else {
+                                aggregate.getValue().prune();
+                            }
+                        }
+                    }
                 });
     }
 
     private void aggregateMetrics(SingleResourceStatsAggregationTaskState currentState,
-            QueryTask resourceQueryTask, Map<String, List<ResourceMetrics>> rawMetricsForKey,
-            Map<String, SortedMap<Long, List<TimeBin>>> inMemoryStats) {
+            QueryTask resourceQueryTask, Map<String, Map<String, RollupAggregate>> rawAggregates,
+            Map<String, TimeBinSeries> inMemoryStats) {
 
         if (inMemoryStats != null) {
             aggregateInMemoryMetrics(currentState, inMemoryStats);
         }
 
-        if (rawMetricsForKey != null) {
-            aggregateRawMetrics(currentState, rawMetricsForKey);
+        if (rawAggregates != null) {
+            aggregateRawMetrics(currentState, rawAggregates);
         }
 
         SingleResourceStatsAggregationTaskState patchBody = new SingleResourceStatsAggregationTaskState();
@@ -805,82 +814,63 @@ public class SingleResourceStatsAggregationTaskService extends
         sendSelfPatch(patchBody);
     }
 
-    private void aggregateRawMetrics(
-            SingleResourceStatsAggregationTaskState currentState,
-            Map<String, List<ResourceMetrics>> rawMetricsForKey) {
-        Map<String, Map<Long, TimeBin>> aggregatedTimeBinMap = currentState.aggregatedTimeBinMap;
-        // comparator used to sort resource metric PODOs based on document timestamp
-        Comparator<ResourceMetrics> comparator = (o1, o2) -> {
-            if (o1.timestampMicrosUtc < o2.timestampMicrosUtc) {
-                return -1;
-            } else if (o1.timestampMicrosUtc > o2.timestampMicrosUtc) {
-                return 1;
+    /**
+     * Aggregates the bins of the running aggregates since the last rollup time for each rollup
+     * key. Rollups coarser than the bins of the running aggregates are derived from them.
+     */
+    private void aggregateRawMetrics(SingleResourceStatsAggregationTaskState currentState,
+            Map<String, Map<String, RollupAggregate>> rawAggregates) {
+        for (Entry<String, Long> rollupEntry : currentState.lastRollupTimeForMetric.entrySet()) {
+            String metricKeyWithRollupSuffix = rollupEntry.getKey();
+            String rawMetricKey = stripRollupKey(metricKeyWithRollupSuffix);
+            long fromBinId = rollupEntry.getValue() != null ? rollupEntry.getValue() : 0;
+            boolean latestValueOnly = currentState.latestValueOnly.contains(rawMetricKey);
+
+            // Figure out the aggregation for the given metric
+            Set<AggregationType> aggregationTypes = currentState.aggregations.get(rawMetricKey);
+            if (aggregationTypes == null) {
+                aggregationTypes = EnumSet.allOf(AggregationType.class);
             }
-            return 0;
-        };
-        for (Entry<String, List<ResourceMetrics>> rawMetricListEntry : rawMetricsForKey
-                .entrySet()) {
-            List<ResourceMetrics> rawMetricList = rawMetricListEntry.getValue();
 
-            if (rawMetricList.isEmpty()) {
+            Map<Long, TimeBin> timeBinMap = new HashMap<>();
+            for (Map<String, RollupAggregate> aggregates : rawAggregates.values()) {
+                RollupAggregate aggregate = aggregates.get(rawMetricKey);
+                if (aggregate != null) {
+                    aggregate.mergeInto(timeBinMap, lookupBinSize(metricKeyWithRollupSuffix),
+                            fromBinId, aggregationTypes, latestValueOnly);
+                }
+            }
+            if (timeBinMap.isEmpty()) {
                 continue;
             }
-            String metricKeyWithRpllupSuffix = rawMetricListEntry.getKey();
-            rawMetricList.sort(comparator);
 
-            if (aggregatedTimeBinMap == null) {
-                aggregatedTimeBinMap = new HashMap<>();
-                currentState.aggregatedTimeBinMap = aggregatedTimeBinMap;
-            }
-            Map<Long, TimeBin> timeBinMap = aggregatedTimeBinMap.get(metricKeyWithRpllupSuffix);
-            if (timeBinMap == null) {
-                timeBinMap = new HashMap<>();
-                aggregatedTimeBinMap.put(metricKeyWithRpllupSuffix, timeBinMap);
+            if (currentState.aggregatedTimeBinMap == null) {
+                currentState.aggregatedTimeBinMap = new HashMap<>();
             }
-
-            String rawMetricKey = stripRollupKey(metricKeyWithRpllupSuffix);
-
-            Collection<ResourceMetrics> metrics = rawMetricList;
-            if (currentState.latestValueOnly.contains(rawMetricKey)) {
-                metrics = getLatestMetrics(rawMetricList, metricKeyWithRpllupSuffix);
+            Map<Long, TimeBin> aggregatedBins = currentState.aggregatedTimeBinMap
+                    .get(metricKeyWithRollupSuffix);
+            if (aggregatedBins == null) {
+                currentState.aggregatedTimeBinMap.put(metricKeyWithRollupSuffix, timeBinMap);
+                continue;
             }
-
-            Set<AggregationType> aggregationTypes;
-
-            // iterate over the raw metric values and place it in the right time bin
-            for (ResourceMetrics metric : metrics) {
-                Double value = metric.entries.get(rawMetricKey);
-                if (value == null) {
-                    continue;
+            for (Entry<Long, TimeBin> bin : timeBinMap.entrySet()) {
+                TimeBin aggregatedBin = aggregatedBins.get(bin.getKey());
+                if (aggregatedBin == null) {
+                    aggregatedBins.put(bin.getKey(), bin.getValue());
+                } else {
+                    TimeBinSeries.merge(aggregatedBin, bin.getValue(), aggregationTypes);
                 }
-                // TODO VSYM-3190 - Change normalized interval boundary to beginning of the rollup period
-                long binId = StatsUtil.computeIntervalEndMicros(
-                        metric.timestampMicrosUtc,
-                        lookupBinSize(metricKeyWithRpllupSuffix));
-                TimeBin bin = timeBinMap.get(binId);
-                if (bin == null) {
-                    bin = new TimeBin();
-                }
-
-                // Figure out the aggregation for the given metric
-                aggregationTypes = currentState.aggregations.get(rawMetricKey);
-                if (aggregationTypes == null) {
-                    aggregationTypes = EnumSet.allOf(AggregationType.class);
-                }
-
-                updateBin(bin, value, aggregationTypes);
-                timeBinMap.put(binId, bin);
             }
         }
     }
 
     private void aggregateInMemoryMetrics(SingleResourceStatsAggregationTaskState currentState,
-            Map<String, SortedMap<Long, List<TimeBin>>> inMemoryStats) {
+            Map<String, TimeBinSeries> inMemoryStats) {
         Map<String, Map<Long, TimeBin>> aggregatedTimeBinMap = currentState.aggregatedTimeBinMap;
-        for (Entry<String, SortedMap<Long, List<TimeBin>>> inMemoryStatEntry : inMemoryStats
+        for (Entry<String, TimeBinSeries> inMemoryStatEntry : inMemoryStats
                 .entrySet()) {
             String metricName = inMemoryStatEntry.getKey();
-            SortedMap<Long, List<TimeBin>> timeSeriesStats = inMemoryStatEntry.getValue();
+            TimeBinSeries timeSeriesStats = inMemoryStatEntry.getValue();
 
             if (aggregatedTimeBinMap == null) {
                 aggregatedTimeBinMap = new HashMap<>();
@@ -892,87 +882,26 @@ public class SingleResourceStatsAggregationTaskService extends
                 aggregatedTimeBinMap.put(metricName, timeBinMap);
             }
 
-            Set<AggregationType> aggregationTypes;
+            // Figure out the aggregation for the given metric
+            Set<AggregationType> aggregationTypes = currentState.aggregations
+                    .get(stripRollupKey(metricName));
+            if (aggregationTypes == null) {
+                aggregationTypes = EnumSet.allOf(AggregationType.class);
+            }
 
-            for (Entry<Long, List<TimeBin>> bins : timeSeriesStats.entrySet()) {
-                Long binId = bins.getKey();
+            for (int i = 0; i < timeSeriesStats.size(); i++) {
+                Long binId = timeSeriesStats.getBinId(i);
 
                 TimeBin bin = timeBinMap.get(binId);
                 if (bin == null) {
                     bin = new TimeBin();
+                    timeBinMap.put(binId, bin);
                 }
-
-                // Figure out the aggregation for the given metric
-                aggregationTypes = currentState.aggregations.get(stripRollupKey(metricName));
-                if (aggregationTypes == null) {
-                    aggregationTypes = EnumSet.allOf(AggregationType.class);
-                }
-
-                for (TimeBin timeBin : bins.getValue()) {
-                    updateBin(bin, timeBin, aggregationTypes);
-                }
-
-                timeBinMap.put(binId, bin);
+                timeSeriesStats.mergeInto(i, bin, aggregationTypes);
             }
         }
     }
 
-    /**
-     * Returns the latest metrics from the raw metrics list. Since the list contains all raw metrics
-     * across multiple resource we iterate on the list and pick the latest metric for each resource
-     * per bin depending on the metric key.
-     *
-     * TODO VSYM-2481: Add custom mock stats adapter based test for this.
-     */
-    private Collection<ResourceMetrics> getLatestMetrics(List<ResourceMetrics> metrics,
-            String metricKeyWithInterval) {
-        if (metrics.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // Metric link to map of latest value per bin. For example:
-        // /monitoring/metrics/<resource-id>_<key1> -> 1474070400000000, <latest-value-of-key1-in-this-time-bucket>
-        // /monitoring/metrics/<resource-id>_<key2> -> 1474070400000000, <latest-value-of-key2-in-this-time-bucket>
-        Map<String, Map<Long, ResourceMetrics>> metricsByLatestValuePerInterval = new HashMap<>();
-        for (ResourceMetrics metric : metrics) {
-            String metricKey = stripRollupKey(metricKeyWithInterval);
-            Map<Long, ResourceMetrics> metricsByIntervalEndTime = metricsByLatestValuePerInterval
-                    .get(metricKey);
-            Double value = metric.entries.get(metricKey);
-            if (value == null) {
-                continue;
-            }
-            // TODO VSYM-3190 - Change normalized interval boundary to beginning of the rollup period
-            long binId = StatsUtil.computeIntervalEndMicros(
-                    metric.timestampMicrosUtc, lookupBinSize(metricKeyWithInterval));
-            if (metricsByIntervalEndTime == null) {
-                metricsByIntervalEndTime = new HashMap<>();
-                metricsByIntervalEndTime.put(binId, metric);
-                metricsByLatestValuePerInterval.put(metricKey, metricsByIntervalEndTime);
-                continue;
-            }
-
-            ResourceMetrics existingMetric = metricsByIntervalEndTime.get(binId);
-            Double existingValue = null;
-            if (existingMetric != null) {
-                existingValue = existingMetric.entries.get(metricKey);
-            }
-            if (existingValue == null
-                    || existingMetric.timestampMicrosUtc < metric.timestampMicrosUtc) {
-                metricsByIntervalEndTime.put(binId, metric);
-            }
-        }
-
-        // Gather all latest values
-        List<ResourceMetrics> result = new ArrayList<>();
-        for (Map<Long, ResourceMetrics> metricsByIntervalEndTime : metricsByLatestValuePerInterval
-                .values()) {
-            result.addAll(metricsByIntervalEndTime.values());
-        }
-
-        return result;
-    }
-
     private void addLastRollupTimeForMissingKeys(
             SingleResourceStatsAggregationTaskState currentState,
             Set<String> publishedKeys, List<Operation> operations) {
@@ -1173,77 +1102,4 @@ public class SingleResourceStatsAggregationTaskService extends
         }
         return StatsConstants.BUCKET_SIZE_DAYS_IN_MILLIS;
     }
-
-    /**
-     * Update time bin with raw value.
-     */
-    private TimeBin updateBin(TimeBin inputBin, double value,
-            Set<AggregationType> aggregationTypes) {
-        if (aggregationTypes.contains(AggregationType.MAX)) {
-            if (inputBin.max == null || inputBin.max < value) {
-                inputBin.max = value;
-            }
-        }
-
-        if (aggregationTypes.contains(AggregationType.MIN)) {
-            if (inputBin.min == null || inputBin.min > value) {
-                inputBin.min = value;
-            }
-        }
-
-        if (aggregationTypes.contains(AggregationType.AVG)) {
-            if (inputBin.avg == null) {
-                inputBin.avg = value;
-            } else {
-                inputBin.avg = ((inputBin.avg * inputBin.count) + value) / (inputBin.count + 1);
-            }
-        }
-
-        if (aggregationTypes.contains(AggregationType.SUM)) {
-            if (inputBin.sum == null) {
-                inputBin.sum = value;
-            } else {
-                inputBin.sum += value;
-            }
-        }
-        inputBin.count++;
-        return inputBin;
-    }
-
-    /**
-     * Update time bin based on given time bin value.
-     */
-    private TimeBin updateBin(TimeBin currentBin, TimeBin value,
-            Set<AggregationType> aggregationTypes) {
-        if (aggregationTypes.contains(AggregationType.MAX)) {
-            if (currentBin.max == null || currentBin.max < value.max) {
-                currentBin.max = value.max;
-            }
-        }
-
-        if (aggregationTypes.contains(AggregationType.MIN)) {
-            if (currentBin.min == null || currentBin.min > value.min) {
-                currentBin.min = value.min;
-            }
-        }
-
-        if (aggregationTypes.contains(AggregationType.AVG)) {
-            if (currentBin.avg == null) {
-                currentBin.avg = value.avg;
-            } else {
-                currentBin.avg = ((currentBin.avg * currentBin.count) + (value.avg * value.count)) /
-                        (currentBin.count + value.count);
-            }
-        }
-
-        if (aggregationTypes.contains(AggregationType.SUM)) {
-            if (currentBin.sum == null) {
-                currentBin.sum = value.sum;
-            } else {
-                currentBin.sum += value.sum;
-            }
-        }
-        currentBin.count += value.count;
-        return currentBin;
-    }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.photon.controller.model.monitoring;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.AggregationType;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.TimeBin;
+
+public class TimeBinSeriesTest {
+    private static final double DELTA = 1e-9;
+    private static final long BIN_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Test
+    public void testAddKeepsBinsSorted() {
+        TimeBinSeries series = new TimeBinSeries(1);
+        series.add(3 * BIN_MILLIS, 3);
+        series.add(1 * BIN_MILLIS, 1);
+        series.add(2 * BIN_MILLIS, 2);
+        series.add(3 * BIN_MILLIS, 4);
+
+        assertEquals(3, series.size());
+        assertArrayEquals(new long[] { BIN_MILLIS, 2 * BIN_MILLIS, 3 * BIN_MILLIS },
+                binIds(series));
+        assertEquals(3 * BIN_MILLIS, series.getLastBinId());
+        // the latest value of a bin is the last one added
+        assertEquals(4, series.getLatest(2), DELTA);
+    }
+
+    @Test
+    public void testRemoveBefore() {
+        TimeBinSeries series = new TimeBinSeries();
+        for (int i = 1; i <= 4; i++) {
+            series.add(i * BIN_MILLIS, i);
+        }
+
+        series.removeBefore(3 * BIN_MILLIS);
+        assertArrayEquals(new long[] { 3 * BIN_MILLIS, 4 * BIN_MILLIS }, binIds(series));
+
+        series.removeBefore(BIN_MILLIS);
+        assertEquals(2, series.size());
+
+        series.removeBefore(10 * BIN_MILLIS);
+        assertEquals(0, series.size());
+    }
+
+    @Test
+    public void testMergedBinMatchesSamples() {
+        double[] samplesA = { 1, 5, 3 };
+        double[] samplesB = { 10, 2 };
+
+        TimeBinSeries series = new TimeBinSeries();
+        series.add(0, bin(samplesA));
+        series.add(0, bin(samplesB));
+
+        TimeBin merged = new TimeBin();
+        series.mergeInto(0, merged, EnumSet.allOf(AggregationType.class));
+
+        TimeBin expected = bin(1, 5, 3, 10, 2);
+        assertEquals(expected.count, merged.count, DELTA);
+        assertEquals(expected.avg, merged.avg, DELTA);
+        assertEquals(expected.var, merged.var, DELTA);
+        assertEquals(1, merged.min, DELTA);
+        assertEquals(10, merged.max, DELTA);
+        assertEquals(21, merged.sum, DELTA);
+        // the latest of the last merged bin
+        assertEquals(2, merged.latest, DELTA);
+    }
+
+    @Test
+    public void testMergeIsLimitedToAggregationTypes() {
+        TimeBin target = new TimeBin();
+        TimeBinSeries.merge(target, bin(4, 8), EnumSet.of(AggregationType.AVG));
+
+        assertEquals(6, target.avg, DELTA);
+        assertEquals(2, target.count, DELTA);
+        assertNull(target.min);
+        assertNull(target.max);
+        assertNull(target.sum);
+        assertNull(target.latest);
+    }
+
+    @Test
+    public void testMinAndMaxAreKeptFromSourceBins() {
+        // a bin of many samples keeps its own min and max, not its average
+        TimeSeriesStats target = timeSeries(10);
+        target.bins.put(0L, bin(5, 5));
+
+        TimeSeriesStats source = timeSeries(10);
+        source.bins.put(0L, bin(1, 9, 2));
+        TimeBinSeries.merge(target, source);
+
+        TimeBin merged = target.bins.get(0L);
+        assertEquals(5, merged.count, DELTA);
+        assertEquals(4.4, merged.avg, DELTA);
+        assertEquals(1, merged.min, DELTA);
+        assertEquals(9, merged.max, DELTA);
+        assertEquals(22, merged.sum, DELTA);
+        assertEquals(2, merged.latest, DELTA);
+    }
+
+    @Test
+    public void testMergeNormalizesBinsToTargetDuration() {
+        TimeSeriesStats target = timeSeries(10);
+        TimeSeriesStats source = new TimeSeriesStats(10, BIN_MILLIS / 2,
+                EnumSet.allOf(AggregationType.class));
+        source.bins.put(BIN_MILLIS, bin(1));
+        source.bins.put(BIN_MILLIS + BIN_MILLIS / 2, bin(3));
+
+        TimeBinSeries.merge(target, source);
+
+        assertEquals(1, target.bins.size());
+        TimeBin merged = target.bins.get(BIN_MILLIS);
+        assertEquals(2, merged.count, DELTA);
+        assertEquals(2, merged.avg, DELTA);
+    }
+
+    @Test
+    public void testMergeRollsOverOldestBins() {
+        TimeSeriesStats target = timeSeries(2);
+        target.bins.put(2 * BIN_MILLIS, bin(2));
+        target.bins.put(3 * BIN_MILLIS, bin(3));
+
+        TimeSeriesStats source = timeSeries(2);
+        // older than all kept bins while the series is full, dropped
+        source.bins.put(BIN_MILLIS, bin(1));
+        // newer bin, replaces the oldest one
+        source.bins.put(4 * BIN_MILLIS, bin(4));
+        TimeBinSeries.merge(target, source);
+
+        assertEquals(2, target.bins.size());
+        assertEquals(Long.valueOf(3 * BIN_MILLIS), target.bins.firstKey());
+        assertEquals(Long.valueOf(4 * BIN_MILLIS), target.bins.lastKey());
+        assertEquals(4, target.bins.get(4 * BIN_MILLIS).avg, DELTA);
+    }
+
+    @Test
+    public void testSeriesRollUp() {
+        TimeBinSeries minutes = new TimeBinSeries();
+        for (int i = 0; i < 120; i++) {
+            minutes.add(i * BIN_MILLIS, i);
+        }
+
+        long hourMillis = TimeUnit.HOURS.toMillis(1);
+        TimeBinSeries hours = new TimeBinSeries();
+        for (int i = 0; i < minutes.size(); i++) {
+            long binId = minutes.getBinId(i);
+            hours.add(binId - binId % hourMillis, minutes, i);
+        }
+
+        assertArrayEquals(new long[] { 0, hourMillis }, binIds(hours));
+        TimeBin first = new TimeBin();
+        hours.mergeInto(0, first, EnumSet.allOf(AggregationType.class));
+        assertEquals(60, first.count, DELTA);
+        assertEquals(29.5, first.avg, DELTA);
+        assertEquals(0, first.min, DELTA);
+        assertEquals(59, first.max, DELTA);
+        assertEquals(59, first.latest, DELTA);
+        assertTrue(first.var > 0);
+    }
+
+    private static TimeSeriesStats timeSeries(int numBins) {
+        return new TimeSeriesStats(numBins, BIN_MILLIS, EnumSet.allOf(AggregationType.class));
+    }
+
+    private static TimeBin bin(double... samples) {
+        TimeBin bin = new TimeBin();
+        double sum = 0;
+        for (double sample : samples) {
+            sum += sample;
+        }
+        double avg = sum / samples.length;
+        double var = 0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (double sample : samples) {
+            var += (sample - avg) * (sample - avg);
+            min = Math.min(min, sample);
+            max = Math.max(max, sample);
+        }
+        bin.count = samples.length;
+        bin.avg = avg;
+        bin.var = var;
+        bin.min = min;
+        bin.max = max;
+        bin.sum = sum;
+        bin.latest = samples[samples.length - 1];
+        return bin;
+    }
+
+    private static long[] binIds(TimeBinSeries series) {
+        long[] binIds = new long[series.size()];
+        for (int i = 0; i < binIds.length; i++) {
+            binIds[i] = series.getBinId(i);
+        }
+        return binIds;
+    }
+}
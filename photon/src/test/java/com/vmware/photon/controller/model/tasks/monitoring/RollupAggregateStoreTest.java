@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.photon.controller.model.tasks.monitoring;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.photon.controller.model.tasks.monitoring.RollupAggregateStore.RollupAggregate;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.AggregationType;
+import com.vmware.xenon.common.ServiceStats.TimeSeriesStats.TimeBin;
+
+public class RollupAggregateStoreTest {
+    private static final double DELTA = 1e-9;
+    private static final long HOUR_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final long MINUTE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final long LATENESS_MICROS = 10 * MINUTE_MICROS;
+    private static final long START_MICROS = TimeUnit.DAYS.toMicros(1000);
+    private static final Set<AggregationType> ALL = EnumSet.allOf(AggregationType.class);
+
+    private RollupAggregateStore store;
+
+    @Before
+    public void setUp() {
+        store = new RollupAggregateStore(2, LATENESS_MICROS);
+    }
+
+    @Test
+    public void testIncrementalRunsMatchFullRun() {
+        RollupAggregate incremental = store.create("resource-1", "cpu", START_MICROS);
+        // first run
+        for (int i = 0; i < 30; i++) {
+            assertTrue(incremental.apply(minute(i), i));
+        }
+        assertEquals(minute(29) - LATENESS_MICROS, incremental.getQueryFromMicros());
+
+        // the next run queries the metrics within the lateness allowance again, they are not
+        // applied twice
+        for (int i = 19; i < 90; i++) {
+            assertEquals(i >= 30, incremental.apply(minute(i), i));
+        }
+
+        RollupAggregate full = new RollupAggregateStore(2, LATENESS_MICROS)
+                .create("resource-1", "cpu", START_MICROS);
+        for (int i = 0; i < 90; i++) {
+            full.apply(minute(i), i);
+        }
+
+        Map<Long, TimeBin> expected = merge(full, RollupAggregateStore.BIN_SIZE_MILLIS);
+        Map<Long, TimeBin> actual = merge(incremental, RollupAggregateStore.BIN_SIZE_MILLIS);
+        assertEquals(2, actual.size());
+        for (Map.Entry<Long, TimeBin> bin : expected.entrySet()) {
+            assertBinEquals(bin.getValue(), actual.get(bin.getKey()));
+        }
+
+        TimeBin first = actual.get(START_MICROS + HOUR_MICROS);
+        assertEquals(60, first.count, DELTA);
+        assertEquals(29.5, first.avg, DELTA);
+        assertEquals(0, first.min, DELTA);
+        assertEquals(59, first.max, DELTA);
+        assertEquals(59, first.latest, DELTA);
+    }
+
+    @Test
+    public void testLateMetricWithinAllowanceIsApplied() {
+        RollupAggregate aggregate = store.create("resource-1", "cpu", START_MICROS);
+        aggregate.apply(minute(1), 1);
+        aggregate.apply(minute(5), 5);
+
+        // stored out of order, within the allowance of the latest metric
+        assertTrue(aggregate.apply(minute(3), 30));
+        assertFalse(aggregate.apply(minute(3), 30));
+
+        TimeBin bin = merge(aggregate, RollupAggregateStore.BIN_SIZE_MILLIS)
+                .get(START_MICROS + HOUR_MICROS);
+        assertEquals(3, bin.count, DELTA);
+        assertEquals(36, bin.sum, DELTA);
+        assertEquals(30, bin.max, DELTA);
+        // the late metric does not replace the latest value of the bin
+        assertEquals(5, bin.latest, DELTA);
+    }
+
+    @Test
+    public void testLateMetricBecomesLatestOfItsBin() {
+        RollupAggregate aggregate = store.create("resource-1", "cpu", START_MICROS);
+        aggregate.apply(minute(50), 1);
+        aggregate.apply(minute(62), 2);
+
+        // the latest metric of the previous bin arrives after a metric of the next bin
+        assertTrue(aggregate.apply(minute(59), 3));
+
+        Map<Long, TimeBin> bins = merge(aggregate, RollupAggregateStore.BIN_SIZE_MILLIS);
+        assertEquals(3, bins.get(START_MICROS + HOUR_MICROS).latest, DELTA);
+        assertEquals(2, bins.get(START_MICROS + 2 * HOUR_MICROS).latest, DELTA);
+    }
+
+    @Test
+    public void testMetricLaterThanAllowanceIsSkipped() {
+        RollupAggregate aggregate = store.create("resource-1", "cpu", START_MICROS);
+        aggregate.apply(minute(30), 1);
+
+        assertFalse(aggregate.apply(minute(30) - LATENESS_MICROS - 1, 2));
+        // before the time from which the aggregate holds the raw metrics
+        assertFalse(aggregate.apply(START_MICROS - 1, 3));
+        assertTrue(aggregate.apply(minute(30) - LATENESS_MICROS, 4));
+    }
+
+    @Test
+    public void testCoarserRollupIsDerivedFromHourlyBins() {
+        RollupAggregate aggregate = store.create("resource-1", "cpu", START_MICROS);
+        for (int i = 0; i < 48; i++) {
+            aggregate.apply(START_MICROS + i * HOUR_MICROS, i);
+        }
+
+        long dayMicros = TimeUnit.DAYS.toMicros(1);
+        Map<Long, TimeBin> days = merge(aggregate, StatsConstants.BUCKET_SIZE_DAYS_IN_MILLIS);
+        assertEquals(2, days.size());
+        TimeBin first = days.get(START_MICROS + dayMicros);
+        assertEquals(24, first.count, DELTA);
+        assertEquals(0, first.min, DELTA);
+        assertEquals(23, first.latest, DELTA);
+
+        // bins before the last rollup time are left out
+        days = new HashMap<>();
+        aggregate.mergeInto(days, StatsConstants.BUCKET_SIZE_DAYS_IN_MILLIS,
+                START_MICROS + 2 * dayMicros, ALL, false);
+        assertEquals(1, days.size());
+    }
+
+    @Test
+    public void testLatestValueOnly() {
+        RollupAggregate aggregate = store.create("resource-1", "cpu", START_MICROS);
+        aggregate.apply(minute(1), 1);
+        aggregate.apply(minute(2), 7);
+
+        Map<Long, TimeBin> bins = new HashMap<>();
+        aggregate.mergeInto(bins, RollupAggregateStore.BIN_SIZE_MILLIS, 0, ALL, true);
+        TimeBin bin = bins.get(START_MICROS + HOUR_MICROS);
+        assertEquals(1, bin.count, DELTA);
+        assertEquals(7, bin.avg, DELTA);
+    }
+
+    @Test
+    public void testPruneDropsOldBins() {
+        RollupAggregate aggregate = store.create("resource-1", "cpu", START_MICROS);
+        for (int i = 0; i < 72; i++) {
+            aggregate.apply(START_MICROS + i * HOUR_MICROS, i);
+        }
+        aggregate.prune();
+
+        Map<Long, TimeBin> bins = merge(aggregate, RollupAggregateStore.BIN_SIZE_MILLIS);
+        assertEquals(49, bins.size());
+        // the aggregate no longer goes back to the start
+        assertFalse(aggregate.covers(START_MICROS));
+        assertNull(store.get("resource-1", "cpu", START_MICROS));
+    }
+
+    @Test
+    public void testStoreKeepsAggregatesPerResourceAndMetric() {
+        RollupAggregate aggregate = store.create("resource-1", "cpu", START_MICROS);
+        assertSame(aggregate, store.get("resource-1", "cpu", START_MICROS + HOUR_MICROS));
+        // an aggregate which does not go back to the requested time is not returned
+        assertNull(store.get("resource-1", "cpu", START_MICROS - 1));
+        assertNull(store.get("resource-1", "memory", START_MICROS));
+
+        // least recently used aggregates are evicted
+        store.create("resource-2", "cpu", START_MICROS);
+        store.get("resource-1", "cpu", START_MICROS);
+        store.create("resource-3", "cpu", START_MICROS);
+        assertEquals(2, store.size());
+        assertNotNull(store.get("resource-1", "cpu", START_MICROS));
+        assertNull(store.get("resource-2", "cpu", START_MICROS));
+
+        store.remove("resource-1", "cpu");
+        assertNull(store.get("resource-1", "cpu", START_MICROS));
+    }
+
+    private static long minute(int minute) {
+        return START_MICROS + minute * MINUTE_MICROS;
+    }
+
+    private static Map<Long, TimeBin> merge(RollupAggregate aggregate, long binSizeMillis) {
+        Map<Long, TimeBin> bins = new HashMap<>();
+        aggregate.mergeInto(bins, binSizeMillis, 0, ALL, false);
+        return bins;
+    }
+
+    private static void assertBinEquals(TimeBin expected, TimeBin actual) {
+        assertEquals(expected.count, actual.count, DELTA);
+        assertEquals(expected.avg, actual.avg, DELTA);
+        assertEquals(expected.var, actual.var, DELTA);
+        assertEquals(expected.min, actual.min, DELTA);
+        assertEquals(expected.max, actual.max, DELTA);
+        assertEquals(expected.sum, actual.sum, DELTA);
+        assertEquals(expected.latest, actual.latest, DELTA);
+    }
+}
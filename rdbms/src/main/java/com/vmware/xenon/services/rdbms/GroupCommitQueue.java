@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.xenon.services.rdbms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Collects index updates for a group commit. An update that fills the batch is flushed by the
+ * caller right away; otherwise a flush task is submitted to the executor once the window elapses.
+ * <p>
+ * The scheduler thread never runs the flush itself. If the executor rejects the flush task it is
+ * scheduled again after another window, and if the executor is shut down the pending updates are
+ * failed.
+ */
+final class GroupCommitQueue<T> {
+
+    @FunctionalInterface
+    interface Scheduler {
+        void schedule(Runnable task, long delay, TimeUnit unit);
+    }
+
+    private final int batchSize;
+    private final long windowMicros;
+    private final ExecutorService executor;
+    private final Scheduler scheduler;
+    private final Runnable flushTask;
+    private final BiConsumer<List<T>, Throwable> failureHandler;
+
+    /**
+     * Updates waiting for the next group commit, guarded by itself
+     */
+    private final List<T> pending = new ArrayList<>();
+
+    private boolean isFlushScheduled;
+
+    GroupCommitQueue(int batchSize, long windowMicros, ExecutorService executor,
+            Scheduler scheduler, Runnable flushTask,
+            BiConsumer<List<T>, Throwable> failureHandler) {
+        this.batchSize = batchSize;
+        this.windowMicros = windowMicros;
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.flushTask = flushTask;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Adds the given update and returns whether the batch is full and should be flushed by the
+     * caller.
+     */
+    boolean add(T update) {
+        boolean schedule = false;
+        synchronized (this.pending) {
+            this.pending.add(update);
+            if (this.pending.size() >= this.batchSize) {
+                return true;
+            }
+            if (!this.isFlushScheduled) {
+                this.isFlushScheduled = true;
+                schedule = true;
+            }
+        }
+
+        if (schedule) {
+            scheduleFlush();
+        }
+        return false;
+    }
+
+    /**
+     * Removes and returns all pending updates.
+     */
+    List<T> drain() {
+        synchronized (this.pending) {
+            this.isFlushScheduled = false;
+            if (this.pending.isEmpty()) {
+                return new ArrayList<>();
+            }
+            List<T> batch = new ArrayList<>(this.pending);
+            this.pending.clear();
+            return batch;
+        }
+    }
+
+    int size() {
+        synchronized (this.pending) {
+            return this.pending.size();
+        }
+    }
+
+    private void scheduleFlush() {
+        this.scheduler.schedule(this::submitFlush, this.windowMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private void submitFlush() {
+        try {
+            this.executor.submit(this.flushTask);
+        } catch (RejectedExecutionException e) {
+            if (this.executor.isShutdown()) {
+                List<T> batch = drain();
+                if (!batch.isEmpty()) {
+                    this.failureHandler.accept(batch, e);
+                }
+                return;
+            }
+            // The executor is saturated, try again later rather than blocking the scheduler
+            // thread on the writer semaphore
+            scheduleFlush();
+        }
+    }
+}
@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -113,6 +114,28 @@ public class PostgresDocumentIndexService extends StatelessService {
             UPDATE_QUEUE_DEPTH
     );
 
+    /**
+     * When enabled, index updates are collected for up to {@link #GROUP_COMMIT_WINDOW_MICROS} or
+     * {@link #GROUP_COMMIT_BATCH_SIZE} updates and written with JDBC batches in one transaction.
+     */
+    public static final boolean GROUP_COMMIT_ENABLED = XenonConfiguration.bool(
+            PostgresDocumentIndexService.class,
+            "groupCommitEnabled",
+            false
+    );
+
+    public static final int GROUP_COMMIT_BATCH_SIZE = XenonConfiguration.integer(
+            PostgresDocumentIndexService.class,
+            "groupCommitBatchSize",
+            100
+    );
+
+    public static final long GROUP_COMMIT_WINDOW_MICROS = XenonConfiguration.number(
+            PostgresDocumentIndexService.class,
+            "groupCommitWindowMicros",
+            TimeUnit.MILLISECONDS.toMicros(2)
+    );
+
     private static int expiredDocumentSearchThreshold = 1000;
 
     static int queryResultLimit = DEFAULT_QUERY_RESULT_LIMIT;
@@ -153,6 +176,10 @@ public class PostgresDocumentIndexService extends StatelessService {
 
     public static final String STAT_NAME_COMMIT_DURATION_MICROS = "commitDurationMicros";
 
+    public static final String STAT_NAME_COMMIT_BATCH_SIZE = "commitBatchSize";
+
+    public static final String STAT_NAME_COMMIT_BATCH_LATENCY_MICROS = "commitBatchLatencyMicros";
+
     public static final String STAT_NAME_GROUP_QUERY_COUNT = "groupQueryCount";
 
     public static final String STAT_NAME_QUERY_DURATION_MICROS = "queryDurationMicros";
@@ -216,6 +243,8 @@ public class PostgresDocumentIndexService extends StatelessService {
     private final RoundRobinOperationQueue updateQueue = new RoundRobinOperationQueue(
             "index-service-update", UPDATE_QUEUE_DEPTH);
 
+    private GroupCommitQueue<PendingUpdate> groupCommitQueue;
+
     private URI uri;
 
     private final DataSource ds;
@@ -240,6 +269,22 @@ public class PostgresDocumentIndexService extends StatelessService {
         static final String KIND = Utils.buildKind(MaintenanceRequest.class);
     }
 
+    static class PendingUpdate {
+        final Operation op;
+        final ServiceDocument document;
+        final ServiceDocumentDescription description;
+        final boolean forceIndexUpdate;
+        final long enqueueTimeMicros = Utils.getSystemNowMicrosUtc();
+
+        PendingUpdate(Operation op, ServiceDocument document,
+                ServiceDocumentDescription description, boolean forceIndexUpdate) {
+            this.op = op;
+            this.document = document;
+            this.description = description;
+            this.forceIndexUpdate = forceIndexUpdate;
+        }
+    }
+
     public PostgresDocumentIndexService(ServiceHost host, DataSource ds) {
         super(ServiceDocument.class);
         toggleOption(ServiceOption.CORE, true);
@@ -275,6 +320,11 @@ public class PostgresDocumentIndexService extends StatelessService {
                 new NamedThreadFactory(getUri() + "/updates"));
         this.privateIndexingExecutor = TracingExecutor.create(es, getHost().getTracer());
 
+        this.groupCommitQueue = new GroupCommitQueue<>(GROUP_COMMIT_BATCH_SIZE,
+                GROUP_COMMIT_WINDOW_MICROS, this.privateIndexingExecutor,
+                (task, delay, unit) -> getHost().schedule(task, delay, unit),
+                this::handleGroupCommit, this::failGroupCommit);
+
         post.complete();
     }
 
@@ -775,6 +825,7 @@ public class PostgresDocumentIndexService extends StatelessService {
     public void handleDeleteImpl(Operation delete) throws Exception {
         setProcessingStage(ProcessingStage.STOPPED);
 
+        flushGroupCommit();
         this.privateIndexingExecutor.shutdown();
         this.privateQueryExecutor.shutdown();
         getHost().stopService(this);
@@ -818,7 +869,14 @@ public class PostgresDocumentIndexService extends StatelessService {
                 && updateOp.hasPragmaDirective(Operation.PRAGMA_DIRECTIVE_FORCE_INDEX_UPDATE);
 
         s.documentDescription = null;
+        if (GROUP_COMMIT_ENABLED) {
+            enqueueGroupCommit(new PendingUpdate(updateOp, s, desc, forceIndexUpdate));
+            return;
+        }
+
+        long startNanos = System.nanoTime();
         dao.saveDocument(s, desc, forceIndexUpdate);
+        updateCommitStats(1, startNanos, 0);
 
         if (forceIndexUpdate) {
             // Delete all previous versions from the index.
@@ -834,6 +892,113 @@ public class PostgresDocumentIndexService extends StatelessService {
         applyActiveQueries(updateOp, s, desc);
     }
 
+    private void enqueueGroupCommit(PendingUpdate update) {
+        if (this.groupCommitQueue.add(update)) {
+            // Called from the update executor, the writer semaphore is already held
+            flushGroupCommit();
+        }
+    }
+
+    private void handleGroupCommit() {
+        OperationContext originalContext = OperationContext.getOperationContext();
+        try {
+            this.writerSync.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failGroupCommit(this.groupCommitQueue.drain(), e);
+            return;
+        }
+        try {
+            flushGroupCommit();
+        } finally {
+            OperationContext.setFrom(originalContext);
+            this.writerSync.release();
+        }
+    }
+
+    private void failGroupCommit(List<PendingUpdate> batch, Throwable e) {
+        for (PendingUpdate u : batch) {
+            u.op.fail(getHost().isStopping() ? new CancellationException("Host is stopping") : e);
+        }
+    }
+
+    /**
+     * Writes all pending updates. The method assumes the caller has acquired the writer semaphore
+     */
+    private void flushGroupCommit() {
+        if (this.groupCommitQueue == null) {
+            return;
+        }
+        List<PendingUpdate> batch = this.groupCommitQueue.drain();
+        if (!batch.isEmpty()) {
+            commitBatch(batch);
+        }
+    }
+
+    void commitBatch(List<PendingUpdate> batch) {
+        List<ServiceDocument> documents = new ArrayList<>(batch.size());
+        boolean[] forceIndexUpdates = new boolean[batch.size()];
+        long oldestEnqueueTimeMicros = Long.MAX_VALUE;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingUpdate u = batch.get(i);
+            documents.add(u.document);
+            forceIndexUpdates[i] = u.forceIndexUpdate;
+            oldestEnqueueTimeMicros = Math.min(oldestEnqueueTimeMicros, u.enqueueTimeMicros);
+        }
+
+        long startNanos = System.nanoTime();
+        try {
+            this.dao.saveDocuments(documents, forceIndexUpdates);
+        } catch (Exception e) {
+            // Retry each document on its own, so that a single bad document does not fail the
+            // rest of the batch and each failure is reported to its own operation
+            logWarning("Group commit of %d documents failed, retrying one by one: %s",
+                    batch.size(), e.toString());
+            for (PendingUpdate u : batch) {
+                OperationContext.setFrom(u.op);
+                try {
+                    this.dao.saveDocument(u.document, u.description, u.forceIndexUpdate);
+                    completeUpdate(u);
+                } catch (Exception ex) {
+                    checkFailureAndRecover(ex);
+                    u.op.fail(ex);
+                }
+            }
+            return;
+        }
+
+        updateCommitStats(batch.size(), startNanos,
+                Utils.getSystemNowMicrosUtc() - oldestEnqueueTimeMicros);
+
+        for (PendingUpdate u : batch) {
+            OperationContext.setFrom(u.op);
+            completeUpdate(u);
+        }
+    }
+
+    private void completeUpdate(PendingUpdate u) {
+        if (u.forceIndexUpdate) {
+            adjustStat(STAT_NAME_FORCED_UPDATE_DOCUMENT_DELETE_COUNT, 1);
+        }
+        u.op.setBodyNoCloning(null).complete();
+        applyActiveQueries(u.op, u.document, u.description);
+    }
+
+    private void updateCommitStats(int batchSize, long startNanos, long batchLatencyMicros) {
+        if (!hasOption(ServiceOption.INSTRUMENTATION)) {
+            return;
+        }
+        adjustTimeSeriesStat(STAT_NAME_COMMIT_COUNT, AGGREGATION_TYPE_SUM, 1);
+        setTimeSeriesHistogramStat(STAT_NAME_COMMIT_DURATION_MICROS, AGGREGATION_TYPE_AVG_MAX,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        if (GROUP_COMMIT_ENABLED) {
+            setTimeSeriesHistogramStat(STAT_NAME_COMMIT_BATCH_SIZE, AGGREGATION_TYPE_AVG_MAX,
+                    batchSize);
+            setTimeSeriesHistogramStat(STAT_NAME_COMMIT_BATCH_LATENCY_MICROS,
+                    AGGREGATION_TYPE_AVG_MAX, batchLatencyMicros);
+        }
+    }
+
     /**
      * Will attempt to re-open index writer to recover from a specific exception. The method
      * assumes the caller has acquired the writer semaphore
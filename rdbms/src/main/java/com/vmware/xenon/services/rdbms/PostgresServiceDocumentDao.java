@@ -36,8 +36,10 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
@@ -332,15 +334,7 @@ final class PostgresServiceDocumentDao implements PostgresServiceDocumentDaoMXBe
 
         try (Connection conn = this.ds.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, json);
-            stmt.setString(2, sd.documentSelfLink);
-            stmt.setLong(3, sd.documentVersion);
-            stmt.setString(4, sd.documentKind);
-            stmt.setLong(5, sd.documentExpirationTimeMicros);
-            stmt.setLong(6, sd.documentUpdateTimeMicros);
-            stmt.setString(7, sd.documentTransactionId);
-            stmt.setString(8, sd.documentAuthPrincipalLink);
-            stmt.setString(9, sd.documentUpdateAction);
+            setUpsertParameters(stmt, sd, json);
 
             if (stmt.executeUpdate() == 0) {
                 // TODO: Fail operation?
@@ -360,6 +354,137 @@ final class PostgresServiceDocumentDao implements PostgresServiceDocumentDaoMXBe
         }
     }
 
+    /**
+     * Saves the given documents using JDBC batches in a single transaction. Upserts and deletes
+     * are grouped per table and statement, preserving the relative order of updates to the same
+     * document. The returned array holds the update count for each document, in the order of the
+     * given list. A count of 0 means the upsert was ignored because a newer version is already
+     * stored.
+     *
+     * Either all documents are saved or, in case of an exception, none of them.
+     */
+    public int[] saveDocuments(List<ServiceDocument> documents, boolean[] forceIndexUpdates)
+            throws SQLException {
+        int[] updateCounts = new int[documents.size()];
+        String[] statements = new String[documents.size()];
+        for (int i = 0; i < documents.size(); i++) {
+            ServiceDocument sd = documents.get(i);
+            String tableName = this.schemaManager
+                    .getTableNameForDocumentSelfLink(sd.documentSelfLink);
+            if (tableName == null) {
+                throw new IllegalArgumentException(
+                        "Cannot determine SQL table name for document: " + sd.documentSelfLink);
+            }
+            if (Action.DELETE.name().equals(sd.documentUpdateAction) && !this.isSoftDeleteEnabled) {
+                statements[i] = String.format("DELETE FROM %s WHERE documentselflink = ?",
+                        tableName);
+            } else {
+                statements[i] = String.format(
+                        forceIndexUpdates[i] ? SQL_UPSERT_FORCE_UPDATE : SQL_UPSERT, tableName);
+            }
+        }
+
+        try (Connection conn = this.ds.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Statements are grouped per SQL text in segments. A new segment is started
+                // when a document is updated again with a different statement, so that its
+                // updates are applied in the order they were requested.
+                Map<String, List<Integer>> segment = new LinkedHashMap<>();
+                Map<String, String> statementByLink = new HashMap<>();
+                for (int i = 0; i < documents.size(); i++) {
+                    String link = documents.get(i).documentSelfLink;
+                    String previous = statementByLink.put(link, statements[i]);
+                    if (previous != null && !previous.equals(statements[i])) {
+                        executeBatchSegment(conn, segment, documents, updateCounts);
+                        segment.clear();
+                        statementByLink.clear();
+                        statementByLink.put(link, statements[i]);
+                    }
+                    segment.computeIfAbsent(statements[i], k -> new ArrayList<>()).add(i);
+                }
+                executeBatchSegment(conn, segment, documents, updateCounts);
+                conn.commit();
+            } catch (Exception e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ignore) {
+                    // Ignore
+                }
+                logger.severe(String.format("Failed SQL batch save of %d documents: %s",
+                        documents.size(), Utils.toString(e)));
+                throw e;
+            } finally {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException ignore) {
+                    // Ignore
+                }
+            }
+        }
+
+        for (int i = 0; i < documents.size(); i++) {
+            ServiceDocument sd = documents.get(i);
+            if (updateCounts[i] == 0 && !statements[i].startsWith("DELETE")) {
+                logger.log(Level.WARNING, String.format(
+                        "Ignored SQL upsert: %s : ver=%s documentOwner=%s : most probably a newer version is already stored",
+                        sd.documentSelfLink, sd.documentVersion, sd.documentOwner));
+            } else if (isDetailedLoggingEnabled) {
+                logger.info(String.format("SQL batch %s: %s : ver=%s documentOwner=%s",
+                        statements[i].startsWith("DELETE") ? "delete" : "upsert",
+                        sd.documentSelfLink, sd.documentVersion, sd.documentOwner));
+            }
+        }
+        return updateCounts;
+    }
+
+    private void executeBatchSegment(Connection conn, Map<String, List<Integer>> segment,
+            List<ServiceDocument> documents, int[] updateCounts) throws SQLException {
+        for (Entry<String, List<Integer>> entry : segment.entrySet()) {
+            String sql = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            boolean delete = sql.startsWith("DELETE");
+            boolean hasLargeDocument = false;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int index : indexes) {
+                    ServiceDocument sd = documents.get(index);
+                    if (delete) {
+                        stmt.setString(1, sd.documentSelfLink);
+                    } else {
+                        String json = Utils.toJson(sd);
+                        hasLargeDocument |= json.length() > 10 * 1024;
+                        setUpsertParameters(stmt, sd, json);
+                    }
+                    stmt.addBatch();
+                }
+                if (hasLargeDocument) {
+                    // Trim large buffers from staying in the indexing service thread pool, as
+                    // in saveDocument
+                    Utils.getBuilder();
+                }
+                int[] counts = stmt.executeBatch();
+                for (int i = 0; i < counts.length; i++) {
+                    // SUCCESS_NO_INFO is reported by drivers that rewrite batched statements
+                    updateCounts[indexes.get(i)] = counts[i] == Statement.SUCCESS_NO_INFO
+                            ? 1 : counts[i];
+                }
+            }
+        }
+    }
+
+    private static void setUpsertParameters(PreparedStatement stmt, ServiceDocument sd,
+            String json) throws SQLException {
+        stmt.setString(1, json);
+        stmt.setString(2, sd.documentSelfLink);
+        stmt.setLong(3, sd.documentVersion);
+        stmt.setString(4, sd.documentKind);
+        stmt.setLong(5, sd.documentExpirationTimeMicros);
+        stmt.setLong(6, sd.documentUpdateTimeMicros);
+        stmt.setString(7, sd.documentTransactionId);
+        stmt.setString(8, sd.documentAuthPrincipalLink);
+        stmt.setString(9, sd.documentUpdateAction);
+    }
+
     public void deleteDocument(Connection conn, String tableName, String documentSelfLink)
             throws SQLException {
         String sql = String.format("DELETE FROM %s WHERE documentselflink = ?", tableName);
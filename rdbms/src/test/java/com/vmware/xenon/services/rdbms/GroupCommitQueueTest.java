@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.xenon.services.rdbms;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupCommitQueueTest {
+    private static final int BATCH_SIZE = 3;
+    private static final long WINDOW_MICROS = 2000;
+
+    private TestExecutor executor;
+    private List<Runnable> scheduled;
+    private AtomicInteger flushCount;
+    private List<String> failed;
+    private GroupCommitQueue<String> queue;
+
+    @Before
+    public void setUp() {
+        executor = new TestExecutor();
+        scheduled = new ArrayList<>();
+        flushCount = new AtomicInteger();
+        failed = new ArrayList<>();
+        queue = new GroupCommitQueue<>(BATCH_SIZE, WINDOW_MICROS, executor,
+                (task, delay, unit) -> {
+                    assertEquals(WINDOW_MICROS, unit.toMicros(delay));
+                    scheduled.add(task);
+                },
+                flushCount::incrementAndGet,
+                (batch, e) -> failed.addAll(batch));
+    }
+
+    @Test
+    public void testFullBatchIsFlushedByCaller() {
+        assertFalse(queue.add("a"));
+        assertFalse(queue.add("b"));
+        assertTrue(queue.add("c"));
+
+        // the window is scheduled once per batch
+        assertEquals(1, scheduled.size());
+        assertEquals(Arrays.asList("a", "b", "c"), queue.drain());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testWindowSubmitsFlushToExecutor() {
+        queue.add("a");
+        queue.add("b");
+        runScheduled();
+
+        assertEquals(1, flushCount.get());
+        assertEquals(Arrays.asList("a", "b"), queue.drain());
+
+        // a new window is scheduled for the next batch
+        queue.add("c");
+        assertEquals(1, scheduled.size());
+    }
+
+    @Test
+    public void testRejectedFlushIsRescheduled() {
+        queue.add("a");
+        executor.rejecting = true;
+        runScheduled();
+
+        // the flush is not run on the scheduler thread, it is retried after another window
+        assertEquals(0, flushCount.get());
+        assertEquals(1, scheduled.size());
+        assertEquals(1, queue.size());
+        assertTrue(failed.isEmpty());
+
+        executor.rejecting = false;
+        runScheduled();
+        assertEquals(1, flushCount.get());
+    }
+
+    @Test
+    public void testPendingUpdatesFailWhenExecutorIsShutDown() {
+        queue.add("a");
+        queue.add("b");
+        executor.shutdown();
+        runScheduled();
+
+        assertEquals(0, flushCount.get());
+        assertTrue(scheduled.isEmpty());
+        assertEquals(Arrays.asList("a", "b"), failed);
+        assertEquals(0, queue.size());
+    }
+
+    private void runScheduled() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    private static class TestExecutor extends AbstractExecutorService {
+        private boolean rejecting;
+        private boolean isShutdown;
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejecting || isShutdown) {
+                throw new RejectedExecutionException();
+            }
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            isShutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            isShutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return isShutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return isShutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.xenon.services.rdbms;
+
+import static com.vmware.xenon.services.rdbms.PostgresServiceDocumentDaoTest.document;
+import static com.vmware.xenon.services.rdbms.PostgresServiceDocumentDaoTest.link;
+import static com.vmware.xenon.services.rdbms.PostgresServiceDocumentDaoTest.links;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.ServiceDocumentDescription;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.test.VerificationHost;
+import com.vmware.xenon.services.common.ExampleService;
+import com.vmware.xenon.services.common.ExampleService.ExampleServiceState;
+import com.vmware.xenon.services.rdbms.PostgresDocumentIndexService.PendingUpdate;
+
+public class PostgresDocumentIndexServiceTest {
+    private static final String INDEX_LINK = "/test-postgres-index";
+
+    private static VerificationHost host;
+
+    private TestDataSource dataSource;
+    private PostgresDocumentIndexService indexService;
+    private Map<String, Throwable> failures;
+    private List<String> completed;
+
+    @BeforeClass
+    public static void setUpOnce() throws Throwable {
+        host = VerificationHost.create(0);
+        host.start();
+    }
+
+    @AfterClass
+    public static void tearDownOnce() {
+        host.tearDown();
+    }
+
+    @Before
+    public void setUp() throws Throwable {
+        dataSource = new TestDataSource();
+        indexService = new PostgresDocumentIndexService(host, dataSource.getDataSource());
+        indexService.getDao().getPostgresSchemaManager().addFactory(ExampleService.class);
+        host.startServiceAndWait(indexService, INDEX_LINK, null);
+
+        failures = new ConcurrentHashMap<>();
+        completed = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        host.stopService(indexService);
+    }
+
+    @Test
+    public void testGroupCommit() {
+        indexService.commitBatch(Arrays.asList(update("a"), update("b")));
+
+        assertEquals(Arrays.asList("autoCommit false", "batch upsert " + links("a", "b"),
+                "commit", "autoCommit true"), dataSource.events);
+        assertEquals(links("a", "b"), completed);
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void testFailedGroupCommitIsRetriedOneByOne() {
+        dataSource.failingLinks.add(link("b"));
+        indexService.commitBatch(Arrays.asList(update("a"), update("b"), update("c")));
+
+        // the batch is rolled back and each document is saved on its own, so only the update
+        // of the failing document fails
+        assertEquals(Arrays.asList("autoCommit false", "rollback", "autoCommit true",
+                "upsert " + link("a"), "upsert " + link("c")), dataSource.events);
+        assertEquals(links("a", "c"), completed);
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(link("b")));
+    }
+
+    private PendingUpdate update(String id) {
+        String link = link(id);
+        Operation op = Operation.createPost(UriUtils.buildUri(host, INDEX_LINK))
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        failures.put(link, e);
+                    } else {
+                        completed.add(link);
+                    }
+                });
+        return new PendingUpdate(op, document(id),
+                ServiceDocumentDescription.Builder.create()
+                        .buildDescription(ExampleServiceState.class),
+                false);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.xenon.services.rdbms;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.vmware.xenon.common.Service.Action;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.common.test.VerificationHost;
+import com.vmware.xenon.services.common.ExampleService;
+import com.vmware.xenon.services.common.ExampleService.ExampleServiceState;
+
+public class PostgresServiceDocumentDaoTest {
+    private static VerificationHost host;
+
+    private TestDataSource dataSource;
+    private PostgresServiceDocumentDao dao;
+
+    @BeforeClass
+    public static void setUpOnce() throws Throwable {
+        host = VerificationHost.create(0);
+        host.start();
+    }
+
+    @AfterClass
+    public static void tearDownOnce() {
+        host.tearDown();
+    }
+
+    @Before
+    public void setUp() {
+        dataSource = new TestDataSource();
+        dao = new PostgresServiceDocumentDao(host, null, dataSource.getDataSource());
+        dao.getPostgresSchemaManager().addFactory(ExampleService.class);
+    }
+
+    @Test
+    public void testSaveDocumentsCommitsGroupInOneTransaction() throws Exception {
+        int[] counts = dao.saveDocuments(Arrays.asList(document("a"), document("b"),
+                document("c")), new boolean[3]);
+
+        assertArrayEquals(new int[] { 1, 1, 1 }, counts);
+        assertEquals(Arrays.asList("autoCommit false", "batch upsert " + links("a", "b", "c"),
+                "commit", "autoCommit true"), dataSource.events);
+    }
+
+    @Test
+    public void testSaveDocumentsKeepsOrderOfUpdatesToSameDocument() throws Exception {
+        dao.saveDocuments(Arrays.asList(document("a"), document("b"), document("a"),
+                document("c")), new boolean[] { false, true, true, false });
+
+        // the second update of a uses another statement and is batched after the first one
+        assertEquals(Arrays.asList("autoCommit false",
+                "batch upsert " + links("a"),
+                "batch force upsert " + links("b"),
+                "batch force upsert " + links("a"),
+                "batch upsert " + links("c"),
+                "commit", "autoCommit true"), dataSource.events);
+    }
+
+    @Test
+    public void testFailedSaveDocumentsIsRolledBack() {
+        dataSource.failingLinks.add(link("b"));
+        try {
+            dao.saveDocuments(Arrays.asList(document("a"), document("b")), new boolean[2]);
+            fail("The batch should have failed");
+        } catch (SQLException e) {
+            // expected
+        }
+
+        assertEquals(Arrays.asList("autoCommit false", "rollback", "autoCommit true"),
+                dataSource.events);
+    }
+
+    static ServiceDocument document(String id) {
+        ExampleServiceState state = new ExampleServiceState();
+        state.name = id;
+        state.documentSelfLink = link(id);
+        state.documentKind = Utils.buildKind(ExampleServiceState.class);
+        state.documentVersion = 1;
+        state.documentUpdateAction = Action.PATCH.name();
+        return state;
+    }
+
+    static String link(String id) {
+        return UriUtils.buildUriPath(ExampleService.FACTORY_LINK, id);
+    }
+
+    static List<String> links(String... ids) {
+        return Arrays.stream(ids).map(PostgresServiceDocumentDaoTest::link)
+                .collect(Collectors.toList());
+    }
+}
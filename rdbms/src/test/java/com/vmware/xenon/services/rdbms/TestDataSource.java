@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.xenon.services.rdbms;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
+
+/**
+ * In-memory JDBC data source recording the transactions, batches and single updates of the
+ * document DAO. Updates of the documents in {@link #failingLinks} fail.
+ */
+class TestDataSource {
+    final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    final Set<String> failingLinks = ConcurrentHashMap.newKeySet();
+
+    DataSource getDataSource() {
+        return proxy(DataSource.class, (method, args) -> {
+            if (method.getName().equals("getConnection")) {
+                return newConnection();
+            }
+            return null;
+        });
+    }
+
+    private Connection newConnection() {
+        return proxy(Connection.class, (method, args) -> {
+            switch (method.getName()) {
+            case "setAutoCommit":
+                events.add("autoCommit " + args[0]);
+                return null;
+            case "commit":
+                events.add("commit");
+                return null;
+            case "rollback":
+                events.add("rollback");
+                return null;
+            case "prepareStatement":
+                return newStatement((String) args[0]);
+            default:
+                return null;
+            }
+        });
+    }
+
+    private PreparedStatement newStatement(String sql) {
+        boolean delete = sql.startsWith("DELETE");
+        boolean force = !delete && !sql.contains("WHERE");
+        String kind = delete ? "delete" : force ? "force upsert" : "upsert";
+        Map<Integer, Object> parameters = new HashMap<>();
+        List<String> batch = new ArrayList<>();
+        return proxy(PreparedStatement.class, (method, args) -> {
+            switch (method.getName()) {
+            case "setString":
+            case "setLong":
+                parameters.put((Integer) args[0], args[1]);
+                return null;
+            case "addBatch":
+                batch.add(getLink(parameters, delete));
+                return null;
+            case "executeBatch":
+                for (String link : batch) {
+                    if (failingLinks.contains(link)) {
+                        throw new BatchUpdateException("Failed batch update of " + link,
+                                new int[0]);
+                    }
+                }
+                events.add("batch " + kind + " " + batch);
+                int[] counts = new int[batch.size()];
+                Arrays.fill(counts, 1);
+                return counts;
+            case "executeUpdate":
+                String link = getLink(parameters, delete);
+                if (failingLinks.contains(link)) {
+                    throw new SQLException("Failed update of " + link);
+                }
+                events.add(kind + " " + link);
+                return 1;
+            default:
+                return null;
+            }
+        });
+    }
+
+    private static String getLink(Map<Integer, Object> parameters, boolean delete) {
+        return (String) parameters.get(delete ? 1 : 2);
+    }
+
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            switch (method.getName()) {
+            case "toString":
+                return type.getSimpleName();
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                Object result = handler.invoke(method, args);
+                return result != null ? result : defaultValue(method.getReturnType());
+            }
+        };
+        return (T) Proxy.newProxyInstance(TestDataSource.class.getClassLoader(),
+                new Class<?>[] { type }, invocationHandler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -36,6 +36,7 @@ import com.vmware.admiral.request.ContainerVolumeAllocationTaskService;
 import com.vmware.admiral.request.ContainerVolumeProvisionTaskService;
 import com.vmware.admiral.request.ContainerVolumeRemovalTaskService;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService;
+import com.vmware.admiral.request.PlacementHostSnapshotService;
 import com.vmware.admiral.request.RequestBrokerFactoryService;
 import com.vmware.admiral.request.RequestBrokerGraphService;
 import com.vmware.admiral.request.RequestStatusFactoryService;
@@ -80,6 +81,7 @@ public class HostInitRequestServicesConfig extends HostInitServiceHelper {
                             service(RequestInitialBootService.class),
                             service(TagAssignmentService.class),
                             service(RequestBrokerGraphService.class),
+                            service(PlacementHostSnapshotService.class),
                             factoryService(ClosureAllocationTaskService.class),
                             factoryService(ClosureProvisionTaskService.class),
                             factoryService(ContainerRedeploymentTaskService.class),
@@ -120,7 +122,8 @@ public class HostInitRequestServicesConfig extends HostInitServiceHelper {
                 NotificationsService.class,
                 RequestInitialBootService.class,
                 TagAssignmentService.class,
-                RequestBrokerGraphService.class);
+                RequestBrokerGraphService.class,
+                PlacementHostSnapshotService.class);
 
         startServiceFactories(host,
                 ClosureAllocationTaskService.class,
@@ -11,18 +11,28 @@
 
 package com.vmware.admiral.request;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import com.vmware.admiral.common.DeploymentProfileConfig;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.common.util.PropertyUtils;
+import com.vmware.admiral.common.util.ServiceDocumentQuery;
 import com.vmware.admiral.compute.container.ContainerDescriptionService.ContainerDescription;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
+import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
 import com.vmware.admiral.compute.container.HealthChecker.HealthConfig;
 import com.vmware.admiral.compute.container.SystemContainerDescriptions;
 import com.vmware.admiral.request.ContainerRecommendation.Recommendation;
@@ -35,12 +45,22 @@ import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.StatefulService;
+import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.services.common.QueryTask.Query.Builder;
 import com.vmware.xenon.services.common.QueryTask.Query.Occurance;
 
 /**
  * Enforces the actual state as close as possible to desired state.
+ *
+ * The containers of the auto redeploy container descriptions are reconciled when they change: the
+ * maintenance scans for the containers which have gone into error and the descriptions updated
+ * since its previous scan, and reconciles the containers of the affected descriptions once their
+ * changes have settled for {@link #DEBOUNCE_MICROS_PROPERTY}. The scans are skipped while the
+ * previous full reconcile has found no auto redeploy descriptions. The containers of all
+ * descriptions are reconciled every maintenance interval as before, for the drifts which are not
+ * found by the scans and for the descriptions which have enabled auto redeploy since.
  */
 public class ContainerControlLoopService extends StatefulService {
     public static final String FACTORY_LINK = ManagementUriParts.CONTAINER_CONTROL_LOOP;
@@ -49,11 +69,74 @@ public class ContainerControlLoopService extends StatefulService {
     public static final String CONTROL_LOOP_INFO_LINK = UriUtils.buildUriPath(
             FACTORY_LINK, CONTROL_LOOP_INFO);
 
+    public static final String CHANGE_SCAN_INTERVAL_MICROS_PROPERTY =
+            "com.vmware.admiral.request.container.control.loop.change.scan.interval.micros";
+    public static final String DEBOUNCE_MICROS_PROPERTY =
+            "com.vmware.admiral.request.container.control.loop.debounce.micros";
+    public static final String REDEPLOY_BACKOFF_MICROS_PROPERTY =
+            "com.vmware.admiral.request.container.control.loop.redeploy.backoff.micros";
+
     private static final long MAINTENANCE_INTERVAL_MICROS = Long
             .getLong("com.vmware.admiral.request.container.maintenance.interval.micros",
                     TimeUnit.MINUTES.toMicros(5));
+    private static final long CHANGE_SCAN_INTERVAL_MICROS = Long.getLong(
+            CHANGE_SCAN_INTERVAL_MICROS_PROPERTY, TimeUnit.SECONDS.toMicros(5));
+    private static final long DEBOUNCE_MICROS = Long.getLong(DEBOUNCE_MICROS_PROPERTY,
+            TimeUnit.SECONDS.toMicros(2));
+    /** A description changing all the time is reconciled at least this often. */
+    private static final long MAX_DEBOUNCE_MICROS = TimeUnit.SECONDS.toMicros(30);
+    /**
+     * Changes are scanned again from a while before the previous scan, so documents indexed late
+     * or updated by a node with a skewed clock are not missed.
+     */
+    private static final long CHANGE_SCAN_OVERLAP_MICROS = TimeUnit.SECONDS.toMicros(10);
+    /**
+     * A container is not redeployed on a change again while its previous redeployment may be
+     * running.
+     */
+    private static final long REDEPLOY_BACKOFF_MICROS = Long.getLong(
+            REDEPLOY_BACKOFF_MICROS_PROPERTY, TimeUnit.MINUTES.toMicros(5));
+
+    public static final String STAT_NAME_REACTION_LATENCY_MICROS = "reactionLatencyMicros";
+    public static final String STAT_NAME_RECONCILED_DESCRIPTION_COUNT =
+            "reconciledDescriptionCount";
+    public static final String STAT_NAME_FULL_RECONCILE_COUNT = "fullReconcileCount";
+    public static final String STAT_NAME_CHANGE_SCAN_COUNT = "changeScanCount";
+
     protected volatile AtomicInteger containerDescriptionsToBeProcessed = new AtomicInteger(0);
 
+    /** Changed descriptions waiting to be reconciled, by link. */
+    private final Map<String, DirtyDescription> dirtyDescriptions = new HashMap<>();
+    /** Redeployments started by the control loop, by container link. */
+    private final Map<String, Redeployment> redeployedContainers = new ConcurrentHashMap<>();
+    private final AtomicBoolean changeScanRunning = new AtomicBoolean();
+    private volatile long lastChangeScanMicros;
+    private volatile long lastFullReconcileMicros;
+    /** Whether the previous full reconcile has found auto redeploy descriptions. */
+    private volatile boolean autoRedeployDescriptionsFound = true;
+    private volatile long debounceMicros = DEBOUNCE_MICROS;
+
+    private static class Redeployment {
+        private final long startMicros;
+        /** Link of the redeployment task, {@code null} until the task is created. */
+        private volatile String taskLink;
+
+        private Redeployment(long startMicros) {
+            this.startMicros = startMicros;
+        }
+    }
+
+    private static class DirtyDescription {
+        /** Update time of the first and the latest change of the description. */
+        private long firstChangeMicros;
+        private long lastChangeMicros;
+
+        private DirtyDescription(long changeMicros) {
+            this.firstChangeMicros = changeMicros;
+            this.lastChangeMicros = changeMicros;
+        }
+    }
+
     public static class ContainerControlLoopState extends com.vmware.xenon.common.ServiceDocument {
     }
 
@@ -63,7 +146,9 @@ public class ContainerControlLoopService extends StatefulService {
         super.toggleOption(ServiceOption.REPLICATION, true);
         super.toggleOption(ServiceOption.OWNER_SELECTION, true);
         super.toggleOption(ServiceOption.PERIODIC_MAINTENANCE, true);
-        super.setMaintenanceIntervalMicros(MAINTENANCE_INTERVAL_MICROS);
+        super.toggleOption(ServiceOption.INSTRUMENTATION, true);
+        super.setMaintenanceIntervalMicros(Math.min(CHANGE_SCAN_INTERVAL_MICROS,
+                MAINTENANCE_INTERVAL_MICROS));
     }
 
     public static ServiceDocument buildDefaultStateInstance() {
@@ -106,7 +191,10 @@ public class ContainerControlLoopService extends StatefulService {
             return;
         }
 
-        if (containerDescriptionsToBeProcessed.get() == 0) {
+        if (Utils.getSystemNowMicrosUtc() - lastFullReconcileMicros
+                < MAINTENANCE_INTERVAL_MICROS) {
+            scanChanges();
+        } else if (containerDescriptionsToBeProcessed.get() == 0) {
             logFine("Performing maintenance for: %s", getUri());
 
             performMaintenance();
@@ -145,16 +233,32 @@ public class ContainerControlLoopService extends StatefulService {
         return template;
     }
 
-    private void performMaintenance() {
-        retrieveContainerDescriptions().whenComplete((containerDescriptions, e) -> {
+    /**
+     * Reconciles the containers of all auto redeploy descriptions. The result completes once the
+     * reconciles are started.
+     */
+    DeferredResult<Void> performMaintenance() {
+        long startMicros = Utils.getSystemNowMicrosUtc();
+        lastFullReconcileMicros = startMicros;
+        adjustStat(STAT_NAME_FULL_RECONCILE_COUNT, 1);
+        pruneRedeployedContainers(startMicros);
+
+        return retrieveContainerDescriptions(null, null).handle((containerDescriptions, e) -> {
             if (e != null) {
                 logSevere("Failed to retrieve container descriptions");
-                return;
+                return null;
+            }
+
+            autoRedeployDescriptionsFound = !containerDescriptions.isEmpty();
+            // the changes made before the full reconcile are covered by it
+            lastChangeScanMicros = Math.max(lastChangeScanMicros, startMicros);
+            synchronized (dirtyDescriptions) {
+                dirtyDescriptions.values().removeIf(d -> d.lastChangeMicros < startMicros);
             }
 
             if (containerDescriptions.size() == 0) {
                 logFine("No container descriptions for processing.");
-                return;
+                return null;
             }
 
             containerDescriptionsToBeProcessed.set(containerDescriptions.size());
@@ -162,41 +266,224 @@ public class ContainerControlLoopService extends StatefulService {
             for (ContainerDescription containerDescription : containerDescriptions) {
                 containerDescriptionsToBeProcessed.decrementAndGet();
 
-                retrieveContainerStates(containerDescription).thenApply
-                        (containers -> filterContainersWithContextId(containers)).whenComplete(
-                            (containers, ex) -> {
-
-                                if (ex != null) {
-                                    logSevere("Failed to retrieve containers");
-                                    return;
-                                }
-
-                                if (containers.isEmpty()) {
-                                    logFine("No containers from description: %s",
-                                            containerDescription.documentSelfLink);
-                                    return;
-                                }
-
-                                List<ContainerState> containersToBeRemoved = ContainerDiff
-                                        .inspect(containerDescription, containers)
-                                        .stream()
-                                        .filter(diff ->
-                                                Recommendation.REDEPLOY == ContainerRecommendation
-                                                        .recommend(diff))
-                                        .map(container -> container.currentState)
-                                        .collect(Collectors.toList());
-                                redeployContainers(containerDescription, containersToBeRemoved);
-                            });
+                reconcile(containerDescription, false);
             }
+            return null;
         });
     }
 
+    /**
+     * Marks the descriptions of the containers gone into error and the descriptions updated since
+     * the previous scan as dirty, and reconciles the dirty descriptions whose changes have
+     * settled.
+     */
+    DeferredResult<Void> scanChanges() {
+        if (!autoRedeployDescriptionsFound) {
+            logFine("Skipping change scan since there are no auto redeploy descriptions");
+            return DeferredResult.completed(null);
+        }
+        if (!changeScanRunning.compareAndSet(false, true)) {
+            logFine("Skipping change scan since there is already running scan");
+            return DeferredResult.completed(null);
+        }
+        adjustStat(STAT_NAME_CHANGE_SCAN_COUNT, 1);
+
+        long startMicros = Utils.getSystemNowMicrosUtc();
+        long sinceMicros = lastChangeScanMicros - CHANGE_SCAN_OVERLAP_MICROS;
+
+        DeferredResult<Void> containerChanges = retrieveContainersInErrorSince(sinceMicros)
+                .thenAccept(containers -> containers.forEach(
+                        container -> markDirty(container.descriptionLink,
+                                container.documentUpdateTimeMicros)));
+        DeferredResult<Void> descriptionChanges = retrieveContainerDescriptions(sinceMicros, null)
+                .thenAccept(descriptions -> descriptions.forEach(
+                        description -> markDirty(description.documentSelfLink,
+                                description.documentUpdateTimeMicros)));
+
+        DeferredResult<Void> result = new DeferredResult<>();
+        DeferredResult.allOf(Arrays.asList(containerChanges, descriptionChanges))
+                .whenComplete((ignore, e) -> {
+                    if (e != null) {
+                        logWarning("Failed to scan container changes: %s", Utils.toString(e));
+                    } else {
+                        lastChangeScanMicros = Math.max(lastChangeScanMicros, startMicros);
+                    }
+                    changeScanRunning.set(false);
+
+                    reconcileDirtyDescriptions().whenComplete((v, ex) -> result.complete(null));
+                });
+        return result;
+    }
+
+    /**
+     * Returns the links of the changed descriptions waiting to be reconciled.
+     */
+    Set<String> getDirtyDescriptionLinks() {
+        synchronized (dirtyDescriptions) {
+            return new HashSet<>(dirtyDescriptions.keySet());
+        }
+    }
+
+    /**
+     * Sets how long the changes of a description have to settle before it is reconciled.
+     */
+    void setDebounceMicros(long debounceMicros) {
+        this.debounceMicros = debounceMicros;
+    }
+
+    private void markDirty(String containerDescriptionLink, long changeMicros) {
+        if (containerDescriptionLink == null) {
+            return;
+        }
+        synchronized (dirtyDescriptions) {
+            DirtyDescription dirty = dirtyDescriptions.get(containerDescriptionLink);
+            if (dirty == null) {
+                dirtyDescriptions.put(containerDescriptionLink, new DirtyDescription(changeMicros));
+            } else {
+                dirty.firstChangeMicros = Math.min(dirty.firstChangeMicros, changeMicros);
+                dirty.lastChangeMicros = Math.max(dirty.lastChangeMicros, changeMicros);
+            }
+        }
+    }
+
+    private DeferredResult<Void> reconcileDirtyDescriptions() {
+        long nowMicros = Utils.getSystemNowMicrosUtc();
+        Map<String, DirtyDescription> settled = new HashMap<>();
+        synchronized (dirtyDescriptions) {
+            for (Iterator<Map.Entry<String, DirtyDescription>> it = dirtyDescriptions.entrySet()
+                    .iterator(); it.hasNext(); ) {
+                Map.Entry<String, DirtyDescription> entry = it.next();
+                DirtyDescription dirty = entry.getValue();
+                if (nowMicros - dirty.lastChangeMicros >= debounceMicros
+                        || nowMicros - dirty.firstChangeMicros >= MAX_DEBOUNCE_MICROS) {
+                    settled.put(entry.getKey(), dirty);
+                    it.remove();
+                }
+            }
+        }
+
+        if (settled.isEmpty()) {
+            return DeferredResult.completed(null);
+        }
+
+        // only the auto redeploy descriptions among the dirty ones are returned
+        return retrieveContainerDescriptions(null, settled.keySet())
+                .handle((containerDescriptions, e) -> {
+                    if (e != null) {
+                        logWarning("Failed to retrieve changed container descriptions: %s",
+                                Utils.toString(e));
+                        settled.forEach((link, dirty) -> {
+                            markDirty(link, dirty.firstChangeMicros);
+                            markDirty(link, dirty.lastChangeMicros);
+                        });
+                        return null;
+                    }
+
+                    long reconcileMicros = Utils.getSystemNowMicrosUtc();
+                    for (ContainerDescription containerDescription : containerDescriptions) {
+                        setStat(STAT_NAME_REACTION_LATENCY_MICROS, reconcileMicros
+                                - settled.get(containerDescription.documentSelfLink)
+                                        .firstChangeMicros);
+                        adjustStat(STAT_NAME_RECONCILED_DESCRIPTION_COUNT, 1);
+                        reconcile(containerDescription, true);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Redeploys the containers of the given description which have drifted from it. A reconcile
+     * on a change skips the containers redeployed recently, as their redeployment may still be
+     * running, while the full reconcile skips only the ones whose redeployment task is running.
+     */
+    private void reconcile(ContainerDescription containerDescription, boolean onChange) {
+        retrieveContainerStates(containerDescription).thenApply
+                (containers -> filterContainersWithContextId(containers)).whenComplete(
+                    (containers, ex) -> {
+
+                        if (ex != null) {
+                            logSevere("Failed to retrieve containers");
+                            return;
+                        }
+
+                        if (containers.isEmpty()) {
+                            logFine("No containers from description: %s",
+                                    containerDescription.documentSelfLink);
+                            return;
+                        }
+
+                        List<ContainerState> containersToBeRemoved = ContainerDiff
+                                .inspect(containerDescription, containers)
+                                .stream()
+                                .filter(diff ->
+                                        Recommendation.REDEPLOY == ContainerRecommendation
+                                                .recommend(diff))
+                                .map(container -> container.currentState)
+                                .collect(Collectors.toList());
+                        if (onChange) {
+                            redeployContainers(containerDescription, containersToBeRemoved
+                                    .stream()
+                                    .filter(container -> !isRedeployedRecently(
+                                            container.documentSelfLink))
+                                    .collect(Collectors.toList()));
+                        } else {
+                            filterRedeploymentsRunning(containersToBeRemoved)
+                                    .thenAccept(containersNotRedeploying -> redeployContainers(
+                                            containerDescription, containersNotRedeploying));
+                        }
+                    });
+    }
+
+    private boolean isRedeployedRecently(String containerLink) {
+        Redeployment redeployment = redeployedContainers.get(containerLink);
+        return redeployment != null && Utils.getSystemNowMicrosUtc()
+                - redeployment.startMicros < REDEPLOY_BACKOFF_MICROS;
+    }
+
+    /**
+     * Returns the given containers but the ones whose redeployment task is still running.
+     */
+    private DeferredResult<List<ContainerState>> filterRedeploymentsRunning(
+            List<ContainerState> containers) {
+        Map<String, DeferredResult<Boolean>> runningByTaskLink = new HashMap<>();
+        Map<ContainerState, DeferredResult<Boolean>> running = new HashMap<>();
+        for (ContainerState container : containers) {
+            Redeployment redeployment = redeployedContainers.get(container.documentSelfLink);
+            if (redeployment == null) {
+                running.put(container, DeferredResult.completed(false));
+            } else if (redeployment.taskLink == null) {
+                // the task is being created
+                running.put(container, DeferredResult.completed(true));
+            } else {
+                running.put(container, runningByTaskLink.computeIfAbsent(redeployment.taskLink,
+                        taskLink -> sendWithDeferredResult(Operation.createGet(this, taskLink),
+                                ContainerRedeploymentTaskState.class)
+                                .handle((task, e) -> e == null
+                                        && TaskState.isInProgress(task.taskInfo))));
+            }
+        }
+
+        return DeferredResult.allOf(new ArrayList<>(running.values())).thenApply(ignore -> containers.stream()
+                .filter(container -> !running.get(container).getNow(false))
+                .collect(Collectors.toList()));
+    }
+
+    private void pruneRedeployedContainers(long nowMicros) {
+        redeployedContainers.values().removeIf(
+                redeployment -> nowMicros - redeployment.startMicros >= REDEPLOY_BACKOFF_MICROS);
+    }
+
     private List<ContainerState> filterContainersWithContextId(List<ContainerState> containers) {
         return containers.stream().filter(state -> state.customProperties.get(RequestUtils
                 .FIELD_NAME_CONTEXT_ID_KEY) != null).collect(Collectors.toList());
     }
 
-    private DeferredResult<List<ContainerDescription>> retrieveContainerDescriptions() {
+    /**
+     * Retrieves the container descriptions which have the auto redeploy option enabled, only the
+     * ones updated since the given time or with the given links if these are set.
+     */
+    private DeferredResult<List<ContainerDescription>> retrieveContainerDescriptions(
+            Long updatedSinceMicros, Collection<String> containerDescriptionLinks) {
         logFine("Retrieve all container descriptions which have autoredeploy option enabled."
                 + "System container is excluded.");
 
@@ -208,6 +495,14 @@ public class ContainerControlLoopService extends StatefulService {
                 .addCompositeFieldClause(ContainerDescription.FIELD_NAME_HEALTH_CONFIG,
                         HealthConfig.FIELD_NAME_AUTOREDEPLOY, Boolean.TRUE.toString(), Occurance
                                 .MUST_OCCUR);
+        if (updatedSinceMicros != null) {
+            builder.addClause(ServiceDocumentQuery.createUpdatedSinceTimeRange(
+                    updatedSinceMicros));
+        }
+        if (containerDescriptionLinks != null) {
+            builder.addInClause(ContainerDescription.FIELD_NAME_SELF_LINK,
+                    containerDescriptionLinks);
+        }
 
         QueryByPages<ContainerDescription> query = new QueryByPages<>(getHost(), builder.build(),
                 ContainerDescription.class, null);
@@ -228,6 +523,19 @@ public class ContainerControlLoopService extends StatefulService {
         return query.collectDocuments(Collectors.toList());
     }
 
+    private DeferredResult<List<ContainerState>> retrieveContainersInErrorSince(
+            long updatedSinceMicros) {
+        Builder builder = Builder.create()
+                .addKindFieldClause(ContainerState.class)
+                .addFieldClause(ContainerState.FIELD_NAME_POWER_STATE, PowerState.ERROR)
+                .addClause(ServiceDocumentQuery.createUpdatedSinceTimeRange(updatedSinceMicros));
+
+        QueryByPages<ContainerState> query = new QueryByPages<>(getHost(), builder.build(),
+                ContainerState.class, null);
+
+        return query.collectDocuments(Collectors.toList());
+    }
+
     private void redeployContainers(ContainerDescription description, List<ContainerState>
             containers) {
         Map<String, Set<String>> containerLinksGroupedByCondextId = containers.stream().collect
@@ -260,17 +568,23 @@ public class ContainerControlLoopService extends StatefulService {
         redeployingTaskState.tenantLinks = tenantLinks;
         redeployingTaskState.serviceTaskCallback = ServiceTaskCallback.createEmpty();
 
+        Redeployment redeployment = new Redeployment(Utils.getSystemNowMicrosUtc());
+        containerLinks.forEach(link -> redeployedContainers.put(link, redeployment));
+
         sendRequest(Operation
                 .createPost(this, ContainerRedeploymentTaskService.FACTORY_LINK)
                 .setBodyNoCloning(redeployingTaskState)
                 .setContextId(getSelfId())
                 .setCompletion((o, e) -> {
                     if (e != null) {
+                        redeployedContainers.values().removeIf(r -> r == redeployment);
                         o.fail(new LocalizableValidationException("Creation of redeployment task " +
                                 "failed", "request.container-control-loop-state" +
                                 ".create-redeployment-task-fail"));
                         return;
                     }
+                    redeployment.taskLink = o.getBody(ContainerRedeploymentTaskState.class)
+                            .documentSelfLink;
                 }));
     }
 }
\ No newline at end of file
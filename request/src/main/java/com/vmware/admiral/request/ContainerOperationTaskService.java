@@ -15,13 +15,17 @@ import static com.vmware.admiral.compute.container.SystemContainerDescriptions.i
 import static com.vmware.xenon.common.ServiceDocumentDescription.PropertyIndexingOption.STORE_ONLY;
 import static com.vmware.xenon.common.ServiceDocumentDescription.PropertyUsageOption.REQUIRED;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.vmware.admiral.adapter.common.AdapterRequest;
+import com.vmware.admiral.adapter.common.BatchAdapterRequest;
 import com.vmware.admiral.adapter.common.ContainerOperationType;
 import com.vmware.admiral.common.util.QueryUtil;
 import com.vmware.admiral.common.util.ServiceDocumentQuery;
@@ -141,15 +145,38 @@ public class ContainerOperationTaskService extends
 
     private void performResourceOperations(ContainerOperationTaskState state,
             Collection<ContainerState> resources, ServiceTaskCallback taskCallback) {
+        // the containers of adapters accepting batch requests are requested with a single
+        // request per adapter, the rest with a request per container
+        ContainerOperationType operationType = ContainerOperationType.instanceById(
+                state.operation);
+        boolean batchSupported = operationType != null && operationType.isBatchSupported();
+        Map<String, List<ContainerState>> batchResourcesByAdapter = new LinkedHashMap<>();
+        List<ContainerState> singleResources = new ArrayList<>();
+        for (ContainerState container : resources) {
+            if (batchSupported
+                    && BatchAdapterRequest.isSupportedBy(container.adapterManagementReference)) {
+                batchResourcesByAdapter.computeIfAbsent(
+                        container.adapterManagementReference.toString(),
+                        (adapterReference) -> new ArrayList<>()).add(container);
+            } else {
+                singleResources.add(container);
+            }
+        }
+
         if (taskCallback == null) {
-            createCounterSubTaskCallback(state, resources.size(), true,
+            createCounterSubTaskCallback(state,
+                    batchResourcesByAdapter.size() + singleResources.size(), true,
                     (serviceTask) -> performResourceOperations(state, resources, serviceTask));
             return;
         }
 
         try {
-            logInfo("Starting %s of %d container resources", state.operation, resources.size());
-            for (ContainerState container : resources) {
+            logInfo("Starting %s of %d container resources with %d batch requests",
+                    state.operation, resources.size(), batchResourcesByAdapter.size());
+            batchResourcesByAdapter.forEach((adapterReference, containers) ->
+                    createBatchAdapterRequest(state, adapterReference, containers,
+                            taskCallback));
+            for (ContainerState container : singleResources) {
                 createAdapterRequest(state, container, taskCallback);
             }
         } catch (Throwable e) {
@@ -157,6 +184,32 @@ public class ContainerOperationTaskService extends
         }
     }
 
+    private void createBatchAdapterRequest(ContainerOperationTaskState state,
+            String adapterReference, List<ContainerState> containers,
+            ServiceTaskCallback taskCallback) {
+        BatchAdapterRequest adapterRequest = new BatchAdapterRequest();
+        adapterRequest.resourceReferences = new ArrayList<>(containers.size());
+        for (ContainerState containerState : containers) {
+            URI resourceReference = UriUtils.buildUri(getHost(), containerState.documentSelfLink);
+            adapterRequest.resourceReferences.add(resourceReference);
+        }
+        adapterRequest.serviceTaskCallback = taskCallback;
+        adapterRequest.operationTypeId = state.operation;
+        adapterRequest.customProperties = state.customProperties;
+        sendRequest(Operation.createPatch(getHost(), adapterReference)
+                .setBody(adapterRequest)
+                .setContextId(getSelfId())
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        failTask("Batch AdapterRequest failed for containers of adapter: "
+                                + adapterReference, e);
+                        return;
+                    }
+                    containers.forEach((containerState) -> patchContainerStats(state,
+                            containerState));
+                }));
+    }
+
     private void createAdapterRequest(ContainerOperationTaskState state,
             ContainerState containerState, ServiceTaskCallback taskCallback) {
         AdapterRequest adapterRequest = new AdapterRequest();
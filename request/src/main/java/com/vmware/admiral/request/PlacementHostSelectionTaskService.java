@@ -11,7 +11,6 @@
 
 package com.vmware.admiral.request;
 
-import static com.vmware.admiral.common.util.PropertyUtils.getPropertyLong;
 import static com.vmware.xenon.common.ServiceDocumentDescription.PropertyIndexingOption.STORE_ONLY;
 import static com.vmware.xenon.common.ServiceDocumentDescription.PropertyUsageOption.AUTO_MERGE_IF_NOT_NULL;
 import static com.vmware.xenon.common.ServiceDocumentDescription.PropertyUsageOption.REQUIRED;
@@ -20,23 +19,25 @@ import static com.vmware.xenon.common.ServiceDocumentDescription.PropertyUsageOp
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import com.esotericsoftware.kryo.serializers.VersionFieldSerializer.Since;
 
+import com.vmware.admiral.adapter.common.ImageOperationType;
+import com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor;
+import com.vmware.admiral.adapter.docker.service.DockerImageHostRequest;
 import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.common.serialization.ReleaseConstants;
 import com.vmware.admiral.common.util.AssertUtil;
+import com.vmware.admiral.common.util.DockerImage;
 import com.vmware.admiral.common.util.QueryUtil;
 import com.vmware.admiral.common.util.ServiceDocumentQuery;
 import com.vmware.admiral.compute.ComponentDescription;
-import com.vmware.admiral.compute.ContainerHostService;
 import com.vmware.admiral.compute.ContainerHostService.ContainerHostType;
 import com.vmware.admiral.compute.ContainerHostUtil;
 import com.vmware.admiral.compute.ResourceType;
@@ -44,21 +45,25 @@ import com.vmware.admiral.compute.container.CompositeComponentRegistry;
 import com.vmware.admiral.compute.container.CompositeComponentRegistry.ComponentMeta;
 import com.vmware.admiral.compute.container.CompositeDescriptionFactoryService;
 import com.vmware.admiral.compute.container.CompositeDescriptionService.CompositeDescription;
+import com.vmware.admiral.compute.container.ContainerDescriptionService.ContainerDescription;
+import com.vmware.admiral.compute.container.SystemContainerDescriptions;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState.SubStage;
+import com.vmware.admiral.request.PlacementHostSnapshotService.HostSnapshotRequest;
+import com.vmware.admiral.request.PlacementHostSnapshotService.HostSnapshotResponse;
 import com.vmware.admiral.request.allocation.filter.AffinityFilters;
 import com.vmware.admiral.request.allocation.filter.HostSelectionFilter;
 import com.vmware.admiral.request.allocation.filter.HostSelectionFilter.HostSelection;
 import com.vmware.admiral.request.allocation.filter.HostSelectionFilter.HostSelectionFilterException;
 import com.vmware.admiral.service.common.AbstractTaskStatefulService;
+import com.vmware.admiral.service.common.ServiceTaskCallback;
 import com.vmware.admiral.service.common.ServiceTaskCallback.ServiceTaskCallbackResponse;
 import com.vmware.photon.controller.model.resources.ComputeDescriptionService.ComputeDescription;
-import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
-import com.vmware.photon.controller.model.resources.ComputeService.PowerState;
-import com.vmware.photon.controller.model.tasks.helpers.ResourcePoolQueryHelper;
-import com.vmware.photon.controller.model.tasks.helpers.ResourcePoolQueryHelper.QueryResult;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.services.common.QueryTask;
 import com.vmware.xenon.services.common.QueryTask.QuerySpecification;
 
@@ -74,6 +79,13 @@ public class PlacementHostSelectionTaskService
     private static final int QUERY_RETRY_COUNT = Integer.getInteger(
             "com.vmware.admiral.service.placement.query.retries", 2);
 
+    /**
+     * Whether to start pulling the image of a container on the selected hosts as soon as they
+     * are selected, so the pull overlaps with the rest of the allocation.
+     */
+    public static final String IMAGE_PRE_PULL_ENABLED_PROPERTY =
+            "com.vmware.admiral.service.placement.image.prepull.enabled";
+
     // cached component description
     private volatile ReservationComponentDescription description;
 
@@ -220,74 +232,55 @@ public class PlacementHostSelectionTaskService
             ReservationComponentDescription desc,
             Collection<String> computeDescriptionLinks, int retries) {
 
-        ResourcePoolQueryHelper helper = ResourcePoolQueryHelper.createForResourcePools(getHost(),
-                state.resourcePoolLinks);
-        helper.setExpandComputes(true);
-        helper.setAdditionalQueryClausesProvider(qb -> {
-            qb.addInClause(ComputeState.FIELD_NAME_DESCRIPTION_LINK, computeDescriptionLinks)
-                    .addFieldClause(ComputeState.FIELD_NAME_POWER_STATE, PowerState.ON.toString());
-        });
-
-        helper.query(qr -> {
-            if (qr.error != null) {
-                failTask("Error querying for placement compute hosts.", qr.error);
-                return;
-            }
-
-            if (qr.computesByLink.isEmpty()) {
-                if (retries > 0) {
-                    logWarning("No powered-on container hosts found in placement zones %s matching"
-                                    + " descriptions %s, retrying (%d left)...",
-                            state.resourcePoolLinks, computeDescriptionLinks, retries - 1);
-                    getHost().schedule(
-                            () -> selectBasedOnDescAndResourcePool(state, desc, retries - 1),
-                            QueryUtil.QUERY_RETRY_INTERVAL_MILLIS,
-                            TimeUnit.MILLISECONDS);
-                } else {
-                    failTask(null, new LocalizableValidationException(
-                            "No powered-on container hosts found in placement zones: "
-                                    + state.resourcePoolLinks,
-                            "request.placement.hosts.missing", state.resourcePoolLinks));
-                }
-                return;
-            }
-
-            Map<String, HostSelection> initHostSelectionMap = buildHostSelectionMap(qr);
+        HostSnapshotRequest request = new HostSnapshotRequest();
+        request.resourcePoolLinks = state.resourcePoolLinks;
+        request.computeDescriptionLinks = computeDescriptionLinks;
+        request.memoryLimit = desc.getCommonDescription().memoryLimit;
+        try {
+            request.hostTypes = getSupportedHostTypes(state, desc);
+            AssertUtil.assertNotEmpty(request.hostTypes, "supportedHostTypes");
+        } catch (Exception e) {
+            failTask(null, e);
+            return;
+        }
 
-            proceedTo(SubStage.FILTER, s -> {
-                s.hostSelectionMap = initHostSelectionMap;
-            });
+        sendRequest(Operation.createPost(this, PlacementHostSnapshotService.SELF_LINK)
+                .setBody(request)
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        failTask("Error querying for placement compute hosts.", e);
+                        return;
+                    }
 
-        });
-    }
+                    HostSnapshotResponse response = o.getBody(HostSnapshotResponse.class);
+                    if (response.hostCount == 0) {
+                        if (retries > 0) {
+                            logWarning("No powered-on container hosts found in placement zones %s"
+                                            + " matching descriptions %s, retrying (%d left)...",
+                                    state.resourcePoolLinks, computeDescriptionLinks,
+                                    retries - 1);
+                            getHost().schedule(
+                                    () -> selectBasedOnDescAndResourcePool(state, desc,
+                                            retries - 1),
+                                    QueryUtil.QUERY_RETRY_INTERVAL_MILLIS,
+                                    TimeUnit.MILLISECONDS);
+                        } else {
+                            failTask(null, new LocalizableValidationException(
+                                    "No powered-on container hosts found in placement zones: "
+                                            + state.resourcePoolLinks,
+                                    "request.placement.hosts.missing", state.resourcePoolLinks));
+                        }
+                        return;
+                    }
 
-    private Map<String, HostSelection> buildHostSelectionMap(QueryResult rpQueryResult) {
-        Collection<ComputeState> computes = rpQueryResult.computesByLink.values();
-        final Map<String, HostSelection> initHostSelectionMap = new LinkedHashMap<>(
-                computes.size());
-        for (ComputeState computeState : computes) {
-            final HostSelection hostSelection = new HostSelection();
-            hostSelection.hostLink = computeState.documentSelfLink;
-            hostSelection.resourcePoolLinks = rpQueryResult.rpLinksByComputeLink
-                    .get(computeState.documentSelfLink);
-            hostSelection.deploymentPolicyLink = computeState.customProperties
-                    .get(ContainerHostService.CUSTOM_PROPERTY_DEPLOYMENT_POLICY);
-            hostSelection.availableMemory = getPropertyLong(
-                    computeState.customProperties,
-                    ContainerHostService.DOCKER_HOST_AVAILABLE_MEMORY_PROP_NAME)
-                            .orElse(Long.MAX_VALUE);
-            hostSelection.clusterStore = computeState.customProperties
-                    .get(ContainerHostService.DOCKER_HOST_CLUSTER_STORE_PROP_NAME);
-            hostSelection.plugins = computeState.customProperties
-                    .get(ContainerHostService.DOCKER_HOST_PLUGINS_PROP_NAME);
-            hostSelection.name = computeState.name != null ? computeState.name : "N/A";
-            hostSelection.hostType = ContainerHostUtil.getDeclaredContainerHostType(computeState);
-
-            initHostSelectionMap.put(hostSelection.hostLink, hostSelection);
-        }
-        return initHostSelectionMap;
+                    // the hosts are already filtered by type and available memory
+                    proceedTo(SubStage.FILTER, s -> {
+                        s.hostSelectionMap = response.hostSelectionMap;
+                    });
+                }));
     }
 
+    @SuppressWarnings("rawtypes")
     private void selection(final PlacementHostSelectionTaskState state,
             final ReservationComponentDescription description) {
         if (description == null) {
@@ -296,22 +289,39 @@ public class PlacementHostSelectionTaskService
             return;
         }
 
-        Map<String, HostSelection> filteredByHostType = filterHostsByType(state, description,
-                state.hostSelectionMap);
-
-        Map<String, HostSelection> filteredByMemory = filterHostsByMemory(description,
-                filteredByHostType);
-
         try {
             final AffinityFilters filters = AffinityFilters.build(getHost(),
                     description.getServiceDocument());
-            filter(state, filteredByMemory, filters.getQueue());
+            final Queue<HostSelectionFilter> queue = filters.getQueue();
+            prefetch(state, state.hostSelectionMap, queue)
+                    .whenComplete((ignore, e) -> filter(state, state.hostSelectionMap, queue));
         } catch (Exception e) {
             failTask(null, e);
         }
 
     }
 
+    /**
+     * Runs the data fetches of all filters at the same time, so that applying the filters one
+     * after another costs as much as the slowest fetch rather than the sum of all of them. The
+     * filters are still applied in their original order and see the same hosts as before.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private DeferredResult<Void> prefetch(final PlacementHostSelectionTaskState state,
+            final Map<String, HostSelection> hostSelectionMap,
+            final Collection<HostSelectionFilter> filters) {
+        if (isNoSelection(hostSelectionMap) || filters.size() <= 1) {
+            return DeferredResult.completed(null);
+        }
+
+        List<DeferredResult<Void>> prefetches = new ArrayList<>(filters.size());
+        for (HostSelectionFilter filter : filters) {
+            prefetches.add(filter.prefetch(state, hostSelectionMap));
+        }
+        return DeferredResult.allOf(prefetches).thenAccept(ignore -> {
+        });
+    }
+
     private List<ContainerHostType> getSupportedHostTypes(
             PlacementHostSelectionTaskState state, ComponentDescription desc) {
         ServiceDocument serviceDocument = desc.getServiceDocument();
@@ -341,38 +351,6 @@ public class PlacementHostSelectionTaskService
         }
     }
 
-    private Map<String, HostSelection> filterHostsByType(
-            PlacementHostSelectionTaskState state,
-            ComponentDescription desc,
-            Map<String, HostSelection> initHostSelectionMap) {
-
-        List<ContainerHostType> supportedHostTypes = getSupportedHostTypes(state, desc);
-        AssertUtil.assertNotEmpty(supportedHostTypes, "supportedHostTypes");
-
-        Map<String, HostSelection> map = initHostSelectionMap.entrySet().stream()
-                .filter(e -> supportedHostTypes.contains(e.getValue().hostType))
-                .collect(Collectors.toMap(p -> p.getKey(), p -> p.getValue()));
-
-        return map;
-    }
-
-    private Map<String, HostSelection> filterHostsByMemory(
-            ReservationComponentDescription desc,
-            Map<String, HostSelection> initHostSelectionMap) {
-
-        Long memoryLimit = desc.getCommonDescription().memoryLimit;
-
-        if (memoryLimit == null) {
-            return initHostSelectionMap;
-        }
-
-        return initHostSelectionMap.entrySet().stream()
-                .filter(e -> e.getValue().availableMemory == null ||
-                        e.getValue().availableMemory >= memoryLimit)
-                .collect(Collectors.toMap(p -> p.getKey(), p -> p.getValue()));
-
-    }
-
     @SuppressWarnings({ "rawtypes", "unchecked" })
     private void filter(final PlacementHostSelectionTaskState state,
             final Map<String, HostSelection> hostSelectionMap,
@@ -425,11 +403,81 @@ public class PlacementHostSelectionTaskService
             hostSelections.addAll(hostSelections.subList(0, diff % initialSize));
         }
 
+        if (Boolean.getBoolean(IMAGE_PRE_PULL_ENABLED_PROPERTY)) {
+            prePullImage(state, hostSelectionMap.values());
+        }
+
         proceedTo(SubStage.COMPLETED, s -> {
             s.hostSelections = hostSelections;
         });
     }
 
+    /**
+     * Starts pulling the image of the container description on the selected hosts. The pull is
+     * not awaited, the docker adapter merges it with the pull of the container provisioning, or
+     * skips the latter if the image is already pulled.
+     */
+    private void prePullImage(PlacementHostSelectionTaskState state,
+            Collection<HostSelection> hostSelections) {
+        if (!ResourceType.CONTAINER_TYPE.getName().equals(state.resourceType)) {
+            return;
+        }
+
+        sendRequest(Operation.createGet(this, state.resourceDescriptionLink)
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        logWarning("Failure retrieving container description for image pre-pull:"
+                                + " %s", Utils.toString(e));
+                        return;
+                    }
+                    ContainerDescription cd = o.getBody(ContainerDescription.class);
+                    if (!isPrePullSupported(cd)) {
+                        return;
+                    }
+
+                    String fullImageName = DockerImage.fromImageName(cd.image).toString();
+                    hostSelections.stream()
+                            .filter(hs -> hs.hostType != ContainerHostType.KUBERNETES)
+                            .map(hs -> hs.hostLink)
+                            .distinct()
+                            .forEach(hostLink -> sendPrePullRequest(state, hostLink,
+                                    fullImageName));
+                }));
+    }
+
+    private void sendPrePullRequest(PlacementHostSelectionTaskState state, String hostLink,
+            String fullImageName) {
+        DockerImageHostRequest request = new DockerImageHostRequest();
+        request.operationTypeId = ImageOperationType.CREATE.id;
+        request.resourceReference = UriUtils.buildUri(getHost(), hostLink);
+        request.serviceTaskCallback = ServiceTaskCallback.createEmpty();
+        request.tenantLinks = state.tenantLinks;
+        request.customProperties = new HashMap<>();
+        request.customProperties.put(DockerAdapterCommandExecutor.DOCKER_IMAGE_NAME_PROP_NAME,
+                fullImageName);
+
+        logFine("Pre-pulling image %s on host %s", fullImageName, hostLink);
+        sendRequest(Operation.createPatch(this, ManagementUriParts.ADAPTER_DOCKER_IMAGE_HOST)
+                .setBody(request)
+                .setContextId(state.contextId)
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        logWarning("Failure pre-pulling image %s on host %s: %s",
+                                fullImageName, hostLink, Utils.toString(e));
+                    }
+                }));
+    }
+
+    private static boolean isPrePullSupported(ContainerDescription cd) {
+        if (cd.image == null || cd.imageReference != null
+                || SystemContainerDescriptions.getAgentImageNameAndVersion().equals(cd.image)) {
+            // images loaded from tarballs are not pulled
+            return false;
+        }
+        return cd.customProperties == null || !Boolean.parseBoolean(cd.customProperties.get(
+                DockerAdapterCommandExecutor.DOCKER_CONTAINER_CREATE_USE_LOCAL_IMAGE_WITH_PRIORITY));
+    }
+
     private void getDescription(PlacementHostSelectionTaskState state,
             Consumer<ReservationComponentDescription> callbackFunction) {
         if (description != null) {
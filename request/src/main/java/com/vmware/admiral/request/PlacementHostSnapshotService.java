@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.request;
+
+import static com.vmware.admiral.common.util.PropertyUtils.getPropertyLong;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.vmware.admiral.common.ManagementUriParts;
+import com.vmware.admiral.common.util.AssertUtil;
+import com.vmware.admiral.common.util.CommonContinuousQueries;
+import com.vmware.admiral.common.util.CommonContinuousQueries.ContinuousQueryId;
+import com.vmware.admiral.compute.ContainerHostService;
+import com.vmware.admiral.compute.ContainerHostService.ContainerHostType;
+import com.vmware.admiral.compute.ContainerHostUtil;
+import com.vmware.admiral.request.allocation.filter.HostSelectionFilter.HostSelection;
+import com.vmware.photon.controller.model.query.QueryUtils.QueryByPages;
+import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
+import com.vmware.photon.controller.model.resources.ComputeService.PowerState;
+import com.vmware.photon.controller.model.resources.ResourcePoolService.ResourcePoolState.ResourcePoolProperty;
+import com.vmware.photon.controller.model.tasks.helpers.ResourcePoolQueryHelper;
+import com.vmware.photon.controller.model.tasks.helpers.ResourcePoolQueryHelper.QueryResult;
+import com.vmware.xenon.common.DeferredResult;
+import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
+import com.vmware.xenon.common.OperationContext;
+import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.ServiceDocumentDescription;
+import com.vmware.xenon.common.StatelessService;
+import com.vmware.xenon.common.Utils;
+import com.vmware.xenon.services.common.QueryFilter;
+import com.vmware.xenon.services.common.QueryTask;
+import com.vmware.xenon.services.common.QueryTask.Query;
+
+/**
+ * Per node cache of the powered-on container hosts of placement zones, used by
+ * {@link PlacementHostSelectionTaskService} instead of querying the placement zones and their
+ * computes for every placement.
+ *
+ * A snapshot is built per set of placement zones and host compute descriptions. The hosts in it
+ * are indexed by host type and sorted by available memory, so selecting the hosts which support
+ * the requested type and have enough memory is a lookup. When a compute owned by this node changes,
+ * only the snapshots it may belong to are dropped: the snapshots which hold it, and the snapshots
+ * of its placement zone and compute description, or of an elastic placement zone, which it may
+ * have joined. Snapshots expire after a short period, which bounds the staleness caused by changes
+ * of computes owned by other nodes. Concurrent requests for the same snapshot share a single
+ * query.
+ *
+ * The snapshots are shared by all callers, so they are queried as the system user and the hosts
+ * returned to a caller are filtered by the resource query of its principal.
+ */
+public class PlacementHostSnapshotService extends StatelessService {
+    public static final String SELF_LINK = ManagementUriParts.REQUEST_PLACEMENT_HOST_SNAPSHOTS;
+
+    private static final long SNAPSHOT_TTL_MICROS = TimeUnit.SECONDS.toMicros(Long.getLong(
+            "com.vmware.admiral.request.placement.host.snapshot.ttl.seconds", 10));
+    private static final int SNAPSHOT_MAX_COUNT = Integer.getInteger(
+            "com.vmware.admiral.request.placement.host.snapshot.max.count", 1000);
+
+    private static final ServiceDocumentDescription COMPUTE_DESCRIPTION =
+            ServiceDocumentDescription.Builder.create().buildDescription(ComputeState.class);
+
+    private final ConcurrentMap<String, HostSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DeferredResult<HostSnapshot>> pendingSnapshots =
+            new ConcurrentHashMap<>();
+    /** Incremented on every compute change, snapshots queried during a change are not cached. */
+    private final AtomicLong generation = new AtomicLong();
+
+    public static class HostSnapshotRequest {
+        /** (Required) The placement zones to select hosts from. */
+        public List<String> resourcePoolLinks;
+
+        /** (Required) Compute descriptions the selected hosts should have. */
+        public Collection<String> computeDescriptionLinks;
+
+        /** (Required) Host types the selected hosts should have. */
+        public List<ContainerHostType> hostTypes;
+
+        /** (Optional) Minimum available memory of the selected hosts. */
+        public Long memoryLimit;
+
+        public void validate() {
+            AssertUtil.assertNotNull(resourcePoolLinks, "resourcePoolLinks");
+            AssertUtil.assertNotEmpty(computeDescriptionLinks, "computeDescriptionLinks");
+            AssertUtil.assertNotEmpty(hostTypes, "hostTypes");
+        }
+    }
+
+    public static class HostSnapshotResponse {
+        /** Number of powered-on hosts in the placement zones, regardless of type and memory. */
+        public int hostCount;
+
+        /** HostLink to HostSelection map of the selected hosts. */
+        public Map<String, HostSelection> hostSelectionMap;
+
+        /** Time the hosts were queried at. */
+        public long snapshotTimeMicros;
+    }
+
+    @Override
+    public void handleStart(Operation startPost) {
+        startPost.complete();
+
+        CommonContinuousQueries.subscribeTo(getHost(), ContinuousQueryId.COMPUTES,
+                this::onComputeChange);
+    }
+
+    @Override
+    public void handlePost(Operation post) {
+        if (!post.hasBody()) {
+            post.fail(new IllegalArgumentException("body is required"));
+            return;
+        }
+
+        HostSnapshotRequest request = post.getBody(HostSnapshotRequest.class);
+        try {
+            request.validate();
+        } catch (Exception e) {
+            post.fail(e);
+            return;
+        }
+
+        Predicate<ComputeState> authorized = getAuthorizationFilter(post);
+        getSnapshot(request.resourcePoolLinks, request.computeDescriptionLinks)
+                .whenComplete((snapshot, e) -> {
+                    if (e != null) {
+                        post.fail(e);
+                        return;
+                    }
+                    HostSnapshotResponse response = new HostSnapshotResponse();
+                    response.hostCount = snapshot.countHosts(authorized);
+                    response.snapshotTimeMicros = snapshot.snapshotTimeMicros;
+                    response.hostSelectionMap = snapshot.select(request.hostTypes,
+                            request.memoryLimit, authorized);
+                    post.setBody(response);
+                    post.complete();
+                });
+    }
+
+    /**
+     * Returns a filter of the hosts the user of the operation is authorized to read.
+     */
+    private Predicate<ComputeState> getAuthorizationFilter(Operation op) {
+        AuthorizationContext authorizationContext = op.getAuthorizationContext();
+        if (!getHost().isAuthorizationEnabled()
+                || (authorizationContext != null && authorizationContext.isSystemUser())) {
+            return computeState -> true;
+        }
+
+        QueryFilter filter = authorizationContext == null ? null
+                : authorizationContext.getResourceQueryFilter(Action.GET);
+        if (filter == null) {
+            return computeState -> false;
+        }
+        return computeState -> filter.evaluate(computeState, COMPUTE_DESCRIPTION);
+    }
+
+    private void onComputeChange(Operation op) {
+        op.complete();
+        QueryTask queryTask = op.getBody(QueryTask.class);
+        if (queryTask.results == null || queryTask.results.documentLinks == null
+                || queryTask.results.documentLinks.isEmpty()) {
+            return;
+        }
+        // let new requests query again instead of joining the pending queries, which may have
+        // missed the change
+        generation.incrementAndGet();
+        pendingSnapshots.clear();
+
+        // snapshots holding a changed compute are stale, whatever the change is
+        Set<String> computeLinks = new HashSet<>(queryTask.results.documentLinks);
+        snapshots.values().removeIf(snapshot -> snapshot.containsAny(computeLinks));
+        if (snapshots.isEmpty()) {
+            return;
+        }
+
+        // the changed computes may have joined other snapshots, drop the snapshots of their
+        // placement zones and descriptions
+        Query query = Query.Builder.create()
+                .addKindFieldClause(ComputeState.class)
+                .addInClause(ServiceDocument.FIELD_NAME_SELF_LINK, computeLinks)
+                .build();
+        new QueryByPages<>(getHost(), query, ComputeState.class, null)
+                .queryDocuments(computeState -> snapshots.values()
+                        .removeIf(snapshot -> snapshot.mayContain(computeState)))
+                .exceptionally(e -> {
+                    logWarning("Failed to query changed computes, dropping all host snapshots: %s",
+                            Utils.toString(e));
+                    snapshots.clear();
+                    return null;
+                });
+    }
+
+    private DeferredResult<HostSnapshot> getSnapshot(List<String> resourcePoolLinks,
+            Collection<String> computeDescriptionLinks) {
+        String key = buildKey(resourcePoolLinks, computeDescriptionLinks);
+        HostSnapshot snapshot = snapshots.get(key);
+        if (snapshot != null && snapshot.expirationMicros > Utils.getSystemNowMicrosUtc()) {
+            return DeferredResult.completed(snapshot);
+        }
+
+        DeferredResult<HostSnapshot> pending = new DeferredResult<>();
+        DeferredResult<HostSnapshot> existing = pendingSnapshots.putIfAbsent(key, pending);
+        if (existing != null) {
+            return existing;
+        }
+
+        long snapshotGeneration = generation.get();
+        ResourcePoolQueryHelper helper = ResourcePoolQueryHelper.createForResourcePools(getHost(),
+                resourcePoolLinks);
+        helper.setExpandComputes(true);
+        helper.setAdditionalQueryClausesProvider(qb -> {
+            qb.addInClause(ComputeState.FIELD_NAME_DESCRIPTION_LINK, computeDescriptionLinks)
+                    .addFieldClause(ComputeState.FIELD_NAME_POWER_STATE, PowerState.ON.toString());
+        });
+
+        OperationContext callerContext = OperationContext.getOperationContext();
+        try {
+            // the snapshot is shared by all callers, it can't be limited to the hosts of the first
+            OperationContext.setFrom(Operation.createGet(getUri())
+                    .setAuthorizationContext(getSystemAuthorizationContext()));
+            helper.query(qr -> completeSnapshot(key, pending, snapshotGeneration, qr,
+                    computeDescriptionLinks));
+        } finally {
+            OperationContext.restoreOperationContext(callerContext);
+        }
+        return pending;
+    }
+
+    private void completeSnapshot(String key, DeferredResult<HostSnapshot> pending,
+            long snapshotGeneration, QueryResult qr, Collection<String> computeDescriptionLinks) {
+        pendingSnapshots.remove(key, pending);
+        if (qr.error != null) {
+            pending.fail(qr.error);
+            return;
+        }
+
+        HostSnapshot newSnapshot = new HostSnapshot(qr, computeDescriptionLinks);
+        // empty snapshots are not cached, the task retries until hosts become available
+        if (newSnapshot.hostCount > 0 && snapshotGeneration == generation.get()) {
+            if (snapshots.size() >= SNAPSHOT_MAX_COUNT) {
+                evictSnapshot();
+            }
+            snapshots.put(key, newSnapshot);
+        }
+        pending.complete(newSnapshot);
+    }
+
+    /**
+     * Drops the expired snapshots, or the snapshot which is the first to expire if none is.
+     */
+    private void evictSnapshot() {
+        long now = Utils.getSystemNowMicrosUtc();
+        if (snapshots.values().removeIf(snapshot -> snapshot.expirationMicros <= now)) {
+            return;
+        }
+        snapshots.entrySet().stream()
+                .min((a, b) -> Long.compare(a.getValue().expirationMicros,
+                        b.getValue().expirationMicros))
+                .ifPresent(e -> snapshots.remove(e.getKey(), e.getValue()));
+    }
+
+    private static String buildKey(List<String> resourcePoolLinks,
+            Collection<String> computeDescriptionLinks) {
+        List<String> rpLinks = new ArrayList<>(new LinkedHashSet<>(resourcePoolLinks));
+        List<String> descLinks = new ArrayList<>(new LinkedHashSet<>(computeDescriptionLinks));
+        Collections.sort(rpLinks);
+        Collections.sort(descLinks);
+        return String.join(",", rpLinks) + "|" + String.join(",", descLinks);
+    }
+
+    private static class HostSnapshot {
+        private final long snapshotTimeMicros;
+        private final long expirationMicros;
+        private final int hostCount;
+        private final Map<String, ComputeState> computesByLink;
+        private final Set<String> resourcePoolLinks;
+        private final Set<String> computeDescriptionLinks;
+        /** Whether any of the placement zones selects its computes by a query of its own. */
+        private final boolean hasElasticPool;
+        /** Hosts by type, sorted by available memory in ascending order. */
+        private final Map<ContainerHostType, HostSelection[]> hostsByType =
+                new EnumMap<>(ContainerHostType.class);
+
+        private HostSnapshot(QueryResult rpQueryResult,
+                Collection<String> computeDescriptionLinks) {
+            this.snapshotTimeMicros = Utils.getSystemNowMicrosUtc();
+            this.expirationMicros = this.snapshotTimeMicros + SNAPSHOT_TTL_MICROS;
+            this.hostCount = rpQueryResult.computesByLink.size();
+            this.computesByLink = new HashMap<>(rpQueryResult.computesByLink);
+            this.resourcePoolLinks = new HashSet<>(rpQueryResult.resourcesPools.keySet());
+            this.computeDescriptionLinks = new HashSet<>(computeDescriptionLinks);
+            this.hasElasticPool = rpQueryResult.resourcesPools.values().stream()
+                    .anyMatch(rp -> rp.resourcePoolState.properties != null
+                            && rp.resourcePoolState.properties
+                                    .contains(ResourcePoolProperty.ELASTIC));
+
+            Map<ContainerHostType, List<HostSelection>> hosts = new EnumMap<>(
+                    ContainerHostType.class);
+            for (ComputeState computeState : rpQueryResult.computesByLink.values()) {
+                HostSelection hostSelection = buildHostSelection(computeState,
+                        rpQueryResult.rpLinksByComputeLink.get(computeState.documentSelfLink));
+                hosts.computeIfAbsent(hostSelection.hostType, t -> new ArrayList<>())
+                        .add(hostSelection);
+            }
+
+            for (Map.Entry<ContainerHostType, List<HostSelection>> e : hosts.entrySet()) {
+                HostSelection[] sorted = e.getValue().toArray(new HostSelection[0]);
+                Arrays.sort(sorted, (a, b) -> Long.compare(a.availableMemory, b.availableMemory));
+                this.hostsByType.put(e.getKey(), sorted);
+            }
+        }
+
+        private boolean containsAny(Set<String> computeLinks) {
+            for (String computeLink : computeLinks) {
+                if (this.computesByLink.containsKey(computeLink)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Returns whether the given compute, which is not in the snapshot, may belong to it.
+         */
+        private boolean mayContain(ComputeState computeState) {
+            if (!this.computeDescriptionLinks.contains(computeState.descriptionLink)) {
+                return false;
+            }
+            return this.hasElasticPool
+                    || this.resourcePoolLinks.contains(computeState.resourcePoolLink);
+        }
+
+        private int countHosts(Predicate<ComputeState> authorized) {
+            return (int) this.computesByLink.values().stream().filter(authorized).count();
+        }
+
+        /**
+         * Returns copies of the authorized hosts of the given types which have at least the given
+         * memory available, since the host selections are modified by the affinity filters. The
+         * hosts are returned in hash order of their links, as they were by the former filtering
+         * by type and memory, rather than in order of available memory.
+         */
+        private Map<String, HostSelection> select(List<ContainerHostType> hostTypes,
+                Long memoryLimit, Predicate<ComputeState> authorized) {
+            Map<String, HostSelection> result = new HashMap<>();
+            for (ContainerHostType hostType : new LinkedHashSet<>(hostTypes)) {
+                HostSelection[] hosts = this.hostsByType.get(hostType);
+                if (hosts == null) {
+                    continue;
+                }
+                int from = memoryLimit == null ? 0 : indexOfMemory(hosts, memoryLimit);
+                for (int i = from; i < hosts.length; i++) {
+                    if (authorized.test(this.computesByLink.get(hosts[i].hostLink))) {
+                        result.put(hosts[i].hostLink, copy(hosts[i]));
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the index of the first host with at least the given memory available.
+         */
+        private static int indexOfMemory(HostSelection[] hosts, long memoryLimit) {
+            int low = 0;
+            int high = hosts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (hosts[mid].availableMemory < memoryLimit) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static HostSelection buildHostSelection(ComputeState computeState,
+            Collection<String> resourcePoolLinks) {
+        final HostSelection hostSelection = new HostSelection();
+        hostSelection.hostLink = computeState.documentSelfLink;
+        hostSelection.resourcePoolLinks = resourcePoolLinks;
+        hostSelection.deploymentPolicyLink = computeState.customProperties
+                .get(ContainerHostService.CUSTOM_PROPERTY_DEPLOYMENT_POLICY);
+        hostSelection.availableMemory = getPropertyLong(
+                computeState.customProperties,
+                ContainerHostService.DOCKER_HOST_AVAILABLE_MEMORY_PROP_NAME)
+                        .orElse(Long.MAX_VALUE);
+        hostSelection.clusterStore = computeState.customProperties
+                .get(ContainerHostService.DOCKER_HOST_CLUSTER_STORE_PROP_NAME);
+        hostSelection.plugins = computeState.customProperties
+                .get(ContainerHostService.DOCKER_HOST_PLUGINS_PROP_NAME);
+        hostSelection.name = computeState.name != null ? computeState.name : "N/A";
+        hostSelection.hostType = ContainerHostUtil.getDeclaredContainerHostType(computeState);
+        return hostSelection;
+    }
+
+    private static HostSelection copy(HostSelection source) {
+        HostSelection hostSelection = new HostSelection();
+        hostSelection.hostLink = source.hostLink;
+        hostSelection.resourcePoolLinks = source.resourcePoolLinks == null ? null
+                : new HashSet<>(source.resourcePoolLinks);
+        hostSelection.deploymentPolicyLink = source.deploymentPolicyLink;
+        hostSelection.availableMemory = source.availableMemory;
+        hostSelection.clusterStore = source.clusterStore;
+        hostSelection.plugins = source.plugins;
+        hostSelection.name = source.name;
+        hostSelection.hostType = source.hostType;
+        return hostSelection;
+    }
+}
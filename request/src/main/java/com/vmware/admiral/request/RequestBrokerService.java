@@ -108,7 +108,6 @@ import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.ServiceErrorResponse;
-import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.TaskState.TaskStage;
 import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.services.common.QueryTask;
@@ -368,18 +367,14 @@ public class RequestBrokerService extends
     }
 
     private void updateRequestTrackerName(RequestBrokerState state, String name) {
-        RequestStatus requestStatus = new RequestStatus();
+        // send the current status along with the name, the tracker applies it as a progress update
+        RequestStatus requestStatus = fromTask(new RequestStatus(), state);
         requestStatus.name = name;
-        requestStatus.documentSelfLink = state.requestTrackerLink;
-        requestStatus.taskInfo = new TaskState();
-        Operation.createPatch(getHost(), state.requestTrackerLink)
-                .setBodyNoCloning(requestStatus)
-                .setCompletion((o, e) -> {
-                    if (e != null) {
-                        logFine("Couldn't set name to the request status because of: %s", e.getMessage());
-                    }
-                }).sendWith(this);
-
+        sendRequestTrackerUpdate(state.requestTrackerLink, requestStatus, (o, e) -> {
+            if (e != null) {
+                logFine("Couldn't set name to the request status because of: %s", e.getMessage());
+            }
+        });
     }
 
     @Override
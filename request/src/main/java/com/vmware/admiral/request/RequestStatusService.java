@@ -30,6 +30,7 @@ import com.vmware.admiral.common.util.UriUtilsExtended;
 import com.vmware.admiral.compute.ResourceType;
 import com.vmware.admiral.request.composition.CompositionGraph.ResourceNode;
 import com.vmware.admiral.request.composition.CompositionSubTaskService;
+import com.vmware.admiral.service.common.AbstractTaskStatefulService.TaskStatusState;
 import com.vmware.admiral.service.common.DefaultSubStage;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
@@ -53,8 +54,7 @@ public class RequestStatusService extends StatefulService {
             TimeUnit.DAYS.toMinutes(7)));
     private static final int MAX_STATE_SIZE = 1024 * 224;
 
-    public static class RequestStatus extends
-            com.vmware.admiral.service.common.AbstractTaskStatefulService.TaskStatusState {
+    public static class RequestStatus extends TaskStatusState {
 
         public static final String FIELD_NAME_REQUEST_PROGRESS_BY_COMPONENT =
                 "requestProgressByComponent";
@@ -118,10 +118,23 @@ public class RequestStatusService extends StatefulService {
 
         if (body.components != null) {
             handleUpdateComponents(state, body);
+            handleUpdateResources(state, body);
+        } else if (body.coalescedUpdates != null) {
+            // updates of several tasks coalesced by the request progress aggregator
+            for (TaskStatusState update : body.coalescedUpdates) {
+                handleUpdateProgress(state, update);
+                handleUpdateResources(state, update);
+            }
         } else {
             handleUpdateProgress(state, body);
+            handleUpdateResources(state, body);
         }
 
+        setState(patch, state);
+        patch.complete();
+    }
+
+    private void handleUpdateResources(RequestStatus state, TaskStatusState body) {
         if (state.name == null && body.name != null) {
             state.name = body.name;
         }
@@ -132,19 +145,16 @@ public class RequestStatusService extends StatefulService {
                 || willChangeToK8s(state, body)) {
             state.resourceLinks = body.resourceLinks;
         }
-
-        setState(patch, state);
-        patch.complete();
     }
 
-    private boolean willChangeToK8s(RequestStatus state, RequestStatus body) {
+    private boolean willChangeToK8s(RequestStatus state, TaskStatusState body) {
         return state.resourceLinks != null
                 && state.resourceLinks.stream().anyMatch( l -> l.contains(ManagementUriParts.COMPOSITE_COMPONENT))
                 && body.resourceLinks != null
                 && body.resourceLinks.stream().anyMatch(l -> l.contains(ManagementUriParts.KUBERNETES_DEPLOYMENTS));
     }
 
-    private void handleUpdateProgress(RequestStatus state, RequestStatus body) {
+    private void handleUpdateProgress(RequestStatus state, TaskStatusState body) {
         state.phase = body.phase;
         String component = DEFAULT_COMPONENT_NAME;
         String requestId = getSelfId();
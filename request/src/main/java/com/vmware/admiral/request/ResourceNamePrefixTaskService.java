@@ -28,6 +28,8 @@ import com.vmware.admiral.common.util.QueryUtil;
 import com.vmware.admiral.common.util.ServiceDocumentQuery;
 import com.vmware.admiral.service.common.AbstractTaskStatefulService;
 import com.vmware.admiral.service.common.DefaultSubStage;
+import com.vmware.admiral.service.common.ResourceNamePrefixLeaseService;
+import com.vmware.admiral.service.common.ResourceNamePrefixLeaseService.NamePrefixLeaseRequest;
 import com.vmware.admiral.service.common.ResourceNamePrefixService.NamePrefixRequest;
 import com.vmware.admiral.service.common.ResourceNamePrefixService.NamePrefixResponse;
 import com.vmware.admiral.service.common.ResourceNamePrefixService.ResourceNamePrefixState;
@@ -134,12 +136,21 @@ public class ResourceNamePrefixTaskService
     private void requestResourceNamePrefix(ResourceNamePrefixTaskState state,
             String resourceNamePrefixLink, Iterator<String> iterator, boolean globalSearch) {
 
-        NamePrefixRequest namePrefixRequest = new NamePrefixRequest();
-        namePrefixRequest.resourceCount = state.resourceCount;
+        Operation op;
+        if (getHost().checkServiceAvailable(ResourceNamePrefixLeaseService.SELF_LINK)) {
+            NamePrefixLeaseRequest leaseRequest = new NamePrefixLeaseRequest();
+            leaseRequest.resourceNamePrefixLink = resourceNamePrefixLink;
+            leaseRequest.resourceCount = state.resourceCount;
+            op = Operation.createPost(this, ResourceNamePrefixLeaseService.SELF_LINK)
+                    .setBody(leaseRequest);
+        } else {
+            NamePrefixRequest namePrefixRequest = new NamePrefixRequest();
+            namePrefixRequest.resourceCount = state.resourceCount;
+            op = Operation.createPatch(this, resourceNamePrefixLink)
+                    .setBody(namePrefixRequest);
+        }
 
-        sendRequest(Operation
-                .createPatch(this, resourceNamePrefixLink)
-                .setBody(namePrefixRequest)
+        sendRequest(op
                 .setCompletion((o, e) -> {
                     if (e != null) {
                         logWarning("Failure requesting resource name prefixes: %s. Retrying with"
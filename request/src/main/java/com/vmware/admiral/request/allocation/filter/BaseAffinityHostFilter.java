@@ -11,9 +11,14 @@
 
 package com.vmware.admiral.request.allocation.filter;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 
 import com.vmware.admiral.common.util.QueryUtil;
@@ -22,6 +27,7 @@ import com.vmware.admiral.compute.container.CompositeComponentFactoryService;
 import com.vmware.admiral.compute.container.ContainerDescriptionService.ContainerDescription;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.services.common.QueryTask;
@@ -32,6 +38,11 @@ public abstract class BaseAffinityHostFilter
     protected final String affinityPropertyName;
     protected Collection<String> affinityNames;
 
+    // data fetched ahead by prefetch() for the default filtering flow
+    private Map<String, DescName> prefetchedDescs;
+    private Set<String> prefetchedHostLinks;
+    private List<ContainerState> prefetchedContainers;
+
     protected BaseAffinityHostFilter(ServiceHost host, String affinityPropertyName) {
         this.host = host;
         this.affinityPropertyName = affinityPropertyName;
@@ -68,10 +79,61 @@ public abstract class BaseAffinityHostFilter
         return q;
     }
 
+    @Override
+    public DeferredResult<Void> prefetch(PlacementHostSelectionTaskState state,
+            Map<String, HostSelection> hostSelectionMap) {
+        if (!isActive()) {
+            return DeferredResult.completed(null);
+        }
+
+        DeferredResult<Void> result = new DeferredResult<>();
+        Set<String> hostLinks = new HashSet<>(hostSelectionMap.keySet());
+        queryContainerDescriptions(getDescQuery(), (containerDescLinksWithNames, e) -> {
+            if (e != null) {
+                result.complete(null);
+                return;
+            }
+            if (containerDescLinksWithNames.isEmpty()) {
+                prefetchedDescs = containerDescLinksWithNames;
+                result.complete(null);
+                return;
+            }
+            queryContainers(state, hostLinks, containerDescLinksWithNames.keySet(),
+                    (containers, ex) -> {
+                        if (ex == null) {
+                            prefetchedContainers = containers;
+                            prefetchedHostLinks = hostLinks;
+                        }
+                        prefetchedDescs = containerDescLinksWithNames;
+                        result.complete(null);
+                    });
+        });
+        return result;
+    }
+
     protected void findContainerDescriptions(final PlacementHostSelectionTaskState state,
             final Map<String, HostSelection> filteredHostSelectionMap,
             final HostSelectionFilterCompletion callback, final QueryTask descQuery) {
 
+        if (prefetchedDescs != null) {
+            completeFindContainerDescriptions(state, filteredHostSelectionMap, prefetchedDescs,
+                    callback);
+            return;
+        }
+
+        queryContainerDescriptions(descQuery, (containerDescLinksWithNames, e) -> {
+            if (e != null) {
+                callback.complete(null, e);
+                return;
+            }
+            completeFindContainerDescriptions(state, filteredHostSelectionMap,
+                    containerDescLinksWithNames, callback);
+        });
+    }
+
+    private void queryContainerDescriptions(final QueryTask descQuery,
+            final BiConsumer<Map<String, DescName>, Throwable> callback) {
+
         descQuery.taskInfo.isDirect = false;
         final Map<String, DescName> containerDescLinksWithNames = new HashMap<>();
         new ServiceDocumentQuery<>(host, ContainerDescription.class)
@@ -83,7 +145,7 @@ public abstract class BaseAffinityHostFilter
                                         "Exception while filtering container descriptions with %s %s. Error: [%s]",
                                         affinityPropertyName, getAffinity(), r.getException()
                                                 .getMessage());
-                                callback.complete(null, r.getException());
+                                callback.accept(null, r.getException());
                             } else if (r.hasResult()) {
                                 final ContainerDescription desc = r.getResult();
                                 final DescName descName = new DescName();
@@ -97,28 +159,57 @@ public abstract class BaseAffinityHostFilter
                                     containerDescLinksWithNames.put(descName.descLink, descName);
                                 } // desc.name case mismatch is ignored (not added to the map)
                             } else {
-                                if (containerDescLinksWithNames.isEmpty()) {
-                                    completeWhenNoContainerDescriptionsFound(state,
-                                            filteredHostSelectionMap, containerDescLinksWithNames,
-                                            callback);
-                                } else {
-                                    host.log(Level.INFO,
-                                            "Found [%s] ContainerDescription with %s: %s",
-                                            containerDescLinksWithNames.size(),
-                                            affinityPropertyName, getAffinity());
-                                    host.log(Level.FINE, "ContainerDescriptions: %s",
-                                            containerDescLinksWithNames);
-                                    findContainers(state, filteredHostSelectionMap,
-                                            containerDescLinksWithNames, callback);
-                                }
+                                callback.accept(containerDescLinksWithNames, null);
                             }
                         });
     }
 
+    private void completeFindContainerDescriptions(final PlacementHostSelectionTaskState state,
+            final Map<String, HostSelection> filteredHostSelectionMap,
+            final Map<String, DescName> containerDescLinksWithNames,
+            final HostSelectionFilterCompletion callback) {
+        if (containerDescLinksWithNames.isEmpty()) {
+            completeWhenNoContainerDescriptionsFound(state,
+                    filteredHostSelectionMap, containerDescLinksWithNames,
+                    callback);
+        } else {
+            host.log(Level.INFO,
+                    "Found [%s] ContainerDescription with %s: %s",
+                    containerDescLinksWithNames.size(),
+                    affinityPropertyName, getAffinity());
+            host.log(Level.FINE, "ContainerDescriptions: %s",
+                    containerDescLinksWithNames);
+            findContainers(state, filteredHostSelectionMap,
+                    containerDescLinksWithNames, callback);
+        }
+    }
+
     protected void findContainers(final PlacementHostSelectionTaskState state,
             final Map<String, HostSelection> initHostSelectionMap,
             final Map<String, DescName> containerDescLinksWithNames,
             final HostSelectionFilterCompletion callback) {
+
+        if (prefetchedContainers != null
+                && prefetchedHostLinks.containsAll(initHostSelectionMap.keySet())) {
+            completeFindContainers(state, initHostSelectionMap, containerDescLinksWithNames,
+                    prefetchedContainers, callback);
+            return;
+        }
+
+        queryContainers(state, initHostSelectionMap.keySet(),
+                containerDescLinksWithNames.keySet(), (containers, e) -> {
+                    if (e != null) {
+                        callback.complete(null, e);
+                        return;
+                    }
+                    completeFindContainers(state, initHostSelectionMap,
+                            containerDescLinksWithNames, containers, callback);
+                });
+    }
+
+    private void queryContainers(final PlacementHostSelectionTaskState state,
+            final Collection<String> hostLinks, final Collection<String> descLinks,
+            final BiConsumer<List<ContainerState>, Throwable> callback) {
         QueryTask q = QueryUtil.buildPropertyQuery(ContainerState.class,
                 ContainerState.FIELD_NAME_COMPOSITE_COMPONENT_LINK, UriUtils.buildUriPath(
                         CompositeComponentFactoryService.SELF_LINK, state.contextId));
@@ -126,14 +217,12 @@ public abstract class BaseAffinityHostFilter
         QueryUtil.addExpandOption(q);
 
         // Add componentDescriptions clause:
-        QueryUtil.addListValueClause(q,
-                ContainerState.FIELD_NAME_DESCRIPTION_LINK, containerDescLinksWithNames.keySet());
+        QueryUtil.addListValueClause(q, ContainerState.FIELD_NAME_DESCRIPTION_LINK, descLinks);
 
         // Add computeHostLinks clause:
-        QueryUtil.addListValueClause(q,
-                ContainerState.FIELD_NAME_PARENT_LINK, initHostSelectionMap.keySet());
+        QueryUtil.addListValueClause(q, ContainerState.FIELD_NAME_PARENT_LINK, hostLinks);
 
-        final Map<String, HostSelection> filteredHostSelectionMap = new HashMap<>();
+        final List<ContainerState> containers = new ArrayList<>();
         new ServiceDocumentQuery<ContainerState>(host, ContainerState.class)
                 .query(q,
                         (r) -> {
@@ -142,33 +231,46 @@ public abstract class BaseAffinityHostFilter
                                         Level.WARNING,
                                         "Exception while selecting containers with contextId [%s]. Error: [%s]",
                                         state.contextId, r.getException().getMessage());
-                                callback.complete(null, r.getException());
+                                callback.accept(null, r.getException());
                             } else if (r.hasResult()) {
-                                final HostSelection hostSelection = initHostSelectionMap
-                                        .get(r.getResult().parentLink);
-                                filteredHostSelectionMap.put(r.getResult().parentLink,
-                                        hostSelection);
-                                final DescName descName = containerDescLinksWithNames
-                                        .get(r.getResult().descriptionLink);
-                                DescName newDescName = new DescName(descName);
-                                newDescName.addResourceNames(r.getResult().names);
-                                hostSelection.addDesc(newDescName);
+                                containers.add(r.getResult());
                             } else {
-                                try {
-                                    final Map<String, HostSelection> hostSelectionMap =
-                                            applyAffinityConstraints(state,
-                                                    initHostSelectionMap, filteredHostSelectionMap);
-                                    host.log(Level.INFO, "Selected host links for %s: %s - %s",
-                                            affinityPropertyName, getAffinity(),
-                                            hostSelectionMap.keySet());
-                                    callback.complete(hostSelectionMap, null);
-                                } catch (Throwable e) {
-                                    callback.complete(null, e);
-                                }
+                                callback.accept(containers, null);
                             }
                         });
     }
 
+    private void completeFindContainers(final PlacementHostSelectionTaskState state,
+            final Map<String, HostSelection> initHostSelectionMap,
+            final Map<String, DescName> containerDescLinksWithNames,
+            final List<ContainerState> containers,
+            final HostSelectionFilterCompletion callback) {
+        final Map<String, HostSelection> filteredHostSelectionMap = new HashMap<>();
+        for (ContainerState container : containers) {
+            final HostSelection hostSelection = initHostSelectionMap.get(container.parentLink);
+            if (hostSelection == null) {
+                // prefetched container on a host filtered out by the preceding filters
+                continue;
+            }
+            filteredHostSelectionMap.put(container.parentLink, hostSelection);
+            final DescName descName = containerDescLinksWithNames
+                    .get(container.descriptionLink);
+            DescName newDescName = new DescName(descName);
+            newDescName.addResourceNames(container.names);
+            hostSelection.addDesc(newDescName);
+        }
+
+        try {
+            final Map<String, HostSelection> hostSelectionMap = applyAffinityConstraints(state,
+                    initHostSelectionMap, filteredHostSelectionMap);
+            host.log(Level.INFO, "Selected host links for %s: %s - %s",
+                    affinityPropertyName, getAffinity(), hostSelectionMap.keySet());
+            callback.complete(hostSelectionMap, null);
+        } catch (Throwable e) {
+            callback.complete(null, e);
+        }
+    }
+
     protected Map<String, HostSelection> applyAffinityConstraints(
             final PlacementHostSelectionTaskState state,
             final Map<String, HostSelection> initHostSelectionMap,
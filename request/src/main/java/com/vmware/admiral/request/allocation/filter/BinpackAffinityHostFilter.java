@@ -18,6 +18,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import com.vmware.admiral.compute.ElasticPlacementZoneConfigurationService;
@@ -27,6 +28,7 @@ import com.vmware.admiral.compute.container.ContainerDescriptionService.Containe
 import com.vmware.admiral.request.PlacementHostSelectionTaskService;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
 import com.vmware.admiral.request.ReservationTaskFactoryService;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
@@ -56,6 +58,9 @@ public class BinpackAffinityHostFilter
 
     private Map<String, Long> dockerHostToMemory = new ConcurrentHashMap<>();
 
+    // placement policy fetched ahead by prefetch()
+    private Boolean prefetchedBinpackPolicy;
+
     public BinpackAffinityHostFilter(ServiceHost host, ContainerDescription desc) {
         this.host = host;
     }
@@ -82,23 +87,47 @@ public class BinpackAffinityHostFilter
             return;
         }
 
-        String serviceLink = state.serviceTaskCallback != null
-                ? state.serviceTaskCallback.serviceSelfLink
-                : null;
         // Filter should be ignored on Reservation stage.
-        if (serviceLink != null
-                && serviceLink.startsWith(ReservationTaskFactoryService.SELF_LINK)) {
+        if (isReservation(state)) {
             callback.complete(hostSelectionMap, null);
             return;
         }
+
+        if (prefetchedBinpackPolicy != null) {
+            filterBasedOnBinpackPolicy(prefetchedBinpackPolicy, hostSelectionMap, callback);
+            return;
+        }
+
         String resourcePoolLink = state.resourcePoolLinks.get(0);
+        isBinpackPolicy(resourcePoolLink,
+                (binpack) -> filterBasedOnBinpackPolicy(binpack, hostSelectionMap, callback));
 
-        filterBasedOnBinpackPolicy(resourcePoolLink, hostSelectionMap, callback);
+    }
 
+    @Override
+    public DeferredResult<Void> prefetch(PlacementHostSelectionTaskState state,
+            Map<String, HostSelection> hostSelectionMap) {
+        if (hostSelectionMap.size() <= 1 || isReservation(state)) {
+            return DeferredResult.completed(null);
+        }
+
+        DeferredResult<Void> result = new DeferredResult<>();
+        isBinpackPolicy(state.resourcePoolLinks.get(0), (binpack) -> {
+            prefetchedBinpackPolicy = binpack;
+            result.complete(null);
+        });
+        return result;
     }
 
-    private void filterBasedOnBinpackPolicy(String resourcePoolLink,
-            Map<String, HostSelection> hostSelectionMap, HostSelectionFilterCompletion callback) {
+    private boolean isReservation(PlacementHostSelectionTaskState state) {
+        String serviceLink = state.serviceTaskCallback != null
+                ? state.serviceTaskCallback.serviceSelfLink
+                : null;
+        return serviceLink != null
+                && serviceLink.startsWith(ReservationTaskFactoryService.SELF_LINK);
+    }
+
+    private void isBinpackPolicy(String resourcePoolLink, Consumer<Boolean> callback) {
 
         URI uri = UriUtils.buildUri(host, String.format("%s/%s",
                 ElasticPlacementZoneConfigurationService.SELF_LINK, resourcePoolLink));
@@ -109,26 +138,29 @@ public class BinpackAffinityHostFilter
 
                     if (ex != null) {
                         host.log(Level.WARNING, Utils.toString(ex));
-                        callback.complete(hostSelectionMap, null);
+                        callback.accept(false);
                         return;
                     }
 
                     ElasticPlacementZoneConfigurationState epz = o
                             .getBody(ElasticPlacementZoneConfigurationState.class);
-                    if (epz != null && epz.epzState != null
-                            && epz.epzState.placementPolicy == ElasticPlacementZoneService.PlacementPolicy.BINPACK) {
-
-                        hostSelectionMap.forEach((host, hostSelection) -> {
-                            dockerHostToMemory.put(host, hostSelection.availableMemory);
-                        });
+                    callback.accept(epz != null && epz.epzState != null
+                            && epz.epzState.placementPolicy == ElasticPlacementZoneService.PlacementPolicy.BINPACK);
+                }));
+    }
 
-                        returnMaxLoadedHost(hostSelectionMap, callback);
+    private void filterBasedOnBinpackPolicy(boolean binpack,
+            Map<String, HostSelection> hostSelectionMap, HostSelectionFilterCompletion callback) {
+        if (!binpack) {
+            callback.complete(hostSelectionMap, null);
+            return;
+        }
 
-                    } else {
-                        callback.complete(hostSelectionMap, null);
-                    }
+        hostSelectionMap.forEach((host, hostSelection) -> {
+            dockerHostToMemory.put(host, hostSelection.availableMemory);
+        });
 
-                }));
+        returnMaxLoadedHost(hostSelectionMap, callback);
     }
 
     // Get max loaded in terms of memory host.
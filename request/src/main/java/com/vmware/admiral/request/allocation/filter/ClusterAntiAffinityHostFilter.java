@@ -11,10 +11,14 @@
 
 package com.vmware.admiral.request.allocation.filter;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -25,6 +29,7 @@ import com.vmware.admiral.compute.container.ContainerDescriptionService.Containe
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
 import com.vmware.admiral.request.utils.RequestUtils;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.services.common.QueryTask;
@@ -39,6 +44,10 @@ public class ClusterAntiAffinityHostFilter
     protected final ContainerDescription desc;
     protected final ServiceHost host;
 
+    // data fetched ahead by prefetch()
+    private Set<String> prefetchedHostLinks;
+    private Map<String, Integer> prefetchedResourceCounts;
+
     public ClusterAntiAffinityHostFilter(ServiceHost host, ContainerDescription desc) {
         this.host = host;
         this.desc = desc;
@@ -49,16 +58,45 @@ public class ClusterAntiAffinityHostFilter
             final Map<String, HostSelection> hostSelectionMap,
             final HostSelectionFilterCompletion callback) {
 
-        //In case this is a clustering operation we want to continue even if desc._cluster <= 1
-        if (!isActive() && state.resourceCount <= 1
-                && state.getCustomProperty(RequestUtils.CLUSTERING_OPERATION_CUSTOM_PROP) == null) {
+        if (!isFilterActive(state)) {
             callback.complete(hostSelectionMap, null);
             return;
         }
 
+        if (prefetchedHostLinks != null
+                && prefetchedHostLinks.containsAll(hostSelectionMap.keySet())) {
+            completeFilter(state, hostSelectionMap, prefetchedResourceCounts, callback);
+            return;
+        }
+
         findContainers(state, hostSelectionMap, callback);
     }
 
+    @Override
+    public DeferredResult<Void> prefetch(PlacementHostSelectionTaskState state,
+            Map<String, HostSelection> hostSelectionMap) {
+        if (!isFilterActive(state)) {
+            return DeferredResult.completed(null);
+        }
+
+        DeferredResult<Void> result = new DeferredResult<>();
+        Set<String> hostLinks = new HashSet<>(hostSelectionMap.keySet());
+        countContainers(state, hostLinks, (resourceCounts, e) -> {
+            if (e == null) {
+                prefetchedResourceCounts = resourceCounts;
+                prefetchedHostLinks = hostLinks;
+            }
+            result.complete(null);
+        });
+        return result;
+    }
+
+    private boolean isFilterActive(PlacementHostSelectionTaskState state) {
+        //In case this is a clustering operation we want to continue even if desc._cluster <= 1
+        return isActive() || state.resourceCount > 1
+                || state.getCustomProperty(RequestUtils.CLUSTERING_OPERATION_CUSTOM_PROP) != null;
+    }
+
     @Override
     public boolean isActive() {
         return (desc._cluster != null) && (desc._cluster > 1);
@@ -80,16 +118,32 @@ public class ClusterAntiAffinityHostFilter
     protected void findContainers(final PlacementHostSelectionTaskState state,
             final Map<String, HostSelection> hostSelectionMap,
             final HostSelectionFilterCompletion callback) {
+        countContainers(state, hostSelectionMap.keySet(), (resourceCounts, e) -> {
+            if (e != null) {
+                callback.complete(null, e);
+                return;
+            }
+            completeFilter(state, hostSelectionMap, resourceCounts, callback);
+        });
+    }
+
+    /**
+     * Counts the containers of the cluster already placed on each of the given hosts.
+     */
+    private void countContainers(final PlacementHostSelectionTaskState state,
+            final Collection<String> hostLinks,
+            final BiConsumer<Map<String, Integer>, Throwable> callback) {
         final QueryTask q = QueryUtil.buildPropertyQuery(ContainerState.class,
                 ContainerState.FIELD_NAME_DESCRIPTION_LINK,
                 desc.documentSelfLink,
                 ContainerState.FIELD_NAME_COMPOSITE_COMPONENT_LINK,
                 UriUtils.buildUriPath(CompositeComponentFactoryService.SELF_LINK, state.contextId));
-        QueryUtil.addListValueClause(q, ContainerState.FIELD_NAME_PARENT_LINK, hostSelectionMap.keySet());
+        QueryUtil.addListValueClause(q, ContainerState.FIELD_NAME_PARENT_LINK, hostLinks);
 
         q.querySpec.resultLimit = ServiceDocumentQuery.DEFAULT_QUERY_RESULT_LIMIT;
         QueryUtil.addExpandOption(q);
 
+        final Map<String, Integer> resourceCounts = new HashMap<>();
         new ServiceDocumentQuery<ContainerState>(host, ContainerState.class)
                 .query(q,
                         (r) -> {
@@ -98,20 +152,24 @@ public class ClusterAntiAffinityHostFilter
                                         Level.WARNING,
                                         "Exception while selecting containers with contextId [%s] during cluster node filtering. Error: [%s]",
                                         state.contextId, r.getException().getMessage());
-                                callback.complete(null, r.getException());
+                                callback.accept(null, r.getException());
                             } else if (r.hasResult()) {
-                                HostSelection hostSelection = hostSelectionMap.get(r.getResult().parentLink);
-                                hostSelection.resourceCount += 1;
+                                resourceCounts.merge(r.getResult().parentLink, 1, Integer::sum);
                             } else {
-                                completeFilter(state, hostSelectionMap, callback);
+                                callback.accept(resourceCounts, null);
                             }
                         });
     }
 
     private void completeFilter(final PlacementHostSelectionTaskState state,
             final Map<String, HostSelection> hostSelectionMap,
+            final Map<String, Integer> resourceCounts,
             final HostSelectionFilterCompletion callback) {
 
+        for (HostSelection hostSelection : hostSelectionMap.values()) {
+            hostSelection.resourceCount += resourceCounts.getOrDefault(hostSelection.hostLink, 0);
+        }
+
         final boolean noClusterContainers = hostSelectionMap.values().stream()
                 .allMatch((h) -> h.resourceCount == 0);
         if (noClusterContainers) {
@@ -25,6 +25,7 @@ import com.vmware.admiral.compute.container.ContainerDescriptionService.Containe
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
 import com.vmware.admiral.request.utils.RequestUtils;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.services.common.QueryTask;
@@ -58,6 +59,14 @@ public class ClusterServiceLinkAffinityHostFilter extends BaseAffinityHostFilter
         findCompositeDescriptions(state, hostSelectionMap, callback);
     }
 
+    @Override
+    public DeferredResult<Void> prefetch(PlacementHostSelectionTaskState state,
+            Map<String, HostSelection> hostSelectionMap) {
+        // nothing to fetch ahead, the descriptions query depends on the containers of the
+        // composite component
+        return DeferredResult.completed(null);
+    }
+
     @Override
     public boolean isActive() {
         return true;
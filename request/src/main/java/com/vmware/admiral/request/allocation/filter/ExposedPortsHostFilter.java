@@ -13,13 +13,13 @@ package com.vmware.admiral.request.allocation.filter;
 
 import static com.vmware.admiral.compute.container.ContainerService.ContainerState.FIELD_NAME_POWER_STATE;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 import com.vmware.admiral.common.util.QueryUtil;
 import com.vmware.admiral.common.util.ServiceDocumentQuery;
@@ -28,6 +28,7 @@ import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
 import com.vmware.admiral.compute.container.PortBinding;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.services.common.QueryTask;
 
@@ -46,6 +47,10 @@ public class ExposedPortsHostFilter
     private final ServiceHost host;
     private final Set<String> descExposedPorts;
 
+    // data fetched ahead by prefetch()
+    private Set<String> prefetchedHostLinks;
+    private Set<String> prefetchedConflictingHostLinks;
+
     public ExposedPortsHostFilter(ServiceHost host, ContainerDescription desc) {
         this.host = host;
         this.descExposedPorts = getExposedPorts(desc.portBindings);
@@ -60,9 +65,47 @@ public class ExposedPortsHostFilter
             return;
         }
 
+        if (prefetchedHostLinks != null
+                && prefetchedHostLinks.containsAll(hostSelectionMap.keySet())) {
+            completeFilter(hostSelectionMap, prefetchedConflictingHostLinks, callback);
+            return;
+        }
+
+        findConflictingHosts(hostSelectionMap.keySet(), (conflictingHostLinks, e) -> {
+            if (e != null) {
+                callback.complete(null, e);
+                return;
+            }
+            completeFilter(hostSelectionMap, conflictingHostLinks, callback);
+        });
+    }
+
+    @Override
+    public DeferredResult<Void> prefetch(PlacementHostSelectionTaskState state,
+            Map<String, HostSelection> hostSelectionMap) {
+        if (descExposedPorts.isEmpty()) {
+            return DeferredResult.completed(null);
+        }
+
+        DeferredResult<Void> result = new DeferredResult<>();
+        Set<String> hostLinks = new HashSet<>(hostSelectionMap.keySet());
+        findConflictingHosts(hostLinks, (conflictingHostLinks, e) -> {
+            if (e == null) {
+                prefetchedConflictingHostLinks = conflictingHostLinks;
+                prefetchedHostLinks = hostLinks;
+            }
+            result.complete(null);
+        });
+        return result;
+    }
+
+    /**
+     * Finds the hosts running containers which expose any of the host ports of the description.
+     */
+    private void findConflictingHosts(Collection<String> hostLinks,
+            BiConsumer<Set<String>, Throwable> callback) {
         QueryTask q = QueryUtil.buildQuery(ContainerState.class, false);
-        QueryUtil.addListValueClause(q, ContainerState.FIELD_NAME_PARENT_LINK,
-                hostSelectionMap.keySet());
+        QueryUtil.addListValueClause(q, ContainerState.FIELD_NAME_PARENT_LINK, hostLinks);
 
         //Get only containers with hostPorts that match those from the description
         // TODO It should be possible to handle it with query for now filter on the fly
@@ -76,38 +119,44 @@ public class ExposedPortsHostFilter
 
         ServiceDocumentQuery<ContainerState> query = new ServiceDocumentQuery<ContainerState>(
                 host, ContainerState.class);
-        List<ContainerState> containerStates = new ArrayList<>();
+        Set<String> conflictingHostLinks = new HashSet<>();
         query.query(q, (r) -> {
             if (r.hasException()) {
-                throw new HostSelectionFilterException("Error querying for container states.",
-                        "request.exposed-ports.filter.containers.query.error");
+                callback.accept(null, new HostSelectionFilterException(
+                        "Error querying for container states.",
+                        "request.exposed-ports.filter.containers.query.error"));
             } else if (r.hasResult()) {
                 if (r.getResult().ports != null) {
                     for (PortBinding portBinding : r.getResult().ports) {
                         if (descExposedPorts.contains(portBinding.hostPort)) {
-                            containerStates.add(r.getResult());
+                            conflictingHostLinks.add(r.getResult().parentLink);
                             break;
                         }
                     }
                 }
             } else {
-                for (ContainerState cs : containerStates) {
-                    hostSelectionMap.remove(cs.parentLink);
-                }
-
-                if (hostSelectionMap.isEmpty()) {
-                    String errMsg = String.format(
-                            "No compute hosts found with unexposed ports %s.",
-                            descExposedPorts.toString());
-                    callback.complete(null, new HostSelectionFilterException(errMsg,
-                            "request.exposed-ports.filter.compute-hosts.unavailable", descExposedPorts.toString()));
-                } else {
-                    callback.complete(hostSelectionMap, null);
-                }
+                callback.accept(conflictingHostLinks, null);
             }
         });
     }
 
+    private void completeFilter(Map<String, HostSelection> hostSelectionMap,
+            Set<String> conflictingHostLinks, HostSelectionFilterCompletion callback) {
+        for (String hostLink : conflictingHostLinks) {
+            hostSelectionMap.remove(hostLink);
+        }
+
+        if (hostSelectionMap.isEmpty()) {
+            String errMsg = String.format(
+                    "No compute hosts found with unexposed ports %s.",
+                    descExposedPorts.toString());
+            callback.complete(null, new HostSelectionFilterException(errMsg,
+                    "request.exposed-ports.filter.compute-hosts.unavailable", descExposedPorts.toString()));
+        } else {
+            callback.complete(hostSelectionMap, null);
+        }
+    }
+
     @Override
     public boolean isActive() {
         return !descExposedPorts.isEmpty();
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.Set;
 
 import com.vmware.admiral.compute.ContainerHostService.ContainerHostType;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.LocalizableValidationException;
 
 /**
@@ -40,6 +41,22 @@ public interface HostSelectionFilter<T> extends AffinityFilter {
     void filter(T state, Map<String, HostSelection> hostSelectionMap,
             HostSelectionFilterCompletion callback);
 
+    /**
+     * Fetch ahead the data needed to filter the given hosts or any subset of them. The fetches of
+     * all filters run at the same time before the filters are applied one after another, and a
+     * {@link #filter} call with a subset of the prefetched hosts uses the fetched data instead of
+     * querying again. Filters whose data depends on the output of the preceding filters don't
+     * fetch anything. The result never fails, a failed fetch leaves the filter querying as usual.
+     *
+     * @param state
+     *            - the current placement host state task.
+     * @param hostSelectionMap
+     *            - the initial set of host links to be filtered from. Must not be modified.
+     */
+    default DeferredResult<Void> prefetch(T state, Map<String, HostSelection> hostSelectionMap) {
+        return DeferredResult.completed(null);
+    }
+
     /**
      * Completion callback interface used when the filter is completed.
      */
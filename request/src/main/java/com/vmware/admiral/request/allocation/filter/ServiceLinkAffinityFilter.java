@@ -26,6 +26,7 @@ import com.vmware.admiral.compute.container.ContainerDescriptionService.Containe
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.compute.container.ServiceNetwork;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.services.common.QueryTask;
@@ -59,6 +60,13 @@ public class ServiceLinkAffinityFilter extends BaseAffinityHostFilter {
                 .collect(Collectors.toMap(Function.identity(), AffinityConstraint::new));
     }
 
+    @Override
+    public DeferredResult<Void> prefetch(PlacementHostSelectionTaskState state,
+            Map<String, HostSelection> hostSelectionMap) {
+        // nothing to fetch ahead, the containers query differs from the default one
+        return DeferredResult.completed(null);
+    }
+
     @Override
     protected void findContainers(final PlacementHostSelectionTaskState state,
             final Map<String, HostSelection> initHostSelectionMap,
@@ -13,11 +13,16 @@ package com.vmware.admiral.request.allocation.filter;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
 import com.vmware.admiral.common.util.QueryUtil;
@@ -30,6 +35,7 @@ import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
 import com.vmware.admiral.request.ReservationTaskFactoryService;
+import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceHost;
 import com.vmware.xenon.common.UriUtils;
@@ -55,6 +61,10 @@ public class SpreadAffinityHostFilter implements
 
     private final ServiceHost host;
 
+    // data fetched ahead by prefetch(), no resource counts when the policy is not SPREAD
+    private Set<String> prefetchedHostLinks;
+    private Map<String, Integer> prefetchedResourceCounts;
+
     public SpreadAffinityHostFilter(ServiceHost host, ContainerDescription desc) {
         this.host = host;
     }
@@ -81,16 +91,74 @@ public class SpreadAffinityHostFilter implements
             return;
         }
 
-        String serviceLink = state.serviceTaskCallback != null
-                ? state.serviceTaskCallback.serviceSelfLink
-                : null;
         // Filter should be ignored on Reservation stage.
-        if (serviceLink != null
-                && serviceLink.startsWith(ReservationTaskFactoryService.SELF_LINK)) {
+        if (isReservation(state)) {
             callback.complete(hostSelectionMap, null);
             return;
         }
 
+        if (prefetchedHostLinks != null
+                && prefetchedHostLinks.containsAll(hostSelectionMap.keySet())) {
+            if (prefetchedResourceCounts == null) {
+                callback.complete(hostSelectionMap, null);
+            } else {
+                completeFilter(hostSelectionMap, prefetchedResourceCounts, callback);
+            }
+            return;
+        }
+
+        isSpreadPolicy(state, (spread) -> {
+            if (!spread) {
+                callback.complete(hostSelectionMap, null);
+                return;
+            }
+            // First find how many resources every host has.
+            retrieveResourceCounts(hostSelectionMap.keySet(), (resourceCounts, e) -> {
+                if (e != null) {
+                    callback.complete(null, e);
+                    return;
+                }
+                completeFilter(hostSelectionMap, resourceCounts, callback);
+            });
+        });
+    }
+
+    @Override
+    public DeferredResult<Void> prefetch(PlacementHostSelectionTaskState state,
+            Map<String, HostSelection> hostSelectionMap) {
+        if (hostSelectionMap.size() <= 1 || isReservation(state)) {
+            return DeferredResult.completed(null);
+        }
+
+        DeferredResult<Void> result = new DeferredResult<>();
+        Set<String> hostLinks = new HashSet<>(hostSelectionMap.keySet());
+        isSpreadPolicy(state, (spread) -> {
+            if (!spread) {
+                prefetchedHostLinks = hostLinks;
+                result.complete(null);
+                return;
+            }
+            retrieveResourceCounts(hostLinks, (resourceCounts, e) -> {
+                if (e == null) {
+                    prefetchedResourceCounts = resourceCounts;
+                    prefetchedHostLinks = hostLinks;
+                }
+                result.complete(null);
+            });
+        });
+        return result;
+    }
+
+    private boolean isReservation(PlacementHostSelectionTaskState state) {
+        String serviceLink = state.serviceTaskCallback != null
+                ? state.serviceTaskCallback.serviceSelfLink
+                : null;
+        return serviceLink != null
+                && serviceLink.startsWith(ReservationTaskFactoryService.SELF_LINK);
+    }
+
+    private void isSpreadPolicy(PlacementHostSelectionTaskState state,
+            Consumer<Boolean> callback) {
         // On allocation stage only one resource pool exists.
         String resourcePoolLink = state.resourcePoolLinks.get(0);
 
@@ -103,56 +171,51 @@ public class SpreadAffinityHostFilter implements
 
                     if (ex != null) {
                         host.log(Level.WARNING, Utils.toString(ex));
-                        callback.complete(hostSelectionMap, null);
+                        callback.accept(false);
                         return;
                     }
 
                     ElasticPlacementZoneConfigurationState epz = o
                             .getBody(ElasticPlacementZoneConfigurationState.class);
-                    if (epz != null && epz.epzState != null
-                            && epz.epzState.placementPolicy == ElasticPlacementZoneService.PlacementPolicy.SPREAD) {
-                        // First find how many resources every host has.
-                        retrieveContainers(hostSelectionMap, callback);
-                    } else {
-                        callback.complete(hostSelectionMap, null);
-                    }
+                    callback.accept(epz != null && epz.epzState != null
+                            && epz.epzState.placementPolicy == ElasticPlacementZoneService.PlacementPolicy.SPREAD);
                 }));
-
     }
 
-    private void retrieveContainers(
-            Map<String, HostSelection> hostSelectionMap,
-            HostSelectionFilterCompletion callback) {
+    private void retrieveResourceCounts(Collection<String> hostLinks,
+            BiConsumer<Map<String, Integer>, Throwable> callback) {
 
         QueryTask.Query.Builder queryBuilder = QueryTask.Query.Builder.create()
                 .addKindFieldClause(ContainerState.class)
-                .addInClause(ContainerState.FIELD_NAME_PARENT_LINK, hostSelectionMap.keySet());
+                .addInClause(ContainerState.FIELD_NAME_PARENT_LINK, hostLinks);
 
         QueryTask q = QueryTask.Builder.create().setQuery(queryBuilder.build()).build();
         q.querySpec.resultLimit = ServiceDocumentQuery.DEFAULT_QUERY_RESULT_LIMIT;
         QueryUtil.addExpandOption(q);
 
+        Map<String, Integer> resourceCounts = new HashMap<>();
         new ServiceDocumentQuery<>(host, ContainerState.class).query(q, (r) -> {
             if (r.hasException()) {
                 host.log(Level.WARNING,
                         "Exception while quering containers during 'Spread' filtering."
                                 + "Error: [%s]",
                         r.getException().getMessage());
-                callback.complete(null, r.getException());
+                callback.accept(null, r.getException());
                 return;
             } else if (r.hasResult()) {
-                HostSelection hostSelection = hostSelectionMap
-                        .get(r.getResult().parentLink);
-                hostSelection.resourceCount += 1;
+                resourceCounts.merge(r.getResult().parentLink, 1, Integer::sum);
             } else {
-                // Return the host with minimum number of containers.
-                completeFilter(hostSelectionMap, callback);
+                callback.accept(resourceCounts, null);
             }
         });
     }
 
     private void completeFilter(Map<String, HostSelection> hostSelectionMap,
-            HostSelectionFilterCompletion callback) {
+            Map<String, Integer> resourceCounts, HostSelectionFilterCompletion callback) {
+
+        for (HostSelection hostSelection : hostSelectionMap.values()) {
+            hostSelection.resourceCount += resourceCounts.getOrDefault(hostSelection.hostLink, 0);
+        }
 
         // Sort hosts by number of resources.
         List<HostSelection> hostSelections = new ArrayList<>(hostSelectionMap.values());
@@ -18,10 +18,12 @@ import static org.junit.Assert.fail;
 
 import java.net.ServerSocket;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -36,6 +38,7 @@ import com.vmware.admiral.adapter.common.ContainerOperationType;
 import com.vmware.admiral.adapter.docker.service.DockerAdapterService;
 import com.vmware.admiral.compute.ResourceType;
 import com.vmware.admiral.compute.container.ContainerDescriptionService.ContainerDescription;
+import com.vmware.admiral.compute.container.ContainerFactoryService;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
 import com.vmware.admiral.compute.container.HealthChecker.HealthConfig;
@@ -48,7 +51,9 @@ import com.vmware.photon.controller.model.query.QueryUtils.QueryByPages;
 import com.vmware.xenon.common.DeferredResult;
 import com.vmware.xenon.common.LocalizableValidationException;
 import com.vmware.xenon.common.Service;
+import com.vmware.xenon.common.Service.ServiceOption;
 import com.vmware.xenon.common.UriUtils;
+import com.vmware.xenon.common.test.TestContext;
 import com.vmware.xenon.services.common.QueryTask.Query.Builder;
 
 public class ContainerControlLoopServiceTest extends RequestBaseTest {
@@ -317,6 +322,110 @@ public class ContainerControlLoopServiceTest extends RequestBaseTest {
         }
     }
 
+    @Test
+    public void testChangeScanDebouncesChangedDescriptions() throws Throwable {
+        ContainerDescription cd = createContainerDescription(false);
+        cd.healthConfig = createHealthConfigTcp(0);
+        cd.healthConfig.autoredeploy = true;
+        doPut(cd);
+        ContainerState state = createContainer(cd.documentSelfLink);
+
+        ContainerControlLoopService service = startControlLoop();
+        service.setDebounceMicros(TimeUnit.HOURS.toMicros(1));
+        state.powerState = PowerState.ERROR;
+        doPut(state);
+
+        // the description is dirty, but its changes have not settled yet
+        join(service.scanChanges());
+        assertEquals(Collections.singleton(cd.documentSelfLink),
+                service.getDirtyDescriptionLinks());
+        assertEquals(0, getStatValue(service,
+                ContainerControlLoopService.STAT_NAME_RECONCILED_DESCRIPTION_COUNT), 0);
+
+        service.setDebounceMicros(0);
+        join(service.scanChanges());
+        assertTrue(service.getDirtyDescriptionLinks().isEmpty());
+        assertEquals(1, getStatValue(service,
+                ContainerControlLoopService.STAT_NAME_RECONCILED_DESCRIPTION_COUNT), 0);
+        assertEquals(2, getStatValue(service,
+                ContainerControlLoopService.STAT_NAME_CHANGE_SCAN_COUNT), 0);
+    }
+
+    @Test
+    public void testChangeScanReconcilesOnlyAutoRedeployDescriptions() throws Throwable {
+        ContainerDescription cd = createContainerDescription(false);
+        ContainerState state = createContainer(cd.documentSelfLink);
+
+        ContainerControlLoopService service = startControlLoop();
+        service.setDebounceMicros(0);
+        state.powerState = PowerState.ERROR;
+        doPut(state);
+
+        // the container in error marks its description dirty, which is then skipped
+        join(service.scanChanges());
+        assertTrue(service.getDirtyDescriptionLinks().isEmpty());
+        assertEquals(1, getStatValue(service,
+                ContainerControlLoopService.STAT_NAME_CHANGE_SCAN_COUNT), 0);
+        assertEquals(0, getStatValue(service,
+                ContainerControlLoopService.STAT_NAME_RECONCILED_DESCRIPTION_COUNT), 0);
+    }
+
+    @Test
+    public void testChangeScanSkippedWithoutAutoRedeployDescriptions() throws Throwable {
+        ContainerDescription cd = createContainerDescription(false);
+        createContainer(cd.documentSelfLink);
+
+        ContainerControlLoopService service = startControlLoop();
+        join(service.performMaintenance());
+        join(service.scanChanges());
+        assertEquals(0, getStatValue(service,
+                ContainerControlLoopService.STAT_NAME_CHANGE_SCAN_COUNT), 0);
+
+        // a description enabling auto redeploy is found by the next full reconcile
+        cd.healthConfig = createHealthConfigTcp(0);
+        cd.healthConfig.autoredeploy = true;
+        doPut(cd);
+        join(service.performMaintenance());
+        join(service.scanChanges());
+        assertEquals(1, getStatValue(service,
+                ContainerControlLoopService.STAT_NAME_CHANGE_SCAN_COUNT), 0);
+    }
+
+    private ContainerState createContainer(String descriptionLink) throws Throwable {
+        // without a host and a context id, so neither the data collection nor a redeployment
+        // touches it
+        ContainerState container = new ContainerState();
+        container.descriptionLink = descriptionLink;
+        container.powerState = PowerState.RUNNING;
+        return doPost(container, ContainerFactoryService.SELF_LINK);
+    }
+
+    private ContainerControlLoopService startControlLoop() throws Throwable {
+        // a separate instance, driven by the test instead of the maintenance
+        ContainerControlLoopService service = new ContainerControlLoopService();
+        service.toggleOption(ServiceOption.REPLICATION, false);
+        service.toggleOption(ServiceOption.OWNER_SELECTION, false);
+        host.startServiceAndWait(service, "/test-control-loop-" + UUID.randomUUID(),
+                new ContainerControlLoopState());
+        return service;
+    }
+
+    private static double getStatValue(ContainerControlLoopService service, String name) {
+        return service.getStat(name).latestValue;
+    }
+
+    private static void join(DeferredResult<Void> result) {
+        TestContext ctx = testCreate(1);
+        result.whenComplete((ignore, e) -> {
+            if (e != null) {
+                ctx.failIteration(e);
+            } else {
+                ctx.completeIteration();
+            }
+        });
+        ctx.await();
+    }
+
     private DeferredResult<List<ContainerState>> retrieveContainerStates(String descriptionLink) {
         Builder builder = Builder.create()
                 .addKindFieldClause(ContainerState.class)
@@ -13,24 +13,31 @@ package com.vmware.admiral.request;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.UUID;
 
 import org.junit.Test;
 
+import com.vmware.admiral.adapter.common.BatchAdapterRequest;
 import com.vmware.admiral.adapter.common.ContainerOperationType;
+import com.vmware.admiral.common.ManagementUriParts;
 import com.vmware.admiral.common.util.QueryUtil;
 import com.vmware.admiral.common.util.ServiceDocumentQuery;
 import com.vmware.admiral.compute.ResourceType;
 import com.vmware.admiral.compute.container.CompositeComponentService.CompositeComponent;
 import com.vmware.admiral.compute.container.CompositeDescriptionService;
 import com.vmware.admiral.compute.container.CompositeDescriptionService.CompositeDescription;
+import com.vmware.admiral.compute.container.ContainerFactoryService;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
 import com.vmware.admiral.compute.container.GroupResourcePlacementService.GroupResourcePlacementState;
@@ -43,7 +50,9 @@ import com.vmware.admiral.request.utils.RequestUtils;
 import com.vmware.admiral.service.test.MockDockerAdapterService;
 import com.vmware.photon.controller.model.resources.ComputeService;
 import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
+import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.ServiceDocument;
+import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.UriUtils;
 import com.vmware.xenon.common.Utils;
 import com.vmware.xenon.services.common.QueryTask;
@@ -247,6 +256,84 @@ public class ContainerOperationTaskServiceTest extends RequestBaseTest {
         assertEquals(groupResourcePlacement.allocatedInstancesCount, 0);
     }
 
+    @Test
+    public void testBatchRequestsOnlyToAdaptersSupportingThem() throws Throwable {
+        // replace the docker adapter with one recording the requests
+        MockDockerAdapterService dockerAdapter = new MockDockerAdapterService();
+        dockerAdapter.setSelfLink(MockDockerAdapterService.SELF_LINK);
+        host.stopService(dockerAdapter);
+        RecordingAdapterService recordingDockerAdapter = new RecordingAdapterService();
+        host.startServiceAndWait(recordingDockerAdapter, MockDockerAdapterService.SELF_LINK,
+                null);
+        RecordingAdapterService otherAdapter = new RecordingAdapterService();
+        String otherAdapterLink = ManagementUriParts.ADAPTERS + "/test-other-service";
+        host.startServiceAndWait(otherAdapter, otherAdapterLink, null);
+
+        List<String> dockerContainerLinks = new ArrayList<>();
+        List<String> otherContainerLinks = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            dockerContainerLinks.add(createContainer(MockDockerAdapterService.SELF_LINK));
+            otherContainerLinks.add(createContainer(otherAdapterLink));
+        }
+
+        ContainerOperationTaskState operationState = new ContainerOperationTaskState();
+        operationState.operation = ContainerOperationType.STOP.id;
+        operationState.resourceLinks = new HashSet<>(dockerContainerLinks);
+        operationState.resourceLinks.addAll(otherContainerLinks);
+        operationState = doPost(operationState, ContainerOperationTaskFactoryService.SELF_LINK);
+        waitForTaskSuccess(operationState.documentSelfLink, ContainerOperationTaskState.class);
+
+        // a batch request for the docker containers
+        assertEquals(1, recordingDockerAdapter.requests.size());
+        BatchAdapterRequest batchRequest = recordingDockerAdapter.requests.get(0);
+        assertNotNull(batchRequest.resourceReferences);
+        assertEquals(new HashSet<>(dockerContainerLinks), toPaths(
+                batchRequest.resourceReferences));
+
+        // a request per container for the adapter not supporting batch requests
+        assertEquals(2, otherAdapter.requests.size());
+        List<URI> otherResourceReferences = new ArrayList<>();
+        for (BatchAdapterRequest otherRequest : otherAdapter.requests) {
+            assertNull(otherRequest.resourceReferences);
+            otherResourceReferences.add(otherRequest.resourceReference);
+        }
+        assertEquals(new HashSet<>(otherContainerLinks), toPaths(otherResourceReferences));
+    }
+
+    private String createContainer(String adapterLink) throws Throwable {
+        ContainerState container = new ContainerState();
+        container.id = UUID.randomUUID().toString();
+        container.names = new ArrayList<>(Collections.singletonList(container.id));
+        container.adapterManagementReference = UriUtils.buildUri(adapterLink);
+        container.powerState = PowerState.RUNNING;
+        return doPost(container, ContainerFactoryService.SELF_LINK).documentSelfLink;
+    }
+
+    private static HashSet<String> toPaths(Collection<URI> uris) {
+        HashSet<String> paths = new HashSet<>();
+        uris.forEach((uri) -> paths.add(uri.getPath()));
+        return paths;
+    }
+
+    /**
+     * Adapter recording the requests it receives and completing them right away.
+     */
+    private static class RecordingAdapterService extends StatelessService {
+        private final List<BatchAdapterRequest> requests = Collections.synchronizedList(
+                new ArrayList<>());
+
+        @Override
+        public void handlePatch(Operation patch) {
+            BatchAdapterRequest request = patch.getBody(BatchAdapterRequest.class);
+            requests.add(request);
+            patch.complete();
+
+            sendRequest(Operation.createPatch(
+                    URI.create(request.serviceTaskCallback.serviceSelfLink))
+                    .setBody(request.serviceTaskCallback.getFinishedResponse()));
+        }
+    }
+
     private Collection<ContainerState> findResources(Class<? extends ServiceDocument> type,
             Collection<String> resourceLinks) throws Throwable {
         QueryTask query = QueryUtil.buildQuery(type, true);
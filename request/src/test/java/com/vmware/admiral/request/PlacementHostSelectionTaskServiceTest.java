@@ -18,8 +18,10 @@ import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
@@ -28,8 +30,13 @@ import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.vmware.admiral.adapter.common.ImageOperationType;
+import com.vmware.admiral.adapter.docker.service.DockerAdapterCommandExecutor;
+import com.vmware.admiral.adapter.docker.service.DockerImageHostRequest;
+import com.vmware.admiral.common.util.DockerImage;
 import com.vmware.admiral.common.util.ServiceUtils;
 import com.vmware.admiral.compute.ContainerHostService;
+import com.vmware.admiral.compute.ContainerHostService.ContainerHostType;
 import com.vmware.admiral.compute.ResourceType;
 import com.vmware.admiral.compute.container.CompositeComponentFactoryService;
 import com.vmware.admiral.compute.container.ContainerDescriptionService;
@@ -37,13 +44,20 @@ import com.vmware.admiral.compute.container.ContainerDescriptionService.Containe
 import com.vmware.admiral.compute.container.ContainerFactoryService;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.request.PlacementHostSelectionTaskService.PlacementHostSelectionTaskState;
+import com.vmware.admiral.request.PlacementHostSnapshotService.HostSnapshotRequest;
+import com.vmware.admiral.request.PlacementHostSnapshotService.HostSnapshotResponse;
 import com.vmware.admiral.request.util.TestRequestStateFactory;
 import com.vmware.admiral.service.common.ServiceTaskCallback;
+import com.vmware.admiral.service.test.MockDockerHostAdapterImageService;
+import com.vmware.photon.controller.model.resources.ComputeDescriptionService.ComputeDescription;
 import com.vmware.photon.controller.model.resources.ComputeService;
 import com.vmware.photon.controller.model.resources.ComputeService.ComputeState;
+import com.vmware.photon.controller.model.resources.ResourcePoolService;
+import com.vmware.photon.controller.model.resources.ResourcePoolService.ResourcePoolState;
 import com.vmware.xenon.common.Operation;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.Service.Action;
+import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.UriUtils;
 
 public class PlacementHostSelectionTaskServiceTest extends RequestBaseTest {
@@ -283,6 +297,55 @@ public class PlacementHostSelectionTaskServiceTest extends RequestBaseTest {
         assertEquals(4, count);
     }
 
+    @Test
+    public void testImageIsPrePulledOncePerSelectedHost() throws Throwable {
+        // replace the image adapter with one recording the requests
+        MockDockerHostAdapterImageService imageAdapter = new MockDockerHostAdapterImageService();
+        imageAdapter.setSelfLink(MockDockerHostAdapterImageService.SELF_LINK);
+        host.stopService(imageAdapter);
+        RecordingImageAdapterService recordingImageAdapter = new RecordingImageAdapterService();
+        host.startServiceAndWait(recordingImageAdapter,
+                MockDockerHostAdapterImageService.SELF_LINK, null);
+
+        // images loaded from a reference are not pulled
+        ContainerDescription desc = TestRequestStateFactory.createContainerDescription();
+        desc.imageReference = null;
+        desc = storeDescription(desc);
+
+        // more resources than hosts, so some of the hosts are selected more than once
+        resourceCount = 8;
+        PlacementHostSelectionTaskState placementTask;
+        System.setProperty(PlacementHostSelectionTaskService.IMAGE_PRE_PULL_ENABLED_PROPERTY,
+                Boolean.TRUE.toString());
+        try {
+            placementTask = createHostPlacementTask(desc.documentSelfLink, resourceCount,
+                    false);
+        } finally {
+            System.clearProperty(PlacementHostSelectionTaskService.IMAGE_PRE_PULL_ENABLED_PROPERTY);
+        }
+
+        List<String> selectedHostLinks = placementTask.hostSelections.stream()
+                .map((hs) -> hs.hostLink)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        assertTrue(selectedHostLinks.size() < placementTask.hostSelections.size());
+        waitFor(() -> recordingImageAdapter.requests.size() >= selectedHostLinks.size());
+
+        // the pull is keyed like the pull of the provisioning, which is merged with it
+        String fullImageName = DockerImage.fromImageName(desc.image).toString();
+        List<String> prePulledHostLinks = new ArrayList<>();
+        for (DockerImageHostRequest request : recordingImageAdapter.requests) {
+            assertEquals(ImageOperationType.CREATE.id, request.operationTypeId);
+            assertEquals(fullImageName, request.customProperties.get(
+                    DockerAdapterCommandExecutor.DOCKER_IMAGE_NAME_PROP_NAME));
+            assertTrue(request.serviceTaskCallback.isEmpty());
+            prePulledHostLinks.add(request.resourceReference.getPath());
+        }
+        Collections.sort(prePulledHostLinks);
+        assertEquals(selectedHostLinks, prePulledHostLinks);
+    }
+
     @Test
     public void testDeploymentPolicyShouldFilterOnlyHostsWithMatchingDeploymentPolicy()
             throws Throwable {
@@ -308,6 +371,87 @@ public class PlacementHostSelectionTaskServiceTest extends RequestBaseTest {
         }
     }
 
+    @Test
+    public void testHostSnapshotIsUpdatedOnHostChange() throws Throwable {
+        HostSnapshotRequest request = new HostSnapshotRequest();
+        request.resourcePoolLinks = Collections.singletonList(resourcePool.documentSelfLink);
+        request.computeDescriptionLinks = Collections.singletonList(
+                computeHost.descriptionLink);
+        request.hostTypes = Collections.singletonList(ContainerHostType.DOCKER);
+        request.memoryLimit = 4_960_000L;
+
+        HostSnapshotResponse response = getHostSnapshot(request);
+        assertTrue(response.hostSelectionMap.containsKey(computeHost.documentSelfLink));
+
+        ComputeState patch = new ComputeState();
+        patch.customProperties = new HashMap<>();
+        patch.customProperties.put(ContainerHostService.DOCKER_HOST_AVAILABLE_MEMORY_PROP_NAME,
+                "1000");
+        doOperation(patch, UriUtils.buildUri(host, computeHost.documentSelfLink), false,
+                Action.PATCH);
+
+        waitFor(() -> !getHostSnapshot(request).hostSelectionMap
+                .containsKey(computeHost.documentSelfLink));
+    }
+
+    @Test
+    public void testHostSnapshotsOfOtherZonesAreKeptOnHostChange() throws Throwable {
+        ResourcePoolState otherPool = doPost(TestRequestStateFactory.createResourcePool(
+                "test-other-pool-" + UUID.randomUUID(), null), ResourcePoolService.FACTORY_LINK);
+        ComputeDescription hostDesc = createDockerHostDescription();
+        createDockerHost(hostDesc, otherPool, true);
+
+        HostSnapshotRequest request = createHostSnapshotRequest(resourcePool, hostDesc);
+        HostSnapshotRequest otherRequest = createHostSnapshotRequest(otherPool, hostDesc);
+        long snapshotTime = getHostSnapshot(request).snapshotTimeMicros;
+        long otherSnapshotTime = getHostSnapshot(otherRequest).snapshotTimeMicros;
+        assertEquals(otherSnapshotTime, getHostSnapshot(otherRequest).snapshotTimeMicros);
+
+        // a change of a host drops only the snapshots of its zone
+        ComputeState patch = new ComputeState();
+        patch.customProperties = new HashMap<>();
+        patch.customProperties.put(ContainerHostService.DOCKER_HOST_AVAILABLE_MEMORY_PROP_NAME,
+                "1000");
+        doOperation(patch, UriUtils.buildUri(host, computeHost.documentSelfLink), false,
+                Action.PATCH);
+        waitFor(() -> getHostSnapshot(request).snapshotTimeMicros != snapshotTime);
+        assertEquals(otherSnapshotTime, getHostSnapshot(otherRequest).snapshotTimeMicros);
+
+        // a host joining the other zone drops its snapshots
+        ComputeState newHost = createDockerHost(hostDesc, otherPool, true);
+        waitFor(() -> getHostSnapshot(otherRequest).hostSelectionMap
+                .containsKey(newHost.documentSelfLink));
+    }
+
+    private HostSnapshotRequest createHostSnapshotRequest(ResourcePoolState pool,
+            ComputeDescription hostDesc) {
+        HostSnapshotRequest request = new HostSnapshotRequest();
+        request.resourcePoolLinks = Collections.singletonList(pool.documentSelfLink);
+        request.computeDescriptionLinks = Collections.singletonList(hostDesc.documentSelfLink);
+        request.hostTypes = Collections.singletonList(ContainerHostType.DOCKER);
+        return request;
+    }
+
+    private HostSnapshotResponse getHostSnapshot(HostSnapshotRequest request) throws Throwable {
+        HostSnapshotResponse[] result = new HostSnapshotResponse[] { null };
+        host.testStart(1);
+
+        host.sendRequest(Operation.createPost(host, PlacementHostSnapshotService.SELF_LINK)
+                .setBody(request)
+                .setReferer(host.getUri())
+                .setCompletion((o, e) -> {
+                    if (e != null) {
+                        host.failIteration(e);
+                        return;
+                    }
+                    result[0] = o.getBody(HostSnapshotResponse.class);
+                    host.completeIteration();
+                }));
+        host.testWait();
+
+        return result[0];
+    }
+
     private PlacementHostSelectionTaskState createHostPlacementTask(String containerDescLink,
             int resourceCount, boolean expectError) throws Throwable {
         PlacementHostSelectionTaskState placementTask = new PlacementHostSelectionTaskState();
@@ -379,6 +523,20 @@ public class PlacementHostSelectionTaskServiceTest extends RequestBaseTest {
         return container;
     }
 
+    /**
+     * Image adapter recording the requests it receives.
+     */
+    private static class RecordingImageAdapterService extends StatelessService {
+        private final List<DockerImageHostRequest> requests = Collections.synchronizedList(
+                new ArrayList<>());
+
+        @Override
+        public void handlePatch(Operation patch) {
+            requests.add(patch.getBody(DockerImageHostRequest.class));
+            patch.complete();
+        }
+    }
+
     private ContainerDescription storeDescription(ContainerDescription desc) throws Throwable {
         desc.documentSelfLink = UUID.randomUUID().toString();
         desc = doPost(desc, ContainerDescriptionService.FACTORY_LINK);
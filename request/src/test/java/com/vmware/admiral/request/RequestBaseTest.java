@@ -37,6 +37,7 @@ import com.vmware.admiral.compute.ComputeConstants;
 import com.vmware.admiral.compute.ContainerHostService;
 import com.vmware.admiral.compute.ContainerHostUtil;
 import com.vmware.admiral.compute.ResourceType;
+import com.vmware.admiral.compute.cluster.ClusterSummaryService;
 import com.vmware.admiral.compute.container.CompositeDescriptionFactoryService;
 import com.vmware.admiral.compute.container.CompositeDescriptionService;
 import com.vmware.admiral.compute.container.ContainerDescriptionService;
@@ -45,6 +46,7 @@ import com.vmware.admiral.compute.container.ContainerFactoryService;
 import com.vmware.admiral.compute.container.ContainerHostDataCollectionService;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState;
 import com.vmware.admiral.compute.container.ContainerService.ContainerState.PowerState;
+import com.vmware.admiral.compute.container.ContainerStatsService;
 import com.vmware.admiral.compute.container.GroupResourcePlacementService;
 import com.vmware.admiral.compute.container.GroupResourcePlacementService.GroupResourcePlacementState;
 import com.vmware.admiral.compute.container.HealthChecker.HealthConfig;
@@ -76,6 +78,7 @@ import com.vmware.admiral.request.composition.CompositionTaskFactoryService;
 import com.vmware.admiral.request.util.TestRequestStateFactory;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationFactoryService;
 import com.vmware.admiral.service.common.ConfigurationService.ConfigurationState;
+import com.vmware.admiral.service.common.CounterSubTaskCompletionService;
 import com.vmware.admiral.service.common.CounterSubTaskService;
 import com.vmware.admiral.service.common.RegistryFactoryService;
 import com.vmware.admiral.service.common.ResourceNamePrefixService;
@@ -141,6 +144,9 @@ public abstract class RequestBaseTest extends BaseTestCase {
     @Before
     public void setUp() throws Throwable {
         host.addPrivilegedService(ContainerHostDataCollectionService.class);
+        host.addPrivilegedService(ClusterSummaryService.class);
+        host.addPrivilegedService(ContainerStatsService.class);
+        host.addPrivilegedService(PlacementHostSnapshotService.class);
         startServices(host);
         setUpDockerHostAuthentication();
 
@@ -197,6 +203,7 @@ public abstract class RequestBaseTest extends BaseTestCase {
                 ConfigurationFactoryService.SELF_LINK,
                 EventLogService.FACTORY_LINK,
                 CounterSubTaskService.FACTORY_LINK,
+                CounterSubTaskCompletionService.SELF_LINK,
                 ReservationAllocationTaskService.FACTORY_LINK,
                 HostPortProfileService.FACTORY_LINK,
                 ContainerControlLoopService.FACTORY_LINK));
@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import org.junit.After;
@@ -41,14 +42,20 @@ import com.vmware.admiral.request.RequestStatusService.RequestStatus;
 import com.vmware.admiral.request.composition.CompositionTaskFactoryService;
 import com.vmware.admiral.request.composition.CompositionTaskService.CompositionTaskState;
 import com.vmware.admiral.request.util.TestRequestStateFactory;
+import com.vmware.admiral.service.common.AbstractTaskStatefulService.TaskStatusState;
 import com.vmware.admiral.service.common.DefaultSubStage;
+import com.vmware.admiral.service.common.RequestProgressAggregatorService;
+import com.vmware.admiral.service.common.RequestProgressAggregatorService.RequestTrackerUpdate;
 import com.vmware.admiral.service.test.MockDockerAdapterService;
+import com.vmware.xenon.common.Claims;
 import com.vmware.xenon.common.Operation;
+import com.vmware.xenon.common.Operation.AuthorizationContext;
 import com.vmware.xenon.common.Service;
 import com.vmware.xenon.common.Service.Action;
 import com.vmware.xenon.common.ServiceDocument;
 import com.vmware.xenon.common.ServiceDocumentDescription.TypeName;
 import com.vmware.xenon.common.ServiceHost.Arguments;
+import com.vmware.xenon.common.StatelessService;
 import com.vmware.xenon.common.TaskState;
 import com.vmware.xenon.common.TaskState.TaskStage;
 import com.vmware.xenon.common.UriUtils;
@@ -303,6 +310,76 @@ public class RequestStatusServiceTest extends RequestBaseTest {
         }
     }
 
+    @Test
+    public void testCoalescedProgressUpdates() throws Throwable {
+        RequestStatus requestStatus = createRequestStatus();
+        requestStatus.taskInfo = TaskState.createAsStarted();
+        requestStatus.progress = 0;
+        requestStatus.addTrackedTasks("phase1", "phase2");
+        RequestStatus createdStatus = doPost(requestStatus, RequestStatusFactoryService.SELF_LINK);
+        requestId = extractId(createdStatus.documentSelfLink);
+
+        postRequestTrackerUpdate(createdStatus, "phase1", TaskState.createAsStarted(), 50);
+        postRequestTrackerUpdate(createdStatus, "phase1", TaskState.createAsStarted(), 75);
+        postRequestTrackerUpdate(createdStatus, "phase2", TaskState.createAsStarted(), 50);
+
+        waitFor(() -> getRequestStatus(requestId).documentVersion > createdStatus.documentVersion);
+        RequestStatus status = getRequestStatus(requestId);
+        // all updates are applied with a single patch
+        assertEquals(createdStatus.documentVersion + 1, status.documentVersion);
+        assertEquals(Integer.valueOf(75), status.requestProgressByComponent.get("phase1")
+                .get(RequestStatusService.DEFAULT_COMPONENT_NAME));
+        assertEquals(Integer.valueOf(50), status.requestProgressByComponent.get("phase2")
+                .get(RequestStatusService.DEFAULT_COMPONENT_NAME));
+        assertEquals("phase2", status.phase);
+
+        // terminal updates are applied before the post completes
+        postRequestTrackerUpdate(createdStatus, "phase2", TaskState.createAsFinished(), 100);
+        status = getRequestStatus(requestId);
+        assertEquals(createdStatus.documentVersion + 2, status.documentVersion);
+        assertEquals(TaskStage.FINISHED, status.taskInfo.stage);
+        assertEquals(Integer.valueOf(100), status.requestProgressByComponent.get("phase2")
+                .get(RequestStatusService.DEFAULT_COMPONENT_NAME));
+    }
+
+    @Test
+    public void testCoalescedUpdatesKeepAuthorizationContext() throws Throwable {
+        List<Operation> patches = new CopyOnWriteArrayList<>();
+        String trackerLink = "/test-request-tracker";
+        host.startServiceAndWait(new StatelessService() {
+            @Override
+            public void handlePatch(Operation patch) {
+                patches.add(patch);
+                patch.complete();
+            }
+        }, trackerLink, null);
+
+        AuthorizationContext user1 = createAuthorizationContext("/users/user1");
+        AuthorizationContext user2 = createAuthorizationContext("/users/user2");
+        postRequestTrackerUpdate(trackerLink, "task1", TaskState.createAsStarted(), user1);
+        postRequestTrackerUpdate(trackerLink, "task2", TaskState.createAsStarted(), user2);
+        postRequestTrackerUpdate(trackerLink, "task3", TaskState.createAsStarted(), user1);
+
+        // the updates of different users are not merged and each patch is sent in the context
+        // of its updates
+        waitFor(() -> patches.size() == 2);
+        for (Operation patch : patches) {
+            TaskStatusState body = patch.getBody(TaskStatusState.class);
+            String subject = patch.getAuthorizationContext().getClaims().getSubject();
+            if (subject.equals("/users/user1")) {
+                assertEquals(Arrays.asList("task1", "task3"), body.coalescedUpdates.stream()
+                        .map(u -> u.documentSelfLink).collect(Collectors.toList()));
+            } else {
+                assertEquals("/users/user2", subject);
+                assertEquals(1, body.coalescedUpdates.size());
+            }
+        }
+
+        postRequestTrackerUpdate(trackerLink, "task2", TaskState.createAsFinished(), user2);
+        assertEquals(3, patches.size());
+        assertEquals(user2, patches.get(2).getAuthorizationContext());
+    }
+
     @After
     public void logRequestHistory() throws Throwable {
         try {
@@ -439,6 +516,49 @@ public class RequestStatusServiceTest extends RequestBaseTest {
         return resultHolder[0];
     }
 
+    private void postRequestTrackerUpdate(RequestStatus requestStatus, String phase,
+            TaskState taskInfo, int progress) throws Throwable {
+        RequestTrackerUpdate update = new RequestTrackerUpdate();
+        update.requestTrackerLink = requestStatus.documentSelfLink;
+        update.taskStatus = new TaskStatusState();
+        update.taskStatus.documentSelfLink = extractId(requestStatus.documentSelfLink);
+        update.taskStatus.phase = phase;
+        update.taskStatus.taskInfo = taskInfo;
+        update.taskStatus.subStage = taskInfo.stage.name();
+        update.taskStatus.progress = progress;
+
+        host.testStart(1);
+        host.send(Operation.createPost(host, RequestProgressAggregatorService.SELF_LINK)
+                .setBody(update)
+                .setCompletion(host.getCompletion()));
+        host.testWait();
+    }
+
+    private void postRequestTrackerUpdate(String requestTrackerLink, String taskLink,
+            TaskState taskInfo, AuthorizationContext authorizationContext) throws Throwable {
+        RequestTrackerUpdate update = new RequestTrackerUpdate();
+        update.requestTrackerLink = requestTrackerLink;
+        update.taskStatus = new TaskStatusState();
+        update.taskStatus.documentSelfLink = taskLink;
+        update.taskStatus.phase = taskLink;
+        update.taskStatus.taskInfo = taskInfo;
+
+        host.testStart(1);
+        host.send(Operation.createPost(host, RequestProgressAggregatorService.SELF_LINK)
+                .setBody(update)
+                .setAuthorizationContext(authorizationContext)
+                .setCompletion(host.getCompletion()));
+        host.testWait();
+    }
+
+    private static AuthorizationContext createAuthorizationContext(String subject) {
+        Claims claims = new Claims.Builder().setSubject(subject).getResult();
+        return AuthorizationContext.Builder.create()
+                .setClaims(claims)
+                .setToken(subject)
+                .getResult();
+    }
+
     private RequestStatus createRequestStatus() {
         RequestStatus requestStatus = new RequestStatus();
         requestStatus.name = "test-request-status";
@@ -186,6 +186,14 @@ public class BaseAffinityHostFilterTest extends RequestBaseTest {
         return hostSelectedMap;
     }
 
+    protected void prefetch() throws Throwable {
+        final Map<String, HostSelection> hostSelectionMap = prepareHostSelectionMap();
+        host.testStart(1);
+        filter.prefetch(state, hostSelectionMap)
+                .whenComplete((ignore, e) -> host.completeIteration());
+        host.testWait();
+    }
+
     protected Map<String, HostSelection> prepareHostSelectionMap() throws Throwable {
         Map<String, HostSelection> hostSelectionMap = new HashMap<>();
         for (String hostLink : initialHostLinks) {
@@ -45,6 +45,22 @@ public class ExposedPortsHostFilterTest extends BaseAffinityHostFilterTest {
         }
     }
 
+    @Test
+    public void testFilterHostsWithExposedPortsPrefetched() throws Throwable {
+        assertEquals(3, initialHostLinks.size());
+
+        ContainerDescription desc = TestRequestStateFactory
+                .createContainerDescriptionWithPortBindingsHostPortSet();
+        createContainer(desc, initialHostLinks.get(0));
+
+        filter = new ExposedPortsHostFilter(host, desc);
+        prefetch();
+        Throwable e = filter(initialHostLinks.subList(1, initialHostLinks.size()));
+        if (e != null) {
+            fail("Unexpected exception: " + e);
+        }
+    }
+
     @Test
     public void testFailOnNoHostsFound() throws Throwable {
         assertEquals(3, initialHostLinks.size());
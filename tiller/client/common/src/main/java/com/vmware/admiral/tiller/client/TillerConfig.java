@@ -13,6 +13,7 @@ package com.vmware.admiral.tiller.client;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 
 public class TillerConfig {
 
@@ -123,6 +124,41 @@ public class TillerConfig {
         return tillerConnectionType;
     }
 
+    /**
+     * Configurations are equal if they point to the same Tiller with the same credentials, so a
+     * configuration can be used to share the connection to a Tiller.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TillerConfig)) {
+            return false;
+        }
+        TillerConfig other = (TillerConfig) obj;
+        return k8sTrustCertificateAuthority == other.k8sTrustCertificateAuthority
+                && Objects.equals(k8sApiUrl, other.k8sApiUrl)
+                && Objects.equals(k8sCertificateAuthority, other.k8sCertificateAuthority)
+                && Objects.equals(k8sClientCertificate, other.k8sClientCertificate)
+                && Objects.equals(k8sClientKey, other.k8sClientKey)
+                && Objects.equals(k8sClientKeyPassphrase, other.k8sClientKeyPassphrase)
+                && Objects.equals(tillerNamespace, other.tillerNamespace)
+                && Objects.equals(tillerPort, other.tillerPort)
+                && Objects.equals(tillerLabels, other.tillerLabels)
+                && Objects.equals(tillerCertificateAuthority, other.tillerCertificateAuthority)
+                && Objects.equals(tillerClientCertificate, other.tillerClientCertificate)
+                && Objects.equals(tillerClientKey, other.tillerClientKey)
+                && Objects.equals(tillerClientKeyPassphrase, other.tillerClientKeyPassphrase)
+                && tillerConnectionType == other.tillerConnectionType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(k8sApiUrl, k8sClientCertificate, tillerNamespace, tillerPort,
+                tillerLabels, tillerClientCertificate, tillerConnectionType);
+    }
+
     public static class Builder {
 
         static final String CONFIG_IS_ALREADY_BUILT_ERROR_MESSAGE = "Cannot modify configuration that has already been built.";
@@ -12,6 +12,7 @@
 package com.vmware.admiral.tiller.client;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.util.Collections;
@@ -127,4 +128,27 @@ public class TillerConfigTest {
             assertEquals("tillerLabels[" + key + "]", value, config.getTillerLabels().get(key));
         });
     }
+
+    @Test
+    public void testEquals() {
+        TillerConfig config = TillerConfig.builder()
+                .setK8sApiUrl("k8s-api-url")
+                .setK8sClientCertificate("k8s-client-cert")
+                .setTillerNamespace("tiller-namespace")
+                .build();
+        TillerConfig sameConfig = TillerConfig.builder()
+                .setK8sApiUrl("k8s-api-url")
+                .setK8sClientCertificate("k8s-client-cert")
+                .setTillerNamespace("tiller-namespace")
+                .build();
+        TillerConfig otherCredentials = TillerConfig.builder()
+                .setK8sApiUrl("k8s-api-url")
+                .setK8sClientCertificate("other-k8s-client-cert")
+                .setTillerNamespace("tiller-namespace")
+                .build();
+
+        assertEquals(config, sameConfig);
+        assertEquals(config.hashCode(), sameConfig.hashCode());
+        assertNotEquals(config, otherCredentials);
+    }
 }
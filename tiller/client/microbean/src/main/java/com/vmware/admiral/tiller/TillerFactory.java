@@ -84,17 +84,47 @@ public class TillerFactory {
         SslContext sslContext = buildSslContext(tillerConfig);
         ManagedChannel managedChannel = buildChannel(portForward, sslContext);
 
-        return new Tiller(managedChannel) {
+        return new ForwardedTiller(managedChannel, portForward, client);
+    }
+
+    /**
+     * Whether the channel of the given {@link Tiller} and the port forward it goes through are
+     * still open.
+     */
+    static boolean isAlive(Tiller tiller) {
+        return !(tiller instanceof ForwardedTiller) || ((ForwardedTiller) tiller).isAlive();
+    }
+
+    /**
+     * {@link Tiller} reached through a port forward, which closes the port forward and the
+     * Kubernetes client it has been opened with together with the channel.
+     */
+    private static class ForwardedTiller extends Tiller {
+        private final ManagedChannel channel;
+        private final LocalPortForward portForward;
+        private final KubernetesClient client;
+
+        private ForwardedTiller(ManagedChannel channel, LocalPortForward portForward,
+                KubernetesClient client) {
+            super(channel);
+            this.channel = channel;
+            this.portForward = portForward;
+            this.client = client;
+        }
 
-            @Override
-            public void close() throws IOException {
+        private boolean isAlive() {
+            return !this.channel.isShutdown() && this.portForward.isAlive();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
                 super.close();
-                if (client != null) {
-                    client.close();
-                }
+                this.portForward.close();
+            } finally {
+                this.client.close();
             }
-
-        };
+        }
     }
 
     static Config buildK8sConfig(TillerConfig config) {
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.tiller;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLException;
+
+import org.microbean.helm.Tiller;
+
+import com.vmware.admiral.tiller.client.TillerConfig;
+
+/**
+ * Pool of {@link Tiller} instances shared by all clients of the same {@link TillerConfig}, so the
+ * Kubernetes client, the port forward to the Tiller pod and the gRPC channel over it are set up
+ * once per cluster and the concurrent calls of the clients are multiplexed over that channel.
+ *
+ * A {@link Tiller} is rebuilt when its channel or port forward is found closed or when a client
+ * reports it broken, and it is closed once it has not been leased for
+ * {@link #IDLE_TIMEOUT_MILLIS_PROPERTY}.
+ */
+public class TillerPool {
+
+    public static final String IDLE_TIMEOUT_MILLIS_PROPERTY =
+            "com.vmware.admiral.tiller.pool.idle.timeout.millis";
+    private static final long IDLE_TIMEOUT_MILLIS = Long.getLong(IDLE_TIMEOUT_MILLIS_PROPERTY,
+            TimeUnit.MINUTES.toMillis(5));
+
+    private static final Logger logger = Logger.getLogger(TillerPool.class.getName());
+
+    private static final TillerPool INSTANCE = new TillerPool(TillerFactory::newTiller,
+            IDLE_TIMEOUT_MILLIS);
+
+    /**
+     * Builds the {@link Tiller} of a configuration.
+     */
+    @FunctionalInterface
+    interface TillerBuilder {
+        Tiller build(TillerConfig tillerConfig) throws MalformedURLException, SSLException;
+    }
+
+    private final TillerBuilder tillerBuilder;
+    private final long idleTimeoutMillis;
+    private final Map<TillerConfig, Entry> entries = new HashMap<>();
+    private ScheduledExecutorService evictionExecutor;
+
+    TillerPool(TillerBuilder tillerBuilder, long idleTimeoutMillis) {
+        this.tillerBuilder = tillerBuilder;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public static TillerPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Leases the {@link Tiller} of the given configuration, building it if there is none or the
+     * pooled one is not alive. Concurrent leases of a configuration wait for the one building
+     * its {@link Tiller} and share it.
+     */
+    public Lease lease(TillerConfig tillerConfig) throws MalformedURLException, SSLException {
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.computeIfAbsent(tillerConfig, Entry::new);
+            entry.leases++;
+            scheduleEviction();
+        }
+
+        try {
+            return new Lease(entry, entry.getTiller());
+        } catch (MalformedURLException | SSLException | RuntimeException e) {
+            release(entry);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the pooled {@link Tiller} instances which have not been leased for the given time.
+     */
+    void evict(long idleTimeoutMillis) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (Iterator<Entry> it = this.entries.values().iterator(); it.hasNext(); ) {
+                Entry entry = it.next();
+                if (entry.leases == 0 && now - entry.lastReleaseTimeMillis >= idleTimeoutMillis) {
+                    it.remove();
+                    entry.close();
+                }
+            }
+        }
+    }
+
+    synchronized int size() {
+        return this.entries.size();
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.leases--;
+        entry.lastReleaseTimeMillis = System.currentTimeMillis();
+    }
+
+    private void scheduleEviction() {
+        if (this.evictionExecutor != null) {
+            return;
+        }
+        this.evictionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tiller-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(this.idleTimeoutMillis / 2, 1);
+        this.evictionExecutor.scheduleWithFixedDelay(() -> evict(this.idleTimeoutMillis),
+                period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lease of a pooled {@link Tiller}, which has to be released once it is no longer used.
+     */
+    public class Lease {
+        private final Entry entry;
+        private final Tiller tiller;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(Entry entry, Tiller tiller) {
+            this.entry = entry;
+            this.tiller = tiller;
+        }
+
+        public Tiller getTiller() {
+            return this.tiller;
+        }
+
+        /**
+         * Reports the leased {@link Tiller} broken, so the next lease of its configuration
+         * rebuilds it, for example with a new port forward.
+         */
+        public void invalidate() {
+            this.entry.invalidate(this.tiller);
+        }
+
+        public void release() {
+            if (this.released.compareAndSet(false, true)) {
+                TillerPool.this.release(this.entry);
+            }
+        }
+    }
+
+    private class Entry {
+        private final TillerConfig tillerConfig;
+        private Tiller tiller;
+
+        // guarded by the pool
+        private int leases;
+        private long lastReleaseTimeMillis;
+
+        private Entry(TillerConfig tillerConfig) {
+            this.tillerConfig = tillerConfig;
+        }
+
+        private synchronized Tiller getTiller() throws MalformedURLException, SSLException {
+            if (this.tiller != null && !TillerFactory.isAlive(this.tiller)) {
+                closeTiller(this.tiller);
+                this.tiller = null;
+            }
+            if (this.tiller == null) {
+                this.tiller = TillerPool.this.tillerBuilder.build(this.tillerConfig);
+            }
+            return this.tiller;
+        }
+
+        private synchronized void invalidate(Tiller brokenTiller) {
+            // the Tiller may have been rebuilt already on the report of another lease
+            if (this.tiller == brokenTiller) {
+                closeTiller(this.tiller);
+                this.tiller = null;
+            }
+        }
+
+        private synchronized void close() {
+            if (this.tiller != null) {
+                closeTiller(this.tiller);
+                this.tiller = null;
+            }
+        }
+
+        private void closeTiller(Tiller tiller) {
+            try {
+                tiller.close();
+            } catch (IOException | RuntimeException e) {
+                logger.log(Level.WARNING, "Failed to close tiller instance", e);
+            }
+        }
+    }
+}
@@ -22,13 +22,14 @@ import io.grpc.health.v1.HealthCheckResponse.ServingStatus;
 import io.grpc.stub.StreamObserver;
 import org.microbean.helm.Tiller;
 
-import com.vmware.admiral.tiller.TillerFactory;
+import com.vmware.admiral.tiller.TillerPool;
 
 public class MicrobeanTillerClient implements TillerClient {
 
     protected static final String CLIENT_IS_CLOSED_ERROR_MESSAGE = "Client is closed";
     protected static final String HEALTH_CHECK_STATUS_MESSAGE_FORMAT = "Health check status is %s";
 
+    private TillerPool.Lease lease;
     private Tiller tiller;
     private boolean closed = false;
 
@@ -43,17 +44,30 @@ public class MicrobeanTillerClient implements TillerClient {
         StreamObserver<HealthCheckResponse> observer = createUnaryCallStreamObserverForCompletableFuture(
                 completableFuture);
         tiller.getHealthStub().check(HealthCheckRequest.getDefaultInstance(), observer);
-        return completableFuture.thenAccept(response -> {
+        CompletableFuture<Void> result = completableFuture.thenAccept(response -> {
             if (response.getStatus() != ServingStatus.SERVING) {
                 throw new TillerClientException(String.format(HEALTH_CHECK_STATUS_MESSAGE_FORMAT,
                         response.getStatus().toString()));
             }
         });
+        result.whenComplete((ignore, e) -> {
+            // the shared channel or the port forward under it may be stale
+            if (e != null && lease != null) {
+                lease.invalidate();
+            }
+        });
+        return result;
     }
 
     @Override
     public void close() {
         ensureNotClosed();
+        if (lease != null) {
+            // the pooled tiller is shared with the other clients of the cluster
+            lease.release();
+            closed = true;
+            return;
+        }
         try {
             tiller.close();
             closed = true;
@@ -76,7 +90,8 @@ public class MicrobeanTillerClient implements TillerClient {
 
     Tiller getTillerInstance(TillerConfig tillerConfig) {
         try {
-            return TillerFactory.newTiller(tillerConfig);
+            lease = TillerPool.getInstance().lease(tillerConfig);
+            return lease.getTiller();
         } catch (MalformedURLException | SSLException e) {
             throw new TillerClientException("Could not construct a Tiller instance", e);
         }
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2018 VMware, Inc. All Rights Reserved.
+ *
+ * This product is licensed to you under the Apache License, Version 2.0 (the "License").
+ * You may not use this product except in compliance with the License.
+ *
+ * This product may include a number of subcomponents with separate copyright notices
+ * and license terms. Your use of these subcomponents is subject to the terms and
+ * conditions of the subcomponent's license, as noted in the LICENSE file.
+ */
+
+package com.vmware.admiral.tiller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vmware.admiral.tiller.TillerPool.Lease;
+import com.vmware.admiral.tiller.client.MockTiller;
+import com.vmware.admiral.tiller.client.TillerConfig;
+
+public class TillerPoolTest {
+
+    private AtomicInteger builds;
+    private TillerPool pool;
+
+    @Before
+    public void setUp() {
+        builds = new AtomicInteger();
+        pool = new TillerPool(config -> {
+            builds.incrementAndGet();
+            return new MockTiller();
+        }, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Test
+    public void testLeasesOfConfigShareTiller() throws Throwable {
+        Lease lease1 = pool.lease(newConfig("https://cluster-1"));
+        Lease lease2 = pool.lease(newConfig("https://cluster-1"));
+        Lease lease3 = pool.lease(newConfig("https://cluster-2"));
+
+        assertSame(lease1.getTiller(), lease2.getTiller());
+        assertNotSame(lease1.getTiller(), lease3.getTiller());
+        assertEquals(2, builds.get());
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testInvalidatedTillerIsRebuilt() throws Throwable {
+        TillerConfig config = newConfig("https://cluster-1");
+        Lease lease1 = pool.lease(config);
+        Lease lease2 = pool.lease(config);
+
+        lease1.invalidate();
+        Lease lease3 = pool.lease(config);
+        assertNotSame(lease1.getTiller(), lease3.getTiller());
+        assertEquals(2, builds.get());
+
+        // a report of the already replaced tiller does not drop the rebuilt one
+        lease2.invalidate();
+        assertSame(lease3.getTiller(), pool.lease(config).getTiller());
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testEvictReleasedTillers() throws Throwable {
+        Lease lease1 = pool.lease(newConfig("https://cluster-1"));
+        Lease lease2 = pool.lease(newConfig("https://cluster-2"));
+
+        lease1.release();
+        // releasing again does not affect the other leases
+        lease1.release();
+        pool.evict(0);
+        assertEquals(1, pool.size());
+
+        assertSame(lease2.getTiller(), pool.lease(newConfig("https://cluster-2")).getTiller());
+        pool.lease(newConfig("https://cluster-1"));
+        assertEquals(3, builds.get());
+    }
+
+    private static TillerConfig newConfig(String k8sApiUrl) {
+        return TillerConfig.builder()
+                .setK8sApiUrl(k8sApiUrl)
+                .build();
+    }
+}